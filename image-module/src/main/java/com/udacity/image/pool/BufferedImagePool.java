@@ -0,0 +1,112 @@
+package com.udacity.image.pool;
+
+import java.awt.image.BufferedImage;
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+/**
+ * Pool of reusable images. Sizes are rounded up to size classes, multiples of the granularity
+ * in both directions, so frames of slightly different sizes share rasters: a request gets a
+ * subimage of a pooled image of its size class, sharing its pixels. Released images keep their
+ * old pixels; callers overwrite them.
+ */
+public class BufferedImagePool {
+
+    public static final int DEFAULT_GRANULARITY = 64;
+
+    private final int granularity;
+    private final int maxPerClass;
+    private final Map<Long, ArrayDeque<BufferedImage>> free = new HashMap<>();
+    //images handed out as subimages, mapped to the pooled image they are part of; weak, so a
+    //subimage that is never released is collected together with its pooled image.
+    //BufferedImage keeps identity equality, as the map's keys require
+    private final Map<BufferedImage, BufferedImage> lent = new WeakHashMap<>();
+    private final PoolMetrics metrics = new PoolMetrics();
+
+    /**
+     * @param maxPerClass How many released images of each size class and type to keep
+     */
+    public BufferedImagePool(int maxPerClass) {
+        this(DEFAULT_GRANULARITY, maxPerClass);
+    }
+
+    /**
+     * @param granularity Width and height of pooled images are multiples of this
+     * @param maxPerClass How many released images of each size class and type to keep
+     */
+    public BufferedImagePool(int granularity, int maxPerClass) {
+        if (granularity < 1) {
+            throw new IllegalArgumentException("granularity must be positive: " + granularity);
+        }
+        this.granularity = granularity;
+        this.maxPerClass = maxPerClass;
+    }
+
+    /**
+     * @return An image of exactly the given size and type, backed by a pooled raster if one is free
+     */
+    public BufferedImage acquire(int width, int height, int imageType) {
+        int classWidth = roundUp(width);
+        int classHeight = roundUp(height);
+        BufferedImage pooled = null;
+        synchronized (free) {
+            ArrayDeque<BufferedImage> images = free.get(key(classWidth, classHeight, imageType));
+            if (images != null) {
+                pooled = images.poll();
+            }
+        }
+        if (pooled == null) {
+            metrics.miss();
+            pooled = new BufferedImage(classWidth, classHeight, imageType);
+        } else {
+            metrics.hit();
+        }
+        if (classWidth == width && classHeight == height) {
+            return pooled;
+        }
+        BufferedImage image = pooled.getSubimage(0, 0, width, height);
+        synchronized (free) {
+            lent.put(image, pooled);
+        }
+        return image;
+    }
+
+    /**
+     * Returns an image to the pool. The caller must not use it afterwards. Images that did not
+     * come from a pool are kept only if their size matches a size class.
+     */
+    public void release(BufferedImage image) {
+        synchronized (free) {
+            BufferedImage pooled = lent.remove(image);
+            if (pooled == null) {
+                pooled = image;
+            }
+            if (pooled.getWidth() % granularity != 0 || pooled.getHeight() % granularity != 0) {
+                metrics.discarded();
+                return;
+            }
+            ArrayDeque<BufferedImage> images = free.computeIfAbsent(
+                    key(pooled.getWidth(), pooled.getHeight(), pooled.getType()), k -> new ArrayDeque<>());
+            if (images.size() < maxPerClass) {
+                images.push(pooled);
+                metrics.recycled();
+            } else {
+                metrics.discarded();
+            }
+        }
+    }
+
+    public PoolMetrics getMetrics() {
+        return metrics;
+    }
+
+    private int roundUp(int size) {
+        return Math.max(1, (size + granularity - 1) / granularity) * granularity;
+    }
+
+    private static long key(int width, int height, int imageType) {
+        return ((long) width << 32) | ((long) height << 8) | imageType;
+    }
+}
@@ -0,0 +1,83 @@
+package com.udacity.image.pool;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+
+/**
+ * Pool of direct byte buffers in power-of-two size classes. Requests larger than the largest
+ * class get an unpooled heap buffer.
+ */
+public class ByteBufferPool {
+
+    public static final int MIN_CLASS_SIZE = 4 * 1024;
+    public static final int MAX_CLASS_SIZE = 16 * 1024 * 1024;
+
+    private static final int MIN_SHIFT = Integer.numberOfTrailingZeros(MIN_CLASS_SIZE);
+    private static final int CLASSES = Integer.numberOfTrailingZeros(MAX_CLASS_SIZE) - MIN_SHIFT + 1;
+
+    private final int maxPerClass;
+    private final ArrayDeque<ByteBuffer>[] free;
+    private final PoolMetrics metrics = new PoolMetrics();
+
+    /**
+     * @param maxPerClass How many released buffers of each size class to keep
+     */
+    @SuppressWarnings("unchecked")
+    public ByteBufferPool(int maxPerClass) {
+        this.maxPerClass = maxPerClass;
+        this.free = new ArrayDeque[CLASSES];
+        for (int i = 0; i < CLASSES; i++) {
+            free[i] = new ArrayDeque<>();
+        }
+    }
+
+    /**
+     * @return A cleared buffer with at least the given capacity
+     */
+    public ByteBuffer acquire(int minCapacity) {
+        if (minCapacity > MAX_CLASS_SIZE) {
+            metrics.miss();
+            return ByteBuffer.allocate(minCapacity);
+        }
+        int sizeClass = sizeClass(minCapacity);
+        ByteBuffer buffer;
+        synchronized (free) {
+            buffer = free[sizeClass].poll();
+        }
+        if (buffer == null) {
+            metrics.miss();
+            return ByteBuffer.allocateDirect(MIN_CLASS_SIZE << sizeClass);
+        }
+        metrics.hit();
+        return buffer.clear();
+    }
+
+    /**
+     * Returns a buffer to the pool. The caller must not use it afterwards, nor any view of it.
+     */
+    public void release(ByteBuffer buffer) {
+        int capacity = buffer.capacity();
+        if (!buffer.isDirect() || capacity < MIN_CLASS_SIZE || capacity > MAX_CLASS_SIZE || Integer.bitCount(capacity) != 1) {
+            metrics.discarded();
+            return;
+        }
+        int sizeClass = sizeClass(capacity);
+        synchronized (free) {
+            if (free[sizeClass].size() < maxPerClass) {
+                free[sizeClass].push(buffer);
+                metrics.recycled();
+                return;
+            }
+        }
+        metrics.discarded();
+    }
+
+    public PoolMetrics getMetrics() {
+        return metrics;
+    }
+
+    private static int sizeClass(int capacity) {
+        int shift = 32 - Integer.numberOfLeadingZeros(Math.max(capacity, MIN_CLASS_SIZE) - 1);
+        return shift - MIN_SHIFT;
+    }
+}
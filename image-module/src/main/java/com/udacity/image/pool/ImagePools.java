@@ -0,0 +1,19 @@
+package com.udacity.image.pool;
+
+/**
+ * Pools shared by the image path, so frames decoded, preprocessed and encoded by different
+ * components reuse the same buffers.
+ */
+public final class ImagePools {
+
+    /** Rasters for decoded and preprocessed frames. */
+    public static final BufferedImagePool IMAGES = new BufferedImagePool(
+            Integer.getInteger("catpoint.pool.imagesPerClass", 4));
+
+    /** Direct buffers for encoded frames. */
+    public static final ByteBufferPool BYTES = new ByteBufferPool(
+            Integer.getInteger("catpoint.pool.buffersPerClass", 4));
+
+    private ImagePools() {
+    }
+}
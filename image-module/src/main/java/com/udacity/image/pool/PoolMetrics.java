@@ -0,0 +1,62 @@
+package com.udacity.image.pool;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counters of a buffer pool: how many requests were served from the pool (hits) or had to
+ * allocate (misses), and how many released buffers were kept or discarded.
+ */
+public final class PoolMetrics {
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder recycled = new LongAdder();
+    private final LongAdder discarded = new LongAdder();
+
+    void hit() {
+        hits.increment();
+    }
+
+    void miss() {
+        misses.increment();
+    }
+
+    void recycled() {
+        recycled.increment();
+    }
+
+    void discarded() {
+        discarded.increment();
+    }
+
+    public long getHits() {
+        return hits.sum();
+    }
+
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    public long getRecycled() {
+        return recycled.sum();
+    }
+
+    public long getDiscarded() {
+        return discarded.sum();
+    }
+
+    /**
+     * @return The share of requests served from the pool, between 0 and 1; 0 before any request
+     */
+    public double getHitRate() {
+        long hits = getHits();
+        long total = hits + getMisses();
+        return total == 0 ? 0 : hits / (double) total;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("hit rate %.1f%% (%d hits, %d misses), %d recycled, %d discarded",
+                getHitRate() * 100, getHits(), getMisses(), getRecycled(), getDiscarded());
+    }
+}
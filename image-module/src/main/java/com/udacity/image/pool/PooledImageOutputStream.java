@@ -0,0 +1,112 @@
+package com.udacity.image.pool;
+
+import javax.imageio.stream.ImageOutputStreamImpl;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * Image output stream writing straight into pooled direct byte buffers, so encoders neither
+ * grow a byte array nor go through ImageIO's stream cache. When a buffer fills up, the next
+ * size class is taken from the pool. Closing the stream returns the buffer to the pool.
+ */
+public class PooledImageOutputStream extends ImageOutputStreamImpl {
+
+    private static final int INITIAL_CAPACITY = 64 * 1024;
+
+    private final ByteBufferPool pool;
+    private ByteBuffer buffer;
+    private long length;
+
+    public PooledImageOutputStream(ByteBufferPool pool) {
+        this(pool, INITIAL_CAPACITY);
+    }
+
+    /**
+     * @param expectedLength Expected size of the output, to start with a large enough buffer
+     */
+    public PooledImageOutputStream(ByteBufferPool pool, int expectedLength) {
+        this.pool = pool;
+        this.buffer = pool.acquire(expectedLength);
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        flushBits();
+        ensureCapacity(streamPos + 1);
+        buffer.put((int) streamPos, (byte) b);
+        advance(1);
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+        flushBits();
+        ensureCapacity(streamPos + len);
+        buffer.position((int) streamPos);
+        buffer.put(b, off, len);
+        advance(len);
+    }
+
+    @Override
+    public int read() {
+        bitOffset = 0;
+        if (streamPos >= length) {
+            return -1;
+        }
+        return buffer.get((int) streamPos++) & 0xFF;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) {
+        bitOffset = 0;
+        if (streamPos >= length) {
+            return -1;
+        }
+        int count = (int) Math.min(len, length - streamPos);
+        buffer.position((int) streamPos);
+        buffer.get(b, off, count);
+        streamPos += count;
+        return count;
+    }
+
+    @Override
+    public long length() {
+        return length;
+    }
+
+    /**
+     * @return A read-only view of the bytes written so far, valid until the stream is closed
+     */
+    public ByteBuffer toByteBuffer() {
+        ByteBuffer view = buffer.asReadOnlyBuffer();
+        view.position(0).limit((int) length);
+        return view;
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (buffer != null) {
+            pool.release(buffer);
+            buffer = null;
+        }
+        super.close();
+    }
+
+    private void advance(int count) {
+        streamPos += count;
+        length = Math.max(length, streamPos);
+    }
+
+    private void ensureCapacity(long capacity) {
+        if (capacity <= buffer.capacity()) {
+            return;
+        }
+        if (capacity > Integer.MAX_VALUE) {
+            throw new IllegalStateException("image output larger than 2GB");
+        }
+        ByteBuffer larger = pool.acquire((int) Math.max(capacity, 2L * buffer.capacity()));
+        buffer.position(0).limit((int) length);
+        larger.put(buffer);
+        pool.release(buffer);
+        buffer = larger;
+    }
+}
@@ -0,0 +1,74 @@
+package com.udacity.image.pool;
+
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.ImageTypeSpecifier;
+import javax.imageio.stream.ImageInputStream;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Iterator;
+
+/**
+ * Decodes images into pooled rasters instead of letting the reader allocate a new image for
+ * every frame. Formats whose natural image type is not a standard one are decoded normally.
+ * Release the returned image to the pool once it is no longer needed.
+ */
+public final class PooledImageReader {
+
+    private PooledImageReader() {
+    }
+
+    /**
+     * @return The decoded image, or null if no reader supports the format
+     */
+    public static BufferedImage read(File file, BufferedImagePool pool) throws IOException {
+        try (ImageInputStream input = ImageIO.createImageInputStream(file)) {
+            return read(input, pool);
+        }
+    }
+
+    /**
+     * @return The decoded image, or null if no reader supports the format
+     */
+    public static BufferedImage read(InputStream stream, BufferedImagePool pool) throws IOException {
+        try (ImageInputStream input = ImageIO.createImageInputStream(stream)) {
+            return read(input, pool);
+        }
+    }
+
+    private static BufferedImage read(ImageInputStream input, BufferedImagePool pool) throws IOException {
+        if (input == null) {
+            throw new IOException("cannot open image input");
+        }
+        Iterator<ImageReader> readers = ImageIO.getImageReaders(input);
+        if (!readers.hasNext()) {
+            return null;
+        }
+        ImageReader reader = readers.next();
+        try {
+            reader.setInput(input, true, true);
+            int width = reader.getWidth(0);
+            int height = reader.getHeight(0);
+            Iterator<ImageTypeSpecifier> types = reader.getImageTypes(0);
+            int imageType = types.hasNext() ? types.next().getBufferedImageType() : BufferedImage.TYPE_CUSTOM;
+            if (imageType == BufferedImage.TYPE_CUSTOM) {
+                return reader.read(0);
+            }
+
+            BufferedImage destination = pool.acquire(width, height, imageType);
+            ImageReadParam param = reader.getDefaultReadParam();
+            param.setDestination(destination);
+            try {
+                return reader.read(0, param);
+            } catch (IOException | RuntimeException e) {
+                pool.release(destination);
+                throw e;
+            }
+        } finally {
+            reader.dispose();
+        }
+    }
+}
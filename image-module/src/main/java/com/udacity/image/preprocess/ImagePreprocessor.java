@@ -0,0 +1,123 @@
+package com.udacity.image.preprocess;
+
+import com.udacity.image.pool.BufferedImagePool;
+import com.udacity.image.pool.ImagePools;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.Rectangle;
+import java.awt.geom.Rectangle2D;
+import java.awt.image.BufferedImage;
+import java.util.List;
+
+/**
+ * Prepares camera frames for a detector: crops them to the configured regions of interest and
+ * scales the result down to fit the detector's input size. Several regions are cropped to their
+ * bounding box with everything outside the regions blacked out. Frames are never scaled up.
+ *
+ * Output images are 3-byte BGR, which JPEG encoders handle directly, and come from a pool; hand
+ * them back with {@link #release(BufferedImage)} once the detector is done with them.
+ */
+public class ImagePreprocessor {
+
+    public static final int OUTPUT_TYPE = BufferedImage.TYPE_3BYTE_BGR;
+
+    private static final List<Rectangle2D> WHOLE_FRAME = List.of(new Rectangle2D.Double(0, 0, 1, 1));
+
+    private final List<Rectangle2D> regionsOfInterest;
+    private final int maxWidth;
+    private final int maxHeight;
+    private final BufferedImagePool pool;
+
+    /**
+     * Creates a preprocessor that keeps the whole frame and only scales it down, using the
+     * shared image pool.
+     */
+    public ImagePreprocessor(int maxWidth, int maxHeight) {
+        this(WHOLE_FRAME, maxWidth, maxHeight, ImagePools.IMAGES);
+    }
+
+    /**
+     * @param regionsOfInterest Regions to keep, as fractions of the frame's width and height
+     * @param maxWidth Maximum width of the output
+     * @param maxHeight Maximum height of the output
+     * @param pool Pool providing the output images
+     */
+    public ImagePreprocessor(List<Rectangle2D> regionsOfInterest, int maxWidth, int maxHeight, BufferedImagePool pool) {
+        if (regionsOfInterest.isEmpty()) {
+            throw new IllegalArgumentException("at least one region of interest is required");
+        }
+        if (maxWidth < 1 || maxHeight < 1) {
+            throw new IllegalArgumentException("invalid output size " + maxWidth + "x" + maxHeight);
+        }
+        this.regionsOfInterest = List.copyOf(regionsOfInterest);
+        this.maxWidth = maxWidth;
+        this.maxHeight = maxHeight;
+        this.pool = pool;
+    }
+
+    /**
+     * @param frame The camera frame; it is not modified
+     * @return The pooled, cropped and scaled image, or null if no region of interest lies within the frame
+     */
+    public BufferedImage process(BufferedImage frame) {
+        Rectangle[] regions = new Rectangle[regionsOfInterest.size()];
+        Rectangle bounds = null;
+        for (int i = 0; i < regions.length; i++) {
+            regions[i] = toPixels(regionsOfInterest.get(i), frame.getWidth(), frame.getHeight());
+            if (!regions[i].isEmpty()) {
+                bounds = bounds == null ? new Rectangle(regions[i]) : bounds.union(regions[i]);
+            }
+        }
+        if (bounds == null) {
+            return null;
+        }
+
+        double scale = Math.min(1.0, Math.min(maxWidth / (double) bounds.width, maxHeight / (double) bounds.height));
+        int width = Math.max(1, (int) Math.round(bounds.width * scale));
+        int height = Math.max(1, (int) Math.round(bounds.height * scale));
+        BufferedImage output = pool.acquire(width, height, OUTPUT_TYPE);
+
+        Graphics2D g = output.createGraphics();
+        try {
+            Resampler.configure(g);
+            if (regions.length > 1) {
+                g.setColor(Color.BLACK);
+                g.fillRect(0, 0, width, height);
+            }
+            for (Rectangle region : regions) {
+                if (region.isEmpty()) {
+                    continue;
+                }
+                int dx1 = (int) Math.round((region.x - bounds.x) * scale);
+                int dy1 = (int) Math.round((region.y - bounds.y) * scale);
+                int dx2 = (int) Math.round((region.x + region.width - bounds.x) * scale);
+                int dy2 = (int) Math.round((region.y + region.height - bounds.y) * scale);
+                g.drawImage(frame, dx1, dy1, dx2, dy2,
+                        region.x, region.y, region.x + region.width, region.y + region.height, null);
+            }
+        } finally {
+            g.dispose();
+        }
+        return output;
+    }
+
+    /**
+     * Returns an image from {@link #process(BufferedImage)} to the pool.
+     */
+    public void release(BufferedImage processed) {
+        pool.release(processed);
+    }
+
+    private static Rectangle toPixels(Rectangle2D region, int width, int height) {
+        int x1 = clamp((int) Math.floor(region.getMinX() * width), width);
+        int y1 = clamp((int) Math.floor(region.getMinY() * height), height);
+        int x2 = clamp((int) Math.ceil(region.getMaxX() * width), width);
+        int y2 = clamp((int) Math.ceil(region.getMaxY() * height), height);
+        return new Rectangle(x1, y1, Math.max(0, x2 - x1), Math.max(0, y2 - y1));
+    }
+
+    private static int clamp(int value, int max) {
+        return Math.max(0, Math.min(max, value));
+    }
+}
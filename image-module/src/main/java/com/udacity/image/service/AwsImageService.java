@@ -1,20 +1,23 @@
 package com.udacity.image.service;
 
+import com.udacity.image.pool.ImagePools;
+import com.udacity.image.pool.PooledImageOutputStream;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import software.amazon.awssdk.auth.credentials.AwsBasicCredentials;
 import software.amazon.awssdk.auth.credentials.AwsCredentials;
 import software.amazon.awssdk.auth.credentials.StaticCredentialsProvider;
 import software.amazon.awssdk.core.SdkBytes;
+import software.amazon.awssdk.http.urlconnection.UrlConnectionHttpClient;
 import software.amazon.awssdk.regions.Region;
 import software.amazon.awssdk.services.rekognition.RekognitionClient;
 import software.amazon.awssdk.services.rekognition.model.DetectLabelsRequest;
 import software.amazon.awssdk.services.rekognition.model.DetectLabelsResponse;
 import software.amazon.awssdk.services.rekognition.model.Image;
+import software.amazon.awssdk.services.rekognition.model.Label;
 
 import javax.imageio.ImageIO;
 import java.awt.image.BufferedImage;
-import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.util.Properties;
@@ -33,31 +36,63 @@ import java.util.stream.Collectors;
  *      aws.secret=[your Secret access key]
  *      aws.region=[an aws region of choice. For example: us-east-2]
  */
-public class AwsImageService {
+public class AwsImageService implements ImageService {
 
-    private Logger log = LoggerFactory.getLogger(AwsImageService.class);
+    private static final Logger log = LoggerFactory.getLogger(AwsImageService.class);
 
-    //aws recommendation is to maintain only a single instance of client objects
-    private static RekognitionClient rekognitionClient;
+    private final LabelMatcher catLabels;
 
     public AwsImageService() {
-        Properties props = new Properties();
-        try (InputStream is = getClass().getClassLoader().getResourceAsStream("config.properties")) {
-            props.load(is);
-        } catch (IOException ioe ) {
-            log.error("Unable to initialize AWS Rekognition, no properties file found", ioe);
-            return;
-        }
+        this(LabelMatcher.CATS);
+    }
+
+    /**
+     * Cheap to call; the shared Rekognition client is only built on the first detection.
+     * @param catLabels Label names that count as a cat
+     */
+    public AwsImageService(LabelMatcher catLabels) {
+        this.catLabels = catLabels;
+    }
+
+    /**
+     * Holds the single Rekognition client recommended by aws. The class loader initializes it
+     * once, thread-safely, when detect first touches it, so neither application startup nor
+     * further instances pay for reading the config and building the client.
+     */
+    private static class ClientHolder {
+        private static final RekognitionClient CLIENT = createClient();
 
-        String awsId = props.getProperty("aws.id");
-        String awsSecret = props.getProperty("aws.secret");
-        String awsRegion = props.getProperty("aws.region");
+        private static RekognitionClient createClient() {
+            Properties props = new Properties();
+            try (InputStream is = AwsImageService.class.getClassLoader().getResourceAsStream("config.properties")) {
+                if (is == null) {
+                    log.error("Unable to initialize AWS Rekognition, no properties file found");
+                    return null;
+                }
+                props.load(is);
+            } catch (IOException ioe ) {
+                log.error("Unable to initialize AWS Rekognition, no properties file found", ioe);
+                return null;
+            }
 
-        AwsCredentials awsCredentials = AwsBasicCredentials.create(awsId, awsSecret);
-        rekognitionClient = RekognitionClient.builder()
-                .credentialsProvider(StaticCredentialsProvider.create(awsCredentials))
-                .region(Region.of(awsRegion))
-                .build();
+            String awsId = props.getProperty("aws.id");
+            String awsSecret = props.getProperty("aws.secret");
+            String awsRegion = props.getProperty("aws.region");
+
+            //a failure here would fail the class initialization, leaving every later detect with an Error
+            try {
+                AwsCredentials awsCredentials = AwsBasicCredentials.create(awsId, awsSecret);
+                //the JDK url connection client starts much faster than the default apache client
+                return RekognitionClient.builder()
+                        .httpClientBuilder(UrlConnectionHttpClient.builder())
+                        .credentialsProvider(StaticCredentialsProvider.create(awsCredentials))
+                        .region(Region.of(awsRegion))
+                        .build();
+            } catch (RuntimeException e) {
+                log.error("Unable to initialize AWS Rekognition, check aws.id, aws.secret and aws.region", e);
+                return null;
+            }
+        }
     }
 
     /**
@@ -66,23 +101,47 @@ public class AwsImageService {
      * @param confidenceThreshhold Minimum threshhold to consider for cat. For example, 90.0f would require 90% confidence minimum
      * @return
      */
+    @Override
     public boolean imageContainsCat(BufferedImage image, float confidenceThreshhold) {
+        return detect(image, confidenceThreshhold).isCat(confidenceThreshhold);
+    }
+
+    /**
+     * Asks Rekognition for the labels at or above the threshold and stops at the first cat label,
+     * since any one of them decides the result.
+     * @throws IllegalStateException if the Rekognition client could not be initialized
+     */
+    @Override
+    public Detection detect(BufferedImage image, float confidenceThreshold) {
+        RekognitionClient rekognitionClient = ClientHolder.CLIENT;
+        if (rekognitionClient == null) {
+            throw new IllegalStateException("AWS Rekognition is not configured, see config.properties");
+        }
         Image awsImage = null;
-        try (ByteArrayOutputStream os = new ByteArrayOutputStream()) {
+        //encode into a pooled direct buffer; the SDK copies it once into the request
+        try (PooledImageOutputStream os = new PooledImageOutputStream(ImagePools.BYTES)) {
             ImageIO.write(image, "jpg", os);
-            awsImage = Image.builder().bytes(SdkBytes.fromByteArray(os.toByteArray())).build();
+            awsImage = Image.builder().bytes(SdkBytes.fromByteBuffer(os.toByteBuffer())).build();
         } catch (IOException ioe) {
             log.error("Error building image byte array", ioe);
-            return false;
+            return Detection.of(false, confidenceThreshold);
         }
-        DetectLabelsRequest detectLabelsRequest = DetectLabelsRequest.builder().image(awsImage).minConfidence(confidenceThreshhold).build();
+        DetectLabelsRequest detectLabelsRequest = DetectLabelsRequest.builder().image(awsImage).minConfidence(confidenceThreshold).build();
         DetectLabelsResponse response = rekognitionClient.detectLabels(detectLabelsRequest);
         logLabelsForFun(response);
-        return response.labels().stream().filter(l -> l.name().toLowerCase().contains("cat")).findFirst().isPresent();
+        for (Label label : response.labels()) {
+            if (label.confidence() >= confidenceThreshold && catLabels.matches(label.name())) {
+                return new Detection(label.name(), label.confidence(), confidenceThreshold, false);
+            }
+        }
+        return new Detection(null, 0f, confidenceThreshold, true);
     }
 
     private void logLabelsForFun(DetectLabelsResponse response) {
-        log.info(response.labels().stream()
+        if (!log.isDebugEnabled()) {
+            return;
+        }
+        log.debug(response.labels().stream()
                 .map(label -> String.format("%s(%.1f%%)", label.name(), label.confidence()))
                 .collect(Collectors.joining(", ")));
     }
@@ -0,0 +1,151 @@
+package com.udacity.image.service;
+
+import java.awt.image.BufferedImage;
+import java.nio.ByteBuffer;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+/**
+ * Image service that remembers the results of another image service for frames it has already
+ * scanned, so a camera sending the same frame again, for example while its stream stalls, is
+ * answered without asking the detector. Frames are keyed by a SHA-256 digest of their size and
+ * pixels, so only a frame identical to one the detector has seen is answered from the cache;
+ * anything that changed in the scene, however small, is scanned again.
+ *
+ * A remembered result is only used while it is younger than the time to live and when it can
+ * decide the requested threshold; otherwise the image is scanned again and the new result
+ * replaces it. The cache keeps the most recently used results up to its capacity.
+ */
+public class CachingImageService implements ImageService {
+
+    private final ImageService delegate;
+    private final long ttlNanos;
+    private final LongSupplier nanoClock;
+    private final Map<Digest, Entry> cache;
+    private long hits;
+    private long misses;
+
+    /**
+     * @param delegate The detector answering images that are not cached
+     * @param capacity Number of results kept
+     * @param ttlMillis How long a result may be reused
+     */
+    public CachingImageService(ImageService delegate, int capacity, long ttlMillis) {
+        this(delegate, capacity, ttlMillis, System::nanoTime);
+    }
+
+    CachingImageService(ImageService delegate, int capacity, long ttlMillis, LongSupplier nanoClock) {
+        this.delegate = delegate;
+        this.ttlNanos = TimeUnit.MILLISECONDS.toNanos(ttlMillis);
+        this.nanoClock = nanoClock;
+        this.cache = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Digest, Entry> eldest) {
+                return size() > capacity;
+            }
+        };
+    }
+
+    @Override
+    public boolean imageContainsCat(BufferedImage image, float confidenceThreshold) {
+        return detect(image, confidenceThreshold).isCat(confidenceThreshold);
+    }
+
+    @Override
+    public Detection detect(BufferedImage image, float confidenceThreshold) {
+        Digest digest = Digest.of(image);
+        synchronized (cache) {
+            Entry cached = cache.get(digest);
+            if (cached != null && nanoClock.getAsLong() - cached.scannedAtNanos < ttlNanos
+                    && cached.detection.canDecide(confidenceThreshold)) {
+                hits++;
+                return cached.detection;
+            }
+            misses++;
+        }
+        //scanned outside the lock, so a slow detector does not hold up cached answers
+        Detection detection = delegate.detect(image, confidenceThreshold);
+        synchronized (cache) {
+            cache.put(digest, new Entry(detection, nanoClock.getAsLong()));
+        }
+        return detection;
+    }
+
+    /**
+     * @return Number of images answered from the cache
+     */
+    public long getHits() {
+        synchronized (cache) {
+            return hits;
+        }
+    }
+
+    /**
+     * @return Number of images handed to the detector
+     */
+    public long getMisses() {
+        synchronized (cache) {
+            return misses;
+        }
+    }
+
+    private static final class Entry {
+        private final Detection detection;
+        private final long scannedAtNanos;
+
+        private Entry(Detection detection, long scannedAtNanos) {
+            this.detection = detection;
+            this.scannedAtNanos = scannedAtNanos;
+        }
+    }
+
+    /**
+     * Digest of a frame's size and pixels.
+     */
+    private static final class Digest {
+        private final byte[] bytes;
+        private final int hash;
+
+        private Digest(byte[] bytes) {
+            this.bytes = bytes;
+            this.hash = Arrays.hashCode(bytes);
+        }
+
+        static Digest of(BufferedImage image) {
+            int width = image.getWidth();
+            int height = image.getHeight();
+            MessageDigest sha256;
+            try {
+                sha256 = MessageDigest.getInstance("SHA-256");
+            } catch (NoSuchAlgorithmException e) {
+                //every Java platform is required to support SHA-256
+                throw new IllegalStateException(e);
+            }
+            ByteBuffer row = ByteBuffer.allocate(Math.max(2, width) * Integer.BYTES);
+            sha256.update(row.putInt(width).putInt(height).array(), 0, 2 * Integer.BYTES);
+            int[] pixels = new int[width];
+            for (int y = 0; y < height; y++) {
+                image.getRGB(0, y, width, 1, pixels, 0, width);
+                row.clear();
+                row.asIntBuffer().put(pixels);
+                sha256.update(row.array(), 0, width * Integer.BYTES);
+            }
+            return new Digest(sha256.digest());
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof Digest && Arrays.equals(bytes, ((Digest) o).bytes);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+}
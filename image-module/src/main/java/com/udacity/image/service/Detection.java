@@ -0,0 +1,76 @@
+package com.udacity.image.service;
+
+/**
+ * Result of scanning an image for cats: the confidence of the cat label that decided it and the
+ * minimum confidence the scan looked at. Callers can re-decide a result against a different
+ * threshold without scanning the image again, as long as {@link #canDecide(float)} holds.
+ */
+public final class Detection {
+
+    private final String label;
+    private final float confidence;
+    private final float minConfidence;
+    private final boolean complete;
+
+    /**
+     * @param label Name of the matching label, or null if no cat label was found
+     * @param confidence Confidence of the matching label in percent, or 0 if none was found
+     * @param minConfidence Labels below this confidence were not reported by the detector
+     * @param complete False if the scan stopped early at the matching label, in which case other
+     *                 cat labels with a higher confidence may have been skipped
+     */
+    public Detection(String label, float confidence, float minConfidence, boolean complete) {
+        this.label = label;
+        this.confidence = confidence;
+        this.minConfidence = minConfidence;
+        this.complete = complete;
+    }
+
+    /**
+     * @return A detection carrying only a yes/no answer for the given threshold
+     */
+    public static Detection of(boolean cat, float confidenceThreshold) {
+        return cat
+                ? new Detection("cat", confidenceThreshold, confidenceThreshold, false)
+                : new Detection(null, 0f, confidenceThreshold, true);
+    }
+
+    /**
+     * @return True if a cat label with at least the given confidence was found
+     */
+    public boolean isCat(float confidenceThreshold) {
+        return label != null && confidence >= confidenceThreshold;
+    }
+
+    /**
+     * @return True if this result answers {@link #isCat(float)} for the threshold correctly; false
+     * if the image would have to be scanned again
+     */
+    public boolean canDecide(float confidenceThreshold) {
+        return isCat(confidenceThreshold) || (complete && confidenceThreshold >= minConfidence);
+    }
+
+    public String getLabel() {
+        return label;
+    }
+
+    public float getConfidence() {
+        return confidence;
+    }
+
+    public float getMinConfidence() {
+        return minConfidence;
+    }
+
+    /**
+     * @return False if the scan stopped at the first matching label
+     */
+    public boolean isComplete() {
+        return complete;
+    }
+
+    @Override
+    public String toString() {
+        return label == null ? "no cat" : String.format("%s(%.1f%%)", label, confidence);
+    }
+}
@@ -7,4 +7,14 @@ import java.awt.image.BufferedImage;
  */
 public interface ImageService {
     boolean imageContainsCat(BufferedImage image, float confidenceThreshold);
+
+    /**
+     * Scans the image for cats and returns the result with its score, so it can be reused
+     * without scanning again. Services that only answer yes or no need not override this.
+     * @param image Image to scan
+     * @param confidenceThreshold Minimum confidence, in percent, for a label to count as a cat
+     */
+    default Detection detect(BufferedImage image, float confidenceThreshold) {
+        return Detection.of(imageContainsCat(image, confidenceThreshold), confidenceThreshold);
+    }
 }
@@ -0,0 +1,45 @@
+package com.udacity.image.service;
+
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * Matches label names against a fixed set of labels, ignoring case. The set is lowercased once
+ * and bucketed by length, so a label is only compared with the entries of its own length and
+ * matching does not allocate.
+ */
+public final class LabelMatcher {
+
+    /** Labels Rekognition uses for cats. */
+    public static final LabelMatcher CATS = new LabelMatcher(Set.of("Cat", "Kitten"));
+
+    //labels of length n are in byLength[n]
+    private final String[][] byLength;
+
+    public LabelMatcher(Set<String> labels) {
+        int maxLength = labels.stream().mapToInt(String::length).max().orElse(0);
+        byLength = new String[maxLength + 1][0];
+        for (String label : labels) {
+            String[] bucket = byLength[label.length()];
+            bucket = Arrays.copyOf(bucket, bucket.length + 1);
+            bucket[bucket.length - 1] = label.toLowerCase(Locale.ROOT);
+            byLength[label.length()] = bucket;
+        }
+    }
+
+    /**
+     * @return True if the name is one of the labels, ignoring case
+     */
+    public boolean matches(String name) {
+        if (name == null || name.length() >= byLength.length) {
+            return false;
+        }
+        for (String label : byLength[name.length()]) {
+            if (label.regionMatches(true, 0, name, 0, name.length())) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
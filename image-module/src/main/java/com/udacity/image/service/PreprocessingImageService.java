@@ -0,0 +1,43 @@
+package com.udacity.image.service;
+
+import com.udacity.image.preprocess.ImagePreprocessor;
+
+import java.awt.image.BufferedImage;
+
+/**
+ * Image service that crops and downscales frames with an {@link ImagePreprocessor} before handing
+ * them to another image service, so the detector encodes and analyzes far fewer pixels.
+ *
+ * The preprocessed image goes back to the pool as soon as the delegate returns, so the delegate
+ * must not keep reading it after that; {@link ResilientImageService} gives its remote calls,
+ * which may outlive the scan, a copy.
+ */
+public class PreprocessingImageService implements ImageService {
+
+    private final ImageService delegate;
+    private final ImagePreprocessor preprocessor;
+
+    public PreprocessingImageService(ImageService delegate, ImagePreprocessor preprocessor) {
+        this.delegate = delegate;
+        this.preprocessor = preprocessor;
+    }
+
+    @Override
+    public boolean imageContainsCat(BufferedImage image, float confidenceThreshold) {
+        return detect(image, confidenceThreshold).isCat(confidenceThreshold);
+    }
+
+    @Override
+    public Detection detect(BufferedImage image, float confidenceThreshold) {
+        BufferedImage processed = preprocessor.process(image);
+        if (processed == null) {
+            //nothing of interest is visible, so there can be no cat in it
+            return Detection.of(false, confidenceThreshold);
+        }
+        try {
+            return delegate.detect(processed, confidenceThreshold);
+        } finally {
+            preprocessor.release(processed);
+        }
+    }
+}
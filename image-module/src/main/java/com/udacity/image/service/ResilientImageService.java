@@ -0,0 +1,309 @@
+package com.udacity.image.service;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.ColorModel;
+import java.util.Arrays;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.LongSupplier;
+
+/**
+ * Wraps a remote image service so a scan always answers within a deadline:
+ * - a call still running after the 95th percentile of recent latencies is hedged with a second
+ *   call, and whichever answers first wins
+ * - a scan that fails or misses the deadline is answered by a local fallback service
+ * - after several failures in a row the circuit opens and scans go straight to the fallback;
+ *   once the open period ends a single probe decides whether to close it again
+ *
+ * Calls that miss the deadline are interrupted but may keep reading the image for a while, so
+ * the remote calls of a scan read a copy of the image, and callers may reuse or pool the image
+ * as soon as the scan returns. A remote service that ignores the interrupt keeps its call thread; the call threads are
+ * bounded, and a scan finding all of them busy is answered by the fallback.
+ */
+public class ResilientImageService implements ImageService, AutoCloseable {
+
+    public enum CircuitState { CLOSED, OPEN, HALF_OPEN }
+
+    private static final int LATENCY_SAMPLES = 128;
+    private static final int MIN_SAMPLES_FOR_PERCENTILE = 20;
+    private static final int MAX_CALL_THREADS = 16;
+    private static final long IDLE_THREAD_SECONDS = 60;
+
+    private final ImageService primary;
+    private final ImageService fallback;
+    private final long deadlineNanos;
+    private final long initialHedgeDelayNanos;
+    private final int failureThreshold;
+    private final long openNanos;
+    private final ExecutorService executor;
+    private final LongSupplier nanoClock;
+
+    //circuit breaker, guarded by this
+    private CircuitState circuitState = CircuitState.CLOSED;
+    private int consecutiveFailures;
+    private long openedAt;
+    private boolean probing;
+
+    //latencies of successful calls, guarded by this; p95 is recomputed as samples arrive
+    private final long[] latencies = new long[LATENCY_SAMPLES];
+    private int latencyCount;
+    private int nextLatency;
+    private long hedgeDelayNanos;
+
+    private long scans;
+    private long hedges;
+    private long fallbacks;
+
+    /**
+     * @param primary The remote service
+     * @param fallback Local service answering when the remote one cannot
+     * @param deadlineMillis Longest time to wait for the remote service
+     * @param initialHedgeDelayMillis Hedge delay until enough latencies have been seen for a percentile
+     * @param failureThreshold Failures in a row that open the circuit
+     * @param openMillis How long the circuit stays open before probing the remote service again
+     */
+    public ResilientImageService(ImageService primary, ImageService fallback, long deadlineMillis,
+                                 long initialHedgeDelayMillis, int failureThreshold, long openMillis) {
+        this(primary, fallback, deadlineMillis, initialHedgeDelayMillis, failureThreshold, openMillis,
+                newCallExecutor(MAX_CALL_THREADS), System::nanoTime);
+    }
+
+    ResilientImageService(ImageService primary, ImageService fallback, long deadlineMillis,
+                          long initialHedgeDelayMillis, int failureThreshold, long openMillis,
+                          ExecutorService executor, LongSupplier nanoClock) {
+        if (failureThreshold < 1) {
+            throw new IllegalArgumentException("failureThreshold must be positive: " + failureThreshold);
+        }
+        this.primary = primary;
+        this.fallback = fallback;
+        this.deadlineNanos = TimeUnit.MILLISECONDS.toNanos(deadlineMillis);
+        this.initialHedgeDelayNanos = TimeUnit.MILLISECONDS.toNanos(initialHedgeDelayMillis);
+        this.hedgeDelayNanos = initialHedgeDelayNanos;
+        this.failureThreshold = failureThreshold;
+        this.openNanos = TimeUnit.MILLISECONDS.toNanos(openMillis);
+        this.executor = executor;
+        this.nanoClock = nanoClock;
+    }
+
+    /**
+     * @return An executor running at most the given number of calls, rejecting any beyond that
+     */
+    static ExecutorService newCallExecutor(int maxThreads) {
+        return new ThreadPoolExecutor(0, maxThreads, IDLE_THREAD_SECONDS, TimeUnit.SECONDS,
+                new SynchronousQueue<>(), ResilientImageService::newThread, new ThreadPoolExecutor.AbortPolicy());
+    }
+
+    private static Thread newThread(Runnable runnable) {
+        Thread thread = new Thread(runnable, "remote-detector");
+        thread.setDaemon(true);
+        return thread;
+    }
+
+    @Override
+    public boolean imageContainsCat(BufferedImage image, float confidenceThreshold) {
+        return detect(image, confidenceThreshold).isCat(confidenceThreshold);
+    }
+
+    @Override
+    public Detection detect(BufferedImage image, float confidenceThreshold) {
+        long start = nanoClock.getAsLong();
+        Boolean probe = acquirePermission(start);
+        if (probe == null) {
+            return useFallback(image, confidenceThreshold);
+        }
+
+        Race race = new Race(image, confidenceThreshold);
+        try {
+            race.launch();
+            Detection detection;
+            long hedgeDelay = probe ? deadlineNanos : Math.min(currentHedgeDelay(), deadlineNanos);
+            try {
+                detection = race.winner.get(hedgeDelay, TimeUnit.NANOSECONDS);
+            } catch (TimeoutException e) {
+                long remaining = deadlineNanos - (nanoClock.getAsLong() - start);
+                if (remaining <= 0) {
+                    throw e;
+                }
+                try {
+                    race.launch();
+                    countHedge();
+                } catch (RejectedExecutionException busy) {
+                    //no call thread free for a hedge; the first call may still answer in time
+                }
+                detection = race.winner.get(remaining, TimeUnit.NANOSECONDS);
+            }
+            recordSuccess(nanoClock.getAsLong() - start);
+            return detection;
+        } catch (TimeoutException | ExecutionException e) {
+            recordFailure(nanoClock.getAsLong());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            releaseProbe();
+        } catch (RejectedExecutionException e) {
+            //closed, or every call thread is held by late calls that already counted as failures
+            releaseProbe();
+        } finally {
+            race.cancel();
+        }
+        return useFallback(image, confidenceThreshold);
+    }
+
+    private synchronized void countFallback() {
+        fallbacks++;
+    }
+
+    private Detection useFallback(BufferedImage image, float confidenceThreshold) {
+        countFallback();
+        return fallback.detect(image, confidenceThreshold);
+    }
+
+    /**
+     * @return False to call the remote service normally, true to call it as the half-open probe,
+     * or null to use the fallback
+     */
+    private synchronized Boolean acquirePermission(long now) {
+        scans++;
+        switch (circuitState) {
+            case CLOSED:
+                return false;
+            case OPEN:
+                if (now - openedAt < openNanos) {
+                    return null;
+                }
+                circuitState = CircuitState.HALF_OPEN;
+                probing = true;
+                return true;
+            default:
+                //only one probe at a time while half open
+                if (probing) {
+                    return null;
+                }
+                probing = true;
+                return true;
+        }
+    }
+
+    private synchronized void releaseProbe() {
+        probing = false;
+    }
+
+    private synchronized void recordSuccess(long latencyNanos) {
+        consecutiveFailures = 0;
+        circuitState = CircuitState.CLOSED;
+        probing = false;
+
+        latencies[nextLatency] = latencyNanos;
+        nextLatency = (nextLatency + 1) % LATENCY_SAMPLES;
+        latencyCount = Math.min(latencyCount + 1, LATENCY_SAMPLES);
+        if (latencyCount >= MIN_SAMPLES_FOR_PERCENTILE && (latencyCount < LATENCY_SAMPLES || nextLatency % 16 == 0)) {
+            long[] sorted = Arrays.copyOf(latencies, latencyCount);
+            Arrays.sort(sorted);
+            hedgeDelayNanos = sorted[(int) Math.ceil(sorted.length * 0.95) - 1];
+        }
+    }
+
+    private synchronized void recordFailure(long now) {
+        probing = false;
+        consecutiveFailures++;
+        if (circuitState == CircuitState.HALF_OPEN || consecutiveFailures >= failureThreshold) {
+            circuitState = CircuitState.OPEN;
+            openedAt = now;
+        }
+    }
+
+    private synchronized long currentHedgeDelay() {
+        return latencyCount >= MIN_SAMPLES_FOR_PERCENTILE ? hedgeDelayNanos : initialHedgeDelayNanos;
+    }
+
+    private synchronized void countHedge() {
+        hedges++;
+    }
+
+    public synchronized CircuitState getCircuitState() {
+        return circuitState;
+    }
+
+    /**
+     * @return Current delay before a call is hedged, in milliseconds
+     */
+    public long getHedgeDelayMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(currentHedgeDelay());
+    }
+
+    public synchronized long getScanCount() {
+        return scans;
+    }
+
+    public synchronized long getHedgeCount() {
+        return hedges;
+    }
+
+    public synchronized long getFallbackCount() {
+        return fallbacks;
+    }
+
+    /**
+     * Interrupts calls still running and stops the call threads.
+     */
+    @Override
+    public void close() {
+        executor.shutdownNow();
+    }
+
+    private static BufferedImage copy(BufferedImage image) {
+        ColorModel colorModel = image.getColorModel();
+        return new BufferedImage(colorModel, image.copyData(null), colorModel.isAlphaPremultiplied(), null);
+    }
+
+    /**
+     * Calls to the remote service for one scan. The first call to succeed completes the winner;
+     * the winner fails only once every call has failed.
+     */
+    private final class Race {
+        private final BufferedImage image;
+        private final float confidenceThreshold;
+        private final CompletableFuture<Detection> winner = new CompletableFuture<>();
+        private final Future<?>[] calls = new Future<?>[2];
+        private final AtomicInteger launched = new AtomicInteger();
+        private final AtomicInteger failed = new AtomicInteger();
+
+        private Race(BufferedImage image, float confidenceThreshold) {
+            this.image = copy(image);
+            this.confidenceThreshold = confidenceThreshold;
+        }
+
+        private void launch() {
+            int call = launched.getAndIncrement();
+            try {
+                calls[call] = executor.submit(() -> {
+                    try {
+                        winner.complete(primary.detect(image, confidenceThreshold));
+                    } catch (Throwable t) {
+                        if (failed.incrementAndGet() == launched.get()) {
+                            winner.completeExceptionally(t);
+                        }
+                    }
+                });
+            } catch (RejectedExecutionException e) {
+                launched.decrementAndGet();
+                throw e;
+            }
+        }
+
+        private void cancel() {
+            for (Future<?> call : calls) {
+                if (call != null) {
+                    call.cancel(true);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,54 @@
+package com.udacity.image.stream;
+
+import com.udacity.image.pool.BufferedImagePool;
+import com.udacity.image.pool.PooledImageReader;
+
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+
+/**
+ * A still compressed camera frame. Sampling and motion gating only look at the timestamp and
+ * the compressed size, so frames they discard are never decoded.
+ */
+public final class EncodedFrame {
+
+    private final byte[] data;
+    private final long sequence;
+    private final long timestampMillis;
+
+    /**
+     * @param data The encoded image, typically a JPEG; not copied
+     * @param sequence Position of the frame in its source, starting at 0
+     * @param timestampMillis Capture time of the frame
+     */
+    public EncodedFrame(byte[] data, long sequence, long timestampMillis) {
+        this.data = data;
+        this.sequence = sequence;
+        this.timestampMillis = timestampMillis;
+    }
+
+    /**
+     * Decodes the frame into a raster of the pool. Release the image to the pool once done.
+     * @return The decoded image, or null if the format is not supported
+     */
+    public BufferedImage decode(BufferedImagePool pool) throws IOException {
+        return PooledImageReader.read(new ByteArrayInputStream(data), pool);
+    }
+
+    public byte[] getData() {
+        return data;
+    }
+
+    public int getSize() {
+        return data.length;
+    }
+
+    public long getSequence() {
+        return sequence;
+    }
+
+    public long getTimestampMillis() {
+        return timestampMillis;
+    }
+}
@@ -0,0 +1,33 @@
+package com.udacity.image.stream;
+
+/**
+ * Thins a stream of frames out to at most a target frame rate, judged by the frames' timestamps.
+ * Accepted frames are spaced evenly at the target rate as long as the source delivers them; after
+ * a gap the next frame is accepted right away.
+ */
+public class FrameSampler {
+
+    private final long intervalMicros;
+    private long nextDueMicros = Long.MIN_VALUE;
+
+    /**
+     * @param fps Target frame rate; 0 or less accepts every frame
+     */
+    public FrameSampler(double fps) {
+        this.intervalMicros = fps > 0 ? Math.round(1_000_000 / fps) : 0;
+    }
+
+    /**
+     * @return True if the frame should be kept
+     */
+    public boolean accept(long timestampMillis) {
+        long micros = timestampMillis * 1_000;
+        if (micros < nextDueMicros) {
+            return false;
+        }
+        //stay on the grid while frames keep coming, restart it after a gap
+        boolean onGrid = nextDueMicros != Long.MIN_VALUE && micros - nextDueMicros < intervalMicros;
+        nextDueMicros = (onGrid ? nextDueMicros : micros) + intervalMicros;
+        return true;
+    }
+}
@@ -0,0 +1,26 @@
+package com.udacity.image.stream;
+
+import java.io.IOException;
+
+/**
+ * A camera delivering compressed frames one after another.
+ */
+public interface FrameSource extends AutoCloseable {
+
+    /**
+     * Blocks until the next frame is available.
+     * @return The next frame, or null once the source is exhausted
+     */
+    EncodedFrame next() throws IOException;
+
+    /**
+     * A live source keeps producing frames whether or not they are consumed, so a slow consumer
+     * should skip frames rather than fall behind. Files can wait for the consumer instead.
+     */
+    default boolean isLive() {
+        return false;
+    }
+
+    @Override
+    void close() throws IOException;
+}
@@ -0,0 +1,208 @@
+package com.udacity.image.stream;
+
+import com.udacity.image.pool.BufferedImagePool;
+
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Reads frames from a source on a background thread, ahead of the consumer. The reader samples
+ * the frames down to the target rate and drops those the motion gate considers unchanged, so
+ * only frames the consumer will actually see are buffered and decoded.
+ *
+ * The look-ahead buffer is bounded. When it is full, the reader waits for the consumer on
+ * recorded sources and discards the oldest buffered frame on live ones, so a slow consumer sees
+ * the latest frames instead of falling further behind.
+ */
+public class FrameStream implements AutoCloseable {
+
+    private static final EncodedFrame END = new EncodedFrame(new byte[0], -1, -1);
+
+    private final FrameSource source;
+    private final FrameSampler sampler;
+    private final MotionGate gate;
+    private final BlockingQueue<EncodedFrame> lookAhead;
+    private final Thread reader;
+    private volatile IOException failure;
+    private volatile boolean closed;
+    private boolean ended;
+
+    private final AtomicLong read = new AtomicLong();
+    private final AtomicLong sampledOut = new AtomicLong();
+    private final AtomicLong gatedOut = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+    private final AtomicLong decoded = new AtomicLong();
+
+    /**
+     * @param source The frames to read
+     * @param lookAheadFrames Maximum number of frames read ahead of the consumer
+     * @param sampler Limits the frame rate
+     * @param gate Skips frames without motion
+     */
+    public FrameStream(FrameSource source, int lookAheadFrames, FrameSampler sampler, MotionGate gate) {
+        this.source = source;
+        this.sampler = sampler;
+        this.gate = gate;
+        this.lookAhead = new ArrayBlockingQueue<>(lookAheadFrames);
+        this.reader = new Thread(this::readFrames, "frame-reader");
+        this.reader.setDaemon(true);
+    }
+
+    /**
+     * Starts reading ahead.
+     */
+    public FrameStream start() {
+        reader.start();
+        return this;
+    }
+
+    /**
+     * Blocks until the next frame that passed sampling and motion gating is available.
+     * @return The frame, or null once the source is exhausted or the stream closed
+     * @throws IOException if reading the source failed
+     */
+    public EncodedFrame nextFrame() throws IOException, InterruptedException {
+        if (ended) {
+            return null;
+        }
+        EncodedFrame frame = lookAhead.take();
+        if (frame == END) {
+            ended = true;
+            if (failure != null) {
+                throw failure;
+            }
+            return null;
+        }
+        return frame;
+    }
+
+    /**
+     * Decodes the next frame that passed sampling and motion gating into a raster of the pool.
+     * Release the image to the pool once done.
+     * @return The decoded frame, or null once the source is exhausted or the stream closed
+     * @throws IOException if reading the source or decoding the frame failed
+     */
+    public BufferedImage nextImage(BufferedImagePool pool) throws IOException, InterruptedException {
+        while (true) {
+            EncodedFrame frame = nextFrame();
+            if (frame == null) {
+                return null;
+            }
+            BufferedImage image = frame.decode(pool);
+            if (image != null) {
+                decoded.incrementAndGet();
+                return image;
+            }
+        }
+    }
+
+    private void readFrames() {
+        try {
+            EncodedFrame frame;
+            while (!closed && (frame = source.next()) != null) {
+                read.incrementAndGet();
+                if (!sampler.accept(frame.getTimestampMillis())) {
+                    sampledOut.incrementAndGet();
+                } else if (!gate.accept(frame.getSize())) {
+                    gatedOut.incrementAndGet();
+                } else {
+                    enqueue(frame);
+                }
+            }
+        } catch (IOException e) {
+            if (!closed) {
+                failure = e;
+            }
+        } catch (InterruptedException e) {
+            //closed while waiting for the consumer
+        } finally {
+            try {
+                source.close();
+            } catch (IOException e) {
+                //nothing left to read anyway
+            }
+            endOfStream();
+        }
+    }
+
+    private void enqueue(EncodedFrame frame) throws InterruptedException {
+        if (!source.isLive()) {
+            lookAhead.put(frame);
+            return;
+        }
+        while (!lookAhead.offer(frame)) {
+            if (lookAhead.poll() != null) {
+                dropped.incrementAndGet();
+            }
+        }
+    }
+
+    /**
+     * Queues the end marker, making room for it if the consumer is gone.
+     */
+    private void endOfStream() {
+        while (!lookAhead.offer(END)) {
+            if (closed && lookAhead.poll() != null) {
+                continue;
+            }
+            try {
+                lookAhead.put(END);
+                return;
+            } catch (InterruptedException e) {
+                closed = true;
+            }
+        }
+    }
+
+    /**
+     * @return Number of frames read from the source
+     */
+    public long getReadCount() {
+        return read.get();
+    }
+
+    /**
+     * @return Number of frames discarded by the sampler
+     */
+    public long getSampledOutCount() {
+        return sampledOut.get();
+    }
+
+    /**
+     * @return Number of frames discarded by the motion gate
+     */
+    public long getGatedOutCount() {
+        return gatedOut.get();
+    }
+
+    /**
+     * @return Number of buffered frames of a live source discarded because the consumer fell behind
+     */
+    public long getDroppedCount() {
+        return dropped.get();
+    }
+
+    /**
+     * @return Number of frames decoded by {@link #nextImage(BufferedImagePool)}
+     */
+    public long getDecodedCount() {
+        return decoded.get();
+    }
+
+    /**
+     * Stops reading and closes the source. A consumer waiting for a frame gets null.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        reader.interrupt();
+        try {
+            source.close();
+        } catch (IOException e) {
+            //stopping anyway
+        }
+    }
+}
@@ -0,0 +1,62 @@
+package com.udacity.image.stream;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Locale;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Plays a directory of still images, in file name order, as a recorded camera.
+ */
+public class ImageSequenceFrameSource implements FrameSource {
+
+    private final List<Path> files;
+    private final double nominalFps;
+    private int position;
+
+    /**
+     * @param directory Directory containing jpg, png, bmp or gif files
+     * @param nominalFps Frame rate used to timestamp the images
+     */
+    public ImageSequenceFrameSource(Path directory, double nominalFps) throws IOException {
+        if (nominalFps <= 0) {
+            throw new IllegalArgumentException("image sequences need a positive nominal frame rate");
+        }
+        try (Stream<Path> entries = Files.list(directory)) {
+            this.files = entries
+                    .filter(Files::isRegularFile)
+                    .filter(ImageSequenceFrameSource::isImage)
+                    .sorted()
+                    .collect(Collectors.toList());
+        }
+        this.nominalFps = nominalFps;
+    }
+
+    private static boolean isImage(Path file) {
+        String name = file.getFileName().toString().toLowerCase(Locale.ROOT);
+        return name.endsWith(".jpg") || name.endsWith(".jpeg") || name.endsWith(".png")
+                || name.endsWith(".bmp") || name.endsWith(".gif");
+    }
+
+    @Override
+    public EncodedFrame next() throws IOException {
+        if (position == files.size()) {
+            return null;
+        }
+        long sequence = position;
+        byte[] data = Files.readAllBytes(files.get(position++));
+        return new EncodedFrame(data, sequence, Math.round(sequence * 1000 / nominalFps));
+    }
+
+    public int getFrameCount() {
+        return files.size();
+    }
+
+    @Override
+    public void close() {
+        position = files.size();
+    }
+}
@@ -0,0 +1,222 @@
+package com.udacity.image.stream;
+
+import java.io.BufferedInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+/**
+ * Splits an MJPEG stream into its JPEG frames. Both multipart streams, as served by ip cameras,
+ * and plain concatenated JPEG files are supported: anything between two images, such as part
+ * headers and boundaries, is skipped.
+ *
+ * Frames are delimited by walking the JPEG marker segments rather than searching for the end
+ * of image marker, which may also appear inside metadata such as embedded thumbnails.
+ *
+ * A corrupt or truncated frame ends a recorded stream with an IOException. On a live stream it
+ * is routine, so the frame is dropped and reading resumes at the next start of image.
+ */
+public class MjpegFrameSource implements FrameSource {
+
+    //jpeg markers, following a 0xFF byte
+    private static final int SOI = 0xD8;
+    private static final int EOI = 0xD9;
+    private static final int SOS = 0xDA;
+    private static final int TEM = 0x01;
+    private static final int RST0 = 0xD0;
+    private static final int RST7 = 0xD7;
+
+    private static final int MAX_FRAME_SIZE = 16 << 20;
+
+    private final InputStream in;
+    private final boolean live;
+    private final double nominalFps;
+    private byte[] buffer = new byte[64 << 10];
+    private int length;
+    private long sequence;
+    private long droppedFrames;
+
+    /**
+     * @param in The stream to read
+     * @param live Whether the stream comes from a running camera, see {@link FrameSource#isLive()}
+     * @param nominalFps Frame rate used to timestamp the frames of recorded streams, which do not
+     *                   carry timestamps; frames of live streams are stamped on arrival instead
+     */
+    public MjpegFrameSource(InputStream in, boolean live, double nominalFps) {
+        if (!live && nominalFps <= 0) {
+            throw new IllegalArgumentException("recorded streams need a positive nominal frame rate");
+        }
+        this.in = new BufferedInputStream(in, 64 << 10);
+        this.live = live;
+        this.nominalFps = nominalFps;
+    }
+
+    /**
+     * Opens a recorded MJPEG file.
+     */
+    public static MjpegFrameSource open(Path file, double nominalFps) throws IOException {
+        return new MjpegFrameSource(Files.newInputStream(file), false, nominalFps);
+    }
+
+    @Override
+    public EncodedFrame next() throws IOException {
+        boolean started = skipToStartOfImage();
+        while (started) {
+            if (live) {
+                in.mark(MAX_FRAME_SIZE);
+            }
+            length = 0;
+            append(0xFF);
+            append(SOI);
+            try {
+                readSegments();
+                long timestamp = live ? System.currentTimeMillis() : Math.round(sequence * 1000 / nominalFps);
+                return new EncodedFrame(Arrays.copyOf(buffer, length), sequence++, timestamp);
+            } catch (IOException e) {
+                if (!live) {
+                    throw e;
+                }
+                droppedFrames++;
+                started = resync();
+            }
+        }
+        return null;
+    }
+
+    /**
+     * @return Number of corrupt or truncated frames dropped from a live stream
+     */
+    public long getDroppedFrames() {
+        return droppedFrames;
+    }
+
+    @Override
+    public boolean isLive() {
+        return live;
+    }
+
+    @Override
+    public void close() throws IOException {
+        in.close();
+    }
+
+    /**
+     * Resumes reading right after the start of the dropped frame, since a frame that was cut
+     * short may have swallowed the start of the next one into one of its segments.
+     * @return False if the stream ended before another image started
+     */
+    private boolean resync() throws IOException {
+        try {
+            in.reset();
+        } catch (IOException e) {
+            //read past the mark; resume where reading stopped
+        }
+        return skipToStartOfImage();
+    }
+
+    /**
+     * @return False if the stream ended before another image started
+     */
+    private boolean skipToStartOfImage() throws IOException {
+        int previous = 0;
+        int b;
+        while ((b = in.read()) != -1) {
+            if (previous == 0xFF && b == SOI) {
+                return true;
+            }
+            previous = b;
+        }
+        return false;
+    }
+
+    /**
+     * Copies the marker segments following the start of image up to and including the end of
+     * image marker.
+     */
+    private void readSegments() throws IOException {
+        int marker = readMarker();
+        while (true) {
+            if (marker == SOI) {
+                //the frame was cut short and the camera started the next one
+                throw new IOException("frame " + sequence + " ended without end of image");
+            }
+            append(0xFF);
+            append(marker);
+            if (marker == EOI) {
+                return;
+            }
+            if (marker == TEM || (marker >= RST0 && marker <= RST7)) {
+                marker = readMarker();
+                continue;
+            }
+            int high = readByte();
+            int low = readByte();
+            append(high);
+            append(low);
+            int segmentLength = (high << 8 | low) - 2;
+            if (segmentLength < 0) {
+                throw new IOException("corrupt jpeg segment in frame " + sequence);
+            }
+            for (int i = 0; i < segmentLength; i++) {
+                append(readByte());
+            }
+            marker = marker == SOS ? readEntropyCodedData() : readMarker();
+        }
+    }
+
+    /**
+     * Copies scan data, where 0xFF is either stuffed as 0xFF00 or starts a restart marker.
+     * @return The marker ending the scan
+     */
+    private int readEntropyCodedData() throws IOException {
+        while (true) {
+            int b = readByte();
+            if (b != 0xFF) {
+                append(b);
+                continue;
+            }
+            int next = readByte();
+            while (next == 0xFF) {
+                next = readByte();
+            }
+            if (next == 0 || (next >= RST0 && next <= RST7)) {
+                append(0xFF);
+                append(next);
+            } else {
+                return next;
+            }
+        }
+    }
+
+    private int readMarker() throws IOException {
+        int b = readByte();
+        if (b != 0xFF) {
+            throw new IOException("expected a jpeg marker in frame " + sequence);
+        }
+        while (b == 0xFF) {
+            b = readByte();
+        }
+        return b;
+    }
+
+    private int readByte() throws IOException {
+        int b = in.read();
+        if (b == -1) {
+            throw new EOFException("stream ended inside frame " + sequence);
+        }
+        return b;
+    }
+
+    private void append(int b) throws IOException {
+        if (length == buffer.length) {
+            if (length >= MAX_FRAME_SIZE) {
+                throw new IOException("frame " + sequence + " exceeds " + MAX_FRAME_SIZE + " bytes");
+            }
+            buffer = Arrays.copyOf(buffer, length * 2);
+        }
+        buffer[length++] = (byte) b;
+    }
+}
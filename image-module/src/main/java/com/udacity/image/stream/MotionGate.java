@@ -0,0 +1,43 @@
+package com.udacity.image.stream;
+
+/**
+ * Guesses from the compressed size alone whether a frame shows anything new. A JPEG's size
+ * follows the amount of detail in the scene, so a static scene produces frames of nearly the
+ * same size while something entering it changes the size. The gate compares each frame with
+ * the last one it let through, which is cheap enough to run before decoding.
+ *
+ * The heuristic misses changes that keep the size, so every so often a frame is let through
+ * regardless.
+ */
+public class MotionGate {
+
+    private final double threshold;
+    private final int maxSkipped;
+    private int referenceSize = -1;
+    private int skipped;
+
+    /**
+     * @param threshold Relative size change that counts as motion, for example 0.02 for 2%;
+     *                  0 lets every frame through
+     * @param maxSkipped Number of consecutive frames skipped before one is let through anyway
+     */
+    public MotionGate(double threshold, int maxSkipped) {
+        this.threshold = threshold;
+        this.maxSkipped = maxSkipped;
+    }
+
+    /**
+     * @param compressedSize Size of the encoded frame
+     * @return True if the frame should be decoded
+     */
+    public boolean accept(int compressedSize) {
+        if (referenceSize > 0 && skipped < maxSkipped
+                && Math.abs(compressedSize - referenceSize) < threshold * referenceSize) {
+            skipped++;
+            return false;
+        }
+        referenceSize = compressedSize;
+        skipped = 0;
+        return true;
+    }
+}
@@ -1,9 +1,13 @@
 module com.udacity.image {
     exports com.udacity.image.service to com.udacity.security;
+    exports com.udacity.image.preprocess to com.udacity.security;
+    exports com.udacity.image.pool to com.udacity.security;
+    exports com.udacity.image.stream to com.udacity.security;
     requires java.desktop;
     requires org.slf4j;
     requires software.amazon.awssdk.auth;
     requires software.amazon.awssdk.core;
+    requires software.amazon.awssdk.http.urlconnection;
     requires software.amazon.awssdk.regions;
     requires software.amazon.awssdk.services.rekognition;
 }
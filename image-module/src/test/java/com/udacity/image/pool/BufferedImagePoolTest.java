@@ -0,0 +1,83 @@
+package com.udacity.image.pool;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.Raster;
+import java.lang.ref.WeakReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BufferedImagePoolTest {
+
+    // SUT
+    private BufferedImagePool pool;
+
+    @BeforeEach
+    public void init() {
+        pool = new BufferedImagePool(64, 1);
+    }
+
+    @Test
+    public void acquire_sizeBetweenClasses_returnsExactSizeOverClassRaster() {
+        BufferedImage image = pool.acquire(100, 70, BufferedImage.TYPE_3BYTE_BGR);
+
+        assertEquals(100, image.getWidth());
+        assertEquals(70, image.getHeight());
+        assertEquals(BufferedImage.TYPE_3BYTE_BGR, image.getType());
+        assertEquals(128 * 128 * 3, image.getRaster().getDataBuffer().getSize());
+    }
+
+    @Test
+    public void acquire_afterRelease_sameClassSharesRaster() {
+        BufferedImage first = pool.acquire(100, 70, BufferedImage.TYPE_3BYTE_BGR);
+        pool.release(first);
+
+        BufferedImage second = pool.acquire(128, 128, BufferedImage.TYPE_3BYTE_BGR);
+
+        assertSame(first.getRaster().getDataBuffer(), second.getRaster().getDataBuffer());
+        assertEquals(0.5, pool.getMetrics().getHitRate());
+    }
+
+    @Test
+    public void acquire_otherTypeOrClass_misses() {
+        pool.release(pool.acquire(100, 70, BufferedImage.TYPE_3BYTE_BGR));
+
+        pool.acquire(100, 70, BufferedImage.TYPE_INT_RGB);
+        pool.acquire(200, 70, BufferedImage.TYPE_3BYTE_BGR);
+
+        assertEquals(0, pool.getMetrics().getHits());
+        assertEquals(3, pool.getMetrics().getMisses());
+    }
+
+    @Test
+    public void release_beyondCapacityOrForeignSize_discards() {
+        BufferedImage first = pool.acquire(64, 64, BufferedImage.TYPE_INT_RGB);
+        BufferedImage second = pool.acquire(64, 64, BufferedImage.TYPE_INT_RGB);
+
+        pool.release(first);
+        pool.release(second);
+        pool.release(new BufferedImage(50, 50, BufferedImage.TYPE_INT_RGB));
+
+        assertEquals(1, pool.getMetrics().getRecycled());
+        assertEquals(2, pool.getMetrics().getDiscarded());
+    }
+
+    @Test
+    public void acquire_subimageNeverReleased_pooledRasterCollected() throws InterruptedException {
+        BufferedImage image = pool.acquire(100, 70, BufferedImage.TYPE_3BYTE_BGR);
+        WeakReference<Raster> pooledRaster = new WeakReference<>(image.getRaster().getParent());
+        assertNotNull(pooledRaster.get());
+
+        image = null;
+        for (int attempt = 0; attempt < 50 && pooledRaster.get() != null; attempt++) {
+            System.gc();
+            Thread.sleep(10);
+            //the pool forgets collected subimages the next time it is used
+            pool.release(new BufferedImage(1, 1, BufferedImage.TYPE_3BYTE_BGR));
+        }
+
+        assertNull(pooledRaster.get());
+    }
+}
@@ -0,0 +1,84 @@
+package com.udacity.image.pool;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import javax.imageio.ImageIO;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PooledImageOutputStreamTest {
+
+    private ByteBufferPool pool;
+    private BufferedImage image;
+
+    @BeforeEach
+    public void init() {
+        pool = new ByteBufferPool(2);
+        image = new BufferedImage(320, 240, BufferedImage.TYPE_3BYTE_BGR);
+        Graphics2D g = image.createGraphics();
+        g.setColor(Color.ORANGE);
+        g.fillOval(40, 40, 200, 150);
+        g.dispose();
+    }
+
+    @Test
+    public void write_jpeg_matchesByteArrayEncoding() throws IOException {
+        ByteArrayOutputStream expected = new ByteArrayOutputStream();
+        ImageIO.write(image, "jpg", expected);
+
+        try (PooledImageOutputStream out = new PooledImageOutputStream(pool)) {
+            assertTrue(ImageIO.write(image, "jpg", out));
+            assertEquals(ByteBuffer.wrap(expected.toByteArray()), out.toByteBuffer());
+        }
+    }
+
+    @Test
+    public void write_beyondInitialCapacity_growsIntoLargerClass() throws IOException {
+        byte[] data = new byte[10_000];
+        for (int i = 0; i < data.length; i++) {
+            data[i] = (byte) i;
+        }
+
+        try (PooledImageOutputStream out = new PooledImageOutputStream(pool, 1)) {
+            out.write(data, 0, 3_000);
+            out.write(data, 3_000, 7_000);
+            assertEquals(ByteBuffer.wrap(data), out.toByteBuffer());
+        }
+        assertEquals(2, pool.getMetrics().getRecycled());
+    }
+
+    @Test
+    public void close_thenEncodeAgain_reusesBuffer() throws IOException {
+        for (int i = 0; i < 3; i++) {
+            try (PooledImageOutputStream out = new PooledImageOutputStream(pool)) {
+                ImageIO.write(image, "jpg", out);
+            }
+        }
+
+        assertEquals(2, pool.getMetrics().getHits());
+        assertEquals(1, pool.getMetrics().getMisses());
+    }
+
+    @Test
+    public void read_pooledDecode_roundTrips() throws IOException {
+        ByteArrayOutputStream encoded = new ByteArrayOutputStream();
+        ImageIO.write(image, "png", encoded);
+        BufferedImagePool images = new BufferedImagePool(1);
+
+        BufferedImage decoded = PooledImageReader.read(new ByteArrayInputStream(encoded.toByteArray()), images);
+
+        assertEquals(320, decoded.getWidth());
+        assertEquals(240, decoded.getHeight());
+        assertEquals(image.getRGB(140, 115), decoded.getRGB(140, 115));
+        assertEquals(image.getRGB(0, 0), decoded.getRGB(0, 0));
+        assertEquals(1, images.getMetrics().getMisses());
+    }
+}
@@ -0,0 +1,107 @@
+package com.udacity.image.preprocess;
+
+import com.udacity.image.pool.BufferedImagePool;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.geom.Rectangle2D;
+import java.awt.image.BufferedImage;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ImagePreprocessorTest {
+
+    private static final int RED = Color.RED.getRGB();
+    private static final int BLUE = Color.BLUE.getRGB();
+    private static final int BLACK = Color.BLACK.getRGB();
+
+    private BufferedImagePool pool;
+
+    // 1600x1200 frame, red on the left half and blue on the right half
+    private BufferedImage frame;
+
+    @BeforeEach
+    public void init() {
+        pool = new BufferedImagePool(2);
+        frame = new BufferedImage(1600, 1200, BufferedImage.TYPE_INT_ARGB);
+        Graphics2D g = frame.createGraphics();
+        g.setColor(Color.RED);
+        g.fillRect(0, 0, 800, 1200);
+        g.setColor(Color.BLUE);
+        g.fillRect(800, 0, 800, 1200);
+        g.dispose();
+    }
+
+    @Test
+    public void process_wholeFrame_scalesDownKeepingAspectRatio() {
+        ImagePreprocessor preprocessor = new ImagePreprocessor(640, 640);
+
+        BufferedImage processed = preprocessor.process(frame);
+
+        assertEquals(640, processed.getWidth());
+        assertEquals(480, processed.getHeight());
+        assertEquals(ImagePreprocessor.OUTPUT_TYPE, processed.getType());
+        assertEquals(RED, processed.getRGB(10, 240));
+        assertEquals(BLUE, processed.getRGB(630, 240));
+    }
+
+    @Test
+    public void process_smallFrame_neverScalesUp() {
+        ImagePreprocessor preprocessor = new ImagePreprocessor(4000, 4000);
+
+        BufferedImage processed = preprocessor.process(frame);
+
+        assertEquals(1600, processed.getWidth());
+        assertEquals(1200, processed.getHeight());
+    }
+
+    @Test
+    public void process_regionOfInterest_cropsToRegion() {
+        ImagePreprocessor preprocessor = new ImagePreprocessor(
+                List.of(new Rectangle2D.Double(0.5, 0.5, 0.5, 0.5)), 400, 400, pool);
+
+        BufferedImage processed = preprocessor.process(frame);
+
+        assertEquals(400, processed.getWidth());
+        assertEquals(300, processed.getHeight());
+        assertEquals(BLUE, processed.getRGB(0, 0));
+        assertEquals(BLUE, processed.getRGB(399, 299));
+    }
+
+    @Test
+    public void process_twoRegions_masksTheGapBetweenThem() {
+        ImagePreprocessor preprocessor = new ImagePreprocessor(List.of(
+                new Rectangle2D.Double(0, 0, 0.25, 1),
+                new Rectangle2D.Double(0.75, 0, 0.25, 1)), 1600, 1200, pool);
+
+        BufferedImage processed = preprocessor.process(frame);
+
+        assertEquals(1600, processed.getWidth());
+        assertEquals(RED, processed.getRGB(100, 600));
+        assertEquals(BLACK, processed.getRGB(800, 600));
+        assertEquals(BLUE, processed.getRGB(1500, 600));
+    }
+
+    @Test
+    public void process_regionOutsideFrame_returnsNull() {
+        ImagePreprocessor preprocessor = new ImagePreprocessor(
+                List.of(new Rectangle2D.Double(1.5, 0, 0.5, 0.5)), 400, 400, pool);
+
+        assertNull(preprocessor.process(frame));
+    }
+
+    @Test
+    public void release_sameSizeAgain_reusesRaster() {
+        ImagePreprocessor preprocessor = new ImagePreprocessor(List.of(new Rectangle2D.Double(0, 0, 1, 1)), 640, 640, pool);
+
+        BufferedImage first = preprocessor.process(frame);
+        preprocessor.release(first);
+        BufferedImage second = preprocessor.process(frame);
+
+        assertSame(first.getRaster().getDataBuffer(), second.getRaster().getDataBuffer());
+        assertNotSame(second.getRaster().getDataBuffer(), preprocessor.process(frame).getRaster().getDataBuffer());
+    }
+}
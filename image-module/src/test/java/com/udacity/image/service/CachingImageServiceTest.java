@@ -0,0 +1,123 @@
+package com.udacity.image.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.awt.image.BufferedImage;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+import static com.udacity.image.service.FaultInjectingImageService.answer;
+import static org.junit.jupiter.api.Assertions.*;
+
+class CachingImageServiceTest {
+
+    private static final long TTL_MILLIS = 1_000;
+
+    private final BufferedImage brightRight = gradient(false);
+    private final BufferedImage brightLeft = gradient(true);
+
+    private FaultInjectingImageService detector;
+    private long nanos;
+
+    // SUT
+    private CachingImageService service;
+
+    @BeforeEach
+    public void init() {
+        detector = new FaultInjectingImageService();
+        service = new CachingImageService(detector, 2, TTL_MILLIS, () -> nanos);
+    }
+
+    @Test
+    public void detect_sameScene_answeredFromCache() {
+        assertTrue(service.imageContainsCat(brightRight, 50f));
+        assertTrue(service.imageContainsCat(gradient(false), 50f));
+
+        assertEquals(1, detector.getCalls());
+        assertEquals(1, service.getHits());
+        assertEquals(1, service.getMisses());
+    }
+
+    @Test
+    public void detect_differentScene_asksDetector() {
+        detector.then(answer(0, true)).then(answer(0, false));
+
+        assertTrue(service.imageContainsCat(brightRight, 50f));
+        assertFalse(service.imageContainsCat(brightLeft, 50f));
+
+        assertEquals(2, detector.getCalls());
+    }
+
+    @Test
+    public void detect_cachedResultCannotDecideThreshold_scansAgain() {
+        detector.byDefault(answer(0, false));
+
+        service.detect(brightRight, 50f);
+        service.detect(brightRight, 60f);
+        service.detect(brightRight, 40f);
+
+        //no cat at 50% says nothing about labels between 40% and 50%
+        assertEquals(2, detector.getCalls());
+    }
+
+    @Test
+    public void detect_moreScenesThanCapacity_leastRecentlyUsedEvicted() {
+        BufferedImage third = new BufferedImage(64, 48, BufferedImage.TYPE_INT_RGB);
+        third.setRGB(32, 0, 32, 48, filled(32 * 48, 0xFFFFFF), 0, 32);
+
+        service.detect(brightRight, 50f);
+        service.detect(brightLeft, 50f);
+        service.detect(brightRight, 50f);
+        service.detect(third, 50f);
+        service.detect(brightRight, 50f);
+        service.detect(brightLeft, 50f);
+
+        assertEquals(4, detector.getCalls());
+    }
+
+    @Test
+    public void detect_smallChangeInUnchangedScene_asksDetector() {
+        detector.then(answer(0, false)).then(answer(0, true));
+        BufferedImage withCat = gradient(false);
+        //a small object that leaves the scene's brightness gradients untouched
+        withCat.setRGB(10, 10, 3, 3, filled(9, 0x808080), 0, 3);
+
+        assertFalse(service.imageContainsCat(brightRight, 50f));
+        assertTrue(service.imageContainsCat(withCat, 50f));
+
+        assertEquals(2, detector.getCalls());
+        assertEquals(0, service.getHits());
+    }
+
+    @Test
+    public void detect_cachedResultOlderThanTtl_scansAgain() {
+        detector.then(answer(0, false)).then(answer(0, true));
+
+        assertFalse(service.imageContainsCat(brightRight, 50f));
+        nanos += TimeUnit.MILLISECONDS.toNanos(TTL_MILLIS - 1);
+        assertFalse(service.imageContainsCat(brightRight, 50f));
+        nanos += TimeUnit.MILLISECONDS.toNanos(1);
+        assertTrue(service.imageContainsCat(brightRight, 50f));
+
+        assertEquals(2, detector.getCalls());
+        assertEquals(1, service.getHits());
+    }
+
+    private static BufferedImage gradient(boolean brightLeft) {
+        BufferedImage image = new BufferedImage(64, 48, BufferedImage.TYPE_INT_RGB);
+        for (int x = 0; x < 64; x++) {
+            int gray = (brightLeft ? 63 - x : x) * 4;
+            for (int y = 0; y < 48; y++) {
+                image.setRGB(x, y, gray << 16 | gray << 8 | gray);
+            }
+        }
+        return image;
+    }
+
+    private static int[] filled(int length, int rgb) {
+        int[] pixels = new int[length];
+        Arrays.fill(pixels, rgb);
+        return pixels;
+    }
+}
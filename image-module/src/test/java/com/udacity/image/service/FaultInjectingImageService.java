@@ -0,0 +1,81 @@
+package com.udacity.image.service;
+
+import java.awt.image.BufferedImage;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Local stand-in for a remote detector. Each call takes the next scripted behaviour, or the
+ * default one when the script is used up: answer after a delay, or fail after a delay.
+ */
+class FaultInjectingImageService implements ImageService {
+
+    private final ConcurrentLinkedQueue<Behaviour> script = new ConcurrentLinkedQueue<>();
+    private volatile Behaviour defaultBehaviour = answer(0, true);
+    private final AtomicInteger calls = new AtomicInteger();
+    private final AtomicInteger interrupted = new AtomicInteger();
+
+    static Behaviour answer(long delayMillis, boolean cat) {
+        return new Behaviour(delayMillis, cat, false);
+    }
+
+    static Behaviour fail(long delayMillis) {
+        return new Behaviour(delayMillis, false, true);
+    }
+
+    FaultInjectingImageService then(Behaviour behaviour) {
+        script.add(behaviour);
+        return this;
+    }
+
+    FaultInjectingImageService byDefault(Behaviour behaviour) {
+        defaultBehaviour = behaviour;
+        return this;
+    }
+
+    int getCalls() {
+        return calls.get();
+    }
+
+    int getInterrupted() {
+        return interrupted.get();
+    }
+
+    @Override
+    public boolean imageContainsCat(BufferedImage image, float confidenceThreshold) {
+        return detect(image, confidenceThreshold).isCat(confidenceThreshold);
+    }
+
+    @Override
+    public Detection detect(BufferedImage image, float confidenceThreshold) {
+        calls.incrementAndGet();
+        Behaviour behaviour = script.poll();
+        if (behaviour == null) {
+            behaviour = defaultBehaviour;
+        }
+        try {
+            Thread.sleep(behaviour.delayMillis);
+        } catch (InterruptedException e) {
+            interrupted.incrementAndGet();
+            throw new IllegalStateException("interrupted", e);
+        }
+        if (behaviour.fail) {
+            throw new IllegalStateException("injected failure");
+        }
+        return behaviour.cat
+                ? new Detection("Cat", 99f, confidenceThreshold, false)
+                : new Detection(null, 0f, confidenceThreshold, true);
+    }
+
+    static final class Behaviour {
+        private final long delayMillis;
+        private final boolean cat;
+        private final boolean fail;
+
+        private Behaviour(long delayMillis, boolean cat, boolean fail) {
+            this.delayMillis = delayMillis;
+            this.cat = cat;
+            this.fail = fail;
+        }
+    }
+}
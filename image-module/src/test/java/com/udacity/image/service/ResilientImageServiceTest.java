@@ -0,0 +1,213 @@
+package com.udacity.image.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.awt.image.BufferedImage;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static com.udacity.image.service.FaultInjectingImageService.answer;
+import static com.udacity.image.service.FaultInjectingImageService.fail;
+import static org.junit.jupiter.api.Assertions.*;
+
+class ResilientImageServiceTest {
+
+    private static final long DEADLINE = 300;
+    private static final long HEDGE_DELAY = 50;
+    private static final int FAILURE_THRESHOLD = 3;
+    private static final long OPEN = 1_000;
+
+    private final BufferedImage image = new BufferedImage(1, 1, BufferedImage.TYPE_INT_RGB);
+
+    private FaultInjectingImageService remote;
+    private FaultInjectingImageService local;
+    private long now;
+    //added to the fake clock on every read, so each call appears to take this long
+    private long tick;
+
+    // SUT
+    private ResilientImageService service;
+
+    @BeforeEach
+    public void init() {
+        remote = new FaultInjectingImageService();
+        //the fallback never sees a cat, so results show which service answered
+        local = new FaultInjectingImageService().byDefault(answer(0, false));
+        now = 0;
+        tick = 0;
+        service = new ResilientImageService(remote, local, DEADLINE, HEDGE_DELAY, FAILURE_THRESHOLD, OPEN,
+                Executors.newCachedThreadPool(), () -> now += tick);
+    }
+
+    @AfterEach
+    public void close() {
+        service.close();
+    }
+
+    @Test
+    public void detect_remoteAnswersQuickly_usesRemoteResult() {
+        assertTrue(service.imageContainsCat(image, 50f));
+
+        assertEquals(1, remote.getCalls());
+        assertEquals(0, service.getHedgeCount());
+        assertEquals(0, local.getCalls());
+    }
+
+    @Test
+    public void detect_remoteSlowerThanHedgeDelay_hedgedCallWins() {
+        remote.then(answer(10_000, true)).then(answer(0, true));
+
+        long elapsed = elapsedMillis(() -> assertTrue(service.imageContainsCat(image, 50f)));
+
+        assertEquals(2, remote.getCalls());
+        assertEquals(1, service.getHedgeCount());
+        assertEquals(0, local.getCalls());
+        assertTrue(elapsed < DEADLINE, "took " + elapsed + "ms");
+    }
+
+    @Test
+    public void detect_remoteHangs_fallsBackWithinDeadline() throws InterruptedException {
+        remote.byDefault(answer(10_000, true));
+
+        long elapsed = elapsedMillis(() -> assertFalse(service.imageContainsCat(image, 50f)));
+
+        assertEquals(1, local.getCalls());
+        assertTrue(elapsed >= DEADLINE - 10 && elapsed < DEADLINE + 200, "took " + elapsed + "ms");
+        //the late calls are interrupted rather than left running
+        Thread.sleep(100);
+        assertEquals(2, remote.getInterrupted());
+    }
+
+    @Test
+    public void detect_remoteFailsFast_fallsBackWithoutWaitingForDeadline() {
+        remote.then(fail(0));
+
+        long elapsed = elapsedMillis(() -> assertFalse(service.imageContainsCat(image, 50f)));
+
+        assertEquals(1, local.getCalls());
+        assertTrue(elapsed < HEDGE_DELAY, "took " + elapsed + "ms");
+    }
+
+    @Test
+    public void detect_repeatedFailures_openCircuitUntilProbeSucceeds() {
+        remote.byDefault(fail(0));
+        for (int i = 0; i < FAILURE_THRESHOLD; i++) {
+            service.detect(image, 50f);
+        }
+        assertEquals(ResilientImageService.CircuitState.OPEN, service.getCircuitState());
+
+        //while open the remote service is not called at all
+        now += TimeUnit.MILLISECONDS.toNanos(OPEN - 1);
+        service.detect(image, 50f);
+        assertEquals(FAILURE_THRESHOLD, remote.getCalls());
+
+        //after the open period a failed probe opens it again
+        now += TimeUnit.MILLISECONDS.toNanos(1);
+        service.detect(image, 50f);
+        assertEquals(FAILURE_THRESHOLD + 1, remote.getCalls());
+        assertEquals(ResilientImageService.CircuitState.OPEN, service.getCircuitState());
+
+        //and a successful probe closes it
+        remote.byDefault(answer(0, true));
+        now += TimeUnit.MILLISECONDS.toNanos(OPEN);
+        assertTrue(service.imageContainsCat(image, 50f));
+        assertEquals(ResilientImageService.CircuitState.CLOSED, service.getCircuitState());
+        assertEquals(FAILURE_THRESHOLD + 2, local.getCalls());
+    }
+
+    @Test
+    public void detect_enoughLatencies_hedgesAfterPercentileIgnoringOutliers() {
+        for (int i = 0; i < 19; i++) {
+            assertEquals(HEDGE_DELAY, service.getHedgeDelayMillis());
+            tick = TimeUnit.MILLISECONDS.toNanos(i == 0 ? 280 : 10);
+            service.detect(image, 50f);
+        }
+        tick = TimeUnit.MILLISECONDS.toNanos(10);
+        service.detect(image, 50f);
+
+        assertEquals(10, service.getHedgeDelayMillis());
+    }
+
+    @Test
+    public void detect_callThreadsHeldByHungCalls_fallsBackWithoutNewThreads() {
+        CountDownLatch hung = new CountDownLatch(1);
+        AtomicInteger calls = new AtomicInteger();
+        //ignores the interrupt at the deadline, as a stuck socket read would
+        ImageService stuck = (image, confidenceThreshold) -> {
+            calls.incrementAndGet();
+            while (true) {
+                try {
+                    hung.await();
+                    return true;
+                } catch (InterruptedException ignored) {
+                    //keep waiting
+                }
+            }
+        };
+        ThreadPoolExecutor executor = (ThreadPoolExecutor) ResilientImageService.newCallExecutor(1);
+        service.close();
+        service = new ResilientImageService(stuck, local, DEADLINE, HEDGE_DELAY, FAILURE_THRESHOLD, OPEN,
+                executor, () -> now += tick);
+        try {
+            assertFalse(service.imageContainsCat(image, 50f));
+
+            long elapsed = elapsedMillis(() -> assertFalse(service.imageContainsCat(image, 50f)));
+
+            assertTrue(elapsed < HEDGE_DELAY, "took " + elapsed + "ms");
+            assertEquals(1, calls.get());
+            assertEquals(0, service.getHedgeCount());
+            assertEquals(2, local.getCalls());
+            assertEquals(1, executor.getLargestPoolSize());
+        } finally {
+            hung.countDown();
+        }
+    }
+
+    /**
+     * A caller such as PreprocessingImageService hands its image back to a pool once the scan
+     * returns, so a call that missed the deadline must not be reading the caller's image.
+     */
+    @Test
+    public void detect_callOutlivesDeadline_readsCopyOfImage() throws InterruptedException {
+        BufferedImage pooled = new BufferedImage(2, 2, BufferedImage.TYPE_3BYTE_BGR);
+        pooled.setRGB(1, 1, 0x123456);
+        CountDownLatch reused = new CountDownLatch(1);
+        AtomicInteger seenRgb = new AtomicInteger();
+        CountDownLatch read = new CountDownLatch(1);
+        ImageService late = (image, confidenceThreshold) -> {
+            boolean waiting = true;
+            while (waiting) {
+                try {
+                    reused.await();
+                    waiting = false;
+                } catch (InterruptedException ignored) {
+                    //keep going, as a call already sending the image would
+                }
+            }
+            seenRgb.set(image.getRGB(1, 1) & 0xFFFFFF);
+            read.countDown();
+            return true;
+        };
+        service.close();
+        service = new ResilientImageService(late, local, DEADLINE, HEDGE_DELAY, FAILURE_THRESHOLD, OPEN,
+                Executors.newCachedThreadPool(), () -> now += tick);
+
+        assertFalse(service.imageContainsCat(pooled, 50f));
+        pooled.setRGB(1, 1, 0x654321);
+        reused.countDown();
+
+        assertTrue(read.await(1, TimeUnit.SECONDS));
+        assertEquals(0x123456, seenRgb.get());
+    }
+
+    private static long elapsedMillis(Runnable runnable) {
+        long start = System.nanoTime();
+        runnable.run();
+        return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+    }
+}
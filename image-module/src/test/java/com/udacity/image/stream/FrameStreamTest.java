@@ -0,0 +1,150 @@
+package com.udacity.image.stream;
+
+import com.udacity.image.pool.BufferedImagePool;
+import org.junit.jupiter.api.Test;
+
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FrameStreamTest {
+
+    private final BufferedImagePool pool = new BufferedImagePool(2);
+
+    @Test
+    public void sampler_fasterSource_keepsTargetRate() {
+        FrameSampler sampler = new FrameSampler(5);
+        int accepted = 0;
+        for (int i = 0; i < 30; i++) {
+            if (sampler.accept(Math.round(i * 1000 / 30.0))) {
+                accepted++;
+            }
+        }
+        assertEquals(5, accepted);
+    }
+
+    @Test
+    public void sampler_afterGap_acceptsNextFrameRightAway() {
+        FrameSampler sampler = new FrameSampler(5);
+        assertTrue(sampler.accept(0));
+        assertFalse(sampler.accept(150));
+        assertTrue(sampler.accept(5_000));
+        assertFalse(sampler.accept(5_100));
+        assertTrue(sampler.accept(5_200));
+    }
+
+    @Test
+    public void motionGate_sameSizedFrames_skippedUntilMaxSkipped() {
+        MotionGate gate = new MotionGate(0.02, 3);
+        assertTrue(gate.accept(10_000));
+        assertFalse(gate.accept(10_100));
+        assertFalse(gate.accept(9_900));
+        assertFalse(gate.accept(10_000));
+        assertTrue(gate.accept(10_000));
+        assertTrue(gate.accept(11_000));
+    }
+
+    @Test
+    public void nextFrame_staticSceneWithVisitor_keepsOnlyChangedFrames() throws Exception {
+        MjpegTestStream camera = new MjpegTestStream();
+        for (int i = 0; i < 5; i++) {
+            camera.still();
+        }
+        camera.square(20).square(80);
+        for (int i = 0; i < 3; i++) {
+            camera.still();
+        }
+
+        FrameStream stream = new FrameStream(new MjpegFrameSource(camera.open(), false, 25), 2,
+                new FrameSampler(0), new MotionGate(0.02, 100)).start();
+        List<Long> sequences = new ArrayList<>();
+        EncodedFrame frame;
+        while ((frame = stream.nextFrame()) != null) {
+            sequences.add(frame.getSequence());
+        }
+
+        //the first frame, the square entering, moving and leaving
+        assertEquals(List.of(0L, 5L, 6L, 7L), sequences);
+        assertEquals(10, stream.getReadCount());
+        assertEquals(6, stream.getGatedOutCount());
+    }
+
+    @Test
+    public void nextImage_sampledRecording_decodesOnlySampledFrames() throws Exception {
+        MjpegTestStream camera = new MjpegTestStream();
+        for (int i = 0; i < 50; i++) {
+            camera.square(i);
+        }
+
+        try (FrameStream stream = new FrameStream(new MjpegFrameSource(camera.open(), false, 25), 2,
+                new FrameSampler(5), new MotionGate(0, 0)).start()) {
+            int images = 0;
+            BufferedImage image;
+            while ((image = stream.nextImage(pool)) != null) {
+                assertEquals(MjpegTestStream.WIDTH, image.getWidth());
+                pool.release(image);
+                images++;
+            }
+
+            assertEquals(10, images);
+            assertEquals(10, stream.getDecodedCount());
+            assertEquals(40, stream.getSampledOutCount());
+            assertEquals(0, stream.getDroppedCount());
+        }
+    }
+
+    @Test
+    public void nextFrame_slowConsumerOfLiveSource_skipsToLatestFrames() throws Exception {
+        MjpegTestStream camera = new MjpegTestStream();
+        for (int i = 0; i < 20; i++) {
+            camera.square(i * 5);
+        }
+
+        try (FrameStream stream = new FrameStream(new MjpegFrameSource(camera.live(1), true, 0), 2,
+                new FrameSampler(0), new MotionGate(0, 0)).start()) {
+            //let the camera run ahead of the consumer
+            while (stream.getReadCount() < 20) {
+                Thread.sleep(5);
+            }
+            assertEquals(18, stream.nextFrame().getSequence());
+            assertEquals(19, stream.nextFrame().getSequence());
+            assertNull(stream.nextFrame());
+            assertEquals(18, stream.getDroppedCount());
+        }
+    }
+
+    @Test
+    public void nextFrame_truncatedSource_rethrowsReadFailure() throws Exception {
+        byte[] stream = new MjpegTestStream().still().toMultipart();
+        byte[] truncated = Arrays.copyOf(stream, stream.length / 2);
+
+        try (FrameStream frames = new FrameStream(new MjpegFrameSource(new ByteArrayInputStream(truncated), false, 25),
+                2, new FrameSampler(0), new MotionGate(0, 0)).start()) {
+            assertThrows(IOException.class, frames::nextFrame);
+            assertNull(frames.nextFrame());
+        }
+    }
+
+    @Test
+    public void close_consumerWaiting_getsEndOfStream() throws Exception {
+        FrameStream stream = new FrameStream(new MjpegFrameSource(new MjpegTestStream().still().live(60_000), true, 0),
+                2, new FrameSampler(0), new MotionGate(0, 0)).start();
+        assertNotNull(stream.nextFrame());
+
+        new Thread(() -> {
+            try {
+                Thread.sleep(50);
+            } catch (InterruptedException e) {
+                //close right away
+            }
+            stream.close();
+        }).start();
+
+        assertNull(stream.nextFrame());
+    }
+}
@@ -0,0 +1,165 @@
+package com.udacity.image.stream;
+
+import com.udacity.image.pool.BufferedImagePool;
+import org.junit.jupiter.api.Test;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MjpegFrameSourceTest {
+
+    private final BufferedImagePool pool = new BufferedImagePool(2);
+
+    @Test
+    public void next_multipartStream_returnsEachFrameExactly() throws IOException {
+        MjpegTestStream camera = new MjpegTestStream().still().square(10).square(60);
+
+        try (MjpegFrameSource source = new MjpegFrameSource(camera.open(), false, 25)) {
+            for (int i = 0; i < 3; i++) {
+                EncodedFrame frame = source.next();
+                assertArrayEquals(camera.frames().get(i), frame.getData());
+                assertEquals(i, frame.getSequence());
+                assertEquals(i * 40, frame.getTimestampMillis());
+                BufferedImage image = frame.decode(pool);
+                assertEquals(MjpegTestStream.WIDTH, image.getWidth());
+                assertEquals(MjpegTestStream.HEIGHT, image.getHeight());
+            }
+            assertNull(source.next());
+        }
+    }
+
+    @Test
+    public void next_endOfImageMarkerInsideMetadata_doesNotSplitFrame() throws IOException {
+        byte[] jpeg = new MjpegTestStream().square(30).frames().get(0);
+        //a comment segment right after the start of image, containing an end of image marker
+        byte[] comment = {(byte) 0xFF, (byte) 0xFE, 0, 6, (byte) 0xFF, (byte) 0xD9, (byte) 0xFF, (byte) 0xD8};
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        out.write(jpeg, 0, 2);
+        out.write(comment);
+        out.write(jpeg, 2, jpeg.length - 2);
+        byte[] withComment = out.toByteArray();
+        MjpegTestStream camera = new MjpegTestStream().raw(withComment).still();
+
+        try (MjpegFrameSource source = new MjpegFrameSource(camera.open(), false, 25)) {
+            assertArrayEquals(withComment, source.next().getData());
+            assertArrayEquals(camera.frames().get(1), source.next().getData());
+            assertNull(source.next());
+        }
+    }
+
+    @Test
+    public void next_concatenatedFile_readsAllFrames() throws IOException {
+        MjpegTestStream camera = new MjpegTestStream().still().square(0).square(120);
+        Path file = Files.createTempFile("catpoint", ".mjpeg");
+        try {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            for (byte[] frame : camera.frames()) {
+                out.write(frame);
+            }
+            Files.write(file, out.toByteArray());
+
+            try (MjpegFrameSource source = MjpegFrameSource.open(file, 10)) {
+                assertEquals(0, source.next().getTimestampMillis());
+                assertEquals(100, source.next().getTimestampMillis());
+                assertArrayEquals(camera.frames().get(2), source.next().getData());
+                assertNull(source.next());
+            }
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    @Test
+    public void next_truncatedFrame_throws() throws IOException {
+        byte[] jpeg = new MjpegTestStream().still().frames().get(0);
+        MjpegTestStream camera = new MjpegTestStream().raw(Arrays.copyOf(jpeg, jpeg.length / 2));
+        byte[] stream = Arrays.copyOf(camera.toMultipart(), jpeg.length / 2 + 60);
+
+        try (MjpegFrameSource source = new MjpegFrameSource(new ByteArrayInputStream(stream), false, 25)) {
+            assertThrows(IOException.class, source::next);
+        }
+    }
+
+    @Test
+    public void next_liveStreamWithTruncatedFrame_dropsFrameAndResyncs() throws IOException {
+        byte[] jpeg = new MjpegTestStream().still().frames().get(0);
+        MjpegTestStream camera = new MjpegTestStream().square(10)
+                .raw(Arrays.copyOf(jpeg, jpeg.length / 2)).square(60);
+
+        try (MjpegFrameSource source = new MjpegFrameSource(camera.open(), true, 0)) {
+            assertArrayEquals(camera.frames().get(0), source.next().getData());
+            EncodedFrame resynced = source.next();
+            assertArrayEquals(camera.frames().get(2), resynced.getData());
+            assertEquals(1, resynced.getSequence());
+            assertNull(source.next());
+            assertEquals(1, source.getDroppedFrames());
+        }
+    }
+
+    @Test
+    public void next_liveStreamWithCorruptSegment_dropsFrameAndResyncs() throws IOException {
+        byte[] corrupt = new MjpegTestStream().still().frames().get(0).clone();
+        //a segment length below the two bytes of the length itself
+        corrupt[4] = 0;
+        corrupt[5] = 1;
+        MjpegTestStream camera = new MjpegTestStream().raw(corrupt).square(30);
+
+        try (MjpegFrameSource source = new MjpegFrameSource(camera.open(), true, 0)) {
+            assertArrayEquals(camera.frames().get(1), source.next().getData());
+            assertNull(source.next());
+            assertEquals(1, source.getDroppedFrames());
+        }
+        try (MjpegFrameSource source = new MjpegFrameSource(camera.open(), false, 25)) {
+            assertThrows(IOException.class, source::next);
+        }
+    }
+
+    @Test
+    public void next_liveStreamEndingInsideFrame_endsWithoutFailure() throws IOException {
+        byte[] jpeg = new MjpegTestStream().still().frames().get(0);
+        MjpegTestStream camera = new MjpegTestStream().square(10).raw(Arrays.copyOf(jpeg, jpeg.length / 2));
+
+        try (MjpegFrameSource source = new MjpegFrameSource(camera.open(), true, 0)) {
+            assertArrayEquals(camera.frames().get(0), source.next().getData());
+            assertNull(source.next());
+            assertEquals(1, source.getDroppedFrames());
+        }
+    }
+
+    @Test
+    public void next_imageDirectory_readsImagesInNameOrder() throws IOException {
+        Path directory = Files.createTempDirectory("catpoint");
+        try {
+            BufferedImage image = new BufferedImage(8, 8, BufferedImage.TYPE_INT_RGB);
+            ImageIO.write(image, "png", directory.resolve("frame-002.png").toFile());
+            ImageIO.write(image, "jpg", directory.resolve("frame-001.jpg").toFile());
+            Files.write(directory.resolve("notes.txt"), new byte[]{1});
+
+            try (ImageSequenceFrameSource source = new ImageSequenceFrameSource(directory, 5)) {
+                assertEquals(2, source.getFrameCount());
+                EncodedFrame first = source.next();
+                assertArrayEquals(Files.readAllBytes(directory.resolve("frame-001.jpg")), first.getData());
+                EncodedFrame second = source.next();
+                assertEquals(200, second.getTimestampMillis());
+                assertEquals(8, second.decode(pool).getWidth());
+                assertNull(source.next());
+            }
+        } finally {
+            try (Stream<Path> files = Files.list(directory)) {
+                for (Path file : (Iterable<Path>) files::iterator) {
+                    Files.delete(file);
+                }
+            }
+            Files.delete(directory);
+        }
+    }
+}
@@ -0,0 +1,113 @@
+package com.udacity.image.stream;
+
+import javax.imageio.ImageIO;
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PipedInputStream;
+import java.io.PipedOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Local stand-in for an MJPEG camera: renders frames of a grey room into which a cat-sized square
+ * may walk, and serves them the way ip cameras do, as a multipart stream.
+ */
+class MjpegTestStream {
+
+    static final int WIDTH = 160;
+    static final int HEIGHT = 120;
+    private static final String BOUNDARY = "--catpointframe";
+
+    private final List<byte[]> frames = new ArrayList<>();
+
+    /**
+     * Adds a frame showing the empty room.
+     */
+    MjpegTestStream still() throws IOException {
+        return frame(-1);
+    }
+
+    /**
+     * Adds a frame with the square at the given horizontal position.
+     */
+    MjpegTestStream square(int x) throws IOException {
+        return frame(x);
+    }
+
+    /**
+     * Adds a frame as is, for example a corrupt one.
+     */
+    MjpegTestStream raw(byte[] jpeg) {
+        frames.add(jpeg);
+        return this;
+    }
+
+    List<byte[]> frames() {
+        return frames;
+    }
+
+    /**
+     * @return The frames as a multipart MJPEG stream
+     */
+    byte[] toMultipart() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        for (byte[] frame : frames) {
+            out.write((BOUNDARY + "\r\nContent-Type: image/jpeg\r\nContent-Length: " + frame.length + "\r\n\r\n")
+                    .getBytes(StandardCharsets.US_ASCII));
+            out.write(frame);
+            out.write("\r\n".getBytes(StandardCharsets.US_ASCII));
+        }
+        return out.toByteArray();
+    }
+
+    InputStream open() throws IOException {
+        return new ByteArrayInputStream(toMultipart());
+    }
+
+    /**
+     * Serves the frames like a live camera: one every intervalMillis on a background thread.
+     */
+    InputStream live(long intervalMillis) throws IOException {
+        PipedInputStream in = new PipedInputStream(1 << 20);
+        PipedOutputStream out = new PipedOutputStream(in);
+        byte[] stream = toMultipart();
+        int frameLength = stream.length / frames.size();
+        Thread camera = new Thread(() -> {
+            try (out) {
+                for (int offset = 0; offset < stream.length; offset += frameLength) {
+                    out.write(stream, offset, Math.min(frameLength, stream.length - offset));
+                    out.flush();
+                    Thread.sleep(intervalMillis);
+                }
+            } catch (IOException | InterruptedException e) {
+                //reader went away
+            }
+        }, "test-camera");
+        camera.setDaemon(true);
+        camera.start();
+        return in;
+    }
+
+    private MjpegTestStream frame(int squareX) throws IOException {
+        BufferedImage image = new BufferedImage(WIDTH, HEIGHT, BufferedImage.TYPE_3BYTE_BGR);
+        Graphics2D g = image.createGraphics();
+        g.setColor(Color.GRAY);
+        g.fillRect(0, 0, WIDTH, HEIGHT);
+        g.setColor(Color.DARK_GRAY);
+        g.fillRect(0, HEIGHT * 2 / 3, WIDTH, HEIGHT / 3);
+        if (squareX >= 0) {
+            g.setColor(Color.ORANGE);
+            g.fillRect(squareX, HEIGHT / 3, 40, 40);
+        }
+        g.dispose();
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ImageIO.write(image, "jpg", out);
+        frames.add(out.toByteArray());
+        return this;
+    }
+}
@@ -1,13 +1,19 @@
 package com.udacity.security.application;
 
-import com.udacity.image.service.ImageService;
+import com.udacity.image.service.CachingImageService;
 import com.udacity.security.data.PretendDatabaseSecurityRepositoryImpl;
 import com.udacity.security.data.SecurityRepository;
 import com.udacity.image.service.FakeImageService;
+import com.udacity.security.service.AlarmTimerService;
 import com.udacity.security.service.SecurityService;
+import com.udacity.security.service.WarmStartStore;
+import com.udacity.security.timer.TimerWheel;
 import net.miginfocom.swing.MigLayout;
 
 import javax.swing.*;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.util.HashSet;
 
 /**
@@ -17,13 +23,26 @@ import java.util.HashSet;
  * all our dependencies and providing them to other classes as necessary.
  */
 public class CatpointGui extends JFrame {
+    private static final long TIMER_TICK_MILLIS = 100;
+    //timers are opt-in, so by default a sensor or cat alarms right away and the alarm stays on
+    private static final long ENTRY_DELAY_MILLIS = Long.getLong("catpoint.entryDelayMillis", 0);
+    private static final long ALARM_TIMEOUT_MILLIS = Long.getLong("catpoint.alarmTimeoutMillis", 0);
+    private static final int DETECTION_CACHE_SIZE = 1024;
+    private static final long DETECTION_CACHE_TTL_MILLIS = 5_000;
+    private static final Path WARM_START_FILE = Paths.get(System.getProperty("user.home"), ".catpoint", "warm-start.bin");
+
     private SecurityRepository securityRepository = new PretendDatabaseSecurityRepositoryImpl();
-    private ImageService imageService = new FakeImageService();
+    private CachingImageService imageService = new CachingImageService(new FakeImageService(), DETECTION_CACHE_SIZE,
+            DETECTION_CACHE_TTL_MILLIS);
     private SecurityService securityService = new SecurityService(securityRepository, imageService, new HashSet<>());
+    private TimerWheel timerWheel = new TimerWheel(TIMER_TICK_MILLIS, 512, System.currentTimeMillis());
+    private AlarmTimerService alarmTimerService = new AlarmTimerService(securityService, timerWheel,
+            ENTRY_DELAY_MILLIS, 0, ALARM_TIMEOUT_MILLIS, SwingUtilities::invokeLater);
     private DisplayPanel displayPanel = new DisplayPanel(securityService);
     private ControlPanel controlPanel = new ControlPanel(securityService);
     private SensorPanel sensorPanel = new SensorPanel(securityService);
     private ImagePanel imagePanel = new ImagePanel(securityService);
+    private WarmStartStore warmStartStore = new WarmStartStore(WARM_START_FILE);
 
     public CatpointGui() {
         setLocation(100, 100);
@@ -39,6 +58,31 @@ public class CatpointGui extends JFrame {
         mainPanel.add(sensorPanel);
 
         getContentPane().add(mainPanel);
+        timerWheel.start();
+
+        warmStart();
+        Runtime.getRuntime().addShutdownHook(new Thread(this::saveWarmStart, "warm-start"));
+    }
+
+    /**
+     * Restores each camera's latest detector result from the last run and shows the restored
+     * state right away, before the first event. A missing or unreadable file only means a cold
+     * start.
+     */
+    private void warmStart() {
+        try {
+            warmStartStore.restore(securityService);
+        } catch (IOException e) {
+            //start cold; the file is replaced on exit
+        }
+        securityService.notifyCurrentState();
+    }
 
+    private void saveWarmStart() {
+        try {
+            warmStartStore.save(securityService);
+        } catch (IOException e) {
+            //the next start is a cold one
+        }
     }
 }
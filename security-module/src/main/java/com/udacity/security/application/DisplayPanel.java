@@ -1,6 +1,7 @@
 package com.udacity.security.application;
 
 import com.udacity.security.data.AlarmStatus;
+import com.udacity.security.service.ListenerRegistry;
 import com.udacity.security.service.SecurityService;
 import com.udacity.security.service.StyleService;
 import net.miginfocom.swing.MigLayout;
@@ -19,7 +20,7 @@ public class DisplayPanel extends JPanel implements StatusListener {
         super();
         setLayout(new MigLayout());
 
-        securityService.addStatusListener(this);
+        securityService.addStatusListener(this, ListenerRegistry.Topic.ALARM_STATUS);
 
         JLabel panelLabel = new JLabel("Very Secure Home Security");
         JLabel systemStatusLabel = new JLabel("System Status:");
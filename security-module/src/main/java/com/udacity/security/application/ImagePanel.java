@@ -1,11 +1,21 @@
 package com.udacity.security.application;
 
+import com.udacity.image.pool.ImagePools;
+import com.udacity.image.service.Detection;
+import com.udacity.image.pool.PooledImageReader;
+import com.udacity.image.preprocess.Resampler;
+import com.udacity.image.stream.FrameSampler;
+import com.udacity.image.stream.FrameSource;
+import com.udacity.image.stream.FrameStream;
+import com.udacity.image.stream.ImageSequenceFrameSource;
+import com.udacity.image.stream.MjpegFrameSource;
+import com.udacity.image.stream.MotionGate;
 import com.udacity.security.data.AlarmStatus;
+import com.udacity.security.service.ListenerRegistry;
 import com.udacity.security.service.SecurityService;
 import com.udacity.security.service.StyleService;
 import net.miginfocom.swing.MigLayout;
 
-import javax.imageio.ImageIO;
 import javax.swing.*;
 import java.awt.*;
 import java.awt.image.BufferedImage;
@@ -13,7 +23,9 @@ import java.io.File;
 import java.io.IOException;
 
 /** Panel containing the 'camera' output. Allows users to 'refresh' the camera
- * by uploading their own picture, and 'scan' the picture, sending it for image analysis
+ * by uploading their own picture, and 'scan' the picture, sending it for image analysis.
+ * Users may also play an MJPEG recording or a directory of images as the camera, in which case
+ * every frame that is shown is scanned.
  */
 public class ImagePanel extends JPanel implements StatusListener {
     private SecurityService securityService;
@@ -21,15 +33,27 @@ public class ImagePanel extends JPanel implements StatusListener {
     private JLabel cameraHeader;
     private JLabel cameraLabel;
     private BufferedImage currentCameraImage;
+    //scaled copy shown in the camera label, redrawn in place for every new image
+    private BufferedImage displayImage;
 
     private int IMAGE_WIDTH = 300;
     private int IMAGE_HEIGHT = 225;
 
+    //frames scanned per second, frames read ahead, and when a frame counts as changed
+    private static final double STREAM_FPS = 2;
+    private static final double RECORDING_FPS = 25;
+    private static final int STREAM_LOOK_AHEAD = 8;
+    private static final double MOTION_THRESHOLD = 0.02;
+    private static final int MAX_FRAMES_WITHOUT_MOTION = 10;
+
+    private FrameStream frameStream;
+    private JButton playStreamButton;
+
     public ImagePanel(SecurityService securityService) {
         super();
         setLayout(new MigLayout());
         this.securityService = securityService;
-        securityService.addStatusListener(this);
+        securityService.addStatusListener(this, ListenerRegistry.Topic.CAT_DETECTED);
 
         cameraHeader = new JLabel("Camera Feed");
         cameraHeader.setFont(StyleService.HEADING_FONT);
@@ -38,6 +62,7 @@ public class ImagePanel extends JPanel implements StatusListener {
         cameraLabel.setBackground(Color.WHITE);
         cameraLabel.setPreferredSize(new Dimension(IMAGE_WIDTH, IMAGE_HEIGHT));
         cameraLabel.setBorder(BorderFactory.createLineBorder(Color.DARK_GRAY));
+        displayImage = new BufferedImage(IMAGE_WIDTH, IMAGE_HEIGHT, BufferedImage.TYPE_INT_RGB);
 
         //button allowing users to select a file to be the current camera image
         JButton addPictureButton = new JButton("Refresh Camera");
@@ -50,15 +75,34 @@ public class ImagePanel extends JPanel implements StatusListener {
                 return;
             }
             try {
-                currentCameraImage = ImageIO.read(chooser.getSelectedFile());
-                Image tmp = new ImageIcon(currentCameraImage).getImage();
-                cameraLabel.setIcon(new ImageIcon(tmp.getScaledInstance(IMAGE_WIDTH, IMAGE_HEIGHT, Image.SCALE_SMOOTH)));
+                showImage(PooledImageReader.read(chooser.getSelectedFile(), ImagePools.IMAGES));
             } catch (IOException |NullPointerException ioe) {
                 JOptionPane.showMessageDialog(null, "Invalid image selected.");
             }
             repaint();
         });
 
+        //button playing a recording as the camera, scanning the frames as they are shown
+        playStreamButton = new JButton("Play Stream");
+        playStreamButton.addActionListener(e -> {
+            if (frameStream != null) {
+                stopStream();
+                return;
+            }
+            JFileChooser chooser = new JFileChooser();
+            chooser.setCurrentDirectory(new File("."));
+            chooser.setDialogTitle("Select MJPEG Recording or Image Directory");
+            chooser.setFileSelectionMode(JFileChooser.FILES_AND_DIRECTORIES);
+            if(chooser.showOpenDialog(this) != JFileChooser.APPROVE_OPTION) {
+                return;
+            }
+            try {
+                playStream(chooser.getSelectedFile());
+            } catch (IOException ioe) {
+                JOptionPane.showMessageDialog(null, "Invalid stream selected.");
+            }
+        });
+
         //button that sends the image to the image service
         JButton scanPictureButton = new JButton("Scan Picture");
         scanPictureButton.addActionListener(e -> {
@@ -69,6 +113,72 @@ public class ImagePanel extends JPanel implements StatusListener {
         add(cameraLabel, "span 3, wrap");
         add(addPictureButton);
         add(scanPictureButton);
+        add(playStreamButton);
+    }
+
+    /**
+     * Makes an image the current camera image, returning the previous one to the pool.
+     */
+    private void showImage(BufferedImage image) {
+        Resampler.scaleInto(image, displayImage);
+        if (currentCameraImage != null) {
+            ImagePools.IMAGES.release(currentCameraImage);
+        }
+        currentCameraImage = image;
+        if (cameraLabel.getIcon() == null) {
+            cameraLabel.setIcon(new ImageIcon(displayImage));
+        }
+    }
+
+    /**
+     * Plays a recording as the camera. Frames are scanned on a background thread before they
+     * are shown, at most STREAM_FPS per second and only when the scene seems to have changed.
+     * Each result is applied on the EDT together with showing its frame.
+     * @param file An MJPEG file or a directory of images
+     */
+    private void playStream(File file) throws IOException {
+        FrameSource source = file.isDirectory()
+                ? new ImageSequenceFrameSource(file.toPath(), RECORDING_FPS)
+                : MjpegFrameSource.open(file.toPath(), RECORDING_FPS);
+        FrameStream stream = new FrameStream(source, STREAM_LOOK_AHEAD, new FrameSampler(STREAM_FPS),
+                new MotionGate(MOTION_THRESHOLD, MAX_FRAMES_WITHOUT_MOTION));
+        frameStream = stream;
+        playStreamButton.setText("Stop Stream");
+
+        Thread player = new Thread(() -> {
+            try {
+                BufferedImage frame;
+                while ((frame = stream.nextImage(ImagePools.IMAGES)) != null) {
+                    //scanned here, applied on the EDT so listeners only touch Swing there and
+                    //verdicts are ordered with those of "Scan Picture"
+                    Detection detection = securityService.detect(SecurityService.DEFAULT_CAMERA, frame);
+                    BufferedImage shown = frame;
+                    SwingUtilities.invokeLater(() -> {
+                        securityService.applyDetection(SecurityService.DEFAULT_CAMERA, detection);
+                        showImage(shown);
+                        repaint();
+                    });
+                }
+            } catch (IOException ioe) {
+                SwingUtilities.invokeLater(() -> JOptionPane.showMessageDialog(null, "Unable to read stream."));
+            } catch (InterruptedException ie) {
+                //stopped
+            }
+            SwingUtilities.invokeLater(() -> {
+                if (frameStream == stream) {
+                    stopStream();
+                }
+            });
+        }, "stream-player");
+        player.setDaemon(true);
+        stream.start();
+        player.start();
+    }
+
+    private void stopStream() {
+        frameStream.close();
+        frameStream = null;
+        playStreamButton.setText("Play Stream");
     }
 
     @Override
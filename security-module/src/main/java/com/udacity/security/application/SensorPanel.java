@@ -2,12 +2,20 @@ package com.udacity.security.application;
 
 import com.udacity.security.data.AlarmStatus;
 import com.udacity.security.data.Sensor;
+import com.udacity.security.data.SensorState;
+import com.udacity.security.data.SensorStatusBatch;
 import com.udacity.security.data.SensorType;
+import com.udacity.security.data.Zone;
+import com.udacity.security.service.ListenerRegistry;
 import com.udacity.security.service.SecurityService;
 import com.udacity.security.service.StyleService;
 import net.miginfocom.swing.MigLayout;
 
 import javax.swing.*;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
 
 /**
  * Panel that allows users to add sensors to their system. Sensors may be
@@ -22,21 +30,27 @@ public class SensorPanel extends JPanel implements StatusListener {
     private JLabel newSensorType = new JLabel("Sensor Type:");
     private JTextField newSensorNameField = new JTextField();
     private JComboBox newSensorTypeDropdown = new JComboBox(SensorType.values());
+    private JLabel newSensorZone = new JLabel("Zone:");
+    private JComboBox newSensorZoneDropdown = new JComboBox(new Zone[]{Zone.PREMISES, Zone.PERIMETER, Zone.INTERIOR});
     private JButton addNewSensorButton = new JButton("Add New Sensor");
 
     private JPanel sensorListPanel;
     private JPanel newSensorPanel;
 
+    //components of each displayed sensor, so status changes can be applied without a rebuild
+    private final Map<UUID, SensorRow> sensorRows = new HashMap<>();
+
     public SensorPanel(SecurityService securityService) {
         super();
         setLayout(new MigLayout());
         this.securityService = securityService;
-        securityService.addStatusListener(this);
+        securityService.addStatusListener(this, ListenerRegistry.Topic.SENSOR_STATUS);
 
         panelLabel.setFont(StyleService.HEADING_FONT);
         addNewSensorButton.addActionListener(e ->
                 addSensor(new Sensor(newSensorNameField.getText(),
-                        SensorType.valueOf(newSensorTypeDropdown.getSelectedItem().toString()))));
+                        SensorType.valueOf(newSensorTypeDropdown.getSelectedItem().toString()),
+                        (Zone) newSensorZoneDropdown.getSelectedItem())));
 
         newSensorPanel = buildAddSensorPanel();
         sensorListPanel = new JPanel();
@@ -58,25 +72,33 @@ public class SensorPanel extends JPanel implements StatusListener {
         p.add(newSensorName);
         p.add(newSensorNameField, "width 50:100:200");
         p.add(newSensorType);
-        p.add(newSensorTypeDropdown, "wrap");
+        p.add(newSensorTypeDropdown);
+        p.add(newSensorZone);
+        p.add(newSensorZoneDropdown, "wrap");
         p.add(addNewSensorButton, "span 3");
         return p;
     }
 
     /**
      * Requests the current list of sensors and updates the provided panel to display them. Sensors
-     * will display in the order that they are created.
+     * will display in the order that they are created. Reads the immutable system snapshot, so
+     * the list is consistent even while the securityService is changing sensors.
      * @param p The Panel to populate with the current list of sensors
      */
     private void updateSensorList(JPanel p) {
         p.removeAll();
-        securityService.getSensors().stream().sorted().forEach(s -> {
-            JLabel sensorLabel = new JLabel(String.format("%s(%s): %s", s.getName(),  s.getSensorType().toString(),(s.getActive() ? "Active" : "Inactive")));
-            JButton sensorToggleButton = new JButton((s.getActive() ? "Deactivate" : "Activate"));
+        sensorRows.clear();
+        //in the order of the sensors themselves, looked up by id
+        Comparator<SensorState> displayOrder = Comparator.comparing(s -> securityService.getSensor(s.getSensorId()),
+                Comparator.nullsLast(Comparator.naturalOrder()));
+        securityService.getState().getSensors().stream().sorted(displayOrder).forEach(s -> {
+            JLabel sensorLabel = new JLabel(describeSensor(s, s.isActive()));
+            JButton sensorToggleButton = new JButton(toggleText(s.isActive()));
             JButton sensorRemoveButton = new JButton("Remove Sensor");
+            sensorRows.put(s.getSensorId(), new SensorRow(s, sensorLabel, sensorToggleButton));
 
-            sensorToggleButton.addActionListener(e -> setSensorActivity(s, !s.getActive()) );
-            sensorRemoveButton.addActionListener(e -> removeSensor(s));
+            sensorToggleButton.addActionListener(e -> toggleSensorActivity(s.getSensorId()));
+            sensorRemoveButton.addActionListener(e -> removeSensor(s.getSensorId()));
 
             //hard code some sizes, tsk tsk
             p.add(sensorLabel, "width 300:300:300");
@@ -89,13 +111,41 @@ public class SensorPanel extends JPanel implements StatusListener {
     }
 
     /**
-     * Asks the securityService to change a sensor activation status and then rebuilds the current sensor list
-     * @param sensor The sensor to update
-     * @param isActive The sensor's activation status
+     * Updates the rows of the changed sensors in place. Falls back to rebuilding the whole list
+     * if a changed sensor is not displayed yet.
+     * @param changes The changed sensors and their new status
      */
-    private void setSensorActivity(Sensor sensor, Boolean isActive) {
-        securityService.changeSensorActivationStatus(sensor, isActive);
-        updateSensorList(sensorListPanel);
+    private void updateSensorRows(SensorStatusBatch changes) {
+        for (int i = 0; i < changes.size(); i++) {
+            SensorRow row = sensorRows.get(changes.getSensorId(i));
+            if (row == null) {
+                updateSensorList(sensorListPanel);
+                return;
+            }
+            row.label.setText(describeSensor(row.sensor, changes.isActive(i)));
+            row.toggleButton.setText(toggleText(changes.isActive(i)));
+        }
+    }
+
+    private static String describeSensor(SensorState sensor, boolean active) {
+        return String.format("%s(%s, %s): %s", sensor.getName(), sensor.getSensorType().toString(),
+                sensor.getZone(), (active ? "Active" : "Inactive"));
+    }
+
+    private static String toggleText(boolean active) {
+        return active ? "Deactivate" : "Activate";
+    }
+
+    /**
+     * Asks the securityService to flip a sensor's activation status. The securityService reports
+     * the change back through {@link #sensorStatusChanged(SensorStatusBatch)}.
+     * @param sensorId The sensor to update
+     */
+    private void toggleSensorActivity(UUID sensorId) {
+        Sensor sensor = securityService.getSensor(sensorId);
+        if (sensor != null) {
+            securityService.changeSensorActivationStatus(sensor, !sensor.getActive());
+        }
     }
 
     /**
@@ -103,7 +153,7 @@ public class SensorPanel extends JPanel implements StatusListener {
      * @param sensor The sensor to add
      */
     private void addSensor(Sensor sensor) {
-        if(securityService.getSensors().size() < 4) {
+        if(securityService.getState().getSensorCount() < 4) {
             securityService.addSensor(sensor);
             updateSensorList(sensorListPanel);
         } else {
@@ -113,10 +163,13 @@ public class SensorPanel extends JPanel implements StatusListener {
 
     /**
      * Remove a sensor from the securityService and then rebuild the sensor list
-     * @param sensor The sensor to remove
+     * @param sensorId The sensor to remove
      */
-    private void removeSensor(Sensor sensor) {
-        securityService.removeSensor(sensor);
+    private void removeSensor(UUID sensorId) {
+        Sensor sensor = securityService.getSensor(sensorId);
+        if (sensor != null) {
+            securityService.removeSensor(sensor);
+        }
         updateSensorList(sensorListPanel);
     }
 
@@ -125,6 +178,11 @@ public class SensorPanel extends JPanel implements StatusListener {
         updateSensorList(sensorListPanel);
     }
 
+    @Override
+    public void sensorStatusChanged(SensorStatusBatch changes) {
+        updateSensorRows(changes);
+    }
+
     @Override
     public void notify(AlarmStatus status) {
         //no behavior necessary
@@ -134,4 +192,19 @@ public class SensorPanel extends JPanel implements StatusListener {
     public void catDetected(boolean catDetected) {
         //no behavior necessary
     }
+
+    /**
+     * Components displaying a single sensor.
+     */
+    private static class SensorRow {
+        private final SensorState sensor;
+        private final JLabel label;
+        private final JButton toggleButton;
+
+        private SensorRow(SensorState sensor, JLabel label, JButton toggleButton) {
+            this.sensor = sensor;
+            this.label = label;
+            this.toggleButton = toggleButton;
+        }
+    }
 }
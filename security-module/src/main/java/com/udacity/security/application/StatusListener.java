@@ -1,6 +1,7 @@
 package com.udacity.security.application;
 
 import com.udacity.security.data.AlarmStatus;
+import com.udacity.security.data.SensorStatusBatch;
 
 /**
  * Identifies a component that should be notified whenever the system status changes
@@ -9,4 +10,13 @@ public interface StatusListener {
     void notify(AlarmStatus status);
     void catDetected(boolean catDetected);
     void sensorStatusChanged();
+
+    /**
+     * Notifies the listener of the exact sensors whose activation status changed, so it can
+     * update its view in O(changes). By default falls back to {@link #sensorStatusChanged()}.
+     * @param changes The changed sensors and their new status
+     */
+    default void sensorStatusChanged(SensorStatusBatch changes) {
+        sensorStatusChanged();
+    }
 }
@@ -0,0 +1,89 @@
+package com.udacity.security.data;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.UUID;
+
+/**
+ * Repository implementation that keeps all state in local memory only. Useful wherever several
+ * independent systems live in one process (load generation, tenants, benchmarks), since the
+ * preferences-backed repository shares a single store per user.
+ */
+public class InMemorySecurityRepositoryImpl implements SecurityRepository {
+
+    private final Set<Sensor> sensors = new TreeSet<>();
+    private final Map<UUID, Sensor> sensorsById = new HashMap<>();
+    private AlarmStatus alarmStatus = AlarmStatus.NO_ALARM;
+    private ArmingStatus armingStatus = ArmingStatus.DISARMED;
+    private boolean isCatDetected;
+
+    @Override
+    public void addSensor(Sensor sensor) {
+        sensors.add(sensor);
+        sensorsById.put(sensor.getSensorId(), sensor);
+    }
+
+    @Override
+    public void removeSensor(Sensor sensor) {
+        sensors.remove(sensor);
+        sensorsById.remove(sensor.getSensorId());
+    }
+
+    @Override
+    public void updateSensor(Sensor sensor) {
+        sensors.remove(sensor);
+        sensors.add(sensor);
+        sensorsById.put(sensor.getSensorId(), sensor);
+    }
+
+    @Override
+    public void updateSensors(Collection<Sensor> updated) {
+        //removeAll would scan the set against the collection when it is the larger one
+        updated.forEach(sensors::remove);
+        sensors.addAll(updated);
+        updated.forEach(sensor -> sensorsById.put(sensor.getSensorId(), sensor));
+    }
+
+    @Override
+    public void setAlarmStatus(AlarmStatus alarmStatus) {
+        this.alarmStatus = alarmStatus;
+    }
+
+    @Override
+    public void setCatDetected(boolean isCatDetected) {
+        this.isCatDetected = isCatDetected;
+    }
+
+    @Override
+    public void setArmingStatus(ArmingStatus armingStatus) {
+        this.armingStatus = armingStatus;
+    }
+
+    @Override
+    public Set<Sensor> getSensors() {
+        return sensors;
+    }
+
+    @Override
+    public Sensor getSensor(UUID sensorId) {
+        return sensorsById.get(sensorId);
+    }
+
+    @Override
+    public AlarmStatus getAlarmStatus() {
+        return alarmStatus;
+    }
+
+    @Override
+    public ArmingStatus getArmingStatus() {
+        return armingStatus;
+    }
+
+    @Override
+    public boolean getCatDetected() {
+        return isCatDetected;
+    }
+}
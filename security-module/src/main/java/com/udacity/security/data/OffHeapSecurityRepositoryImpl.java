@@ -0,0 +1,583 @@
+package com.udacity.security.data;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.AbstractSet;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.ConcurrentModificationException;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * Repository implementation for very large fleets that keeps the sensors outside the Java heap.
+ * Each sensor is a fixed 64-byte record in a direct buffer, found through an open-addressing
+ * id index in a second direct buffer, so the heap holds no objects per stored sensor and
+ * garbage collection no longer scales with the fleet:
+ * <pre>
+ *   0  id, most significant bits (8)     16 flags: used, active (1)   18 zone index (2)
+ *   8  id, least significant bits (8)    17 sensor type (1)           20 name length (2)
+ *                                                                     22 name, UTF-8 (up to 42)
+ * </pre>
+ * Zones are few and shared, so records refer to them by index into a small table. The rare name
+ * longer than a record can hold is kept on the heap instead.
+ *
+ * Sensors handed to the repository are copied into it. {@link #getSensors()} returns views of
+ * the records: short-lived flyweights that read and write their record directly, so changing a
+ * view changes the stored sensor, while a sensor that was added keeps its own copy of the data.
+ * A view of a removed sensor only still answers its id. Views iterate in storage order rather
+ * than sorted, and a null activation status is stored as inactive.
+ *
+ * A SecurityService on top of the repository keeps nothing per sensor on the heap either: its
+ * published {@link SystemState}s read their sensors from the records, it looks sensors up
+ * through {@link #getSensor(UUID)} and it keeps only per-zone counts. FleetHeapBenchmark checks
+ * that the heap of both stays flat as the fleet grows.
+ *
+ * Like {@link InMemorySecurityRepositoryImpl}, this class is not thread safe.
+ */
+public class OffHeapSecurityRepositoryImpl implements SecurityRepository {
+
+    static final int RECORD_SIZE = 64;
+    private static final int MSB = 0;
+    private static final int LSB = 8;
+    private static final int FLAGS = 16;
+    private static final int TYPE = 17;
+    private static final int ZONE = 18;
+    private static final int NAME_LENGTH = 20;
+    private static final int NAME = 22;
+    static final int MAX_STORED_NAME = RECORD_SIZE - NAME;
+    //a free record links to the next free one in place of its id
+    private static final int NEXT_FREE = 0;
+
+    private static final byte USED = 1;
+    private static final byte ACTIVE = 2;
+    private static final byte NO_TYPE = (byte) 0xFF;
+    private static final short NO_ZONE = -1;
+    private static final short NO_NAME = -1;
+    private static final short LONG_NAME = -2;
+    private static final int EMPTY = -1;
+
+    private static final SensorType[] SENSOR_TYPES = SensorType.values();
+
+    private ByteBuffer records;
+    private int capacity;
+    //records below this have been used at some point; free ones among them are linked
+    private int highWater;
+    private int freeHead = EMPTY;
+    private int size;
+
+    //record numbers, or EMPTY, at the id's hash and linearly probed from there
+    private ByteBuffer index;
+    private int indexMask;
+
+    private final List<Zone> zones = new ArrayList<>();
+    private final Map<Integer, String> longNames = new HashMap<>();
+    private final Set<Sensor> sensors = new SensorSet();
+    private final SensorTable sensorTable = new RecordTable();
+    private int modifications;
+
+    private AlarmStatus alarmStatus = AlarmStatus.NO_ALARM;
+    private ArmingStatus armingStatus = ArmingStatus.DISARMED;
+    private boolean isCatDetected;
+
+    public OffHeapSecurityRepositoryImpl() {
+        this(1024);
+    }
+
+    /**
+     * @param expectedSensors Number of sensors to reserve space for; the store grows past it
+     */
+    public OffHeapSecurityRepositoryImpl(int expectedSensors) {
+        capacity = Math.max(16, expectedSensors);
+        records = ByteBuffer.allocateDirect(capacity * RECORD_SIZE);
+        allocateIndex(indexSizeFor(capacity));
+    }
+
+    @Override
+    public void addSensor(Sensor sensor) {
+        store(sensor);
+    }
+
+    @Override
+    public void removeSensor(Sensor sensor) {
+        UUID sensorId = sensor.getSensorId();
+        int position = find(sensorId.getMostSignificantBits(), sensorId.getLeastSignificantBits());
+        if (position < 0) {
+            return;
+        }
+        int record = index.getInt(position * Integer.BYTES);
+        removeFromIndex(position);
+        int offset = record * RECORD_SIZE;
+        if (records.getShort(offset + NAME_LENGTH) == LONG_NAME) {
+            longNames.remove(record);
+        }
+        records.put(offset + FLAGS, (byte) 0);
+        records.putInt(offset + NEXT_FREE, freeHead);
+        freeHead = record;
+        size--;
+        modifications++;
+    }
+
+    @Override
+    public void updateSensor(Sensor sensor) {
+        store(sensor);
+    }
+
+    @Override
+    public void updateSensors(Collection<Sensor> updated) {
+        updated.forEach(this::store);
+    }
+
+    @Override
+    public void setAlarmStatus(AlarmStatus alarmStatus) {
+        this.alarmStatus = alarmStatus;
+    }
+
+    @Override
+    public void setCatDetected(boolean isCatDetected) {
+        this.isCatDetected = isCatDetected;
+    }
+
+    @Override
+    public void setArmingStatus(ArmingStatus armingStatus) {
+        this.armingStatus = armingStatus;
+    }
+
+    /**
+     * @return Views of the stored sensors. The set cannot be modified directly; use the
+     * repository methods.
+     */
+    @Override
+    public Set<Sensor> getSensors() {
+        return sensors;
+    }
+
+    /**
+     * @return A view of the sensor with the given id, or null if none is stored
+     */
+    @Override
+    public Sensor getSensor(UUID sensorId) {
+        long msb = sensorId.getMostSignificantBits();
+        long lsb = sensorId.getLeastSignificantBits();
+        int position = find(msb, lsb);
+        return position < 0 ? null : new SensorView(index.getInt(position * Integer.BYTES), msb, lsb);
+    }
+
+    /**
+     * @return The sensor table of the snapshots of this repository, which reads the records
+     */
+    SensorTable getSensorTable() {
+        return sensorTable;
+    }
+
+    @Override
+    public AlarmStatus getAlarmStatus() {
+        return alarmStatus;
+    }
+
+    @Override
+    public ArmingStatus getArmingStatus() {
+        return armingStatus;
+    }
+
+    @Override
+    public boolean getCatDetected() {
+        return isCatDetected;
+    }
+
+    /**
+     * Writes the sensor to its record, taking a new one if the sensor is not stored yet.
+     */
+    private void store(Sensor sensor) {
+        UUID sensorId = sensor.getSensorId();
+        long msb = sensorId.getMostSignificantBits();
+        long lsb = sensorId.getLeastSignificantBits();
+        int position = find(msb, lsb);
+        if (position >= 0 && sensor instanceof SensorView && ((SensorView) sensor).repository() == this) {
+            //a view of a stored sensor already wrote through to its record
+            return;
+        }
+        //read everything first, as a view of a removed sensor has nothing left to read
+        boolean active = Boolean.TRUE.equals(sensor.getActive());
+        SensorType sensorType = sensor.getSensorType();
+        Zone zone = sensor.getZone();
+        String name = sensor.getName();
+        int record;
+        if (position >= 0) {
+            record = index.getInt(position * Integer.BYTES);
+        } else {
+            record = takeRecord();
+            int offset = record * RECORD_SIZE;
+            records.putLong(offset + MSB, msb);
+            records.putLong(offset + LSB, lsb);
+            records.put(offset + FLAGS, USED);
+            records.putShort(offset + NAME_LENGTH, NO_NAME);
+            addToIndex(record, msb, lsb);
+            size++;
+            modifications++;
+        }
+        writeActive(record, active);
+        writeType(record, sensorType);
+        writeZone(record, zone);
+        writeName(record, name);
+    }
+
+    private int takeRecord() {
+        if (freeHead != EMPTY) {
+            int record = freeHead;
+            freeHead = records.getInt(record * RECORD_SIZE + NEXT_FREE);
+            return record;
+        }
+        if (highWater == capacity) {
+            grow();
+        }
+        return highWater++;
+    }
+
+    private void grow() {
+        capacity *= 2;
+        ByteBuffer grown = ByteBuffer.allocateDirect(capacity * RECORD_SIZE);
+        records.clear();
+        grown.put(records);
+        records = grown;
+        if (indexSizeFor(capacity) > indexMask + 1) {
+            ByteBuffer previous = index;
+            int previousSize = indexMask + 1;
+            allocateIndex(indexSizeFor(capacity));
+            for (int position = 0; position < previousSize; position++) {
+                int record = previous.getInt(position * Integer.BYTES);
+                if (record != EMPTY) {
+                    int offset = record * RECORD_SIZE;
+                    addToIndex(record, records.getLong(offset + MSB), records.getLong(offset + LSB));
+                }
+            }
+        }
+    }
+
+    //the index stays at most half full, which keeps probe sequences short
+    private static int indexSizeFor(int records) {
+        return Integer.highestOneBit(records * 2 - 1) << 1;
+    }
+
+    private void allocateIndex(int slots) {
+        index = ByteBuffer.allocateDirect(slots * Integer.BYTES);
+        for (int position = 0; position < slots; position++) {
+            index.putInt(position * Integer.BYTES, EMPTY);
+        }
+        indexMask = slots - 1;
+    }
+
+    private static int hash(long msb, long lsb) {
+        long mixed = (msb ^ lsb) * 0x9E3779B97F4A7C15L;
+        return (int) (mixed ^ (mixed >>> 32));
+    }
+
+    /**
+     * @return Index position of the record holding the id, or -1 if none does
+     */
+    private int find(long msb, long lsb) {
+        int position = hash(msb, lsb) & indexMask;
+        while (true) {
+            int record = index.getInt(position * Integer.BYTES);
+            if (record == EMPTY) {
+                return -1;
+            }
+            int offset = record * RECORD_SIZE;
+            if (records.getLong(offset + MSB) == msb && records.getLong(offset + LSB) == lsb) {
+                return position;
+            }
+            position = (position + 1) & indexMask;
+        }
+    }
+
+    private void addToIndex(int record, long msb, long lsb) {
+        int position = hash(msb, lsb) & indexMask;
+        while (index.getInt(position * Integer.BYTES) != EMPTY) {
+            position = (position + 1) & indexMask;
+        }
+        index.putInt(position * Integer.BYTES, record);
+    }
+
+    /**
+     * Empties the index position and moves later entries of the probe sequence back into the
+     * gap, so lookups never need tombstones.
+     */
+    private void removeFromIndex(int position) {
+        int hole = position;
+        int next = position;
+        while (true) {
+            next = (next + 1) & indexMask;
+            int record = index.getInt(next * Integer.BYTES);
+            if (record == EMPTY) {
+                break;
+            }
+            int offset = record * RECORD_SIZE;
+            int home = hash(records.getLong(offset + MSB), records.getLong(offset + LSB)) & indexMask;
+            //the entry may fill the hole if the hole lies between its home and its position
+            if (((next - home) & indexMask) >= ((next - hole) & indexMask)) {
+                index.putInt(hole * Integer.BYTES, record);
+                hole = next;
+            }
+        }
+        index.putInt(hole * Integer.BYTES, EMPTY);
+    }
+
+    private boolean readActive(int record) {
+        return (records.get(record * RECORD_SIZE + FLAGS) & ACTIVE) != 0;
+    }
+
+    private void writeActive(int record, boolean active) {
+        records.put(record * RECORD_SIZE + FLAGS, active ? (byte) (USED | ACTIVE) : USED);
+    }
+
+    private SensorType readType(int record) {
+        byte type = records.get(record * RECORD_SIZE + TYPE);
+        return type == NO_TYPE ? null : SENSOR_TYPES[type];
+    }
+
+    private void writeType(int record, SensorType sensorType) {
+        records.put(record * RECORD_SIZE + TYPE, sensorType == null ? NO_TYPE : (byte) sensorType.ordinal());
+    }
+
+    private Zone readZone(int record) {
+        short zone = records.getShort(record * RECORD_SIZE + ZONE);
+        return Zone.orDefault(zone == NO_ZONE ? null : zones.get(zone));
+    }
+
+    private void writeZone(int record, Zone zone) {
+        short zoneIndex = NO_ZONE;
+        if (zone != null) {
+            int known = zones.indexOf(zone);
+            if (known < 0) {
+                known = zones.size();
+                zones.add(zone);
+            }
+            zoneIndex = (short) known;
+        }
+        records.putShort(record * RECORD_SIZE + ZONE, zoneIndex);
+    }
+
+    private String readName(int record) {
+        int offset = record * RECORD_SIZE;
+        short length = records.getShort(offset + NAME_LENGTH);
+        if (length == NO_NAME) {
+            return null;
+        } else if (length == LONG_NAME) {
+            return longNames.get(record);
+        }
+        byte[] name = new byte[length];
+        records.get(offset + NAME, name);
+        return new String(name, StandardCharsets.UTF_8);
+    }
+
+    private void writeName(int record, String name) {
+        int offset = record * RECORD_SIZE;
+        if (records.getShort(offset + NAME_LENGTH) == LONG_NAME) {
+            longNames.remove(record);
+        }
+        if (name == null) {
+            records.putShort(offset + NAME_LENGTH, NO_NAME);
+            return;
+        }
+        byte[] encoded = name.getBytes(StandardCharsets.UTF_8);
+        if (encoded.length > MAX_STORED_NAME) {
+            longNames.put(record, name);
+            records.putShort(offset + NAME_LENGTH, LONG_NAME);
+        } else {
+            records.put(offset + NAME, encoded);
+            records.putShort(offset + NAME_LENGTH, (short) encoded.length);
+        }
+    }
+
+    /**
+     * The stored sensors, read straight from the records.
+     */
+    private final class SensorSet extends AbstractSet<Sensor> {
+        @Override
+        public int size() {
+            return size;
+        }
+
+        @Override
+        public boolean contains(Object o) {
+            if (!(o instanceof Sensor)) {
+                return false;
+            }
+            UUID sensorId = ((Sensor) o).getSensorId();
+            return sensorId != null && find(sensorId.getMostSignificantBits(), sensorId.getLeastSignificantBits()) >= 0;
+        }
+
+        @Override
+        public Iterator<Sensor> iterator() {
+            return new Iterator<>() {
+                private final int expectedModifications = modifications;
+                private int next = nextUsed(0);
+
+                @Override
+                public boolean hasNext() {
+                    return next < highWater;
+                }
+
+                @Override
+                public Sensor next() {
+                    if (modifications != expectedModifications) {
+                        throw new ConcurrentModificationException();
+                    }
+                    if (next >= highWater) {
+                        throw new NoSuchElementException();
+                    }
+                    int offset = next * RECORD_SIZE;
+                    Sensor sensor = new SensorView(next, records.getLong(offset + MSB), records.getLong(offset + LSB));
+                    next = nextUsed(next + 1);
+                    return sensor;
+                }
+            };
+        }
+
+        private int nextUsed(int record) {
+            while (record < highWater && (records.get(record * RECORD_SIZE + FLAGS) & USED) == 0) {
+                record++;
+            }
+            return record;
+        }
+    }
+
+    /**
+     * Sensor table reading the records themselves, so changes to the repository are already in
+     * it and every snapshot shares it. Lists are built from the records when asked for.
+     */
+    private final class RecordTable implements SensorTable {
+        @Override
+        public int size() {
+            return size;
+        }
+
+        @Override
+        public SensorState get(UUID sensorId) {
+            Sensor sensor = getSensor(sensorId);
+            return sensor == null ? null : SensorState.of(sensor);
+        }
+
+        @Override
+        public List<SensorState> asList() {
+            SensorState[] states = new SensorState[size];
+            int i = 0;
+            for (Sensor sensor : sensors) {
+                states[i++] = SensorState.of(sensor);
+            }
+            return SensorTrie.of(states).asList();
+        }
+
+        @Override
+        public SensorTable with(Sensor sensor) {
+            return this;
+        }
+
+        @Override
+        public SensorTable withAll(Collection<Sensor> changed) {
+            return this;
+        }
+
+        @Override
+        public SensorTable without(UUID sensorId) {
+            return this;
+        }
+    }
+
+    /**
+     * Flyweight over one record. It keeps only the record number and the id, and checks on every
+     * access that the record still holds that id, since a removed sensor's record gets reused.
+     */
+    private final class SensorView extends Sensor {
+        private final long msb;
+        private final long lsb;
+        private int record;
+
+        private SensorView(int record, long msb, long lsb) {
+            super(null, null, null, null, false);
+            this.record = record;
+            this.msb = msb;
+            this.lsb = lsb;
+        }
+
+        private OffHeapSecurityRepositoryImpl repository() {
+            return OffHeapSecurityRepositoryImpl.this;
+        }
+
+        /**
+         * @return The sensor's current record, which moves only if the sensor was removed and
+         * stored again
+         */
+        private int record() {
+            int offset = record * RECORD_SIZE;
+            if (record < highWater && (records.get(offset + FLAGS) & USED) != 0
+                    && records.getLong(offset + MSB) == msb && records.getLong(offset + LSB) == lsb) {
+                return record;
+            }
+            int position = find(msb, lsb);
+            if (position < 0) {
+                throw new IllegalStateException("Sensor " + getSensorId() + " is no longer stored");
+            }
+            record = index.getInt(position * Integer.BYTES);
+            return record;
+        }
+
+        @Override
+        public String getName() {
+            return readName(record());
+        }
+
+        @Override
+        public void setName(String name) {
+            writeName(record(), name);
+        }
+
+        @Override
+        public Boolean getActive() {
+            return readActive(record());
+        }
+
+        @Override
+        public void setActive(Boolean active) {
+            writeActive(record(), Boolean.TRUE.equals(active));
+        }
+
+        @Override
+        public SensorType getSensorType() {
+            return readType(record());
+        }
+
+        @Override
+        public void setSensorType(SensorType sensorType) {
+            writeType(record(), sensorType);
+        }
+
+        @Override
+        public Zone getZone() {
+            return readZone(record());
+        }
+
+        @Override
+        public void setZone(Zone zone) {
+            writeZone(record(), zone);
+        }
+
+        @Override
+        public UUID getSensorId() {
+            return new UUID(msb, lsb);
+        }
+
+        /**
+         * Not supported; the id is the sensor's key in the store.
+         */
+        @Override
+        public void setSensorId(UUID sensorId) {
+            throw new UnsupportedOperationException("stored sensors cannot change their id");
+        }
+    }
+}
@@ -4,6 +4,7 @@ import com.google.common.reflect.TypeToken;
 import com.google.gson.Gson;
 
 import java.lang.reflect.Type;
+import java.util.Collection;
 import java.util.Set;
 import java.util.TreeSet;
 import java.util.prefs.Preferences;
@@ -19,50 +20,89 @@ public class PretendDatabaseSecurityRepositoryImpl implements SecurityRepository
     private AlarmStatus alarmStatus;
     private ArmingStatus armingStatus;
     private boolean isCatDetected;
+    private boolean legacySensorsStored;
 
-    //preference keys
+    //preference keys; SENSORS holds the Gson JSON written by earlier versions
     private static final String SENSORS = "SENSORS";
+    private static final String SENSORS_BINARY = "SENSORS_BINARY";
     private static final String ALARM_STATUS = "ALARM_STATUS";
     private static final String ARMING_STATUS = "ARMING_STATUS";
+    private static final String CAT_DETECTED = "CAT_DETECTED";
 
-    private static final Preferences prefs = Preferences.userNodeForPackage(PretendDatabaseSecurityRepositoryImpl.class);
-    private static final Gson gson = new Gson(); //used to serialize objects into JSON
+    private static final Gson gson = new Gson(); //used to read sensors stored as JSON by earlier versions
+
+    private final Preferences prefs;
 
     public PretendDatabaseSecurityRepositoryImpl() {
+        this(Preferences.userNodeForPackage(PretendDatabaseSecurityRepositoryImpl.class));
+    }
+
+    /**
+     * Creates a repository backed by the given preferences node instead of the default one.
+     * @param prefs Node to load state from and write it to
+     */
+    public PretendDatabaseSecurityRepositoryImpl(Preferences prefs) {
+        this.prefs = prefs;
         //load system state from prefs, or else default
         alarmStatus = AlarmStatus.valueOf(prefs.get(ALARM_STATUS, AlarmStatus.NO_ALARM.toString()));
         armingStatus = ArmingStatus.valueOf(prefs.get(ARMING_STATUS, ArmingStatus.DISARMED.toString()));
 
         //we've serialized our sensor objects for storage, which should be a good warning sign that
         // this is likely an impractical solution for a real system
+        byte[] sensorBytes = prefs.getByteArray(SENSORS_BINARY, null);
         String sensorString = prefs.get(SENSORS, null);
-        if(sensorString == null) {
+        if (sensorBytes != null) {
+            sensors = new TreeSet<>(StateCodec.decodeSensors(sensorBytes));
+        } else if(sensorString == null) {
             sensors = new TreeSet<>();
         } else {
+            //stored by an earlier version, converted to the binary format on the next write
             Type type = new TypeToken<Set<Sensor>>() {
             }.getType();
-            sensors = gson.fromJson(sensorString, type);
+            sensors = new TreeSet<>(gson.<Set<Sensor>>fromJson(sensorString, type));
+        }
+        legacySensorsStored = sensorString != null;
+        isCatDetected = prefs.getBoolean(CAT_DETECTED, false);
+    }
+
+    /**
+     * Writes the sensors in the binary format of {@link StateCodec}, which is several times
+     * smaller and faster to produce than the JSON written before, and drops the old JSON copy.
+     */
+    private void saveSensors() {
+        prefs.putByteArray(SENSORS_BINARY, StateCodec.encodeSensors(sensors));
+        if (legacySensorsStored) {
+            prefs.remove(SENSORS);
+            legacySensorsStored = false;
         }
-        isCatDetected = false;
     }
 
     @Override
     public void addSensor(Sensor sensor) {
         sensors.add(sensor);
-        prefs.put(SENSORS, gson.toJson(sensors));
+        saveSensors();
     }
 
     @Override
     public void removeSensor(Sensor sensor) {
         sensors.remove(sensor);
-        prefs.put(SENSORS, gson.toJson(sensors));
+        saveSensors();
     }
 
     @Override
     public void updateSensor(Sensor sensor) {
         sensors.remove(sensor);
         sensors.add(sensor);
-        prefs.put(SENSORS, gson.toJson(sensors));
+        saveSensors();
+    }
+
+    @Override
+    public void updateSensors(Collection<Sensor> updated) {
+        //a single write however many sensors changed; removeAll is avoided since it scans
+        // the whole set against the collection when the collection is not the smaller one
+        updated.forEach(sensors::remove);
+        sensors.addAll(updated);
+        saveSensors();
     }
 
     @Override
@@ -99,7 +139,9 @@ public class PretendDatabaseSecurityRepositoryImpl implements SecurityRepository
 
     @Override
     public void setCatDetected(boolean catDetected) {
-        // FIXME: save it ot repository
+        if (catDetected != isCatDetected) {
+            prefs.putBoolean(CAT_DETECTED, catDetected);
+        }
         isCatDetected = catDetected;
     }
 }
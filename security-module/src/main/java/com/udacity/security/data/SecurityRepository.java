@@ -1,6 +1,8 @@
 package com.udacity.security.data;
 
+import java.util.Collection;
 import java.util.Set;
+import java.util.UUID;
 
 /**
  * Interface showing the methods our security repository will need to support
@@ -9,10 +11,25 @@ public interface SecurityRepository {
     void addSensor(Sensor sensor);
     void removeSensor(Sensor sensor);
     void updateSensor(Sensor sensor);
+    void updateSensors(Collection<Sensor> sensors);
     void setAlarmStatus(AlarmStatus alarmStatus);
     void setCatDetected(boolean isCatDetected);
     void setArmingStatus(ArmingStatus armingStatus);
     Set<Sensor> getSensors();
+
+    /**
+     * @return The sensor with the given id, or null if there is none. Scans the sensors;
+     * repositories holding many sensors should look them up by id instead.
+     */
+    default Sensor getSensor(UUID sensorId) {
+        for (Sensor sensor : getSensors()) {
+            if (sensor.getSensorId().equals(sensorId)) {
+                return sensor;
+            }
+        }
+        return null;
+    }
+
     AlarmStatus getAlarmStatus();
     ArmingStatus getArmingStatus();
     boolean getCatDetected();
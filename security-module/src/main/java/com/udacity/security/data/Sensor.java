@@ -14,25 +14,46 @@ public class Sensor implements Comparable<Sensor> {
     private String name;
     private Boolean active;
     private SensorType sensorType;
+    private Zone zone;
 
     public Sensor(String name, SensorType sensorType) {
+        this(name, sensorType, Zone.PREMISES);
+    }
+
+    public Sensor(String name, SensorType sensorType, Zone zone) {
         this.name = name;
         this.sensorType = sensorType;
+        this.zone = zone;
         this.sensorId = UUID.randomUUID();
         this.active = Boolean.FALSE;
     }
 
+    /**
+     * Recreates a stored sensor without generating a new id.
+     */
+    Sensor(UUID sensorId, String name, SensorType sensorType, Zone zone, boolean active) {
+        this.sensorId = sensorId;
+        this.name = name;
+        this.sensorType = sensorType;
+        this.zone = zone;
+        this.active = active;
+    }
+
+    /**
+     * Sensors are equal when their ids are, including stored views of a sensor and the sensor
+     * itself.
+     */
     @Override
     public boolean equals(Object o) {
         if (this == o) return true;
-        if (o == null || getClass() != o.getClass()) return false;
+        if (!(o instanceof Sensor)) return false;
         Sensor sensor = (Sensor) o;
-        return sensorId.equals(sensor.sensorId);
+        return getSensorId().equals(sensor.getSensorId());
     }
 
     @Override
     public int hashCode() {
-        return Objects.hash(sensorId);
+        return Objects.hash(getSensorId());
     }
 
     public String getName() {
@@ -59,6 +80,22 @@ public class Sensor implements Comparable<Sensor> {
         this.sensorType = sensorType;
     }
 
+    /**
+     * @return The sensor's zone; sensors stored before zones existed belong to {@link Zone#PREMISES}
+     */
+    public Zone getZone() {
+        return Zone.orDefault(zone);
+    }
+
+    /**
+     * Sets the zone of a sensor that is not part of a system yet. Sensors already added move
+     * through {@link com.udacity.security.service.SecurityService#changeSensorZone}, which keeps
+     * the per-zone active counts in step.
+     */
+    public void setZone(Zone zone) {
+        this.zone = zone;
+    }
+
     public UUID getSensorId() {
         return sensorId;
     }
@@ -70,9 +107,9 @@ public class Sensor implements Comparable<Sensor> {
     @Override
     public int compareTo(Sensor o) {
         return ComparisonChain.start()
-                .compare(this.name, o.name)
-                .compare(this.sensorType.toString(), o.sensorType.toString())
-                .compare(this.sensorId, o.sensorId)
+                .compare(this.getName(), o.getName())
+                .compare(this.getSensorType().toString(), o.getSensorType().toString())
+                .compare(this.getSensorId(), o.getSensorId())
                 .result();
     }
 }
@@ -0,0 +1,51 @@
+package com.udacity.security.data;
+
+import java.util.UUID;
+
+/**
+ * Immutable view of a sensor at one point in time, as held by a {@link SystemState}.
+ */
+public final class SensorState {
+
+    private final UUID sensorId;
+    private final String name;
+    private final SensorType sensorType;
+    private final Zone zone;
+    private final boolean active;
+
+    public SensorState(UUID sensorId, String name, SensorType sensorType, Zone zone, boolean active) {
+        this.sensorId = sensorId;
+        this.name = name;
+        this.sensorType = sensorType;
+        this.zone = zone;
+        this.active = active;
+    }
+
+    /**
+     * @return The current state of the given sensor
+     */
+    public static SensorState of(Sensor sensor) {
+        return new SensorState(sensor.getSensorId(), sensor.getName(), sensor.getSensorType(),
+                Zone.orDefault(sensor.getZone()), Boolean.TRUE.equals(sensor.getActive()));
+    }
+
+    public UUID getSensorId() {
+        return sensorId;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public SensorType getSensorType() {
+        return sensorType;
+    }
+
+    public Zone getZone() {
+        return zone;
+    }
+
+    public boolean isActive() {
+        return active;
+    }
+}
@@ -0,0 +1,93 @@
+package com.udacity.security.data;
+
+import java.util.Arrays;
+import java.util.UUID;
+
+/**
+ * Compact, immutable batch of sensor activation changes: the id of every sensor whose status
+ * changed together with its new status, stored in two parallel arrays.
+ */
+public final class SensorStatusBatch {
+
+    private static final SensorStatusBatch EMPTY = new SensorStatusBatch(new UUID[0], new boolean[0], 0);
+
+    private final UUID[] sensorIds;
+    private final boolean[] active;
+    private final int size;
+
+    private SensorStatusBatch(UUID[] sensorIds, boolean[] active, int size) {
+        this.sensorIds = sensorIds;
+        this.active = active;
+        this.size = size;
+    }
+
+    public static SensorStatusBatch empty() {
+        return EMPTY;
+    }
+
+    /**
+     * @return A batch holding the current status of a single sensor
+     */
+    public static SensorStatusBatch of(Sensor sensor) {
+        return new SensorStatusBatch(new UUID[]{sensor.getSensorId()}, new boolean[]{Boolean.TRUE.equals(sensor.getActive())}, 1);
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public UUID getSensorId(int index) {
+        return sensorIds[checkIndex(index)];
+    }
+
+    public boolean isActive(int index) {
+        return active[checkIndex(index)];
+    }
+
+    private int checkIndex(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException(index);
+        }
+        return index;
+    }
+
+    /**
+     * Collects changes for a batch. A builder is meant to build a single batch.
+     */
+    public static class Builder {
+        private UUID[] sensorIds;
+        private boolean[] active;
+        private int size;
+
+        public Builder() {
+            this(8);
+        }
+
+        public Builder(int expectedSize) {
+            sensorIds = new UUID[Math.max(expectedSize, 1)];
+            active = new boolean[sensorIds.length];
+        }
+
+        /**
+         * Records the sensor's current activation status.
+         */
+        public Builder add(Sensor sensor) {
+            if (size == sensorIds.length) {
+                sensorIds = Arrays.copyOf(sensorIds, size * 2);
+                active = Arrays.copyOf(active, size * 2);
+            }
+            sensorIds[size] = sensor.getSensorId();
+            active[size] = Boolean.TRUE.equals(sensor.getActive());
+            size++;
+            return this;
+        }
+
+        public SensorStatusBatch build() {
+            return size == 0 ? EMPTY : new SensorStatusBatch(sensorIds, active, size);
+        }
+    }
+}
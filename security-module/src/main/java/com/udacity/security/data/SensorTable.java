@@ -0,0 +1,39 @@
+package com.udacity.security.data;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * The sensors of a {@link SystemState}. Changes return the table of the next snapshot and leave
+ * this one as it is.
+ */
+interface SensorTable {
+
+    int size();
+
+    /**
+     * @return The state of the sensor with the given id, or null if there is none
+     */
+    SensorState get(UUID sensorId);
+
+    /**
+     * @return A read-only list of the sensors' states, ordered by id
+     */
+    List<SensorState> asList();
+
+    /**
+     * @return A table holding the sensor's current state, added if it was not present
+     */
+    SensorTable with(Sensor sensor);
+
+    /**
+     * @return A table holding the current state of all given sensors
+     */
+    SensorTable withAll(Collection<Sensor> changed);
+
+    /**
+     * @return A table without the sensor with the given id
+     */
+    SensorTable without(UUID sensorId);
+}
@@ -0,0 +1,220 @@
+package com.udacity.security.data;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Persistent table of sensor states ordered by sensor id, held as a 32-way trie over the
+ * positions of the states. Replacing a sensor's state copies only the nodes on the path to it,
+ * one per level, and shares every other node with the table it was derived from, so a status
+ * change costs O(log32 n) whatever the size of the fleet. Adding or removing a sensor shifts
+ * the positions after it and rebuilds the trie; both are rare next to status changes.
+ */
+final class SensorTrie implements SensorTable {
+
+    private static final int BITS = 5;
+    private static final int WIDTH = 1 << BITS;
+    private static final int MASK = WIDTH - 1;
+
+    private static final Comparator<UUID> ID_ORDER = Comparator.nullsFirst(Comparator.naturalOrder());
+    private static final Comparator<SensorState> SENSOR_ORDER = Comparator.comparing(SensorState::getSensorId, ID_ORDER);
+
+    private static final SensorTrie EMPTY = new SensorTrie(new Object[0], 0, 0);
+
+    //leaves hold the states; every level above holds up to WIDTH nodes of the level below
+    private final Object[] root;
+    private final int shift;
+    private final int size;
+
+    private SensorTrie(Object[] root, int shift, int size) {
+        this.root = root;
+        this.shift = shift;
+        this.size = size;
+    }
+
+    /**
+     * @return A table of the given states, which are sorted in place
+     */
+    static SensorTrie of(SensorState[] states) {
+        if (states.length == 0) {
+            return EMPTY;
+        }
+        Arrays.sort(states, SENSOR_ORDER);
+        Object[] nodes = group(states);
+        int shift = 0;
+        while (nodes.length > 1) {
+            nodes = group(nodes);
+            shift += BITS;
+        }
+        return new SensorTrie((Object[]) nodes[0], shift, states.length);
+    }
+
+    private static Object[] group(Object[] items) {
+        Object[] nodes = new Object[(items.length + MASK) >>> BITS];
+        for (int i = 0; i < nodes.length; i++) {
+            nodes[i] = Arrays.copyOfRange(items, i * WIDTH, Math.min(items.length, (i + 1) * WIDTH), Object[].class);
+        }
+        return nodes;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @return The state at the given position in id order
+     */
+    SensorState get(int index) {
+        Object[] node = root;
+        for (int level = shift; level > 0; level -= BITS) {
+            node = (Object[]) node[(index >>> level) & MASK];
+        }
+        return (SensorState) node[index & MASK];
+    }
+
+    @Override
+    public SensorState get(UUID sensorId) {
+        int index = indexOf(sensorId);
+        return index >= 0 ? get(index) : null;
+    }
+
+    /**
+     * @return A read-only list of the states in id order, backed by this table
+     */
+    @Override
+    public List<SensorState> asList() {
+        return new AbstractList<>() {
+            @Override
+            public SensorState get(int index) {
+                if (index < 0 || index >= size) {
+                    throw new IndexOutOfBoundsException(index);
+                }
+                return SensorTrie.this.get(index);
+            }
+
+            @Override
+            public int size() {
+                return size;
+            }
+        };
+    }
+
+    @Override
+    public SensorTrie with(Sensor sensor) {
+        SensorState state = SensorState.of(sensor);
+        int index = indexOf(state.getSensorId());
+        if (index >= 0) {
+            return new SensorTrie(set(root, shift, index, state), shift, size);
+        }
+        int insertAt = -index - 1;
+        SensorState[] states = new SensorState[size + 1];
+        copyTo(states, 0, insertAt, 0);
+        states[insertAt] = state;
+        copyTo(states, insertAt, size, insertAt + 1);
+        return of(states);
+    }
+
+    /**
+     * Replacing the states one by one would copy a path per state, so a change touching more
+     * than one state per leaf rebuilds the table once.
+     */
+    @Override
+    public SensorTrie withAll(Collection<Sensor> changed) {
+        if (changed.isEmpty()) {
+            return this;
+        }
+        if (changed.size() * WIDTH <= size) {
+            SensorTrie table = this;
+            List<SensorState> added = new ArrayList<>();
+            for (Sensor sensor : changed) {
+                SensorState state = SensorState.of(sensor);
+                int index = table.indexOf(state.getSensorId());
+                if (index >= 0) {
+                    table = new SensorTrie(set(table.root, shift, index, state), shift, size);
+                } else {
+                    added.add(state);
+                }
+            }
+            //rare, since sensors normally exist before they change
+            return added.isEmpty() ? table : table.rebuiltWith(added);
+        }
+        List<SensorState> states = new ArrayList<>(changed.size());
+        for (Sensor sensor : changed) {
+            states.add(SensorState.of(sensor));
+        }
+        return rebuiltWith(states);
+    }
+
+    private SensorTrie rebuiltWith(Collection<SensorState> changed) {
+        SensorState[] states = new SensorState[size];
+        copyTo(states, 0, size, 0);
+        List<SensorState> added = new ArrayList<>();
+        for (SensorState state : changed) {
+            int index = Arrays.binarySearch(states, state, SENSOR_ORDER);
+            if (index >= 0) {
+                states[index] = state;
+            } else {
+                added.add(state);
+            }
+        }
+        if (!added.isEmpty()) {
+            int length = states.length;
+            states = Arrays.copyOf(states, length + added.size());
+            for (SensorState state : added) {
+                states[length++] = state;
+            }
+        }
+        return of(states);
+    }
+
+    @Override
+    public SensorTrie without(UUID sensorId) {
+        int index = indexOf(sensorId);
+        if (index < 0) {
+            return this;
+        }
+        SensorState[] states = new SensorState[size - 1];
+        copyTo(states, 0, index, 0);
+        copyTo(states, index + 1, size, index);
+        return of(states);
+    }
+
+    private static Object[] set(Object[] node, int level, int index, SensorState state) {
+        Object[] copy = node.clone();
+        int slot = (index >>> level) & MASK;
+        copy[slot] = level == 0 ? state : set((Object[]) node[slot], level - BITS, index, state);
+        return copy;
+    }
+
+    private void copyTo(SensorState[] target, int from, int to, int at) {
+        for (int i = from; i < to; i++) {
+            target[at++] = get(i);
+        }
+    }
+
+    /**
+     * @return The position of the id, or -(insertion point + 1) if it is not in the table
+     */
+    private int indexOf(UUID sensorId) {
+        int low = 0;
+        int high = size - 1;
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            int comparison = ID_ORDER.compare(get(middle).getSensorId(), sensorId);
+            if (comparison < 0) {
+                low = middle + 1;
+            } else if (comparison > 0) {
+                high = middle - 1;
+            } else {
+                return middle;
+            }
+        }
+        return -(low + 1);
+    }
+}
@@ -1,7 +1,8 @@
 package com.udacity.security.data;
 
 /**
- * List of available sensor types. Not currently used by system, other than for display.
+ * List of available sensor types. The default alarm decisions depend on a sensor's {@link Zone}
+ * instead; site-specific rules may match on the type.
  */
 public enum SensorType {
     DOOR, WINDOW, MOTION
@@ -0,0 +1,366 @@
+package com.udacity.security.data;
+
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Versioned binary format of sensors and state snapshots, used to persist sensors and to send
+ * state over the network.
+ *
+ * Every top level record starts with a format version byte. Ids are written as two big-endian
+ * longs, enums as one byte holding the ordinal (0xFF for null), counts and lengths as unsigned
+ * varints (7 bits per byte, least significant first) and strings as their UTF-8 length plus one
+ * (0 for null) followed by the bytes. A sensor and a sensor state share one layout:
+ * <pre>
+ *   id (16) | name (varint + n) | sensor type (1) | zone (1, + name and armed byte if custom) | active (1)
+ * </pre>
+ * Sensor lists are a version byte, a varint count and the sensors. Snapshots are a version byte,
+ * the snapshot version as a varint, alarm, arming and cat bytes, a varint count and the sensors.
+ *
+ * Decoding fails with an IllegalArgumentException on unknown versions and corrupt or truncated
+ * input.
+ */
+public final class StateCodec {
+
+    public static final byte VERSION = 1;
+
+    private static final byte NULL_ENUM = (byte) 0xFF;
+    private static final byte ZONE_PREMISES = 0;
+    private static final byte ZONE_PERIMETER = 1;
+    private static final byte ZONE_INTERIOR = 2;
+    private static final byte ZONE_CUSTOM = 3;
+
+    private static final AlarmStatus[] ALARM_STATUSES = AlarmStatus.values();
+    private static final ArmingStatus[] ARMING_STATUSES = ArmingStatus.values();
+    private static final SensorType[] SENSOR_TYPES = SensorType.values();
+
+    private StateCodec() {
+    }
+
+    /**
+     * @return The sensors as a versioned sensor list
+     */
+    public static byte[] encodeSensors(Collection<Sensor> sensors) {
+        int size = 1 + varintSize(sensors.size());
+        for (Sensor sensor : sensors) {
+            size += sensorSize(sensor.getName(), sensor.getZone());
+        }
+        ByteBuffer buffer = ByteBuffer.allocate(size).put(VERSION);
+        putVarint(buffer, sensors.size());
+        for (Sensor sensor : sensors) {
+            putSensor(buffer, sensor);
+        }
+        return buffer.array();
+    }
+
+    /**
+     * @return The sensors of a versioned sensor list
+     */
+    public static List<Sensor> decodeSensors(byte[] data) {
+        try {
+            ByteBuffer buffer = ByteBuffer.wrap(data);
+            checkVersion(buffer.get());
+            int count = getVarint(buffer);
+            List<Sensor> sensors = new ArrayList<>(Math.min(count, data.length));
+            for (int i = 0; i < count; i++) {
+                sensors.add(getSensor(buffer));
+            }
+            return sensors;
+        } catch (BufferUnderflowException e) {
+            throw new IllegalArgumentException("truncated sensor list", e);
+        }
+    }
+
+    /**
+     * @return The snapshot as a versioned record
+     */
+    public static byte[] encode(SystemState state) {
+        List<SensorState> sensors = state.getSensors();
+        int size = 1 + varlongSize(state.getVersion()) + 3 + varintSize(sensors.size());
+        for (SensorState sensor : sensors) {
+            size += sensorSize(sensor.getName(), sensor.getZone());
+        }
+        ByteBuffer buffer = ByteBuffer.allocate(size).put(VERSION);
+        putVarlong(buffer, state.getVersion());
+        buffer.put(enumByte(state.getAlarmStatus()))
+                .put(enumByte(state.getArmingStatus()))
+                .put(state.isCatDetected() ? (byte) 1 : (byte) 0);
+        putVarint(buffer, sensors.size());
+        for (SensorState sensor : sensors) {
+            putSensorState(buffer, sensor);
+        }
+        return buffer.array();
+    }
+
+    /**
+     * @return The snapshot of a versioned record, with the version it was encoded with
+     */
+    public static SystemState decodeState(byte[] data) {
+        try {
+            ByteBuffer buffer = ByteBuffer.wrap(data);
+            checkVersion(buffer.get());
+            long version = getVarlong(buffer);
+            AlarmStatus alarmStatus = enumOf(buffer.get(), ALARM_STATUSES);
+            ArmingStatus armingStatus = enumOf(buffer.get(), ARMING_STATUSES);
+            boolean catDetected = buffer.get() != 0;
+            int count = getVarint(buffer);
+            List<SensorState> sensors = new ArrayList<>(Math.min(count, data.length));
+            for (int i = 0; i < count; i++) {
+                sensors.add(getSensorState(buffer));
+            }
+            return SystemState.of(version, alarmStatus, armingStatus, catDetected, sensors);
+        } catch (BufferUnderflowException e) {
+            throw new IllegalArgumentException("truncated state snapshot", e);
+        }
+    }
+
+    public static void putSensor(ByteBuffer buffer, Sensor sensor) {
+        putSensorFields(buffer, sensor.getSensorId(), sensor.getName(), sensor.getSensorType(), sensor.getZone(),
+                Boolean.TRUE.equals(sensor.getActive()));
+    }
+
+    public static Sensor getSensor(ByteBuffer buffer) {
+        return new Sensor(getUuid(buffer), getString(buffer), enumOf(buffer.get(), SENSOR_TYPES),
+                getZone(buffer), buffer.get() != 0);
+    }
+
+    public static void putSensorState(ByteBuffer buffer, SensorState sensor) {
+        putSensorFields(buffer, sensor.getSensorId(), sensor.getName(), sensor.getSensorType(), sensor.getZone(),
+                sensor.isActive());
+    }
+
+    public static SensorState getSensorState(ByteBuffer buffer) {
+        return new SensorState(getUuid(buffer), getString(buffer), enumOf(buffer.get(), SENSOR_TYPES),
+                getZone(buffer), buffer.get() != 0);
+    }
+
+    private static void putSensorFields(ByteBuffer buffer, UUID sensorId, String name, SensorType sensorType,
+                                        Zone zone, boolean active) {
+        putUuid(buffer, sensorId);
+        putString(buffer, name);
+        buffer.put(enumByte(sensorType));
+        putZone(buffer, zone);
+        buffer.put(active ? (byte) 1 : (byte) 0);
+    }
+
+    private static int sensorSize(String name, Zone zone) {
+        int size = 2 * Long.BYTES + stringSize(name) + 3;
+        if (zoneTag(zone) == ZONE_CUSTOM) {
+            size += stringSize(zone.getName()) + 1;
+        }
+        return size;
+    }
+
+    public static void putUuid(ByteBuffer buffer, UUID uuid) {
+        buffer.putLong(uuid.getMostSignificantBits()).putLong(uuid.getLeastSignificantBits());
+    }
+
+    public static UUID getUuid(ByteBuffer buffer) {
+        return new UUID(buffer.getLong(), buffer.getLong());
+    }
+
+    /**
+     * @return The ordinal of the constant as a byte, or 0xFF for null
+     */
+    public static byte enumByte(Enum<?> value) {
+        return value == null ? NULL_ENUM : (byte) value.ordinal();
+    }
+
+    /**
+     * @param values The enum's constants, in declaration order
+     * @return The constant written by {@link #enumByte(Enum)}
+     */
+    public static <E extends Enum<E>> E enumOf(byte b, E[] values) {
+        if (b == NULL_ENUM) {
+            return null;
+        }
+        if (b < 0 || b >= values.length) {
+            throw new IllegalArgumentException("unknown enum ordinal " + b);
+        }
+        return values[b];
+    }
+
+    public static AlarmStatus alarmStatusOf(byte b) {
+        return enumOf(b, ALARM_STATUSES);
+    }
+
+    public static ArmingStatus armingStatusOf(byte b) {
+        return enumOf(b, ARMING_STATUSES);
+    }
+
+    private static void putZone(ByteBuffer buffer, Zone zone) {
+        byte tag = zoneTag(zone);
+        buffer.put(tag);
+        if (tag == ZONE_CUSTOM) {
+            putString(buffer, zone.getName());
+            buffer.put(zone.isArmedWhenHome() ? (byte) 1 : (byte) 0);
+        }
+    }
+
+    private static Zone getZone(ByteBuffer buffer) {
+        byte tag = buffer.get();
+        switch (tag) {
+            case ZONE_PREMISES:
+                return Zone.PREMISES;
+            case ZONE_PERIMETER:
+                return Zone.PERIMETER;
+            case ZONE_INTERIOR:
+                return Zone.INTERIOR;
+            case ZONE_CUSTOM:
+                return new Zone(getString(buffer), buffer.get() != 0);
+            default:
+                throw new IllegalArgumentException("unknown zone tag " + tag);
+        }
+    }
+
+    private static byte zoneTag(Zone zone) {
+        if (zone == null || Zone.PREMISES.equals(zone)) {
+            return ZONE_PREMISES;
+        } else if (Zone.PERIMETER.equals(zone)) {
+            return ZONE_PERIMETER;
+        } else if (Zone.INTERIOR.equals(zone)) {
+            return ZONE_INTERIOR;
+        }
+        return ZONE_CUSTOM;
+    }
+
+    /**
+     * Writes the UTF-8 length plus one, or 0 for null, followed by the UTF-8 bytes. Characters
+     * are encoded straight into the buffer; unpaired surrogates become '?', as with String.getBytes.
+     */
+    public static void putString(ByteBuffer buffer, String s) {
+        if (s == null) {
+            putVarint(buffer, 0);
+            return;
+        }
+        putVarint(buffer, utf8Length(s) + 1);
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            if (c < 0x80) {
+                buffer.put((byte) c);
+            } else if (c < 0x800) {
+                buffer.put((byte) (0xC0 | c >> 6)).put((byte) (0x80 | c & 0x3F));
+            } else if (Character.isSurrogate(c)) {
+                if (Character.isHighSurrogate(c) && i + 1 < s.length() && Character.isLowSurrogate(s.charAt(i + 1))) {
+                    int cp = Character.toCodePoint(c, s.charAt(++i));
+                    buffer.put((byte) (0xF0 | cp >> 18))
+                            .put((byte) (0x80 | cp >> 12 & 0x3F))
+                            .put((byte) (0x80 | cp >> 6 & 0x3F))
+                            .put((byte) (0x80 | cp & 0x3F));
+                } else {
+                    buffer.put((byte) '?');
+                }
+            } else {
+                buffer.put((byte) (0xE0 | c >> 12))
+                        .put((byte) (0x80 | c >> 6 & 0x3F))
+                        .put((byte) (0x80 | c & 0x3F));
+            }
+        }
+    }
+
+    public static String getString(ByteBuffer buffer) {
+        int length = getVarint(buffer) - 1;
+        if (length < 0) {
+            return null;
+        }
+        if (length > buffer.remaining()) {
+            throw new BufferUnderflowException();
+        }
+        String s;
+        if (buffer.hasArray()) {
+            s = new String(buffer.array(), buffer.arrayOffset() + buffer.position(), length, StandardCharsets.UTF_8);
+            buffer.position(buffer.position() + length);
+        } else {
+            byte[] bytes = new byte[length];
+            buffer.get(bytes);
+            s = new String(bytes, StandardCharsets.UTF_8);
+        }
+        return s;
+    }
+
+    private static int stringSize(String s) {
+        if (s == null) {
+            return 1;
+        }
+        int length = utf8Length(s);
+        return varintSize(length + 1) + length;
+    }
+
+    private static int utf8Length(String s) {
+        int length = 0;
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            if (c < 0x80) {
+                length++;
+            } else if (c < 0x800) {
+                length += 2;
+            } else if (Character.isSurrogate(c)) {
+                if (Character.isHighSurrogate(c) && i + 1 < s.length() && Character.isLowSurrogate(s.charAt(i + 1))) {
+                    length += 4;
+                    i++;
+                } else {
+                    length++;
+                }
+            } else {
+                length += 3;
+            }
+        }
+        return length;
+    }
+
+    public static void putVarint(ByteBuffer buffer, int value) {
+        putVarlong(buffer, value & 0xFFFF_FFFFL);
+    }
+
+    public static int getVarint(ByteBuffer buffer) {
+        long value = getVarlong(buffer);
+        if (value > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("varint out of range: " + value);
+        }
+        return (int) value;
+    }
+
+    public static void putVarlong(ByteBuffer buffer, long value) {
+        while ((value & ~0x7FL) != 0) {
+            buffer.put((byte) (value & 0x7F | 0x80));
+            value >>>= 7;
+        }
+        buffer.put((byte) value);
+    }
+
+    public static long getVarlong(ByteBuffer buffer) {
+        long value = 0;
+        for (int shift = 0; shift < Long.SIZE; shift += 7) {
+            byte b = buffer.get();
+            value |= (long) (b & 0x7F) << shift;
+            if (b >= 0) {
+                return value;
+            }
+        }
+        throw new IllegalArgumentException("varint longer than 10 bytes");
+    }
+
+    public static int varintSize(int value) {
+        return varlongSize(value & 0xFFFF_FFFFL);
+    }
+
+    public static int varlongSize(long value) {
+        int size = 1;
+        while ((value & ~0x7FL) != 0) {
+            value >>>= 7;
+            size++;
+        }
+        return size;
+    }
+
+    private static void checkVersion(byte version) {
+        if (version != VERSION) {
+            throw new IllegalArgumentException("unsupported format version " + version);
+        }
+    }
+}
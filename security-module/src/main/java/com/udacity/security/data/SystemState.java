@@ -0,0 +1,150 @@
+package com.udacity.security.data;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Immutable, versioned snapshot of the whole system: alarm, arming, cat and sensor state.
+ *
+ * Every change produces a new snapshot with the next version. Snapshots share whatever did not
+ * change: an alarm, arming or cat change reuses the sensor table as is, and the table is a
+ * persistent trie, so a sensor change copies only the trie's path to that sensor and shares
+ * every untouched {@link SensorState}. Sensors are kept ordered by id.
+ *
+ * Snapshots of an {@link OffHeapSecurityRepositoryImpl} hold no sensor table, so the heap holds
+ * nothing per sensor whatever the size of the fleet: they read their sensors from the
+ * repository's records. Their alarm, arming and cat status are fixed as for any snapshot, but
+ * their sensors are the current ones, and like the repository they may only be read on the
+ * thread that changes it.
+ */
+public final class SystemState {
+
+    private final long version;
+    private final AlarmStatus alarmStatus;
+    private final ArmingStatus armingStatus;
+    private final boolean catDetected;
+    private final SensorTable sensors;
+
+    private SystemState(long version, AlarmStatus alarmStatus, ArmingStatus armingStatus, boolean catDetected,
+                        SensorTable sensors) {
+        this.version = version;
+        this.alarmStatus = alarmStatus;
+        this.armingStatus = armingStatus;
+        this.catDetected = catDetected;
+        this.sensors = sensors;
+    }
+
+    /**
+     * @return The first snapshot of the state currently held by the repository
+     */
+    public static SystemState of(SecurityRepository securityRepository) {
+        SensorTable sensors;
+        if (securityRepository instanceof OffHeapSecurityRepositoryImpl) {
+            sensors = ((OffHeapSecurityRepositoryImpl) securityRepository).getSensorTable();
+        } else {
+            sensors = SensorTrie.of(securityRepository.getSensors().stream()
+                    .map(SensorState::of)
+                    .toArray(SensorState[]::new));
+        }
+        return new SystemState(0, securityRepository.getAlarmStatus(), securityRepository.getArmingStatus(),
+                securityRepository.getCatDetected(), sensors);
+    }
+
+    /**
+     * @return A snapshot with the given contents, such as one received from another node
+     */
+    public static SystemState of(long version, AlarmStatus alarmStatus, ArmingStatus armingStatus, boolean catDetected,
+                                 Collection<SensorState> sensors) {
+        return new SystemState(version, alarmStatus, armingStatus, catDetected,
+                SensorTrie.of(sensors.toArray(new SensorState[0])));
+    }
+
+    public long getVersion() {
+        return version;
+    }
+
+    public AlarmStatus getAlarmStatus() {
+        return alarmStatus;
+    }
+
+    public ArmingStatus getArmingStatus() {
+        return armingStatus;
+    }
+
+    public boolean isCatDetected() {
+        return catDetected;
+    }
+
+    /**
+     * @return Read-only list of the sensors, ordered by id
+     */
+    public List<SensorState> getSensors() {
+        return sensors.asList();
+    }
+
+    public int getSensorCount() {
+        return sensors.size();
+    }
+
+    /**
+     * @return The sensor with the given id, or null if there is none
+     */
+    public SensorState getSensor(UUID sensorId) {
+        return sensors.get(sensorId);
+    }
+
+    public SystemState withAlarmStatus(AlarmStatus alarmStatus) {
+        return new SystemState(version + 1, alarmStatus, armingStatus, catDetected, sensors);
+    }
+
+    public SystemState withArmingStatus(ArmingStatus armingStatus) {
+        return new SystemState(version + 1, alarmStatus, armingStatus, catDetected, sensors);
+    }
+
+    public SystemState withCatDetected(boolean catDetected) {
+        return new SystemState(version + 1, alarmStatus, armingStatus, catDetected, sensors);
+    }
+
+    /**
+     * @return A snapshot holding the sensor's current state, added if it was not present
+     */
+    public SystemState withSensor(Sensor sensor) {
+        return new SystemState(version + 1, alarmStatus, armingStatus, catDetected, sensors.with(sensor));
+    }
+
+    /**
+     * @return A snapshot holding the current state of all given sensors
+     */
+    public SystemState withSensors(Collection<Sensor> changed) {
+        return new SystemState(version + 1, alarmStatus, armingStatus, catDetected, sensors.withAll(changed));
+    }
+
+    /**
+     * @return A snapshot with the given statuses and the current state of the changed sensor,
+     * published as one change so readers never see the statuses without the sensor
+     */
+    public SystemState with(AlarmStatus alarmStatus, ArmingStatus armingStatus, boolean catDetected, Sensor changed) {
+        return new SystemState(version + 1, alarmStatus, armingStatus, catDetected, sensors.with(changed));
+    }
+
+    /**
+     * @return A snapshot with the given statuses and the current state of all changed sensors,
+     * published as one change
+     */
+    public SystemState with(AlarmStatus alarmStatus, ArmingStatus armingStatus, boolean catDetected,
+                            Collection<Sensor> changed) {
+        return new SystemState(version + 1, alarmStatus, armingStatus, catDetected, sensors.withAll(changed));
+    }
+
+    /**
+     * @return A snapshot without the given sensor
+     */
+    public SystemState withoutSensor(UUID sensorId) {
+        SensorTable remaining = sensors.without(sensorId);
+        if (remaining == sensors) {
+            return this;
+        }
+        return new SystemState(version + 1, alarmStatus, armingStatus, catDetected, remaining);
+    }
+}
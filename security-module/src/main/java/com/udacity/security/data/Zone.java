@@ -0,0 +1,72 @@
+package com.udacity.security.data;
+
+import java.util.Objects;
+
+/**
+ * Area of the premises a sensor belongs to. Zones decide which sensors count in each arming
+ * mode: every zone is armed when the system is armed away, but only zones armed when home
+ * (such as the perimeter) count while the system is armed home.
+ */
+public final class Zone {
+
+    /** Default zone of sensors without one; armed in every armed mode. */
+    public static final Zone PREMISES = new Zone("Premises", true);
+    public static final Zone PERIMETER = new Zone("Perimeter", true);
+    public static final Zone INTERIOR = new Zone("Interior", false);
+
+    private final String name;
+    private final boolean armedWhenHome;
+
+    public Zone(String name, boolean armedWhenHome) {
+        this.name = name;
+        this.armedWhenHome = armedWhenHome;
+    }
+
+    /**
+     * @return The interior zone of the given floor, which is not armed while the system is armed home
+     */
+    public static Zone floor(int floor) {
+        return new Zone("Floor " + floor, false);
+    }
+
+    /**
+     * @return The zone, or {@link #PREMISES} for sensors without one
+     */
+    public static Zone orDefault(Zone zone) {
+        return zone == null ? PREMISES : zone;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public boolean isArmedWhenHome() {
+        return armedWhenHome;
+    }
+
+    /**
+     * @return True if sensors in this zone count under the given arming status. While disarmed
+     * every zone counts, so that leftover alarm states can still be cleared.
+     */
+    public boolean isArmed(ArmingStatus armingStatus) {
+        return armingStatus != ArmingStatus.ARMED_HOME || armedWhenHome;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        Zone zone = (Zone) o;
+        return armedWhenHome == zone.armedWhenHome && name.equals(zone.name);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(name, armedWhenHome);
+    }
+
+    @Override
+    public String toString() {
+        return name;
+    }
+}
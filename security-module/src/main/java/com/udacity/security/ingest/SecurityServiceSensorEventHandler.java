@@ -0,0 +1,33 @@
+package com.udacity.security.ingest;
+
+import com.udacity.security.data.AlarmStatus;
+import com.udacity.security.data.Sensor;
+import com.udacity.security.service.SecurityService;
+
+import java.util.UUID;
+
+/**
+ * Routes network sensor events to {@link SecurityService#changeSensorActivationStatus(Sensor, Boolean)}.
+ *
+ * The SecurityService is not thread safe, so it must only be driven from the ingestion thread
+ * while this handler is in use.
+ */
+public class SecurityServiceSensorEventHandler implements SensorEventHandler {
+
+    private final SecurityService securityService;
+
+    public SecurityServiceSensorEventHandler(SecurityService securityService) {
+        this.securityService = securityService;
+    }
+
+    @Override
+    public AlarmStatus onSensorEvent(UUID sensorId, boolean active) {
+        //sensors removed from the system are not found, so updating them cannot re-add them
+        Sensor sensor = securityService.getSensor(sensorId);
+        if (sensor == null) {
+            return null;
+        }
+        securityService.changeSensorActivationStatus(sensor, active);
+        return securityService.getAlarmStatus();
+    }
+}
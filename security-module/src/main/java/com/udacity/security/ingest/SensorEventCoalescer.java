@@ -0,0 +1,95 @@
+package com.udacity.security.ingest;
+
+import com.udacity.security.data.AlarmStatus;
+import com.udacity.security.timer.TimerWheel;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Debounces flapping sensors before their events reach the state machine.
+ *
+ * The first event of a sensor is forwarded immediately and opens a coalescing window. Within the
+ * window an activation of a sensor believed inactive is still forwarded immediately, so alarm
+ * latency is unaffected, but everything else only updates the sensor's latest state. When the
+ * window closes the latest state is forwarded if it differs from the last forwarded one, which
+ * opens a new window. A sensor flapping continuously therefore costs at most two forwarded
+ * events per window, however fast it flaps.
+ *
+ * All windows share one {@link TimerWheel} instead of scheduling a task per sensor. Events are
+ * forwarded while holding this coalescer's lock, so the delegate is never called concurrently
+ * by the event and timer threads.
+ */
+public class SensorEventCoalescer implements SensorEventHandler {
+
+    private final SensorEventHandler delegate;
+    private final TimerWheel timerWheel;
+    private final long windowMillis;
+    private final Map<UUID, Window> windows = new HashMap<>();
+    private AlarmStatus lastAlarmStatus;
+
+    /**
+     * @param delegate Handler receiving the coalesced events
+     * @param timerWheel Wheel used to close windows; it must be driven by the caller
+     * @param windowMillis Length of the coalescing window
+     */
+    public SensorEventCoalescer(SensorEventHandler delegate, TimerWheel timerWheel, long windowMillis) {
+        this.delegate = delegate;
+        this.timerWheel = timerWheel;
+        this.windowMillis = windowMillis;
+    }
+
+    @Override
+    public synchronized AlarmStatus onSensorEvent(UUID sensorId, boolean active) {
+        Window window = windows.get(sensorId);
+        if (window == null) {
+            AlarmStatus status = forward(sensorId, active);
+            if (status != null) {
+                openWindow(sensorId, active);
+            }
+            return status;
+        }
+        window.latest = active;
+        if (active && !window.forwarded) {
+            window.forwarded = true;
+            return forward(sensorId, true);
+        }
+        return lastAlarmStatus;
+    }
+
+    private synchronized void closeWindow(UUID sensorId) {
+        Window window = windows.remove(sensorId);
+        if (window != null && window.latest != window.forwarded
+                && forward(sensorId, window.latest) != null) {
+            openWindow(sensorId, window.latest);
+        }
+    }
+
+    private void openWindow(UUID sensorId, boolean forwarded) {
+        Window window = new Window(forwarded);
+        windows.put(sensorId, window);
+        timerWheel.schedule(() -> closeWindow(sensorId), windowMillis);
+    }
+
+    private AlarmStatus forward(UUID sensorId, boolean active) {
+        AlarmStatus status = delegate.onSensorEvent(sensorId, active);
+        if (status != null) {
+            lastAlarmStatus = status;
+        }
+        return status;
+    }
+
+    /**
+     * Coalescing state of one sensor.
+     */
+    private static class Window {
+        private boolean forwarded;
+        private boolean latest;
+
+        private Window(boolean forwarded) {
+            this.forwarded = forwarded;
+            this.latest = forwarded;
+        }
+    }
+}
@@ -0,0 +1,55 @@
+package com.udacity.security.ingest;
+
+import com.udacity.security.data.AlarmStatus;
+import com.udacity.security.data.StateCodec;
+
+import java.nio.ByteBuffer;
+import java.util.UUID;
+
+/**
+ * Wire format of the sensor ingestion protocol.
+ *
+ * A sensor event is a fixed size frame: one version byte, the sensor id as two big-endian longs
+ * and one byte holding the activation status. Every frame is answered, in order, with a single
+ * ack byte: the alarm status after the event as encoded by {@link StateCodec}, or
+ * {@link #ACK_UNKNOWN_SENSOR}.
+ */
+public final class SensorEventFrame {
+
+    public static final byte VERSION = 1;
+    public static final int LENGTH = 1 + Long.BYTES * 2 + 1;
+    public static final byte ACK_UNKNOWN_SENSOR = (byte) 0xFF;
+
+    private SensorEventFrame() {
+    }
+
+    /**
+     * Writes a sensor event frame at the buffer's current position.
+     */
+    public static void write(ByteBuffer buffer, UUID sensorId, boolean active) {
+        StateCodec.putUuid(buffer.put(VERSION), sensorId);
+        buffer.put(active ? (byte) 1 : (byte) 0);
+    }
+
+    /**
+     * Reads the sensor id of a frame whose version byte was just read.
+     */
+    public static UUID readSensorId(ByteBuffer buffer) {
+        return StateCodec.getUuid(buffer);
+    }
+
+    /**
+     * Encodes an alarm status (or null for an unknown sensor) as an ack byte.
+     */
+    public static byte ack(AlarmStatus alarmStatus) {
+        //an unknown sensor has no alarm status, which the codec writes as 0xFF
+        return StateCodec.enumByte(alarmStatus);
+    }
+
+    /**
+     * Decodes an ack byte, returning null for an unknown sensor.
+     */
+    public static AlarmStatus fromAck(byte ack) {
+        return StateCodec.alarmStatusOf(ack);
+    }
+}
@@ -0,0 +1,20 @@
+package com.udacity.security.ingest;
+
+import com.udacity.security.data.AlarmStatus;
+
+import java.util.UUID;
+
+/**
+ * Receives decoded sensor events from the ingestion server.
+ */
+@FunctionalInterface
+public interface SensorEventHandler {
+
+    /**
+     * Applies a single sensor event.
+     * @param sensorId Id of the sensor that reported
+     * @param active The reported activation status
+     * @return The alarm status after the event was applied, or null if the sensor is unknown
+     */
+    AlarmStatus onSensorEvent(UUID sensorId, boolean active);
+}
@@ -0,0 +1,169 @@
+package com.udacity.security.ingest;
+
+import com.udacity.image.service.FakeImageService;
+import com.udacity.security.data.ArmingStatus;
+import com.udacity.security.data.InMemorySecurityRepositoryImpl;
+import com.udacity.security.data.SecurityRepository;
+import com.udacity.security.data.Sensor;
+import com.udacity.security.data.SensorType;
+import com.udacity.security.service.SecurityService;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Local load generator for the sensor ingestion server. Opens many connections, each toggling
+ * one sensor with a single frame in flight, and reports events per second and the latency
+ * from sending a frame to receiving the resulting alarm status.
+ *
+ * Usage: SensorEventLoadGenerator [connections] [seconds] [host:port]
+ *
+ * Without a host an in-process server backed by an in-memory repository is started, with one
+ * sensor per connection and the system armed.
+ */
+public class SensorEventLoadGenerator {
+
+    //latency histogram with 10 microsecond buckets up to one second
+    private static final long BUCKET_NANOS = TimeUnit.MICROSECONDS.toNanos(10);
+    private static final int BUCKETS = 100_000;
+
+    private final long[] latencyBuckets = new long[BUCKETS + 1];
+    private long events;
+    private long unknownSensors;
+
+    public static void main(String[] args) throws IOException {
+        int connections = args.length > 0 ? Integer.parseInt(args[0]) : 1_000;
+        int seconds = args.length > 1 ? Integer.parseInt(args[1]) : 10;
+
+        SensorEventServer localServer = null;
+        InetSocketAddress target;
+        UUID[] sensorIds = new UUID[connections];
+        if (args.length > 2) {
+            String[] hostPort = args[2].split(":");
+            target = new InetSocketAddress(hostPort[0], Integer.parseInt(hostPort[1]));
+            for (int i = 0; i < connections; i++) {
+                sensorIds[i] = UUID.randomUUID();
+            }
+        } else {
+            SecurityRepository repository = new InMemorySecurityRepositoryImpl();
+            SecurityService securityService = new SecurityService(repository, new FakeImageService(), new HashSet<>());
+            for (int i = 0; i < connections; i++) {
+                Sensor sensor = new Sensor("Sensor " + i, SensorType.values()[i % SensorType.values().length]);
+                securityService.addSensor(sensor);
+                sensorIds[i] = sensor.getSensorId();
+            }
+            securityService.setArmingStatus(ArmingStatus.ARMED_AWAY);
+            localServer = new SensorEventServer(new InetSocketAddress("127.0.0.1", 0),
+                    new SecurityServiceSensorEventHandler(securityService));
+            localServer.start();
+            target = new InetSocketAddress("127.0.0.1", localServer.getPort());
+        }
+
+        SensorEventLoadGenerator generator = new SensorEventLoadGenerator();
+        try {
+            generator.run(target, sensorIds, TimeUnit.SECONDS.toNanos(seconds));
+        } finally {
+            if (localServer != null) {
+                localServer.close();
+            }
+        }
+        generator.report(seconds);
+    }
+
+    private void run(InetSocketAddress target, UUID[] sensorIds, long durationNanos) throws IOException {
+        try (Selector selector = Selector.open()) {
+            for (UUID sensorId : sensorIds) {
+                SocketChannel channel = SocketChannel.open(target);
+                channel.socket().setTcpNoDelay(true);
+                channel.configureBlocking(false);
+                Client client = new Client(sensorId);
+                channel.register(selector, SelectionKey.OP_READ, client);
+                client.send(channel);
+            }
+
+            long deadline = System.nanoTime() + durationNanos;
+            ByteBuffer ack = ByteBuffer.allocate(1);
+            while (System.nanoTime() < deadline) {
+                selector.select(100);
+                Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+                while (keys.hasNext()) {
+                    SelectionKey key = keys.next();
+                    keys.remove();
+                    SocketChannel channel = (SocketChannel) key.channel();
+                    Client client = (Client) key.attachment();
+                    ack.clear();
+                    int read = channel.read(ack);
+                    if (read < 0) {
+                        key.cancel();
+                        channel.close();
+                    } else if (read > 0) {
+                        record(System.nanoTime() - client.sentAt, ack.get(0));
+                        client.send(channel);
+                    }
+                }
+            }
+            for (SelectionKey key : selector.keys()) {
+                key.channel().close();
+            }
+        }
+    }
+
+    private void record(long latencyNanos, byte ack) {
+        events++;
+        if (ack == SensorEventFrame.ACK_UNKNOWN_SENSOR) {
+            unknownSensors++;
+        }
+        latencyBuckets[(int) Math.min(latencyNanos / BUCKET_NANOS, BUCKETS)]++;
+    }
+
+    private void report(int seconds) {
+        System.out.printf("events: %d (%.0f/s), unknown sensors: %d%n", events, (double) events / seconds, unknownSensors);
+        System.out.printf("latency p50: %s, p99: %s, p99.9: %s, max: %s%n",
+                percentile(0.50), percentile(0.99), percentile(0.999), percentile(1.0));
+    }
+
+    private String percentile(double p) {
+        long rank = (long) Math.ceil(events * p);
+        long seen = 0;
+        for (int i = 0; i < latencyBuckets.length; i++) {
+            seen += latencyBuckets[i];
+            if (seen >= rank && seen > 0) {
+                return i == BUCKETS ? ">1s" : String.format("%dus", (i + 1) * 10);
+            }
+        }
+        return "n/a";
+    }
+
+    /**
+     * One simulated sensor connection, alternating between active and inactive.
+     */
+    private static class Client {
+        private final UUID sensorId;
+        private final ByteBuffer frame = ByteBuffer.allocate(SensorEventFrame.LENGTH);
+        private boolean active;
+        private long sentAt;
+
+        private Client(UUID sensorId) {
+            this.sensorId = sensorId;
+        }
+
+        private void send(SocketChannel channel) throws IOException {
+            active = !active;
+            frame.clear();
+            SensorEventFrame.write(frame, sensorId, active);
+            frame.flip();
+            sentAt = System.nanoTime();
+            while (frame.hasRemaining()) {
+                channel.write(frame);
+            }
+        }
+    }
+}
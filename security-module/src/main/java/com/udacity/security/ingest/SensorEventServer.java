@@ -0,0 +1,177 @@
+package com.udacity.security.ingest;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.Iterator;
+import java.util.UUID;
+
+/**
+ * TCP endpoint that accepts binary sensor event frames (see {@link SensorEventFrame}) and hands
+ * them to a {@link SensorEventHandler}.
+ *
+ * All connections are multiplexed on a single NIO selector thread, so the cost of a connection
+ * is two small buffers rather than a thread. The handler is always invoked on that thread.
+ */
+public class SensorEventServer implements Closeable {
+
+    //frames decoded per read; the ack buffer is sized so a full read always fits
+    private static final int FRAMES_PER_READ = 64;
+    private static final int ACCEPT_BACKLOG = 4096;
+
+    private final InetSocketAddress address;
+    private final SensorEventHandler handler;
+
+    private Selector selector;
+    private ServerSocketChannel serverChannel;
+    private Thread selectorThread;
+    private volatile boolean running;
+
+    public SensorEventServer(InetSocketAddress address, SensorEventHandler handler) {
+        this.address = address;
+        this.handler = handler;
+    }
+
+    /**
+     * Binds the listening socket and starts the selector thread.
+     */
+    public void start() throws IOException {
+        selector = Selector.open();
+        serverChannel = ServerSocketChannel.open();
+        serverChannel.configureBlocking(false);
+        serverChannel.bind(address, ACCEPT_BACKLOG);
+        serverChannel.register(selector, SelectionKey.OP_ACCEPT);
+
+        running = true;
+        selectorThread = new Thread(this::runLoop, "sensor-ingest");
+        selectorThread.setDaemon(true);
+        selectorThread.start();
+    }
+
+    /**
+     * @return The bound port, useful when the server was started on an ephemeral port.
+     */
+    public int getPort() {
+        return serverChannel.socket().getLocalPort();
+    }
+
+    private void runLoop() {
+        while (running) {
+            try {
+                selector.select();
+            } catch (IOException ioe) {
+                break;
+            }
+            Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+            while (keys.hasNext()) {
+                SelectionKey key = keys.next();
+                keys.remove();
+                try {
+                    if (!key.isValid()) {
+                        continue;
+                    }
+                    if (key.isAcceptable()) {
+                        accept();
+                    } else if (key.isReadable()) {
+                        read(key);
+                    } else if (key.isWritable()) {
+                        write(key);
+                    }
+                } catch (IOException | RuntimeException e) {
+                    //a broken or misbehaving client only takes down its own connection
+                    closeConnection(key);
+                }
+            }
+        }
+    }
+
+    private void accept() throws IOException {
+        SocketChannel channel;
+        while ((channel = serverChannel.accept()) != null) {
+            channel.configureBlocking(false);
+            channel.socket().setTcpNoDelay(true);
+            channel.register(selector, SelectionKey.OP_READ, new Connection());
+        }
+    }
+
+    private void read(SelectionKey key) throws IOException {
+        Connection connection = (Connection) key.attachment();
+        SocketChannel channel = (SocketChannel) key.channel();
+        if (channel.read(connection.in) < 0) {
+            closeConnection(key);
+            return;
+        }
+
+        ByteBuffer in = connection.in;
+        in.flip();
+        while (in.remaining() >= SensorEventFrame.LENGTH) {
+            if (in.get() != SensorEventFrame.VERSION) {
+                throw new IOException("Unsupported sensor frame version");
+            }
+            UUID sensorId = SensorEventFrame.readSensorId(in);
+            boolean active = in.get() != 0;
+            connection.out.put(SensorEventFrame.ack(handler.onSensorEvent(sensorId, active)));
+        }
+        in.compact();
+        flush(key, connection);
+    }
+
+    private void write(SelectionKey key) throws IOException {
+        flush(key, (Connection) key.attachment());
+    }
+
+    /**
+     * Writes pending acks. Reading is suspended until all acks are out, which keeps a slow
+     * client from growing its ack buffer and applies backpressure through TCP.
+     */
+    private void flush(SelectionKey key, Connection connection) throws IOException {
+        ByteBuffer out = connection.out;
+        out.flip();
+        ((SocketChannel) key.channel()).write(out);
+        out.compact();
+        key.interestOps(out.position() > 0 ? SelectionKey.OP_WRITE : SelectionKey.OP_READ);
+    }
+
+    private void closeConnection(SelectionKey key) {
+        key.cancel();
+        try {
+            key.channel().close();
+        } catch (IOException ignored) {
+            //already closed
+        }
+    }
+
+    /**
+     * Stops the selector thread and closes every connection.
+     */
+    @Override
+    public void close() throws IOException {
+        if (!running) {
+            return;
+        }
+        running = false;
+        selector.wakeup();
+        try {
+            selectorThread.join();
+        } catch (InterruptedException ie) {
+            Thread.currentThread().interrupt();
+        }
+        for (SelectionKey key : selector.keys()) {
+            closeConnection(key);
+        }
+        selector.close();
+    }
+
+    /**
+     * Per-connection buffers.
+     */
+    private static class Connection {
+        private final ByteBuffer in = ByteBuffer.allocate(SensorEventFrame.LENGTH * FRAMES_PER_READ);
+        private final ByteBuffer out = ByteBuffer.allocate(FRAMES_PER_READ);
+    }
+}
@@ -0,0 +1,25 @@
+package com.udacity.security.replication;
+
+/**
+ * One change of a replicated repository, encoded once when it is made and sent as is to every
+ * standby. See {@link ReplicationProtocol} for the payloads of each kind.
+ */
+final class ChangeRecord {
+
+    static final byte SENSOR_PUT = 1;
+    static final byte SENSORS_PUT = 2;
+    static final byte SENSOR_REMOVED = 3;
+    static final byte ALARM_STATUS = 4;
+    static final byte ARMING_STATUS = 5;
+    static final byte CAT_DETECTED = 6;
+
+    final long sequence;
+    final byte kind;
+    final byte[] payload;
+
+    ChangeRecord(long sequence, byte kind, byte[] payload) {
+        this.sequence = sequence;
+        this.kind = kind;
+        this.payload = payload;
+    }
+}
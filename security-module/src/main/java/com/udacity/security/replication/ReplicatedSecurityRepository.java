@@ -0,0 +1,129 @@
+package com.udacity.security.replication;
+
+import com.udacity.security.data.AlarmStatus;
+import com.udacity.security.data.ArmingStatus;
+import com.udacity.security.data.SecurityRepository;
+import com.udacity.security.data.Sensor;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * Repository of the primary node: applies every change to the wrapped repository and appends
+ * it to the replication log, from which a {@link ReplicationPrimary} streams it to the standby.
+ *
+ * Only changes made through the repository methods are replicated, not changes made directly
+ * to the set returned by {@link #getSensors()}.
+ */
+public class ReplicatedSecurityRepository implements SecurityRepository {
+
+    private final SecurityRepository delegate;
+    private final ReplicationLog log;
+
+    /**
+     * @param delegate The primary's own repository
+     * @param logCapacity Number of recent changes kept for standbys catching up; a standby
+     *                    further behind is sent a snapshot
+     */
+    public ReplicatedSecurityRepository(SecurityRepository delegate, int logCapacity) {
+        this.delegate = delegate;
+        this.log = new ReplicationLog(logCapacity);
+    }
+
+    @Override
+    public synchronized void addSensor(Sensor sensor) {
+        delegate.addSensor(sensor);
+        log.append(ChangeRecord.SENSOR_PUT, ReplicationProtocol.sensors(List.of(sensor)));
+    }
+
+    @Override
+    public synchronized void removeSensor(Sensor sensor) {
+        delegate.removeSensor(sensor);
+        log.append(ChangeRecord.SENSOR_REMOVED, ReplicationProtocol.sensors(List.of(sensor)));
+    }
+
+    @Override
+    public synchronized void updateSensor(Sensor sensor) {
+        delegate.updateSensor(sensor);
+        log.append(ChangeRecord.SENSOR_PUT, ReplicationProtocol.sensors(List.of(sensor)));
+    }
+
+    @Override
+    public synchronized void updateSensors(Collection<Sensor> sensors) {
+        delegate.updateSensors(sensors);
+        log.append(ChangeRecord.SENSORS_PUT, ReplicationProtocol.sensors(sensors));
+    }
+
+    @Override
+    public synchronized void setAlarmStatus(AlarmStatus alarmStatus) {
+        delegate.setAlarmStatus(alarmStatus);
+        log.append(ChangeRecord.ALARM_STATUS, ReplicationProtocol.status(alarmStatus));
+    }
+
+    @Override
+    public synchronized void setCatDetected(boolean isCatDetected) {
+        delegate.setCatDetected(isCatDetected);
+        log.append(ChangeRecord.CAT_DETECTED, ReplicationProtocol.flag(isCatDetected));
+    }
+
+    @Override
+    public synchronized void setArmingStatus(ArmingStatus armingStatus) {
+        delegate.setArmingStatus(armingStatus);
+        log.append(ChangeRecord.ARMING_STATUS, ReplicationProtocol.status(armingStatus));
+    }
+
+    @Override
+    public Set<Sensor> getSensors() {
+        return delegate.getSensors();
+    }
+
+    @Override
+    public Sensor getSensor(UUID sensorId) {
+        return delegate.getSensor(sensorId);
+    }
+
+    @Override
+    public AlarmStatus getAlarmStatus() {
+        return delegate.getAlarmStatus();
+    }
+
+    @Override
+    public ArmingStatus getArmingStatus() {
+        return delegate.getArmingStatus();
+    }
+
+    @Override
+    public boolean getCatDetected() {
+        return delegate.getCatDetected();
+    }
+
+    /**
+     * @return Sequence number of the latest change
+     */
+    public long getLastSequence() {
+        return log.lastSequence();
+    }
+
+    ReplicationLog getLog() {
+        return log;
+    }
+
+    /**
+     * @return The whole state and the sequence number of the last change it includes
+     */
+    synchronized Snapshot snapshot() {
+        return new Snapshot(log.lastSequence(), ReplicationProtocol.snapshot(delegate));
+    }
+
+    static final class Snapshot {
+        final long sequence;
+        final byte[] state;
+
+        private Snapshot(long sequence, byte[] state) {
+            this.sequence = sequence;
+            this.state = state;
+        }
+    }
+}
@@ -0,0 +1,92 @@
+package com.udacity.security.replication;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Bounded, in-memory log of the most recent changes, numbered from 1. A standby that falls
+ * further behind than the log reaches catches up from a snapshot instead.
+ */
+final class ReplicationLog {
+
+    private final ChangeRecord[] records;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition appended = lock.newCondition();
+    private long lastSequence;
+
+    ReplicationLog(int capacity) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("the log must hold at least one record");
+        }
+        this.records = new ChangeRecord[capacity];
+    }
+
+    /**
+     * @return The sequence number of the new record
+     */
+    long append(byte kind, byte[] payload) {
+        lock.lock();
+        try {
+            long sequence = ++lastSequence;
+            records[(int) (sequence % records.length)] = new ChangeRecord(sequence, kind, payload);
+            appended.signalAll();
+            return sequence;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    long lastSequence() {
+        lock.lock();
+        try {
+            return lastSequence;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @return True if the records following the given sequence number are all still in the log
+     */
+    boolean covers(long sequence) {
+        lock.lock();
+        try {
+            return sequence <= lastSequence && sequence >= lastSequence - records.length;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Waits until there are records after the given sequence number.
+     * @return Up to max records following the sequence number, an empty list if none were
+     * appended within the timeout, or null if some of them already left the log
+     */
+    List<ChangeRecord> awaitAfter(long sequence, int max, long timeoutMillis) throws InterruptedException {
+        lock.lock();
+        try {
+            long nanos = TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+            while (lastSequence <= sequence) {
+                if (nanos <= 0) {
+                    return Collections.emptyList();
+                }
+                nanos = appended.awaitNanos(nanos);
+            }
+            if (sequence < lastSequence - records.length) {
+                return null;
+            }
+            int count = (int) Math.min(max, lastSequence - sequence);
+            List<ChangeRecord> batch = new ArrayList<>(count);
+            for (long s = sequence + 1; s <= sequence + count; s++) {
+                batch.add(records[(int) (s % records.length)]);
+            }
+            return batch;
+        } finally {
+            lock.unlock();
+        }
+    }
+}
@@ -0,0 +1,260 @@
+package com.udacity.security.replication;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Streams the changes of a {@link ReplicatedSecurityRepository} to a standby over TCP. See
+ * {@link ReplicationProtocol} for the wire format.
+ *
+ * A connecting standby is brought up to date from the log if it still holds every change the
+ * standby is missing, and from a snapshot followed by the log otherwise. After that, changes are
+ * sent in batches as they are made; a sender never waits for acks, which arrive on their own
+ * thread. A heartbeat is sent whenever nothing changed for a heartbeat interval, so the standby
+ * can tell a quiet primary from a dead one.
+ *
+ * One standby is served at a time; a new connection replaces the previous one.
+ */
+public class ReplicationPrimary implements Closeable {
+
+    //records sent per frame at most, so a large backlog still goes out in pieces
+    private static final int MAX_BATCH = 256;
+
+    private final ReplicatedSecurityRepository repository;
+    private final InetSocketAddress address;
+    private final long heartbeatMillis;
+    //identifies this primary's log, so a standby of an earlier primary is sent a snapshot
+    private final long logId = ThreadLocalRandom.current().nextLong(1, Long.MAX_VALUE);
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition acked = lock.newCondition();
+    private long ackedSequence;
+    private long snapshotsSent;
+
+    private ServerSocket serverSocket;
+    private volatile Socket standby;
+    private volatile boolean running;
+
+    /**
+     * @param repository The primary's repository
+     * @param address Address to accept the standby on; port 0 picks a free port
+     * @param heartbeatMillis Longest time without a frame to the standby; keep it well below the
+     *                        standby's failover timeout
+     */
+    public ReplicationPrimary(ReplicatedSecurityRepository repository, InetSocketAddress address, long heartbeatMillis) {
+        this.repository = repository;
+        this.address = address;
+        this.heartbeatMillis = heartbeatMillis;
+    }
+
+    /**
+     * Binds the listening socket and starts accepting the standby.
+     */
+    public void start() throws IOException {
+        serverSocket = new ServerSocket();
+        serverSocket.bind(address);
+        running = true;
+        Thread acceptor = new Thread(this::acceptStandbys, "replication-accept");
+        acceptor.setDaemon(true);
+        acceptor.start();
+    }
+
+    /**
+     * @return The bound port, useful when the primary was started on an ephemeral port.
+     */
+    public int getPort() {
+        return serverSocket.getLocalPort();
+    }
+
+    private void acceptStandbys() {
+        while (running) {
+            Socket socket;
+            try {
+                socket = serverSocket.accept();
+                socket.setTcpNoDelay(true);
+            } catch (IOException e) {
+                break;
+            }
+            disconnectStandby();
+            //nothing is confirmed by the new standby until its handshake says what it holds
+            lock.lock();
+            try {
+                standby = socket;
+                ackedSequence = 0;
+            } finally {
+                lock.unlock();
+            }
+            Thread sender = new Thread(() -> serve(socket), "replication-sender");
+            sender.setDaemon(true);
+            sender.start();
+        }
+    }
+
+    private void serve(Socket socket) {
+        try (socket) {
+            DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+            if (in.readByte() != ReplicationProtocol.VERSION) {
+                throw new IOException("Unsupported replication version");
+            }
+            long standbyLogId = in.readLong();
+            long sent = in.readLong();
+            lock.lock();
+            try {
+                if (standby == socket && standbyLogId == logId && sent > ackedSequence) {
+                    ackedSequence = sent;
+                    acked.signalAll();
+                }
+            } finally {
+                lock.unlock();
+            }
+
+            Thread ackReader = new Thread(() -> readAcks(in, socket), "replication-acks");
+            ackReader.setDaemon(true);
+            ackReader.start();
+
+            if (standbyLogId != logId || !repository.getLog().covers(sent)) {
+                sent = sendSnapshot(out);
+            }
+            while (running && standby == socket) {
+                List<ChangeRecord> batch = repository.getLog().awaitAfter(sent, MAX_BATCH, heartbeatMillis);
+                if (batch == null) {
+                    //the standby fell so far behind that the log moved on
+                    sent = sendSnapshot(out);
+                } else if (batch.isEmpty()) {
+                    ReplicationProtocol.writeHeartbeat(out, sent);
+                    out.flush();
+                } else {
+                    ReplicationProtocol.writeRecords(out, batch);
+                    out.flush();
+                    sent = batch.get(batch.size() - 1).sequence;
+                }
+            }
+        } catch (IOException | InterruptedException e) {
+            //the standby reconnects and catches up
+        }
+    }
+
+    private long sendSnapshot(DataOutputStream out) throws IOException {
+        ReplicatedSecurityRepository.Snapshot snapshot = repository.snapshot();
+        ReplicationProtocol.writeSnapshot(out, logId, snapshot.sequence, snapshot.state);
+        out.flush();
+        lock.lock();
+        try {
+            snapshotsSent++;
+        } finally {
+            lock.unlock();
+        }
+        return snapshot.sequence;
+    }
+
+    private void readAcks(DataInputStream in, Socket socket) {
+        try {
+            while (true) {
+                long sequence = in.readLong();
+                lock.lock();
+                try {
+                    //a replaced standby's late acks say nothing about the current one
+                    if (standby == socket && sequence > ackedSequence) {
+                        ackedSequence = sequence;
+                        acked.signalAll();
+                    }
+                } finally {
+                    lock.unlock();
+                }
+            }
+        } catch (IOException e) {
+            //closed with the connection
+        } finally {
+            try {
+                socket.close();
+            } catch (IOException e) {
+                //already gone
+            }
+        }
+    }
+
+    /**
+     * @return Sequence number of the last change the current standby confirmed
+     */
+    public long getAckedSequence() {
+        lock.lock();
+        try {
+            return ackedSequence;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Waits until the standby confirmed the given change, for example before acknowledging an
+     * alarm that must survive a failover.
+     * @return True if the change was confirmed within the timeout
+     */
+    public boolean awaitAcked(long sequence, long timeoutMillis) throws InterruptedException {
+        lock.lock();
+        try {
+            long nanos = TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+            while (ackedSequence < sequence) {
+                if (nanos <= 0) {
+                    return false;
+                }
+                nanos = acked.awaitNanos(nanos);
+            }
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @return Number of snapshots sent to standbys
+     */
+    public long getSnapshotsSent() {
+        lock.lock();
+        try {
+            return snapshotsSent;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Drops the current standby connection; the standby reconnects and catches up.
+     */
+    void disconnectStandby() {
+        Socket socket = standby;
+        standby = null;
+        if (socket != null) {
+            try {
+                socket.close();
+            } catch (IOException e) {
+                //already gone
+            }
+        }
+    }
+
+    /**
+     * Stops replicating. A standby treats this like a failure of the primary.
+     */
+    @Override
+    public void close() throws IOException {
+        running = false;
+        disconnectStandby();
+        if (serverSocket != null) {
+            serverSocket.close();
+        }
+    }
+}
@@ -0,0 +1,148 @@
+package com.udacity.security.replication;
+
+import com.udacity.security.data.Sensor;
+import com.udacity.security.data.SecurityRepository;
+import com.udacity.security.data.StateCodec;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Wire format of the replication link. Sensors and statuses are encoded with {@link StateCodec};
+ * the payload of every sensor change is a sensor list.
+ *
+ * A standby opens the link with a hello: the version byte, the id of the primary log it follows
+ * (0 if none) and the sequence number of the last change it applied. The primary then sends
+ * frames, each starting with a type byte:
+ * <pre>
+ *   SNAPSHOT  log id (8) | sequence (8) | length (4) | alarm (1) | arming (1) | cat (1) | sensor list
+ *   RECORDS   count (4) | count x [ sequence (8) | kind (1) | length (4) | payload ]
+ *   HEARTBEAT last sequence (8)
+ * </pre>
+ * Frames are sent as soon as changes are made, without waiting for the standby. The standby
+ * answers with cumulative acks, the sequence number of its last applied change (8), once per
+ * burst of frames rather than per change.
+ */
+final class ReplicationProtocol {
+
+    static final byte VERSION = 1;
+
+    static final byte SNAPSHOT = 1;
+    static final byte RECORDS = 2;
+    static final byte HEARTBEAT = 3;
+
+    private ReplicationProtocol() {
+    }
+
+    static byte[] sensors(Collection<Sensor> sensors) {
+        return StateCodec.encodeSensors(sensors);
+    }
+
+    static byte[] status(Enum<?> status) {
+        return new byte[]{StateCodec.enumByte(status)};
+    }
+
+    static byte[] flag(boolean value) {
+        return new byte[]{value ? (byte) 1 : (byte) 0};
+    }
+
+    /**
+     * @return The repository's whole state, as carried by a snapshot frame
+     */
+    static byte[] snapshot(SecurityRepository repository) {
+        byte[] sensors = StateCodec.encodeSensors(repository.getSensors());
+        byte[] snapshot = new byte[3 + sensors.length];
+        snapshot[0] = StateCodec.enumByte(repository.getAlarmStatus());
+        snapshot[1] = StateCodec.enumByte(repository.getArmingStatus());
+        snapshot[2] = repository.getCatDetected() ? (byte) 1 : (byte) 0;
+        System.arraycopy(sensors, 0, snapshot, 3, sensors.length);
+        return snapshot;
+    }
+
+    /**
+     * Replaces the repository's whole state with the snapshot.
+     */
+    static void applySnapshot(SecurityRepository repository, byte[] snapshot) {
+        List<Sensor> sensors = StateCodec.decodeSensors(Arrays.copyOfRange(snapshot, 3, snapshot.length));
+        new ArrayList<>(repository.getSensors()).forEach(repository::removeSensor);
+        repository.updateSensors(sensors);
+        repository.setAlarmStatus(StateCodec.alarmStatusOf(snapshot[0]));
+        repository.setArmingStatus(StateCodec.armingStatusOf(snapshot[1]));
+        repository.setCatDetected(snapshot[2] != 0);
+    }
+
+    /**
+     * Applies one change to the repository.
+     */
+    static void apply(SecurityRepository repository, ChangeRecord record) {
+        ByteBuffer payload = ByteBuffer.wrap(record.payload);
+        switch (record.kind) {
+            case ChangeRecord.SENSOR_PUT:
+                repository.updateSensor(StateCodec.decodeSensors(record.payload).get(0));
+                break;
+            case ChangeRecord.SENSORS_PUT:
+                repository.updateSensors(StateCodec.decodeSensors(record.payload));
+                break;
+            case ChangeRecord.SENSOR_REMOVED:
+                repository.removeSensor(StateCodec.decodeSensors(record.payload).get(0));
+                break;
+            case ChangeRecord.ALARM_STATUS:
+                repository.setAlarmStatus(StateCodec.alarmStatusOf(payload.get()));
+                break;
+            case ChangeRecord.ARMING_STATUS:
+                repository.setArmingStatus(StateCodec.armingStatusOf(payload.get()));
+                break;
+            case ChangeRecord.CAT_DETECTED:
+                repository.setCatDetected(payload.get() != 0);
+                break;
+            default:
+                throw new IllegalArgumentException("unknown change kind " + record.kind);
+        }
+    }
+
+    static void writeSnapshot(DataOutputStream out, long logId, long sequence, byte[] snapshot) throws IOException {
+        out.writeByte(SNAPSHOT);
+        out.writeLong(logId);
+        out.writeLong(sequence);
+        out.writeInt(snapshot.length);
+        out.write(snapshot);
+    }
+
+    static void writeRecords(DataOutputStream out, List<ChangeRecord> records) throws IOException {
+        out.writeByte(RECORDS);
+        out.writeInt(records.size());
+        for (ChangeRecord record : records) {
+            out.writeLong(record.sequence);
+            out.writeByte(record.kind);
+            out.writeInt(record.payload.length);
+            out.write(record.payload);
+        }
+    }
+
+    static void writeHeartbeat(DataOutputStream out, long lastSequence) throws IOException {
+        out.writeByte(HEARTBEAT);
+        out.writeLong(lastSequence);
+    }
+
+    static ChangeRecord readRecord(DataInputStream in) throws IOException {
+        long sequence = in.readLong();
+        byte kind = in.readByte();
+        return new ChangeRecord(sequence, kind, readBytes(in));
+    }
+
+    static byte[] readBytes(DataInputStream in) throws IOException {
+        int length = in.readInt();
+        if (length < 0) {
+            throw new IOException("negative length in replication frame");
+        }
+        byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        return bytes;
+    }
+}
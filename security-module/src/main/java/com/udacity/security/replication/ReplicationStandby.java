@@ -0,0 +1,206 @@
+package com.udacity.security.replication;
+
+import com.udacity.security.data.SecurityRepository;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Keeps a local repository in step with a {@link ReplicationPrimary} and takes over when the
+ * primary goes away.
+ *
+ * The standby applies the primary's snapshot and changes to its repository and confirms them
+ * with one cumulative ack per burst of frames. A lost connection is retried, resuming from the
+ * last applied change. When nothing was heard from the primary, not even a heartbeat, for the
+ * failover timeout, the standby stops replicating and hands its repository, holding the last
+ * alarm, arming and sensor state the primary sent, to the takeover callback. Takeover therefore
+ * happens at most the failover timeout after the primary's last frame.
+ */
+public class ReplicationStandby implements Closeable {
+
+    private static final long RETRY_MILLIS = 50;
+    //changes applied before an ack goes out even while more frames are waiting
+    private static final int MAX_UNACKED = 1024;
+
+    private final SecurityRepository repository;
+    private final InetSocketAddress primary;
+    private final long failoverTimeoutMillis;
+    private final Consumer<SecurityRepository> onTakeover;
+    private final CountDownLatch promoted = new CountDownLatch(1);
+
+    private Thread thread;
+    private volatile Socket socket;
+    private volatile boolean closed;
+    private volatile long appliedSequence;
+    private volatile long snapshotsApplied;
+    private volatile long acksSent;
+    private long logId;
+    private long lastContactNanos;
+
+    /**
+     * @param repository The standby's own repository, replaced by the primary's state
+     * @param primary Address of the primary
+     * @param failoverTimeoutMillis How long the primary may be silent before the standby takes over
+     * @param onTakeover Called with the repository, on the standby's thread, when it takes over
+     */
+    public ReplicationStandby(SecurityRepository repository, InetSocketAddress primary, long failoverTimeoutMillis,
+                              Consumer<SecurityRepository> onTakeover) {
+        this.repository = repository;
+        this.primary = primary;
+        this.failoverTimeoutMillis = failoverTimeoutMillis;
+        this.onTakeover = onTakeover;
+    }
+
+    /**
+     * Starts following the primary.
+     */
+    public void start() {
+        thread = new Thread(this::run, "replication-standby");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    private void run() {
+        lastContactNanos = System.nanoTime();
+        while (!closed) {
+            try (Socket connection = new Socket()) {
+                socket = connection;
+                int connectTimeout = (int) Math.max(1, failoverTimeoutMillis
+                        - TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - lastContactNanos));
+                connection.connect(primary, connectTimeout);
+                connection.setTcpNoDelay(true);
+                connection.setSoTimeout((int) failoverTimeoutMillis);
+                follow(connection);
+            } catch (IOException | RuntimeException e) {
+                //lost the primary or got a corrupt frame; reconnect and resume from the last change
+            }
+            if (closed) {
+                return;
+            }
+            if (System.nanoTime() - lastContactNanos >= TimeUnit.MILLISECONDS.toNanos(failoverTimeoutMillis)) {
+                takeOver();
+                return;
+            }
+            try {
+                Thread.sleep(RETRY_MILLIS);
+            } catch (InterruptedException e) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Applies frames until the connection fails. Every frame counts as contact with the primary.
+     */
+    private void follow(Socket connection) throws IOException {
+        DataInputStream in = new DataInputStream(new BufferedInputStream(connection.getInputStream()));
+        DataOutputStream out = new DataOutputStream(new BufferedOutputStream(connection.getOutputStream()));
+        out.writeByte(ReplicationProtocol.VERSION);
+        out.writeLong(logId);
+        out.writeLong(appliedSequence);
+        out.flush();
+
+        long acked = appliedSequence;
+        while (true) {
+            byte type = in.readByte();
+            lastContactNanos = System.nanoTime();
+            switch (type) {
+                case ReplicationProtocol.SNAPSHOT:
+                    long snapshotLogId = in.readLong();
+                    long sequence = in.readLong();
+                    ReplicationProtocol.applySnapshot(repository, ReplicationProtocol.readBytes(in));
+                    logId = snapshotLogId;
+                    appliedSequence = sequence;
+                    snapshotsApplied++;
+                    break;
+                case ReplicationProtocol.RECORDS:
+                    int count = in.readInt();
+                    for (int i = 0; i < count; i++) {
+                        ChangeRecord record = ReplicationProtocol.readRecord(in);
+                        if (record.sequence != appliedSequence + 1) {
+                            throw new IOException("expected change " + (appliedSequence + 1) + " but got " + record.sequence);
+                        }
+                        ReplicationProtocol.apply(repository, record);
+                        appliedSequence = record.sequence;
+                    }
+                    break;
+                case ReplicationProtocol.HEARTBEAT:
+                    in.readLong();
+                    break;
+                default:
+                    throw new IOException("unknown replication frame " + type);
+            }
+            //one ack for everything applied once the frames that already arrived are done
+            if (appliedSequence > acked && (in.available() == 0 || appliedSequence - acked >= MAX_UNACKED)) {
+                out.writeLong(appliedSequence);
+                out.flush();
+                acked = appliedSequence;
+                acksSent++;
+            }
+        }
+    }
+
+    private void takeOver() {
+        onTakeover.accept(repository);
+        promoted.countDown();
+    }
+
+    /**
+     * @return True once the standby took over from the primary
+     */
+    public boolean isPromoted() {
+        return promoted.getCount() == 0;
+    }
+
+    /**
+     * @return True if the standby took over within the timeout
+     */
+    public boolean awaitPromotion(long timeoutMillis) throws InterruptedException {
+        return promoted.await(timeoutMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * @return Sequence number of the last change applied to the repository
+     */
+    public long getAppliedSequence() {
+        return appliedSequence;
+    }
+
+    /**
+     * @return Number of snapshots the standby caught up from
+     */
+    public long getSnapshotsApplied() {
+        return snapshotsApplied;
+    }
+
+    /**
+     * @return Number of acks sent, each confirming all changes applied before it
+     */
+    public long getAcksSent() {
+        return acksSent;
+    }
+
+    /**
+     * Stops following the primary without taking over.
+     */
+    @Override
+    public void close() throws IOException {
+        closed = true;
+        Socket connection = socket;
+        if (connection != null) {
+            connection.close();
+        }
+        if (thread != null) {
+            thread.interrupt();
+        }
+    }
+}
@@ -0,0 +1,152 @@
+package com.udacity.security.rules;
+
+import com.udacity.security.data.AlarmStatus;
+import com.udacity.security.data.ArmingStatus;
+import com.udacity.security.data.Sensor;
+import com.udacity.security.data.Zone;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Rules compiled into a flat table with one cell per (event type, arming status, alarm status).
+ * Each cell lists, in priority order, only the rules that can apply to it, so evaluating an
+ * event is an index computation followed by the guards of those few rules. Rules after an
+ * unguarded one can never be reached and are left out of the cell.
+ *
+ * The built-in guards a rule starts with are compiled into bit flags and checked inline; only
+ * the remaining guards are called through {@link Guard}. Evaluation does not allocate.
+ * Stateful guards are not thread-safe, so events must be evaluated one at a time.
+ */
+public final class DecisionTable {
+
+    private static final int ARMING_SLOTS = ArmingStatus.values().length + 1;
+    private static final int ALARM_SLOTS = AlarmStatus.values().length + 1;
+    private static final int EVENT_TYPES = EventType.values().length;
+    private static final int CELLS = EVENT_TYPES * ARMING_SLOTS * ALARM_SLOTS;
+
+    private static final int ZONE_ARMED = 1;
+    private static final int CAT_DETECTED = 1 << 1;
+    private static final int OTHER_ARMED_SENSORS_OFF = 1 << 2;
+    private static final int ALL_SENSORS_OFF = 1 << 3;
+
+    private static final Guard[] NO_GUARDS = new Guard[0];
+
+    //rules of cell c are at indexes cellStart[c] until cellStart[c + 1]
+    private final int[] cellStart;
+    private final int[] flags;
+    private final Guard[][] guards;
+    private final AlarmStatus[] targets;
+
+    private DecisionTable(int[] cellStart, int[] flags, Guard[][] guards, AlarmStatus[] targets) {
+        this.cellStart = cellStart;
+        this.flags = flags;
+        this.guards = guards;
+        this.targets = targets;
+    }
+
+    /**
+     * @param rules Rules in priority order; the first one whose guards pass decides
+     * @return The compiled table
+     */
+    public static DecisionTable compile(List<Rule> rules) {
+        int[] cellStart = new int[CELLS + 1];
+        List<Rule> flat = new ArrayList<>();
+        for (int event = 0; event < EVENT_TYPES; event++) {
+            for (int arming = 0; arming < ARMING_SLOTS; arming++) {
+                for (int alarm = 0; alarm < ALARM_SLOTS; alarm++) {
+                    cellStart[cell(event, arming, alarm)] = flat.size();
+                    for (Rule rule : rules) {
+                        if (rule.appliesTo(event, arming, alarm)) {
+                            flat.add(rule);
+                            if (rule.getGuards().length == 0) {
+                                break;
+                            }
+                        }
+                    }
+                }
+            }
+        }
+        cellStart[CELLS] = flat.size();
+
+        int[] flags = new int[flat.size()];
+        Guard[][] guards = new Guard[flat.size()][];
+        AlarmStatus[] targets = new AlarmStatus[flat.size()];
+        for (int i = 0; i < flat.size(); i++) {
+            Guard[] ruleGuards = flat.get(i).getGuards();
+            int builtIn = 0;
+            while (builtIn < ruleGuards.length && flag(ruleGuards[builtIn]) != 0) {
+                flags[i] |= flag(ruleGuards[builtIn]);
+                builtIn++;
+            }
+            guards[i] = builtIn == ruleGuards.length ? NO_GUARDS : Arrays.copyOfRange(ruleGuards, builtIn, ruleGuards.length);
+            targets[i] = flat.get(i).getTarget();
+        }
+        return new DecisionTable(cellStart, flags, guards, targets);
+    }
+
+    private static int flag(Guard guard) {
+        if (guard == Guards.ZONE_ARMED) {
+            return ZONE_ARMED;
+        } else if (guard == Guards.CAT_DETECTED) {
+            return CAT_DETECTED;
+        } else if (guard == Guards.OTHER_ARMED_SENSORS_OFF) {
+            return OTHER_ARMED_SENSORS_OFF;
+        } else if (guard == Guards.ALL_SENSORS_OFF) {
+            return ALL_SENSORS_OFF;
+        }
+        return 0;
+    }
+
+    private static int cell(int event, int armingSlot, int alarmSlot) {
+        return (event * ARMING_SLOTS + armingSlot) * ALARM_SLOTS + alarmSlot;
+    }
+
+    /**
+     * @return The alarm status the event leads to, or null if it leaves the alarm status unchanged
+     */
+    public AlarmStatus evaluate(RuleEvent event) {
+        int cell = cell(event.getType().ordinal(), Rule.slot(event.getArmingStatus()), Rule.slot(event.getAlarmStatus()));
+        for (int rule = cellStart[cell], end = cellStart[cell + 1]; rule < end; rule++) {
+            if ((flags[rule] == 0 || passesBuiltIn(flags[rule], event)) && passes(guards[rule], event)) {
+                return targets[rule];
+            }
+        }
+        return null;
+    }
+
+    //cheapest checks first; the counts may have to build the zone index
+    private static boolean passesBuiltIn(int flags, RuleEvent event) {
+        if ((flags & ZONE_ARMED) != 0) {
+            Sensor sensor = event.getSensor();
+            if (sensor == null || !Zone.orDefault(sensor.getZone()).isArmed(event.getArmingStatus())) {
+                return false;
+            }
+        }
+        if ((flags & CAT_DETECTED) != 0 && !event.isCatDetected()) {
+            return false;
+        }
+        if ((flags & OTHER_ARMED_SENSORS_OFF) != 0
+                && event.getCounts().armedActive(event.getArmingStatus(), event.getSensor()) != 0) {
+            return false;
+        }
+        return (flags & ALL_SENSORS_OFF) == 0 || event.getCounts().totalActive() == 0;
+    }
+
+    private static boolean passes(Guard[] guards, RuleEvent event) {
+        for (Guard guard : guards) {
+            if (!guard.test(event)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @return The total number of rule entries across all cells
+     */
+    public int size() {
+        return targets.length;
+    }
+}
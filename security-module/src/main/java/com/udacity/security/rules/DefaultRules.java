@@ -0,0 +1,64 @@
+package com.udacity.security.rules;
+
+import com.udacity.security.data.AlarmStatus;
+import com.udacity.security.data.ArmingStatus;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static com.udacity.security.rules.Guards.*;
+
+/**
+ * The rules implementing the application requirements from the README. Site-specific rules
+ * are placed before them, so they can override the defaults for the events they match.
+ */
+public final class DefaultRules {
+
+    private DefaultRules() {
+    }
+
+    /**
+     * @return New instances of the default rules
+     */
+    public static List<Rule> create() {
+        return List.of(
+                //disarming clears the alarm; arming home while a cat is visible raises it
+                Rule.on(EventType.ARMING_CHANGED).whenArming(ArmingStatus.DISARMED)
+                        .then(AlarmStatus.NO_ALARM),
+                Rule.on(EventType.ARMING_CHANGED).whenArming(ArmingStatus.ARMED_HOME)
+                        .where(catDetected())
+                        .then(AlarmStatus.ALARM),
+
+                //a sensor in an armed zone escalates the alarm one step while armed
+                Rule.on(EventType.SENSOR_ACTIVATED).unlessArming(ArmingStatus.DISARMED)
+                        .whenAlarm(AlarmStatus.NO_ALARM)
+                        .where(zoneArmed())
+                        .then(AlarmStatus.PENDING_ALARM),
+                Rule.on(EventType.SENSOR_ACTIVATED).unlessArming(ArmingStatus.DISARMED)
+                        .whenAlarm(AlarmStatus.PENDING_ALARM)
+                        .where(zoneArmed())
+                        .then(AlarmStatus.ALARM),
+
+                //a pending alarm is cleared when its last armed sensor goes inactive
+                Rule.on(EventType.SENSOR_DEACTIVATED).whenAlarm(AlarmStatus.PENDING_ALARM)
+                        .where(otherArmedSensorsOff())
+                        .then(AlarmStatus.NO_ALARM),
+
+                //a cat while armed home raises the alarm; otherwise the alarm clears once nothing is active
+                Rule.on(EventType.CAT_DETECTED).whenArming(ArmingStatus.ARMED_HOME)
+                        .then(AlarmStatus.ALARM),
+                Rule.on(EventType.CAT_DETECTED, EventType.NO_CAT_DETECTED)
+                        .where(allSensorsOff())
+                        .then(AlarmStatus.NO_ALARM));
+    }
+
+    /**
+     * @param siteRules Rules taking precedence over the defaults
+     * @return The site rules followed by new instances of the default rules
+     */
+    public static List<Rule> withSiteRules(List<Rule> siteRules) {
+        List<Rule> rules = new ArrayList<>(siteRules);
+        rules.addAll(create());
+        return rules;
+    }
+}
@@ -0,0 +1,13 @@
+package com.udacity.security.rules;
+
+/**
+ * Kinds of events the alarm rules react to.
+ */
+public enum EventType {
+    /** The arming status was changed; the event carries the new arming status. */
+    ARMING_CHANGED,
+    SENSOR_ACTIVATED,
+    SENSOR_DEACTIVATED,
+    CAT_DETECTED,
+    NO_CAT_DETECTED
+}
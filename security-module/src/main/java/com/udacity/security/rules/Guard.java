@@ -0,0 +1,12 @@
+package com.udacity.security.rules;
+
+/**
+ * Condition a rule checks after its cell in the decision table has been selected. Guards are
+ * checked in order and stop at the first one that fails, so stateful guards only see the events
+ * that passed the guards before them.
+ */
+@FunctionalInterface
+public interface Guard {
+
+    boolean test(RuleEvent event);
+}
@@ -0,0 +1,175 @@
+package com.udacity.security.rules;
+
+import com.udacity.security.data.SensorType;
+import com.udacity.security.data.Zone;
+
+import java.time.Instant;
+import java.time.LocalTime;
+import java.time.ZoneId;
+import java.time.zone.ZoneOffsetTransition;
+import java.time.zone.ZoneRules;
+import java.util.EnumSet;
+import java.util.Set;
+
+/**
+ * Factory methods for the guards rules are built from. None of the guards allocate while
+ * testing an event.
+ */
+public final class Guards {
+
+    private static final int SECONDS_PER_DAY = 86_400;
+
+    //stateless guards the decision table recognizes and checks inline
+    static final Guard ZONE_ARMED = event -> event.getSensor() != null
+            && Zone.orDefault(event.getSensor().getZone()).isArmed(event.getArmingStatus());
+    static final Guard ALL_SENSORS_OFF = event -> event.getCounts().totalActive() == 0;
+    static final Guard OTHER_ARMED_SENSORS_OFF = event ->
+            event.getCounts().armedActive(event.getArmingStatus(), event.getSensor()) == 0;
+    static final Guard CAT_DETECTED = RuleEvent::isCatDetected;
+
+    private Guards() {
+    }
+
+    /**
+     * @return A guard passing events the given guard fails
+     */
+    public static Guard not(Guard guard) {
+        return event -> !guard.test(event);
+    }
+
+    /**
+     * @return A guard passing events of sensors of the given types
+     */
+    public static Guard sensorType(SensorType first, SensorType... rest) {
+        Set<SensorType> types = EnumSet.of(first, rest);
+        return event -> event.getSensor() != null && types.contains(event.getSensor().getSensorType());
+    }
+
+    /**
+     * @return A guard passing events of sensors in the given zones; sensors without a zone are in
+     * {@link Zone#PREMISES}
+     */
+    public static Guard zone(Zone... zones) {
+        Set<Zone> set = Set.of(zones);
+        return event -> event.getSensor() != null && set.contains(Zone.orDefault(event.getSensor().getZone()));
+    }
+
+    /**
+     * @return A guard passing events of sensors whose zone is armed under the event's arming status
+     */
+    public static Guard zoneArmed() {
+        return ZONE_ARMED;
+    }
+
+    /**
+     * @return A guard passing events while no sensor is active
+     */
+    public static Guard allSensorsOff() {
+        return ALL_SENSORS_OFF;
+    }
+
+    /**
+     * @return A guard passing events while no sensor in an armed zone, other than the event's
+     * sensor, is active
+     */
+    public static Guard otherArmedSensorsOff() {
+        return OTHER_ARMED_SENSORS_OFF;
+    }
+
+    /**
+     * @return A guard passing events while a cat is detected
+     */
+    public static Guard catDetected() {
+        return CAT_DETECTED;
+    }
+
+    /**
+     * @param from Start of the period, inclusive
+     * @param to End of the period, exclusive; a period ending before it starts spans midnight
+     * @param zoneId Time zone of the site
+     * @return A guard passing events that happen within the period of the day
+     */
+    public static Guard between(LocalTime from, LocalTime to, ZoneId zoneId) {
+        return new TimeOfDay(from.toSecondOfDay(), to.toSecondOfDay(), zoneId.getRules());
+    }
+
+    /**
+     * @param count Number of events
+     * @param windowMillis Length of the window, in milliseconds
+     * @return A guard passing an event when it and the count - 1 events before it that reached
+     * this guard happened within the window. Each instance keeps its own history, so a guard
+     * should not be shared by rules that should count separately.
+     */
+    public static Guard occurrences(int count, long windowMillis) {
+        if (count < 1) {
+            throw new IllegalArgumentException("count must be positive: " + count);
+        }
+        return new Occurrences(count, windowMillis);
+    }
+
+    /**
+     * Time-of-day check that caches the site's UTC offset until the next offset transition.
+     */
+    private static final class TimeOfDay implements Guard {
+        private final int fromSecond;
+        private final int toSecond;
+        private final ZoneRules rules;
+        private long offsetValidFrom = Long.MAX_VALUE;
+        private long offsetValidUntil = Long.MIN_VALUE;
+        private long offsetMillis;
+
+        private TimeOfDay(int fromSecond, int toSecond, ZoneRules rules) {
+            this.fromSecond = fromSecond;
+            this.toSecond = toSecond;
+            this.rules = rules;
+        }
+
+        @Override
+        public boolean test(RuleEvent event) {
+            long time = event.getTimeMillis();
+            if (time < offsetValidFrom || time >= offsetValidUntil) {
+                refreshOffset(time);
+            }
+            int second = (int) Math.floorMod(Math.floorDiv(time + offsetMillis, 1_000L), SECONDS_PER_DAY);
+            return fromSecond <= toSecond
+                    ? second >= fromSecond && second < toSecond
+                    : second >= fromSecond || second < toSecond;
+        }
+
+        private void refreshOffset(long time) {
+            Instant instant = Instant.ofEpochMilli(time);
+            offsetMillis = rules.getOffset(instant).getTotalSeconds() * 1_000L;
+            ZoneOffsetTransition previous = rules.previousTransition(instant);
+            ZoneOffsetTransition next = rules.nextTransition(instant);
+            offsetValidFrom = previous == null ? Long.MIN_VALUE : previous.toEpochSecond() * 1_000L;
+            offsetValidUntil = next == null ? Long.MAX_VALUE : next.toEpochSecond() * 1_000L;
+        }
+    }
+
+    /**
+     * Ring buffer of the times of the last events that reached the guard.
+     */
+    private static final class Occurrences implements Guard {
+        private final long[] times;
+        private final long windowMillis;
+        private int next;
+        private int recorded;
+
+        private Occurrences(int count, long windowMillis) {
+            this.times = new long[count];
+            this.windowMillis = windowMillis;
+        }
+
+        @Override
+        public boolean test(RuleEvent event) {
+            long time = event.getTimeMillis();
+            times[next] = time;
+            next = next + 1 == times.length ? 0 : next + 1;
+            if (recorded < times.length) {
+                recorded++;
+            }
+            //after advancing, next points at the oldest of the last count events
+            return recorded == times.length && time - times[next] <= windowMillis;
+        }
+    }
+}
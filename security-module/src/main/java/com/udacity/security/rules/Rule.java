@@ -0,0 +1,156 @@
+package com.udacity.security.rules;
+
+import com.udacity.security.data.AlarmStatus;
+import com.udacity.security.data.ArmingStatus;
+
+import java.util.Arrays;
+
+/**
+ * Declarative alarm rule: the events, arming statuses and alarm statuses it applies to, the
+ * guards it checks, and the alarm status it sets. A rule may also ignore matching events,
+ * which stops the evaluation without changing the alarm status.
+ *
+ * Rules are built with {@link #on(EventType, EventType...)}, for example:
+ * <pre>
+ * Rule.on(EventType.SENSOR_ACTIVATED)
+ *         .whenArming(ArmingStatus.ARMED_HOME)
+ *         .where(Guards.sensorType(SensorType.WINDOW))
+ *         .ignore();
+ * </pre>
+ * A status the repository does not know yet (null) only matches rules that do not restrict it,
+ * or that restrict it with an "unless" condition.
+ */
+public final class Rule {
+
+    private final boolean[] events;
+    private final boolean[] armingSlots;
+    private final boolean[] alarmSlots;
+    private final Guard[] guards;
+    private final AlarmStatus target;
+
+    private Rule(Builder builder, AlarmStatus target) {
+        this.events = builder.events.clone();
+        this.armingSlots = builder.armingSlots.clone();
+        this.alarmSlots = builder.alarmSlots.clone();
+        this.guards = builder.guards.clone();
+        this.target = target;
+    }
+
+    public static Builder on(EventType first, EventType... rest) {
+        return new Builder(first, rest);
+    }
+
+    /**
+     * @return The decision table slot of an arming status, with slot 0 for an unknown status
+     */
+    static int slot(ArmingStatus armingStatus) {
+        return armingStatus == null ? 0 : armingStatus.ordinal() + 1;
+    }
+
+    /**
+     * @return The decision table slot of an alarm status, with slot 0 for an unknown status
+     */
+    static int slot(AlarmStatus alarmStatus) {
+        return alarmStatus == null ? 0 : alarmStatus.ordinal() + 1;
+    }
+
+    boolean appliesTo(int event, int armingSlot, int alarmSlot) {
+        return events[event] && armingSlots[armingSlot] && alarmSlots[alarmSlot];
+    }
+
+    Guard[] getGuards() {
+        return guards;
+    }
+
+    /**
+     * @return The alarm status the rule sets, or null if it ignores matching events
+     */
+    AlarmStatus getTarget() {
+        return target;
+    }
+
+    public static final class Builder {
+        private final boolean[] events = new boolean[EventType.values().length];
+        private final boolean[] armingSlots = new boolean[ArmingStatus.values().length + 1];
+        private final boolean[] alarmSlots = new boolean[AlarmStatus.values().length + 1];
+        private Guard[] guards = new Guard[0];
+
+        private Builder(EventType first, EventType... rest) {
+            events[first.ordinal()] = true;
+            for (EventType event : rest) {
+                events[event.ordinal()] = true;
+            }
+            Arrays.fill(armingSlots, true);
+            Arrays.fill(alarmSlots, true);
+        }
+
+        /**
+         * Restricts the rule to the given arming statuses.
+         */
+        public Builder whenArming(ArmingStatus... statuses) {
+            Arrays.fill(armingSlots, false);
+            for (ArmingStatus status : statuses) {
+                armingSlots[slot(status)] = true;
+            }
+            return this;
+        }
+
+        /**
+         * Restricts the rule to all but the given arming statuses.
+         */
+        public Builder unlessArming(ArmingStatus... statuses) {
+            for (ArmingStatus status : statuses) {
+                armingSlots[slot(status)] = false;
+            }
+            return this;
+        }
+
+        /**
+         * Restricts the rule to the given alarm statuses.
+         */
+        public Builder whenAlarm(AlarmStatus... statuses) {
+            Arrays.fill(alarmSlots, false);
+            for (AlarmStatus status : statuses) {
+                alarmSlots[slot(status)] = true;
+            }
+            return this;
+        }
+
+        /**
+         * Restricts the rule to all but the given alarm statuses.
+         */
+        public Builder unlessAlarm(AlarmStatus... statuses) {
+            for (AlarmStatus status : statuses) {
+                alarmSlots[slot(status)] = false;
+            }
+            return this;
+        }
+
+        /**
+         * Adds guards that must all pass, checked in the given order.
+         */
+        public Builder where(Guard... more) {
+            Guard[] combined = Arrays.copyOf(guards, guards.length + more.length);
+            System.arraycopy(more, 0, combined, guards.length, more.length);
+            guards = combined;
+            return this;
+        }
+
+        /**
+         * @return A rule setting the given alarm status
+         */
+        public Rule then(AlarmStatus alarmStatus) {
+            if (alarmStatus == null) {
+                throw new IllegalArgumentException("alarmStatus must not be null; use ignore()");
+            }
+            return new Rule(this, alarmStatus);
+        }
+
+        /**
+         * @return A rule leaving the alarm status unchanged and stopping the evaluation
+         */
+        public Rule ignore() {
+            return new Rule(this, null);
+        }
+    }
+}
@@ -0,0 +1,75 @@
+package com.udacity.security.rules;
+
+import com.udacity.security.data.AlarmStatus;
+import com.udacity.security.data.ArmingStatus;
+import com.udacity.security.data.Sensor;
+
+/**
+ * An event being evaluated against the rules, together with the system status it happened in.
+ * A single instance is refilled for every event so evaluation does not allocate; guards must not
+ * keep a reference to it.
+ */
+public final class RuleEvent {
+
+    private final SensorCounts counts;
+
+    private EventType type;
+    private ArmingStatus armingStatus;
+    private AlarmStatus alarmStatus;
+    private Sensor sensor;
+    private boolean catDetected;
+    private long timeMillis;
+
+    public RuleEvent(SensorCounts counts) {
+        this.counts = counts;
+    }
+
+    /**
+     * Refills this event.
+     * @param type The kind of event
+     * @param armingStatus The arming status, or the new one for {@link EventType#ARMING_CHANGED}
+     * @param alarmStatus The current alarm status
+     * @param sensor The changed sensor for sensor events, otherwise null
+     * @param catDetected Whether a cat is currently detected
+     * @param timeMillis Time of the event, in milliseconds since the epoch
+     * @return This event
+     */
+    public RuleEvent set(EventType type, ArmingStatus armingStatus, AlarmStatus alarmStatus,
+                         Sensor sensor, boolean catDetected, long timeMillis) {
+        this.type = type;
+        this.armingStatus = armingStatus;
+        this.alarmStatus = alarmStatus;
+        this.sensor = sensor;
+        this.catDetected = catDetected;
+        this.timeMillis = timeMillis;
+        return this;
+    }
+
+    public EventType getType() {
+        return type;
+    }
+
+    public ArmingStatus getArmingStatus() {
+        return armingStatus;
+    }
+
+    public AlarmStatus getAlarmStatus() {
+        return alarmStatus;
+    }
+
+    public Sensor getSensor() {
+        return sensor;
+    }
+
+    public boolean isCatDetected() {
+        return catDetected;
+    }
+
+    public long getTimeMillis() {
+        return timeMillis;
+    }
+
+    public SensorCounts getCounts() {
+        return counts;
+    }
+}
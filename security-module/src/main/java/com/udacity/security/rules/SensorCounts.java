@@ -0,0 +1,23 @@
+package com.udacity.security.rules;
+
+import com.udacity.security.data.ArmingStatus;
+import com.udacity.security.data.Sensor;
+
+/**
+ * Active sensor counts the rules can ask for. Counts are only computed when a rule's guard
+ * needs them.
+ */
+public interface SensorCounts {
+
+    /**
+     * @return The number of active sensors
+     */
+    int totalActive();
+
+    /**
+     * @param armingStatus The arming status deciding which zones are armed
+     * @param excluded Sensor not to count, or null
+     * @return The number of active sensors in armed zones, not counting the excluded one
+     */
+    int armedActive(ArmingStatus armingStatus, Sensor excluded);
+}
@@ -0,0 +1,168 @@
+package com.udacity.security.service;
+
+import com.udacity.security.application.StatusListener;
+import com.udacity.security.data.AlarmStatus;
+import com.udacity.security.data.ArmingStatus;
+import com.udacity.security.data.Zone;
+import com.udacity.security.timer.Timeout;
+import com.udacity.security.timer.TimerWheel;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.Executor;
+
+/**
+ * Adds time based transitions to the SecurityService state machine:
+ * - entry delay: a pending alarm escalates to alarm unless it is cleared in time
+ * - alarm timeout: an alarm resets to no alarm after sounding for the timeout
+ * - exit delay: arming through {@link #arm(ArmingStatus)} only takes effect after the delay
+ *
+ * Timers live on a {@link TimerWheel} that may be shared by many premises, so no thread is
+ * needed per timer. Expired timers are handed to the given executor, which should be whatever
+ * thread owns the SecurityService. A delay of zero disables the corresponding timer.
+ *
+ * Entry and exit delays can be set per zone; zones without their own delays use the defaults.
+ * A pending alarm escalates after the shortest entry delay among the zones with active armed
+ * sensors, so an alarm from a zone with a short delay is not held back by a zone with a longer one.
+ * Arming waits for the longest exit delay among the zones the arming mode arms.
+ */
+public class AlarmTimerService implements StatusListener {
+
+    private final SecurityService securityService;
+    private final TimerWheel timerWheel;
+    private final Executor executor;
+    private final long entryDelayMillis;
+    private final long exitDelayMillis;
+    private final long alarmTimeoutMillis;
+    private final Map<Zone, long[]> zoneDelays = new HashMap<>();
+
+    //escalation and reset are mutually exclusive, so one timer slot covers both
+    private Timeout alarmTimer;
+    private Timeout exitTimer;
+    private long generation;
+
+    public AlarmTimerService(SecurityService securityService, TimerWheel timerWheel, long entryDelayMillis,
+                             long exitDelayMillis, long alarmTimeoutMillis, Executor executor) {
+        this.securityService = securityService;
+        this.timerWheel = timerWheel;
+        this.entryDelayMillis = entryDelayMillis;
+        this.exitDelayMillis = exitDelayMillis;
+        this.alarmTimeoutMillis = alarmTimeoutMillis;
+        this.executor = executor;
+        securityService.addStatusListener(this, ListenerRegistry.Topic.ALARM_STATUS);
+    }
+
+    /**
+     * Sets the delays of a zone, replacing the defaults for its sensors.
+     * @param zone The zone
+     * @param entryDelayMillis Entry delay of the zone's sensors; zero disables it, as for the default
+     * @param exitDelayMillis Exit delay the zone needs when it is armed, zero for none
+     */
+    public synchronized void setZoneDelays(Zone zone, long entryDelayMillis, long exitDelayMillis) {
+        zoneDelays.put(zone, new long[]{entryDelayMillis, exitDelayMillis});
+    }
+
+    /**
+     * Arms or disarms the system. Arming waits for the exit delay so the occupants can leave;
+     * disarming is immediate and cancels any pending arming.
+     * @param armingStatus The requested arming status
+     */
+    public synchronized void arm(ArmingStatus armingStatus) {
+        if (exitTimer != null) {
+            exitTimer.cancel();
+            exitTimer = null;
+        }
+        long delayMillis = armingStatus == ArmingStatus.DISARMED ? 0 : exitDelay(armingStatus);
+        if (delayMillis <= 0) {
+            securityService.setArmingStatus(armingStatus);
+            return;
+        }
+        exitTimer = timerWheel.schedule(
+                () -> executor.execute(() -> securityService.setArmingStatus(armingStatus)), delayMillis);
+    }
+
+    /**
+     * @return The longest exit delay among the default and the zones armed under the arming status
+     */
+    private long exitDelay(ArmingStatus armingStatus) {
+        long delayMillis = exitDelayMillis;
+        for (Map.Entry<Zone, long[]> zone : zoneDelays.entrySet()) {
+            if (zone.getKey().isArmed(armingStatus)) {
+                delayMillis = Math.max(delayMillis, zone.getValue()[1]);
+            }
+        }
+        return delayMillis;
+    }
+
+    /**
+     * @return The shortest enabled entry delay among the zones with active armed sensors, with
+     * the default standing in for sensors in zones without their own delays, or zero if none
+     * is enabled
+     */
+    private long entryDelay() {
+        ArmingStatus armingStatus = securityService.getArmingStatus();
+        ZoneIndex zoneIndex = securityService.getZoneIndex();
+        int activeWithoutDelays = zoneIndex.getActiveCount(armingStatus);
+        long delayMillis = Long.MAX_VALUE;
+        for (Map.Entry<Zone, long[]> zone : zoneDelays.entrySet()) {
+            int active = zoneIndex.getActiveCount(zone.getKey());
+            if (active > 0 && zone.getKey().isArmed(armingStatus)) {
+                activeWithoutDelays -= active;
+                delayMillis = shortestEnabled(delayMillis, zone.getValue()[0]);
+            }
+        }
+        //a pending alarm without active sensors, such as one set directly, uses the default
+        if (activeWithoutDelays > 0 || delayMillis == Long.MAX_VALUE) {
+            delayMillis = shortestEnabled(delayMillis, entryDelayMillis);
+        }
+        return delayMillis == Long.MAX_VALUE ? 0 : delayMillis;
+    }
+
+    private static long shortestEnabled(long delayMillis, long candidateMillis) {
+        return candidateMillis > 0 ? Math.min(delayMillis, candidateMillis) : delayMillis;
+    }
+
+    @Override
+    public synchronized void notify(AlarmStatus status) {
+        if (alarmTimer != null) {
+            alarmTimer.cancel();
+            alarmTimer = null;
+        }
+        long timerGeneration = ++generation;
+        switch (status) {
+            case PENDING_ALARM -> alarmTimer = schedule(AlarmStatus.PENDING_ALARM, AlarmStatus.ALARM,
+                    entryDelay(), timerGeneration);
+            case ALARM -> alarmTimer = schedule(AlarmStatus.ALARM, AlarmStatus.NO_ALARM,
+                    alarmTimeoutMillis, timerGeneration);
+        }
+    }
+
+    /**
+     * Schedules a transition that only applies if the system is still in the expected state and
+     * no newer alarm status has been seen since the timer was set.
+     */
+    private Timeout schedule(AlarmStatus expected, AlarmStatus next, long delayMillis, long timerGeneration) {
+        if (delayMillis <= 0) {
+            return null;
+        }
+        return timerWheel.schedule(() -> executor.execute(() -> {
+            if (isCurrent(timerGeneration) && securityService.getAlarmStatus() == expected) {
+                securityService.setAlarmStatus(next);
+            }
+        }), delayMillis);
+    }
+
+    private synchronized boolean isCurrent(long timerGeneration) {
+        return generation == timerGeneration;
+    }
+
+    @Override
+    public void catDetected(boolean catDetected) {
+        //no behavior necessary
+    }
+
+    @Override
+    public void sensorStatusChanged() {
+        //no behavior necessary
+    }
+}
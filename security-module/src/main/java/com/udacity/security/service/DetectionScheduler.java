@@ -0,0 +1,386 @@
+package com.udacity.security.service;
+
+import com.udacity.security.application.StatusListener;
+import com.udacity.security.data.AlarmStatus;
+import com.udacity.security.data.ArmingStatus;
+import com.udacity.security.data.SensorState;
+import com.udacity.security.data.SensorStatusBatch;
+import com.udacity.security.data.Zone;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.awt.image.BufferedImage;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.LongSupplier;
+
+/**
+ * Schedules camera frames onto a fixed number of detector threads when there are more frames
+ * than the image service can classify. Each camera holds at most one pending frame: a newer
+ * frame replaces one that has not been classified yet. Free detectors take the most urgent
+ * camera first (see {@link Priority}), oldest frame first within a priority, and each camera is
+ * classified at most once per its minimum interval.
+ *
+ * Frames are classified through {@link SecurityService#processImage(String, BufferedImage)}.
+ */
+public class DetectionScheduler implements StatusListener, AutoCloseable {
+
+    private static final Logger log = LoggerFactory.getLogger(DetectionScheduler.class);
+
+    /**
+     * How urgently a camera's frame should be classified, most urgent first.
+     */
+    public enum Priority {
+        /** A sensor in the camera's zone was just activated while the system is armed. */
+        URGENT,
+        /** The system is armed home, where a cat raises the alarm, and the camera's zone is armed. */
+        ALARM_RELEVANT,
+        /** The system is armed and the camera's zone is armed. */
+        ROUTINE,
+        /** The system is disarmed or the camera's zone is not armed. */
+        IDLE
+    }
+
+    private final SecurityService securityService;
+    private final int detectors;
+    private final long recentActivityMillis;
+    private final long defaultMinIntervalMillis;
+    private final LongSupplier clock;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition changed = lock.newCondition();
+    private final Map<String, Camera> cameras = new HashMap<>();
+    private final Map<Zone, Long> lastActivation = new HashMap<>();
+    private final List<Thread> workers = new ArrayList<>();
+    private boolean closed;
+    private long submitted;
+    private long dropped;
+    private long dispatched;
+
+    /**
+     * @param securityService The service classifying the frames
+     * @param detectors Number of frames classified concurrently
+     * @param recentActivityMillis How long after a sensor activation its zone's cameras stay urgent
+     * @param defaultMinIntervalMillis Minimum time between two frames of a camera not added explicitly
+     */
+    public DetectionScheduler(SecurityService securityService, int detectors, long recentActivityMillis,
+                              long defaultMinIntervalMillis) {
+        this(securityService, detectors, recentActivityMillis, defaultMinIntervalMillis, System::currentTimeMillis);
+    }
+
+    DetectionScheduler(SecurityService securityService, int detectors, long recentActivityMillis,
+                       long defaultMinIntervalMillis, LongSupplier clock) {
+        if (detectors < 1) {
+            throw new IllegalArgumentException("at least one detector is required");
+        }
+        this.securityService = securityService;
+        this.detectors = detectors;
+        this.recentActivityMillis = recentActivityMillis;
+        this.defaultMinIntervalMillis = defaultMinIntervalMillis;
+        this.clock = clock;
+        securityService.addStatusListener(this, ListenerRegistry.Topic.SENSOR_STATUS);
+    }
+
+    /**
+     * Starts the detector threads.
+     */
+    public void start() {
+        lock.lock();
+        try {
+            for (int i = 0; i < detectors; i++) {
+                Thread worker = new Thread(this::runDetector, "detector-" + i);
+                worker.setDaemon(true);
+                workers.add(worker);
+                worker.start();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Adds or reconfigures a camera.
+     * @param cameraId The camera
+     * @param zone The zone the camera watches
+     * @param minIntervalMillis Minimum time between the start of two classifications of the camera's frames
+     */
+    public void addCamera(String cameraId, Zone zone, long minIntervalMillis) {
+        lock.lock();
+        try {
+            Camera camera = cameras.computeIfAbsent(cameraId, Camera::new);
+            camera.zone = Zone.orDefault(zone);
+            camera.minIntervalMillis = minIntervalMillis;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Queues a frame, replacing the camera's pending frame if it has not been classified yet.
+     * Cameras not added before are watching {@link Zone#PREMISES}.
+     */
+    public void submit(String cameraId, BufferedImage frame) {
+        lock.lock();
+        try {
+            if (closed) {
+                throw new IllegalStateException("scheduler is closed");
+            }
+            Camera camera = cameras.get(cameraId);
+            if (camera == null) {
+                camera = new Camera(cameraId);
+                camera.minIntervalMillis = defaultMinIntervalMillis;
+                cameras.put(cameraId, camera);
+            }
+            submitted++;
+            if (camera.pending != null) {
+                dropped++;
+            } else {
+                camera.pendingSince = clock.getAsLong();
+            }
+            camera.pending = frame;
+            changed.signal();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @return The priority a frame of the camera gets right now
+     */
+    public Priority priorityOf(String cameraId) {
+        lock.lock();
+        try {
+            Camera camera = cameras.get(cameraId);
+            return priority(camera == null ? Zone.PREMISES : camera.zone,
+                    securityService.getState().getArmingStatus(), clock.getAsLong());
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private Priority priority(Zone zone, ArmingStatus armingStatus, long now) {
+        if (armingStatus == null || armingStatus == ArmingStatus.DISARMED || !zone.isArmed(armingStatus)) {
+            return Priority.IDLE;
+        }
+        Long activation = lastActivation.get(zone);
+        if (activation != null && now - activation <= recentActivityMillis) {
+            return Priority.URGENT;
+        }
+        return armingStatus == ArmingStatus.ARMED_HOME ? Priority.ALARM_RELEVANT : Priority.ROUTINE;
+    }
+
+    /**
+     * Takes the next frame to classify, if one may be classified now. Must hold the lock.
+     * @return The camera whose frame was taken, or null
+     */
+    private Camera takeNext(long now) {
+        ArmingStatus armingStatus = securityService.getState().getArmingStatus();
+        Camera best = null;
+        Priority bestPriority = null;
+        for (Camera camera : cameras.values()) {
+            if (camera.pending == null || camera.busy || now < camera.nextAllowedMillis) {
+                continue;
+            }
+            Priority priority = priority(camera.zone, armingStatus, now);
+            if (best == null || priority.compareTo(bestPriority) < 0
+                    || (priority == bestPriority && camera.pendingSince < best.pendingSince)) {
+                best = camera;
+                bestPriority = priority;
+            }
+        }
+        if (best != null) {
+            best.taken = best.pending;
+            best.pending = null;
+            best.busy = true;
+            best.nextAllowedMillis = now + best.minIntervalMillis;
+            dispatched++;
+        }
+        return best;
+    }
+
+    /**
+     * @return Milliseconds until a rate-limited camera with a pending frame may be classified,
+     * or -1 if there is none. Must hold the lock.
+     */
+    private long millisUntilAllowed(long now) {
+        long wait = -1;
+        for (Camera camera : cameras.values()) {
+            if (camera.pending != null && !camera.busy) {
+                long cameraWait = Math.max(0, camera.nextAllowedMillis - now);
+                wait = wait < 0 ? cameraWait : Math.min(wait, cameraWait);
+            }
+        }
+        return wait;
+    }
+
+    /**
+     * Takes the next frame as a detector would, without classifying it. Lets tests check the
+     * order without detector threads; the caller must call {@link #finish(String)} afterwards.
+     * @return The camera and frame taken, or null if no frame may be classified at the given time
+     */
+    Map.Entry<String, BufferedImage> poll(long now) {
+        lock.lock();
+        try {
+            Camera camera = takeNext(now);
+            return camera == null ? null : Map.entry(camera.id, camera.taken);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    void finish(String cameraId) {
+        lock.lock();
+        try {
+            Camera camera = cameras.get(cameraId);
+            camera.busy = false;
+            camera.taken = null;
+            changed.signal();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void runDetector() {
+        while (true) {
+            Camera camera = null;
+            BufferedImage frame;
+            lock.lock();
+            try {
+                while (!closed && (camera = takeNext(clock.getAsLong())) == null) {
+                    long wait = millisUntilAllowed(clock.getAsLong());
+                    if (wait < 0) {
+                        changed.await();
+                    } else {
+                        changed.await(Math.max(1, wait), TimeUnit.MILLISECONDS);
+                    }
+                }
+                if (camera == null) {
+                    return;
+                }
+                frame = camera.taken;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } finally {
+                lock.unlock();
+            }
+
+            try {
+                securityService.processImage(camera.id, frame);
+            } catch (RuntimeException e) {
+                log.warn("Detection failed for camera {}", camera.id, e);
+            } finally {
+                finish(camera.id);
+            }
+        }
+    }
+
+    /**
+     * @return Number of frames submitted
+     */
+    public long getSubmittedCount() {
+        lock.lock();
+        try {
+            return submitted;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @return Number of frames replaced by a newer frame before being classified
+     */
+    public long getDroppedCount() {
+        lock.lock();
+        try {
+            return dropped;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @return Number of frames handed to a detector
+     */
+    public long getDispatchedCount() {
+        lock.lock();
+        try {
+            return dispatched;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void sensorStatusChanged(SensorStatusBatch changes) {
+        long now = clock.getAsLong();
+        lock.lock();
+        try {
+            for (int i = 0; i < changes.size(); i++) {
+                if (!changes.isActive(i)) {
+                    continue;
+                }
+                SensorState sensor = securityService.getState().getSensor(changes.getSensorId(i));
+                if (sensor != null) {
+                    lastActivation.put(Zone.orDefault(sensor.getZone()), now);
+                }
+            }
+            changed.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void sensorStatusChanged() {
+        //activations arrive through the batch callback
+    }
+
+    @Override
+    public void notify(AlarmStatus status) {
+        //priorities read the arming status when a detector becomes free
+    }
+
+    @Override
+    public void catDetected(boolean catDetected) {
+        //no behavior necessary
+    }
+
+    /**
+     * Stops the detector threads after their current frame; pending frames are discarded.
+     */
+    @Override
+    public void close() {
+        lock.lock();
+        try {
+            closed = true;
+            changed.signalAll();
+        } finally {
+            lock.unlock();
+        }
+        securityService.removeStatusListener(this);
+    }
+
+    /**
+     * A camera and its pending frame.
+     */
+    private static final class Camera {
+        private final String id;
+        private Zone zone = Zone.PREMISES;
+        private long minIntervalMillis;
+        private BufferedImage pending;
+        private long pendingSince;
+        private BufferedImage taken;
+        private boolean busy;
+        private long nextAllowedMillis;
+
+        private Camera(String id) {
+            this.id = id;
+        }
+    }
+}
@@ -0,0 +1,140 @@
+package com.udacity.security.service;
+
+import com.udacity.security.application.StatusListener;
+import com.udacity.security.data.AlarmStatus;
+import com.udacity.security.data.SensorStatusBatch;
+
+import java.util.Arrays;
+import java.util.EnumSet;
+import java.util.Set;
+
+/**
+ * The status listeners of a {@link SecurityService}, kept per topic in copy-on-write arrays.
+ *
+ * Events are far more frequent than subscription changes, so dispatch walks a plain array
+ * without locking or allocating, in subscription order, and subscribing or unsubscribing
+ * replaces the array. A listener added or removed during dispatch therefore takes effect from
+ * the next event, and never disturbs the one in progress. A listener is only called for the
+ * topics it subscribed to.
+ */
+public final class ListenerRegistry {
+
+    /**
+     * The kinds of event a listener can subscribe to.
+     */
+    public enum Topic {
+        /** {@link StatusListener#notify(AlarmStatus)} */
+        ALARM_STATUS,
+        /** {@link StatusListener#catDetected(boolean)} */
+        CAT_DETECTED,
+        /** {@link StatusListener#sensorStatusChanged(SensorStatusBatch)} */
+        SENSOR_STATUS
+    }
+
+    private static final StatusListener[] NONE = new StatusListener[0];
+
+    private volatile StatusListener[] alarmListeners = NONE;
+    private volatile StatusListener[] catListeners = NONE;
+    private volatile StatusListener[] sensorListeners = NONE;
+
+    /**
+     * Subscribes the listener to every topic.
+     */
+    public void add(StatusListener listener) {
+        add(listener, EnumSet.allOf(Topic.class));
+    }
+
+    /**
+     * Subscribes the listener to the given topics only. Subscribing to a topic twice has no
+     * further effect.
+     */
+    public void add(StatusListener listener, Topic topic, Topic... topics) {
+        add(listener, EnumSet.of(topic, topics));
+    }
+
+    private synchronized void add(StatusListener listener, Set<Topic> topics) {
+        if (topics.contains(Topic.ALARM_STATUS)) {
+            alarmListeners = with(alarmListeners, listener);
+        }
+        if (topics.contains(Topic.CAT_DETECTED)) {
+            catListeners = with(catListeners, listener);
+        }
+        if (topics.contains(Topic.SENSOR_STATUS)) {
+            sensorListeners = with(sensorListeners, listener);
+        }
+    }
+
+    /**
+     * Unsubscribes the listener from every topic.
+     */
+    public synchronized void remove(StatusListener listener) {
+        alarmListeners = without(alarmListeners, listener);
+        catListeners = without(catListeners, listener);
+        sensorListeners = without(sensorListeners, listener);
+    }
+
+    /**
+     * @return True if any listener subscribed to the topic, so callers can skip preparing an
+     * event nobody receives
+     */
+    public boolean hasListeners(Topic topic) {
+        switch (topic) {
+            case ALARM_STATUS:
+                return alarmListeners.length > 0;
+            case CAT_DETECTED:
+                return catListeners.length > 0;
+            default:
+                return sensorListeners.length > 0;
+        }
+    }
+
+    void alarmStatusChanged(AlarmStatus status) {
+        for (StatusListener listener : alarmListeners) {
+            listener.notify(status);
+        }
+    }
+
+    void catDetected(boolean catDetected) {
+        for (StatusListener listener : catListeners) {
+            listener.catDetected(catDetected);
+        }
+    }
+
+    void sensorStatusChanged(SensorStatusBatch changes) {
+        for (StatusListener listener : sensorListeners) {
+            listener.sensorStatusChanged(changes);
+        }
+    }
+
+    private static StatusListener[] with(StatusListener[] listeners, StatusListener listener) {
+        if (indexOf(listeners, listener) >= 0) {
+            return listeners;
+        }
+        StatusListener[] updated = Arrays.copyOf(listeners, listeners.length + 1);
+        updated[listeners.length] = listener;
+        return updated;
+    }
+
+    private static StatusListener[] without(StatusListener[] listeners, StatusListener listener) {
+        int index = indexOf(listeners, listener);
+        if (index < 0) {
+            return listeners;
+        }
+        if (listeners.length == 1) {
+            return NONE;
+        }
+        StatusListener[] updated = new StatusListener[listeners.length - 1];
+        System.arraycopy(listeners, 0, updated, 0, index);
+        System.arraycopy(listeners, index + 1, updated, index, listeners.length - index - 1);
+        return updated;
+    }
+
+    private static int indexOf(StatusListener[] listeners, StatusListener listener) {
+        for (int i = 0; i < listeners.length; i++) {
+            if (listeners[i] == listener) {
+                return i;
+            }
+        }
+        return -1;
+    }
+}
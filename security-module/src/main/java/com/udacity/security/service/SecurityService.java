@@ -1,16 +1,37 @@
 package com.udacity.security.service;
 
+import com.udacity.image.service.Detection;
 import com.udacity.image.service.ImageService;
 import com.udacity.security.application.StatusListener;
 import com.udacity.security.data.AlarmStatus;
 import com.udacity.security.data.ArmingStatus;
 import com.udacity.security.data.SecurityRepository;
 import com.udacity.security.data.Sensor;
+import com.udacity.security.data.SensorStatusBatch;
+import com.udacity.security.data.SystemState;
+import com.udacity.security.data.Zone;
+import com.udacity.security.rules.DecisionTable;
+import com.udacity.security.rules.DefaultRules;
+import com.udacity.security.rules.EventType;
+import com.udacity.security.rules.RuleEvent;
+import com.udacity.security.rules.SensorCounts;
 
 import java.awt.image.BufferedImage;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Set;
-import java.util.function.Supplier;
-import java.util.stream.Stream;
+import java.util.UUID;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.function.UnaryOperator;
 
 /**
  * Service that receives information about changes to the security system. Responsible for
@@ -21,48 +42,93 @@ import java.util.stream.Stream;
  */
 public class SecurityService {
 
+    public static final String DEFAULT_CAMERA = "default";
+    public static final float DEFAULT_CONFIDENCE_THRESHOLD = 50.0f;
+
     private ImageService imageService;
     private SecurityRepository securityRepository;
-    private Set<StatusListener> statusListeners;
+    private final ListenerRegistry statusListeners = new ListenerRegistry();
+
+    //active counts per zone, built from the sensors on first use and then kept up to date; the
+    //set and size it was built from tell when sensors were added or removed behind its back
+    private ZoneIndex zoneIndex;
+    private Set<Sensor> zoneIndexSource;
+    private int zoneIndexSize;
+
+    //immutable view of the whole system for lock-free readers, replaced on every change
+    private volatile SystemState state;
+
+    //minimum cat confidence per camera, and each camera's latest result for re-deciding it
+    private final Map<String, Float> confidenceThresholds = new ConcurrentHashMap<>();
+    private final Map<String, Detection> detections = new ConcurrentHashMap<>();
+    //held while a result is recorded and the cat status decided from all of them, so concurrent
+    //scans apply their verdicts in order and none overwrites a newer one
+    private final Object verdictLock = new Object();
 
+    //alarm decisions; the event is refilled for every evaluation
+    private DecisionTable decisionTable = DecisionTable.compile(DefaultRules.create());
+    private final RuleEvent ruleEvent = new RuleEvent(new ActiveSensorCounts());
+
+    /**
+     * @param statusListeners Listeners subscribed to every topic from the start; later changes
+     *                        to the set are not seen, use {@link #addStatusListener} instead
+     */
     public SecurityService(SecurityRepository securityRepository, ImageService imageService,
                            Set<StatusListener> statusListeners) {
         this.securityRepository = securityRepository;
         this.imageService = imageService;
-        this.statusListeners = statusListeners;
+        statusListeners.forEach(this.statusListeners::add);
+        this.state = SystemState.of(securityRepository);
     }
 
     /**
      * Sets the current arming status for the system. Changing the arming status
-     * may update both the alarm status.
+     * may update both the alarm status. Arming deactivates all sensors.
      * @param armingStatus
      */
     public void setArmingStatus(ArmingStatus armingStatus) {
-        switch (armingStatus) {
-            case DISARMED -> setAlarmStatus(AlarmStatus.NO_ALARM);
-            case ARMED_AWAY -> deactivateAllSensors();
-            case ARMED_HOME -> {
-                deactivateAllSensors();
-                if (securityRepository.getCatDetected()) {
-                    setAlarmStatus(AlarmStatus.ALARM);
-                }
-            }
+        List<Sensor> deactivated = new ArrayList<>();
+        SensorStatusBatch changes = null;
+        if (armingStatus != ArmingStatus.DISARMED) {
+            changes = deactivateAllSensors(deactivated);
+        }
+        AlarmStatus next = evaluate(EventType.ARMING_CHANGED, armingStatus, null, securityRepository.getCatDetected());
+        if (next != null) {
+            securityRepository.setAlarmStatus(next);
         }
         securityRepository.setArmingStatus(armingStatus);
+        publish(deactivated);
+        if (changes != null) {
+            statusListeners.sensorStatusChanged(changes);
+        }
+        if (next != null) {
+            statusListeners.alarmStatusChanged(next);
+        }
     }
 
     /**
-     * Internal method that handles deactivating all sensors.
+     * Internal method that handles deactivating all sensors. Takes a single pass over the
+     * sensors and hands every deactivated one to the repository in one bulk update. The caller
+     * publishes them and passes the returned batch to the listeners.
+     * @param deactivated Receives the deactivated sensors
+     * @return The deactivated sensors as a single batch
      */
-    private void deactivateAllSensors() {
-        Supplier<Stream<Sensor>> streamSupplier =
-                () -> getSensors().stream()
-                        .filter(s -> s.getActive());
-        streamSupplier.get()
-                .forEach(s -> s.setActive(false));
-        streamSupplier.get()
-                .forEach(s -> securityRepository.updateSensor(s));
-        statusListeners.forEach(sl -> sl.sensorStatusChanged());
+    private SensorStatusBatch deactivateAllSensors(List<Sensor> deactivated) {
+        SensorStatusBatch.Builder changes = new SensorStatusBatch.Builder();
+        for (Sensor sensor : getSensors()) {
+            if (sensor.getActive()) {
+                sensor.setActive(false);
+                deactivated.add(sensor);
+                changes.add(sensor);
+            }
+        }
+        if (!deactivated.isEmpty()) {
+            securityRepository.updateSensors(deactivated);
+        }
+        if (zoneIndex != null) {
+            zoneIndex.clearActive();
+        }
+        return changes.build();
     }
 
     /**
@@ -71,14 +137,17 @@ public class SecurityService {
      * @param cat True if a cat is detected, otherwise false.
      */
     private void catDetected(Boolean cat) {
-        if(cat && getArmingStatus() == ArmingStatus.ARMED_HOME) {
-            setAlarmStatus(AlarmStatus.ALARM);
-        } else if (areOffAllSensors()) {
-            setAlarmStatus(AlarmStatus.NO_ALARM);
+        AlarmStatus next = evaluate(cat ? EventType.CAT_DETECTED : EventType.NO_CAT_DETECTED, getArmingStatus(),
+                null, cat);
+        if (next != null) {
+            securityRepository.setAlarmStatus(next);
         }
-
-        statusListeners.forEach(sl -> sl.catDetected(cat));
         securityRepository.setCatDetected(cat);
+        publish(List.of());
+        if (next != null) {
+            statusListeners.alarmStatusChanged(next);
+        }
+        statusListeners.catDetected(cat);
     }
 
     /**
@@ -89,6 +158,17 @@ public class SecurityService {
         statusListeners.add(statusListener);
     }
 
+    /**
+     * Register the StatusListener for the given kinds of update only.
+     * @param statusListener
+     * @param topic The updates the listener is called for
+     * @param topics
+     */
+    public void addStatusListener(StatusListener statusListener, ListenerRegistry.Topic topic,
+                                  ListenerRegistry.Topic... topics) {
+        statusListeners.add(statusListener, topic, topics);
+    }
+
     public void removeStatusListener(StatusListener statusListener) {
         statusListeners.remove(statusListener);
     }
@@ -99,50 +179,53 @@ public class SecurityService {
      */
     public void setAlarmStatus(AlarmStatus status) {
         securityRepository.setAlarmStatus(status);
-        statusListeners.forEach(sl -> sl.notify(status));
+        publish(List.of());
+        statusListeners.alarmStatusChanged(status);
     }
 
     /**
-     * Internal method for updating the alarm status when a sensor has been activated.
+     * Internal method evaluating an event against the decision table. The caller applies the
+     * resulting alarm status together with the rest of the event, so the event is published as
+     * one snapshot. Evaluations are serialized because the event and some guards are reused.
+     * @param type The kind of event
+     * @param armingStatus The arming status the event is evaluated under
+     * @param sensor The changed sensor for sensor events, otherwise null
+     * @param cat Whether a cat is detected
+     * @return The new alarm status, or null if it does not change
      */
-    private void handleSensorActivated() {
-        if(securityRepository.getArmingStatus() == ArmingStatus.DISARMED) {
-            return; //no problem if the system is disarmed
-        }
-        switch(securityRepository.getAlarmStatus()) {
-            case NO_ALARM -> setAlarmStatus(AlarmStatus.PENDING_ALARM);
-            case PENDING_ALARM -> setAlarmStatus(AlarmStatus.ALARM);
+    private AlarmStatus evaluate(EventType type, ArmingStatus armingStatus, Sensor sensor, boolean cat) {
+        synchronized (ruleEvent) {
+            RuleEvent event = ruleEvent.set(type, armingStatus, securityRepository.getAlarmStatus(),
+                    sensor, cat, System.currentTimeMillis());
+            AlarmStatus next = decisionTable.evaluate(event);
+            event.set(null, null, null, null, false, 0L);
+            return next;
         }
     }
 
     /**
-     * Internal method for checking that all sensors are deactivated.
+     * Replaces the alarm rules, for example with {@link DefaultRules#withSiteRules(java.util.List)}.
+     * @param decisionTable The compiled rules
      */
-    private Boolean areOffAllSensors() {
-        return getSensors().stream()
-                .map(Sensor::getActive)
-                .allMatch(a -> a.equals(false));
-    }
-
-    /**
-     * Internal method for updating the alarm status when a sensor has been deactivated
-     */
-    private void handleSensorDeactivated(Sensor sensor) {
-        if (securityRepository.getAlarmStatus().equals(AlarmStatus.PENDING_ALARM) &&
-                areOffAllSensorsButOne(sensor)) {
-            setAlarmStatus(AlarmStatus.NO_ALARM);
+    public void setDecisionTable(DecisionTable decisionTable) {
+        synchronized (ruleEvent) {
+            this.decisionTable = decisionTable;
         }
     }
 
     /**
-     * Internal method for checking that all sensors but the argument one are deactivated.
-     * @param sensor
+     * Returns the active sensor counts per zone. The index is built from the sensors when they
+     * have been added or removed since it was last built, and is otherwise kept up to date as
+     * sensors change. Only the counts are kept, nothing per sensor.
      */
-    private Boolean areOffAllSensorsButOne(Sensor sensor) {
-        return getSensors().stream()
-                .filter(s -> ! s.equals(sensor))
-                .map(Sensor::getActive)
-                .allMatch(a -> a.equals(false));
+    public ZoneIndex getZoneIndex() {
+        Set<Sensor> sensors = getSensors();
+        if (zoneIndex == null || zoneIndexSource != sensors || zoneIndexSize != sensors.size()) {
+            zoneIndex = ZoneIndex.of(sensors.toArray(new Sensor[0]));
+            zoneIndexSource = sensors;
+            zoneIndexSize = sensors.size();
+        }
+        return zoneIndex;
     }
 
     /**
@@ -151,13 +234,30 @@ public class SecurityService {
      * @param active
      */
     public void changeSensorActivationStatus(Sensor sensor, Boolean active) {
+        boolean changed = !sensor.getActive().equals(active);
+        AlarmStatus next = null;
         if(!sensor.getActive() && active) {
-            handleSensorActivated();
+            next = evaluate(EventType.SENSOR_ACTIVATED, securityRepository.getArmingStatus(), sensor,
+                    securityRepository.getCatDetected());
         } else if (sensor.getActive() && !active) {
-            handleSensorDeactivated(sensor);
+            next = evaluate(EventType.SENSOR_DEACTIVATED, securityRepository.getArmingStatus(), sensor,
+                    securityRepository.getCatDetected());
         }
         sensor.setActive(active);
         securityRepository.updateSensor(sensor);
+        if (next != null) {
+            securityRepository.setAlarmStatus(next);
+        }
+        publish(sensor);
+        if (changed && zoneIndex != null) {
+            zoneIndex.sensorChanged(Zone.orDefault(sensor.getZone()), active);
+        }
+        if (next != null) {
+            statusListeners.alarmStatusChanged(next);
+        }
+        if (changed && statusListeners.hasListeners(ListenerRegistry.Topic.SENSOR_STATUS)) {
+            statusListeners.sensorStatusChanged(SensorStatusBatch.of(sensor));
+        }
     }
 
     /**
@@ -166,7 +266,227 @@ public class SecurityService {
      * @param currentCameraImage
      */
     public void processImage(BufferedImage currentCameraImage) {
-        catDetected(imageService.imageContainsCat(currentCameraImage, 50.0f));
+        processImage(DEFAULT_CAMERA, currentCameraImage);
+    }
+
+    /**
+     * Processes an image from the given camera using that camera's confidence threshold. A cat is
+     * detected while the latest image of any camera shows one.
+     * @param cameraId The camera the image comes from
+     * @param currentCameraImage
+     */
+    public void processImage(String cameraId, BufferedImage currentCameraImage) {
+        applyDetection(cameraId, detect(cameraId, currentCameraImage));
+    }
+
+    /**
+     * Scans an image from the given camera at that camera's confidence threshold without changing
+     * any state, so the slow scan can run on another thread than the one applying the result.
+     * @param cameraId The camera the image comes from
+     * @param currentCameraImage
+     * @return The result, to be passed to {@link #applyDetection}
+     */
+    public Detection detect(String cameraId, BufferedImage currentCameraImage) {
+        return imageService.detect(currentCameraImage, getConfidenceThreshold(cameraId));
+    }
+
+    /**
+     * Records a camera's latest result and updates the cat status from all cameras' results, as
+     * {@link #processImage(String, BufferedImage)} does after scanning. Listeners are called on
+     * the calling thread.
+     * @param cameraId The camera the result is for
+     * @param detection The result of {@link #detect}
+     */
+    public void applyDetection(String cameraId, Detection detection) {
+        synchronized (verdictLock) {
+            detections.put(cameraId, detection);
+            catDetected(anyCameraShowsCat());
+        }
+    }
+
+    /**
+     * Scans the latest frames of many cameras in parallel and applies them as one change: every
+     * camera's result is recorded, then the cat status is decided once, so the rules run once and
+     * listeners hear about the batch once. While the system is armed home, a cat on any frame
+     * decides the outcome, so the remaining scans are cancelled as soon as one is found; the
+     * cancelled cameras keep their previous results, as do cameras whose scan the executor rejects.
+     * @param framesByCamera The frame of each camera
+     * @param executor Runs the scans; its number of threads bounds how many run at once
+     * @return The results of the frames that were scanned
+     * @throws RuntimeException The first failure or rejection of a scan, after the other results were applied
+     */
+    public Map<String, Detection> processImages(Map<String, BufferedImage> framesByCamera, Executor executor) {
+        if (framesByCamera.isEmpty()) {
+            return Map.of();
+        }
+        boolean armedHome = getArmingStatus() == ArmingStatus.ARMED_HOME;
+        CompletionService<Detection> scans = new ExecutorCompletionService<>(executor);
+        Map<Future<Detection>, String> cameras = new HashMap<>();
+
+        Map<String, Detection> results = new HashMap<>();
+        RuntimeException failure = null;
+        try {
+            //submitted inside the try, so scans already running are cancelled whatever happens next
+            for (Map.Entry<String, BufferedImage> frame : framesByCamera.entrySet()) {
+                String cameraId = frame.getKey();
+                float confidenceThreshold = getConfidenceThreshold(cameraId);
+                try {
+                    cameras.put(scans.submit(() -> imageService.detect(frame.getValue(), confidenceThreshold)),
+                            cameraId);
+                } catch (RejectedExecutionException e) {
+                    if (failure == null) {
+                        failure = e;
+                    }
+                }
+            }
+            boolean decided = false;
+            for (int i = 0; i < cameras.size() && !decided; i++) {
+                Future<Detection> scan = scans.take();
+                String cameraId = cameras.get(scan);
+                try {
+                    Detection detection = scan.get();
+                    results.put(cameraId, detection);
+                    decided = armedHome && detection.isCat(getConfidenceThreshold(cameraId));
+                } catch (ExecutionException e) {
+                    if (failure == null) {
+                        failure = e.getCause() instanceof RuntimeException
+                                ? (RuntimeException) e.getCause()
+                                : new IllegalStateException("Scan of camera " + cameraId + " failed", e.getCause());
+                    }
+                }
+            }
+        } catch (InterruptedException e) {
+            //apply what was scanned so far
+            Thread.currentThread().interrupt();
+        } finally {
+            cameras.keySet().forEach(scan -> scan.cancel(true));
+        }
+
+        synchronized (verdictLock) {
+            detections.putAll(results);
+            catDetected(anyCameraShowsCat());
+        }
+        if (failure != null) {
+            throw failure;
+        }
+        return results;
+    }
+
+    /**
+     * Changes a camera's confidence threshold. If the camera's latest result can be decided at the
+     * new threshold, the cat status is updated from it without scanning the image again; otherwise
+     * the camera keeps its verdict and the new threshold applies from the camera's next image.
+     * @param cameraId The camera
+     * @param confidenceThreshold Minimum confidence, in percent, for a cat
+     */
+    public void setConfidenceThreshold(String cameraId, float confidenceThreshold) {
+        synchronized (verdictLock) {
+            float previousThreshold = getConfidenceThreshold(cameraId);
+            confidenceThresholds.put(cameraId, confidenceThreshold);
+            Detection detection = detections.get(cameraId);
+            if (detection == null) {
+                return;
+            }
+            if (!detection.canDecide(confidenceThreshold)) {
+                //a higher cat label may have been skipped, so keep the verdict until the next image
+                detections.put(cameraId, Detection.of(detection.isCat(previousThreshold), confidenceThreshold));
+                return;
+            }
+            boolean cat = anyCameraShowsCat();
+            if (cat != securityRepository.getCatDetected()) {
+                catDetected(cat);
+            }
+        }
+    }
+
+    public float getConfidenceThreshold(String cameraId) {
+        //getOrDefault would box the default on every call
+        Float confidenceThreshold = confidenceThresholds.get(cameraId);
+        return confidenceThreshold == null ? DEFAULT_CONFIDENCE_THRESHOLD : confidenceThreshold;
+    }
+
+    /**
+     * @return The latest result of the camera, or null if it has none
+     */
+    public Detection getDetection(String cameraId) {
+        return detections.get(cameraId);
+    }
+
+    /**
+     * @return Each camera's latest result
+     */
+    public Map<String, Detection> getDetections() {
+        return Map.copyOf(detections);
+    }
+
+    /**
+     * Restores a camera's latest result from before a restart, so the camera's next image is
+     * decided together with it. Neither the rules nor the listeners see it; the cat status it led
+     * to is restored with the rest of the repository.
+     * @param cameraId The camera
+     * @param detection The camera's latest result before the restart
+     */
+    public void restoreDetection(String cameraId, Detection detection) {
+        detections.put(cameraId, detection);
+    }
+
+    /**
+     * Sends the current alarm status, cat status and every sensor's status to the listeners, so
+     * components set up at startup show the restored state before the first event.
+     */
+    public void notifyCurrentState() {
+        statusListeners.alarmStatusChanged(getAlarmStatus());
+        statusListeners.catDetected(securityRepository.getCatDetected());
+        SensorStatusBatch.Builder sensors = new SensorStatusBatch.Builder();
+        for (Sensor sensor : getSensors()) {
+            sensors.add(sensor);
+        }
+        statusListeners.sensorStatusChanged(sensors.build());
+    }
+
+    /**
+     * Internal method deciding every camera's latest result at its own threshold. Walks the keys
+     * because the map's entry iterator allocates an entry per camera.
+     */
+    private boolean anyCameraShowsCat() {
+        for (String cameraId : detections.keySet()) {
+            Detection detection = detections.get(cameraId);
+            if (detection != null && detection.isCat(getConfidenceThreshold(cameraId))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Returns a consistent, immutable snapshot of the whole system. Safe to call from any
+     * thread without locking; the snapshot never changes after it is returned.
+     */
+    public SystemState getState() {
+        return state;
+    }
+
+    /**
+     * Internal method publishing the next snapshot: the repository's statuses together with the
+     * sensor an event changed, as one snapshot. Writers are serialized so no change is lost;
+     * readers only ever see complete snapshots through the volatile reference.
+     */
+    private synchronized void publish(Sensor changed) {
+        state = state.with(securityRepository.getAlarmStatus(), securityRepository.getArmingStatus(),
+                securityRepository.getCatDetected(), changed);
+    }
+
+    /**
+     * Internal method publishing the repository's statuses together with all sensors an event
+     * changed, as one snapshot.
+     */
+    private synchronized void publish(Collection<Sensor> changed) {
+        state = state.with(securityRepository.getAlarmStatus(), securityRepository.getArmingStatus(),
+                securityRepository.getCatDetected(), changed);
+    }
+
+    private synchronized void publish(UnaryOperator<SystemState> change) {
+        state = change.apply(state);
     }
 
     public AlarmStatus getAlarmStatus() {
@@ -177,15 +497,61 @@ public class SecurityService {
         return securityRepository.getSensors();
     }
 
+    /**
+     * Looks a sensor up by id in the repository.
+     * @return The sensor, or null if the system has none with this id
+     */
+    public Sensor getSensor(UUID sensorId) {
+        return securityRepository.getSensor(sensorId);
+    }
+
     public void addSensor(Sensor sensor) {
         securityRepository.addSensor(sensor);
+        zoneIndex = null;
+        publish(s -> s.withSensor(sensor));
+    }
+
+    /**
+     * Moves a sensor to another zone, keeping the per-zone active counts in step.
+     * @param sensor The sensor to move
+     * @param zone The sensor's new zone
+     */
+    public void changeSensorZone(Sensor sensor, Zone zone) {
+        if (zoneIndex != null && sensor.getActive()) {
+            zoneIndex.sensorChanged(sensor.getZone(), false);
+            zoneIndex.sensorChanged(Zone.orDefault(zone), true);
+        }
+        sensor.setZone(zone);
+        securityRepository.updateSensor(sensor);
+        publish(sensor);
     }
 
     public void removeSensor(Sensor sensor) {
         securityRepository.removeSensor(sensor);
+        zoneIndex = null;
+        publish(s -> s.withoutSensor(sensor.getSensorId()));
     }
 
     public ArmingStatus getArmingStatus() {
         return securityRepository.getArmingStatus();
     }
+
+    /**
+     * Active sensor counts for the rules, answered from the zone index.
+     */
+    private class ActiveSensorCounts implements SensorCounts {
+        @Override
+        public int totalActive() {
+            return getZoneIndex().getTotalActive();
+        }
+
+        @Override
+        public int armedActive(ArmingStatus armingStatus, Sensor excluded) {
+            int active = getZoneIndex().getActiveCount(armingStatus);
+            if (excluded != null && excluded.getActive() && Zone.orDefault(excluded.getZone()).isArmed(armingStatus)) {
+                active--;
+            }
+            return active;
+        }
+    }
 }
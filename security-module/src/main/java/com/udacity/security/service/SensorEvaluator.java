@@ -0,0 +1,87 @@
+package com.udacity.security.service;
+
+import com.udacity.security.data.Sensor;
+import com.udacity.security.data.Zone;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Evaluates aggregates over a flat array snapshot of the sensors. Arrays below the parallel
+ * threshold are scanned sequentially; larger ones are split across the common fork-join pool.
+ *
+ * The threshold defaults to the value of the catpoint.sensors.parallelThreshold system
+ * property; SensorEvaluationBenchmark finds the crossover point for a given machine.
+ */
+public final class SensorEvaluator {
+
+    public static final int PARALLEL_THRESHOLD = Integer.getInteger("catpoint.sensors.parallelThreshold", 1 << 15);
+
+    //smallest slice worth forking
+    private static final int MIN_LEAF_SIZE = 4_096;
+
+    private SensorEvaluator() {
+    }
+
+    /**
+     * @return The number of active sensors per zone; zones without active sensors are omitted
+     */
+    public static Map<Zone, Integer> countActiveByZone(Sensor[] sensors) {
+        return countActiveByZone(sensors, PARALLEL_THRESHOLD);
+    }
+
+    public static Map<Zone, Integer> countActiveByZone(Sensor[] sensors, int parallelThreshold) {
+        if (sensors.length < parallelThreshold) {
+            return countActiveByZone(sensors, 0, sensors.length);
+        }
+        return ForkJoinPool.commonPool().invoke(
+                new CountActiveByZoneTask(sensors, 0, sensors.length, leafSize(sensors.length)));
+    }
+
+    private static int leafSize(int length) {
+        return Math.max(MIN_LEAF_SIZE, length / (ForkJoinPool.getCommonPoolParallelism() * 4));
+    }
+
+    private static Map<Zone, Integer> countActiveByZone(Sensor[] sensors, int from, int to) {
+        Map<Zone, Integer> counts = new HashMap<>();
+        for (int i = from; i < to; i++) {
+            Sensor sensor = sensors[i];
+            if (Boolean.TRUE.equals(sensor.getActive())) {
+                counts.merge(Zone.orDefault(sensor.getZone()), 1, Integer::sum);
+            }
+        }
+        return counts;
+    }
+
+    /**
+     * Counts the active sensors of a slice per zone, merging the counts of both halves.
+     */
+    private static class CountActiveByZoneTask extends RecursiveTask<Map<Zone, Integer>> {
+        private final Sensor[] sensors;
+        private final int from;
+        private final int to;
+        private final int leafSize;
+
+        private CountActiveByZoneTask(Sensor[] sensors, int from, int to, int leafSize) {
+            this.sensors = sensors;
+            this.from = from;
+            this.to = to;
+            this.leafSize = leafSize;
+        }
+
+        @Override
+        protected Map<Zone, Integer> compute() {
+            if (to - from <= leafSize) {
+                return countActiveByZone(sensors, from, to);
+            }
+            int middle = (from + to) >>> 1;
+            CountActiveByZoneTask right = new CountActiveByZoneTask(sensors, middle, to, leafSize);
+            right.fork();
+            Map<Zone, Integer> counts = new CountActiveByZoneTask(sensors, from, middle, leafSize).compute();
+            right.join().forEach((zone, count) -> counts.merge(zone, count, Integer::sum));
+            return counts;
+        }
+    }
+}
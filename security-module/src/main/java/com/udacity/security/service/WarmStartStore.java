@@ -0,0 +1,125 @@
+package com.udacity.security.service;
+
+import com.udacity.image.service.Detection;
+import com.udacity.security.data.StateCodec;
+
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Keeps each camera's latest detector result across restarts, so each camera's next image is
+ * decided together with what the other cameras last saw. Frames themselves are never answered
+ * from saved results: the first frame of every camera after a restart is scanned. Alarm, arming
+ * and cat status are restored by the repository itself.
+ *
+ * The file holds the magic bytes "CPWS" and a version byte, then the number of cameras and per
+ * camera its id and result. A result is the label, the confidence and minimum confidence (4
+ * each) and a complete flag (1). Counts are varints and strings as in {@link StateCodec}.
+ */
+public class WarmStartStore {
+
+    private static final int MAGIC = 0x43505753;
+    private static final byte VERSION = 2;
+    //varint prefix and at most three UTF-8 bytes per char
+    private static final int MAX_STRING_OVERHEAD = 5;
+    private static final int MAX_BYTES_PER_CHAR = 3;
+
+    private final Path file;
+
+    /**
+     * @param file Where the state is kept; its directory is created on the first save
+     */
+    public WarmStartStore(Path file) {
+        this.file = file;
+    }
+
+    /**
+     * Writes the state, replacing the previous file only once the new one is complete.
+     */
+    public void save(SecurityService securityService) throws IOException {
+        Map<String, Detection> verdicts = securityService.getDetections();
+
+        int size = 5 + MAX_STRING_OVERHEAD;
+        for (Map.Entry<String, Detection> verdict : verdicts.entrySet()) {
+            size += stringSize(verdict.getKey()) + detectionSize(verdict.getValue());
+        }
+
+        ByteBuffer buffer = ByteBuffer.allocate(size);
+        buffer.putInt(MAGIC).put(VERSION);
+        StateCodec.putVarint(buffer, verdicts.size());
+        for (Map.Entry<String, Detection> verdict : verdicts.entrySet()) {
+            StateCodec.putString(buffer, verdict.getKey());
+            putDetection(buffer, verdict.getValue());
+        }
+
+        Path directory = file.toAbsolutePath().getParent();
+        Files.createDirectories(directory);
+        Path written = Files.createTempFile(directory, file.getFileName().toString(), ".tmp");
+        try {
+            Files.write(written, Arrays.copyOf(buffer.array(), buffer.position()));
+            Files.move(written, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(written);
+        }
+    }
+
+    /**
+     * Loads the saved results into the service.
+     * @return False if nothing was saved yet
+     * @throws IOException If the file cannot be read or is not a warm-start file
+     */
+    public boolean restore(SecurityService securityService) throws IOException {
+        byte[] data;
+        try {
+            data = Files.readAllBytes(file);
+        } catch (NoSuchFileException e) {
+            return false;
+        }
+        ByteBuffer buffer = ByteBuffer.wrap(data);
+        Map<String, Detection> verdicts = new LinkedHashMap<>();
+        try {
+            if (buffer.getInt() != MAGIC) {
+                throw new IOException(file + " is not a warm-start file");
+            }
+            if (buffer.get() != VERSION) {
+                throw new IOException("unsupported warm-start file version");
+            }
+            int cameras = StateCodec.getVarint(buffer);
+            for (int i = 0; i < cameras; i++) {
+                verdicts.put(StateCodec.getString(buffer), getDetection(buffer));
+            }
+        } catch (BufferUnderflowException | IllegalArgumentException e) {
+            throw new IOException(file + " is truncated or corrupt", e);
+        }
+        //applied only once the whole file was read, so a corrupt file restores nothing
+        verdicts.forEach(securityService::restoreDetection);
+        return true;
+    }
+
+    private static void putDetection(ByteBuffer buffer, Detection detection) {
+        StateCodec.putString(buffer, detection.getLabel());
+        buffer.putFloat(detection.getConfidence());
+        buffer.putFloat(detection.getMinConfidence());
+        buffer.put(detection.isComplete() ? (byte) 1 : (byte) 0);
+    }
+
+    private static Detection getDetection(ByteBuffer buffer) {
+        return new Detection(StateCodec.getString(buffer), buffer.getFloat(), buffer.getFloat(), buffer.get() != 0);
+    }
+
+    private static int detectionSize(Detection detection) {
+        return stringSize(detection.getLabel()) + 2 * Float.BYTES + 1;
+    }
+
+    private static int stringSize(String s) {
+        return MAX_STRING_OVERHEAD + (s == null ? 0 : s.length() * MAX_BYTES_PER_CHAR);
+    }
+}
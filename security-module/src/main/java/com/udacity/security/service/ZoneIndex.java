@@ -0,0 +1,72 @@
+package com.udacity.security.service;
+
+import com.udacity.security.data.ArmingStatus;
+import com.udacity.security.data.Sensor;
+import com.udacity.security.data.Zone;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Active sensor counters per zone, maintained incrementally as sensors change so alarm
+ * decisions never have to scan the sensors. Besides the per-zone counts it keeps the totals
+ * each arming mode needs, making those lookups O(1).
+ */
+public class ZoneIndex {
+
+    private final Map<Zone, int[]> activeByZone = new HashMap<>();
+    private int totalActive;
+    private int activeArmedWhenHome;
+
+    /**
+     * @return An index of the active sensors in the given snapshot
+     */
+    static ZoneIndex of(Sensor[] sensors) {
+        ZoneIndex index = new ZoneIndex();
+        SensorEvaluator.countActiveByZone(sensors).forEach(index::add);
+        return index;
+    }
+
+    /**
+     * Records that a sensor in the given zone became active or inactive.
+     */
+    void sensorChanged(Zone zone, boolean active) {
+        add(zone, active ? 1 : -1);
+    }
+
+    /**
+     * Records that every sensor has been deactivated.
+     */
+    void clearActive() {
+        activeByZone.clear();
+        totalActive = 0;
+        activeArmedWhenHome = 0;
+    }
+
+    private void add(Zone zone, int delta) {
+        activeByZone.computeIfAbsent(zone, z -> new int[1])[0] += delta;
+        totalActive += delta;
+        if (zone.isArmedWhenHome()) {
+            activeArmedWhenHome += delta;
+        }
+    }
+
+    /**
+     * @return The number of active sensors in the zone
+     */
+    public int getActiveCount(Zone zone) {
+        int[] count = activeByZone.get(zone);
+        return count == null ? 0 : count[0];
+    }
+
+    /**
+     * @return The number of active sensors in the zones armed under the given arming status
+     */
+    public int getActiveCount(ArmingStatus armingStatus) {
+        return armingStatus == ArmingStatus.ARMED_HOME ? activeArmedWhenHome : totalActive;
+    }
+
+    public int getTotalActive() {
+        return totalActive;
+    }
+}
@@ -0,0 +1,142 @@
+package com.udacity.security.tenant;
+
+import com.udacity.image.service.ImageService;
+import com.udacity.security.application.StatusListener;
+import com.udacity.security.data.SecurityRepository;
+import com.udacity.security.service.SecurityService;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * Hosts the security systems of many premises in one process.
+ *
+ * Tenants are sharded by id across a fixed set of single-threaded event loops. A tenant's
+ * repository and SecurityService are created and only ever touched on its shard's thread, so
+ * no locking is needed inside a tenant and shards never contend with each other. Tenants are
+ * created on first use.
+ */
+public class TenantEngine implements AutoCloseable {
+
+    private final Shard[] shards;
+    private final Function<String, SecurityRepository> repositoryFactory;
+    private final ImageService imageService;
+
+    /**
+     * Creates an engine with one shard per available processor.
+     */
+    public TenantEngine(Function<String, SecurityRepository> repositoryFactory, ImageService imageService) {
+        this(Runtime.getRuntime().availableProcessors(), repositoryFactory, imageService);
+    }
+
+    /**
+     * @param shardCount Number of event loops
+     * @param repositoryFactory Creates the repository of a new tenant, given its id
+     * @param imageService Image service shared by all tenants; it must be thread safe
+     */
+    public TenantEngine(int shardCount, Function<String, SecurityRepository> repositoryFactory,
+                        ImageService imageService) {
+        if (shardCount <= 0) {
+            throw new IllegalArgumentException("At least one shard is required");
+        }
+        this.repositoryFactory = repositoryFactory;
+        this.imageService = imageService;
+        this.shards = new Shard[shardCount];
+        for (int i = 0; i < shardCount; i++) {
+            shards[i] = new Shard(i);
+        }
+    }
+
+    /**
+     * Runs an operation against a tenant's SecurityService on the tenant's shard.
+     * @return Future completed with the operation's result
+     */
+    public <T> CompletableFuture<T> submit(String tenantId, Function<SecurityService, T> operation) {
+        Shard shard = shardFor(tenantId);
+        return CompletableFuture.supplyAsync(() -> operation.apply(shard.tenant(tenantId)), shard.executor);
+    }
+
+    /**
+     * Runs an operation against a tenant's SecurityService on the tenant's shard, without
+     * waiting for it.
+     */
+    public void execute(String tenantId, Consumer<SecurityService> operation) {
+        Shard shard = shardFor(tenantId);
+        shard.executor.execute(() -> operation.accept(shard.tenant(tenantId)));
+    }
+
+    /**
+     * Registers a listener for a tenant. The listener is notified on the tenant's shard thread.
+     */
+    public void addStatusListener(String tenantId, StatusListener statusListener) {
+        execute(tenantId, securityService -> securityService.addStatusListener(statusListener));
+    }
+
+    /**
+     * Drops a tenant's in-memory state. The next operation for the tenant creates it again.
+     */
+    public CompletableFuture<Boolean> removeTenant(String tenantId) {
+        Shard shard = shardFor(tenantId);
+        return CompletableFuture.supplyAsync(() -> shard.tenants.remove(tenantId) != null, shard.executor);
+    }
+
+    /**
+     * @return The executor of the tenant's shard, for components such as timers that need to
+     * call back into the tenant's SecurityService.
+     */
+    public Executor executorFor(String tenantId) {
+        return shardFor(tenantId).executor;
+    }
+
+    public int getShardCount() {
+        return shards.length;
+    }
+
+    private Shard shardFor(String tenantId) {
+        //spread the hash so tenant ids sharing a suffix pattern don't pile onto one shard
+        int hash = tenantId.hashCode();
+        return shards[Math.floorMod(hash ^ (hash >>> 16), shards.length)];
+    }
+
+    /**
+     * Stops all shards after the operations already submitted have run.
+     */
+    @Override
+    public void close() throws InterruptedException {
+        for (Shard shard : shards) {
+            shard.executor.shutdown();
+        }
+        for (Shard shard : shards) {
+            shard.executor.awaitTermination(1, TimeUnit.MINUTES);
+        }
+    }
+
+    /**
+     * One event loop and the tenants it owns. The tenant map is confined to the loop's thread.
+     */
+    private class Shard {
+        private final ExecutorService executor;
+        private final Map<String, SecurityService> tenants = new HashMap<>();
+
+        private Shard(int index) {
+            executor = Executors.newSingleThreadExecutor(r -> {
+                Thread thread = new Thread(r, "tenant-shard-" + index);
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+
+        private SecurityService tenant(String tenantId) {
+            return tenants.computeIfAbsent(tenantId, id ->
+                    new SecurityService(repositoryFactory.apply(id), imageService, new HashSet<>()));
+        }
+    }
+}
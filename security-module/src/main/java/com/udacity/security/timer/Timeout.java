@@ -0,0 +1,46 @@
+package com.udacity.security.timer;
+
+/**
+ * Handle for a task scheduled on a {@link TimerWheel}. Doubles as the intrusive list node of
+ * the wheel bucket it sits in, which is what makes cancellation O(1).
+ */
+public final class Timeout {
+
+    private final TimerWheel wheel;
+    private final Runnable task;
+    final long deadlineTick;
+
+    //bucket links, only touched while holding the wheel lock
+    Timeout prev;
+    Timeout next;
+    int level;
+    int index;
+    boolean scheduled;
+    private boolean cancelled;
+
+    Timeout(TimerWheel wheel, Runnable task, long deadlineTick) {
+        this.wheel = wheel;
+        this.task = task;
+        this.deadlineTick = deadlineTick;
+    }
+
+    /**
+     * Cancels the task if it has not run yet.
+     * @return True if the task was still pending
+     */
+    public boolean cancel() {
+        return wheel.cancel(this);
+    }
+
+    public boolean isCancelled() {
+        return cancelled;
+    }
+
+    void markCancelled() {
+        cancelled = true;
+    }
+
+    void run() {
+        task.run();
+    }
+}
@@ -0,0 +1,203 @@
+package com.udacity.security.timer;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Hierarchical timer wheel. Level zero has one bucket per tick; every further level has buckets
+ * spanning a whole revolution of the level below. A timer is hashed into the lowest level able
+ * to hold its deadline, and is cascaded down a level whenever the wheel below wraps around to
+ * its bucket. Scheduling and cancelling are therefore O(1), each timer is moved at most once per
+ * level, and one thread drives any number of timers. Deadlines are rounded up to whole ticks.
+ *
+ * The wheel can be driven manually through {@link #advanceTo(long)}, or by its own daemon
+ * thread after {@link #start()}. Expired tasks run on the advancing thread, outside the wheel
+ * lock, so they are free to schedule or cancel other timers.
+ */
+public class TimerWheel implements AutoCloseable {
+
+    private static final int DEFAULT_LEVELS = 4;
+
+    private final long tickMillis;
+    private final long startMillis;
+    private final Timeout[][] wheels;
+    private final int bits;
+    private final int mask;
+    private final Object lock = new Object();
+
+    private long currentTick;
+    private ScheduledExecutorService ticker;
+
+    /**
+     * @param tickMillis Resolution of the wheel
+     * @param wheelSize Number of buckets per level, rounded up to a power of two
+     * @param startMillis Time corresponding to tick zero
+     */
+    public TimerWheel(long tickMillis, int wheelSize, long startMillis) {
+        this(tickMillis, wheelSize, DEFAULT_LEVELS, startMillis);
+    }
+
+    /**
+     * @param tickMillis Resolution of the wheel
+     * @param wheelSize Number of buckets per level, rounded up to a power of two
+     * @param levels Number of levels; timers beyond the top level's span are re-hashed on wrap
+     * @param startMillis Time corresponding to tick zero
+     */
+    public TimerWheel(long tickMillis, int wheelSize, int levels, long startMillis) {
+        if (tickMillis <= 0 || wheelSize < 2 || levels <= 0) {
+            throw new IllegalArgumentException("Tick, wheel size and levels must be positive");
+        }
+        this.bits = Integer.SIZE - Integer.numberOfLeadingZeros(wheelSize - 1);
+        if ((long) bits * levels >= Long.SIZE - 1) {
+            throw new IllegalArgumentException("Wheel span does not fit in a long");
+        }
+        this.tickMillis = tickMillis;
+        this.startMillis = startMillis;
+        this.wheels = new Timeout[levels][1 << bits];
+        this.mask = (1 << bits) - 1;
+    }
+
+    public long getTickMillis() {
+        return tickMillis;
+    }
+
+    /**
+     * Schedules a task to run after the given delay, measured from the wheel's current time.
+     */
+    public Timeout schedule(Runnable task, long delayMillis) {
+        synchronized (lock) {
+            long ticks = Math.max(1, (delayMillis + tickMillis - 1) / tickMillis);
+            Timeout timeout = new Timeout(this, task, currentTick + ticks);
+            link(timeout);
+            return timeout;
+        }
+    }
+
+    boolean cancel(Timeout timeout) {
+        synchronized (lock) {
+            if (!timeout.scheduled) {
+                return false;
+            }
+            unlink(timeout);
+            timeout.markCancelled();
+            return true;
+        }
+    }
+
+    /**
+     * Advances the wheel up to the given time, running every task that has expired on the way.
+     */
+    public void advanceTo(long nowMillis) {
+        //expired timers are chained in deadline order and run once the lock is released
+        Timeout expired = null;
+        Timeout last = null;
+        synchronized (lock) {
+            long targetTick = (nowMillis - startMillis) / tickMillis;
+            while (currentTick < targetTick) {
+                currentTick++;
+                cascade();
+                Timeout[] wheel = wheels[0];
+                int index = (int) (currentTick & mask);
+                Timeout timeout = wheel[index];
+                while (timeout != null) {
+                    Timeout next = timeout.next;
+                    unlink(timeout);
+                    if (last == null) {
+                        expired = timeout;
+                    } else {
+                        last.next = timeout;
+                    }
+                    last = timeout;
+                    timeout = next;
+                }
+            }
+        }
+        while (expired != null) {
+            Timeout next = expired.next;
+            expired.next = null;
+            expired.run();
+            expired = next;
+        }
+    }
+
+    /**
+     * Re-hashes the buckets of every higher level whose lower level has just wrapped around.
+     */
+    private void cascade() {
+        for (int level = 1; level < wheels.length; level++) {
+            int shift = bits * level;
+            if ((currentTick & ((1L << shift) - 1)) != 0) {
+                return;
+            }
+            int index = (int) ((currentTick >>> shift) & mask);
+            Timeout timeout = wheels[level][index];
+            wheels[level][index] = null;
+            while (timeout != null) {
+                Timeout next = timeout.next;
+                timeout.prev = null;
+                timeout.next = null;
+                link(timeout);
+                timeout = next;
+            }
+        }
+    }
+
+    /**
+     * Starts a daemon thread that advances the wheel once per tick using the system clock.
+     */
+    public synchronized void start() {
+        if (ticker != null) {
+            return;
+        }
+        ticker = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "timer-wheel");
+            thread.setDaemon(true);
+            return thread;
+        });
+        ticker.scheduleAtFixedRate(() -> advanceTo(System.currentTimeMillis()),
+                tickMillis, tickMillis, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public synchronized void close() {
+        if (ticker != null) {
+            ticker.shutdownNow();
+            ticker = null;
+        }
+    }
+
+    private void link(Timeout timeout) {
+        //overdue timers (only possible while cascading) land in the current tick's bucket
+        long deadline = Math.max(timeout.deadlineTick, currentTick);
+        long ticks = deadline - currentTick;
+        int level = 0;
+        while (level < wheels.length - 1 && ticks >= 1L << (bits * (level + 1))) {
+            level++;
+        }
+        int index = (int) ((deadline >>> (bits * level)) & mask);
+        Timeout head = wheels[level][index];
+        timeout.next = head;
+        if (head != null) {
+            head.prev = timeout;
+        }
+        wheels[level][index] = timeout;
+        timeout.level = level;
+        timeout.index = index;
+        timeout.scheduled = true;
+    }
+
+    private void unlink(Timeout timeout) {
+        if (timeout.prev != null) {
+            timeout.prev.next = timeout.next;
+        } else {
+            wheels[timeout.level][timeout.index] = timeout.next;
+        }
+        if (timeout.next != null) {
+            timeout.next.prev = timeout.prev;
+        }
+        timeout.prev = null;
+        timeout.next = null;
+        timeout.scheduled = false;
+    }
+}
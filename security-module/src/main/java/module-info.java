@@ -6,6 +6,7 @@ module com.udacity.security {
     requires gson;
     requires java.prefs;
     requires java.sql;
+    requires org.slf4j;
     requires jdk.unsupported;
     opens com.udacity.security.data to gson;
 }
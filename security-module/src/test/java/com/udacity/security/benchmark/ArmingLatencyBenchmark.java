@@ -0,0 +1,87 @@
+package com.udacity.security.benchmark;
+
+import com.udacity.image.service.FakeImageService;
+import com.udacity.security.data.ArmingStatus;
+import com.udacity.security.data.InMemorySecurityRepositoryImpl;
+import com.udacity.security.data.Sensor;
+import com.udacity.security.data.SensorType;
+import com.udacity.security.data.StateCodec;
+import com.udacity.security.service.SecurityService;
+
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures how long arming takes when every sensor is active, with per-sensor persistence
+ * (one full serialization per sensor, as before bulk updates) and with one bulk write.
+ *
+ * Preferences cap values at 8KB, so the persisted write is modelled by encoding the sensor
+ * set exactly like PretendDatabaseSecurityRepositoryImpl does, without storing it.
+ *
+ * Run with: java -cp [test classpath] com.udacity.security.benchmark.ArmingLatencyBenchmark
+ */
+public class ArmingLatencyBenchmark {
+
+    private static final int[] SENSOR_COUNTS = {10, 100, 1_000, 5_000, 10_000};
+    private static final int ROUNDS = 5;
+
+    public static void main(String[] args) {
+        System.out.printf("%8s %16s %16s%n", "sensors", "per-sensor (ms)", "bulk (ms)");
+        for (int count : SENSOR_COUNTS) {
+            //skip the quadratic path where it would take minutes
+            double perSensor = count <= 5_000 ? armingMillis(count, false) : Double.NaN;
+            double bulk = armingMillis(count, true);
+            System.out.printf("%8d %16.2f %16.2f%n", count, perSensor, bulk);
+        }
+    }
+
+    /**
+     * @return The best arming time over a few rounds, in milliseconds
+     */
+    private static double armingMillis(int sensorCount, boolean bulk) {
+        long best = Long.MAX_VALUE;
+        for (int round = 0; round < ROUNDS; round++) {
+            SerializingRepository repository = new SerializingRepository(bulk);
+            SecurityService securityService = new SecurityService(repository, new FakeImageService(), new HashSet<>());
+            for (int i = 0; i < sensorCount; i++) {
+                Sensor sensor = new Sensor("Sensor " + i, SensorType.values()[i % SensorType.values().length]);
+                sensor.setActive(true);
+                repository.getSensors().add(sensor);
+            }
+
+            long start = System.nanoTime();
+            securityService.setArmingStatus(ArmingStatus.ARMED_AWAY);
+            best = Math.min(best, System.nanoTime() - start);
+        }
+        return best / (double) TimeUnit.MILLISECONDS.toNanos(1);
+    }
+
+    /**
+     * In-memory repository that serializes the whole sensor set on every sensor write.
+     */
+    private static class SerializingRepository extends InMemorySecurityRepositoryImpl {
+        private final boolean bulk;
+        private long serializedBytes;
+
+        private SerializingRepository(boolean bulk) {
+            this.bulk = bulk;
+        }
+
+        @Override
+        public void updateSensor(Sensor sensor) {
+            super.updateSensor(sensor);
+            serializedBytes += StateCodec.encodeSensors(getSensors()).length;
+        }
+
+        @Override
+        public void updateSensors(Collection<Sensor> sensors) {
+            if (bulk) {
+                super.updateSensors(sensors);
+                serializedBytes += StateCodec.encodeSensors(getSensors()).length;
+            } else {
+                sensors.forEach(this::updateSensor);
+            }
+        }
+    }
+}
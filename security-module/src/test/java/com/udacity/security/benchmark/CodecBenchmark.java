@@ -0,0 +1,74 @@
+package com.udacity.security.benchmark;
+
+import com.google.common.reflect.TypeToken;
+import com.google.gson.Gson;
+import com.udacity.security.data.Sensor;
+import com.udacity.security.data.SensorType;
+import com.udacity.security.data.StateCodec;
+import com.udacity.security.data.Zone;
+
+import java.lang.reflect.Type;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.function.Supplier;
+
+/**
+ * Compares the binary sensor format of StateCodec with the Gson JSON previously used for
+ * persistence: encoded size, and encode and decode time for sensor sets of growing size.
+ *
+ * Run with: java -cp [test classpath] com.udacity.security.benchmark.CodecBenchmark
+ */
+public class CodecBenchmark {
+
+    private static final int[] SENSOR_COUNTS = {10, 100, 1_000, 10_000};
+    private static final int ROUNDS = 21;
+    private static final Type SENSOR_SET = new TypeToken<Set<Sensor>>() {
+    }.getType();
+
+    private static final Gson gson = new Gson();
+
+    //keeps results alive so the work is not optimized away
+    private static long sink;
+
+    public static void main(String[] args) {
+        System.out.printf("%8s %12s %12s %14s %14s %14s %14s%n", "sensors", "json (B)", "binary (B)",
+                "gson enc (us)", "bin enc (us)", "gson dec (us)", "bin dec (us)");
+        for (int count : SENSOR_COUNTS) {
+            Set<Sensor> sensors = new TreeSet<>();
+            for (int i = 0; i < count; i++) {
+                Sensor sensor = new Sensor("Sensor " + i, SensorType.values()[i % SensorType.values().length],
+                        i % 2 == 0 ? Zone.PERIMETER : Zone.INTERIOR);
+                sensor.setActive(i % 3 == 0);
+                sensors.add(sensor);
+            }
+            String json = gson.toJson(sensors);
+            byte[] binary = StateCodec.encodeSensors(sensors);
+
+            //both warm up during the first rounds, the median ignores them
+            double gsonEncode = medianMicros(() -> gson.toJson(sensors).getBytes(StandardCharsets.UTF_8).length);
+            double binaryEncode = medianMicros(() -> StateCodec.encodeSensors(sensors).length);
+            double gsonDecode = medianMicros(() -> gson.<Set<Sensor>>fromJson(json, SENSOR_SET).size());
+            double binaryDecode = medianMicros(() -> StateCodec.decodeSensors(binary).size());
+            System.out.printf("%8d %12d %12d %14.1f %14.1f %14.1f %14.1f%n", count,
+                    json.getBytes(StandardCharsets.UTF_8).length, binary.length,
+                    gsonEncode, binaryEncode, gsonDecode, binaryDecode);
+        }
+        System.out.println("checksum " + sink);
+    }
+
+    private static double medianMicros(Supplier<Integer> run) {
+        long[] times = new long[ROUNDS];
+        for (int round = 0; round < ROUNDS; round++) {
+            long start = System.nanoTime();
+            //repeat each run so small sets are not lost in timer resolution
+            for (int i = 0; i < 50; i++) {
+                sink += run.get();
+            }
+            times[round] = (System.nanoTime() - start) / 50;
+        }
+        Arrays.sort(times);
+        return times[ROUNDS / 2] / 1_000.0;
+    }
+}
@@ -0,0 +1,141 @@
+package com.udacity.security.benchmark;
+
+import com.udacity.security.data.ArmingStatus;
+import com.udacity.security.data.InMemorySecurityRepositoryImpl;
+import com.udacity.security.data.OffHeapSecurityRepositoryImpl;
+import com.udacity.security.data.SecurityRepository;
+import com.udacity.security.data.Sensor;
+import com.udacity.security.data.SensorType;
+import com.udacity.security.data.Zone;
+import com.udacity.security.service.SecurityService;
+
+import java.lang.management.ManagementFactory;
+import java.util.HashSet;
+import java.util.function.IntFunction;
+
+/**
+ * Compares the heap a fleet of sensors occupies, and the full collection pause it causes, in the
+ * in-memory repository and the off-heap one, for fleets of growing size. Each repository is
+ * measured on its own and with a {@link SecurityService} on top. For the service, the bytes
+ * allocated by one sensor event are measured as well; publishing the event copies the snapshot's
+ * path to the changed sensor.
+ *
+ * On the off-heap store, neither the repository nor the service keeps anything per sensor on
+ * the heap, so the run fails if the service's heap grows with the fleet by more than the
+ * tolerance.
+ *
+ * Run with: java -cp [test classpath] com.udacity.security.benchmark.FleetHeapBenchmark
+ */
+public class FleetHeapBenchmark {
+
+    private static final int[] SENSOR_COUNTS = {10_000, 100_000, 500_000};
+    private static final int ROUNDS = 5;
+    private static final int EVENTS = 100;
+    private static final long FLAT_HEAP_TOLERANCE = 2_000_000;
+
+    public static void main(String[] args) {
+        System.out.printf("%8s %10s %16s %16s %16s %16s %16s%n", "sensors", "store", "repo heap (MB)",
+                "repo gc (ms)", "service heap (MB)", "service gc (ms)", "bytes/event");
+        long smallestOffHeap = Long.MAX_VALUE;
+        long largestOffHeap = Long.MIN_VALUE;
+        for (int count : SENSOR_COUNTS) {
+            report(count, "heap", capacity -> new InMemorySecurityRepositoryImpl());
+            long offHeap = report(count, "off-heap", OffHeapSecurityRepositoryImpl::new);
+            smallestOffHeap = Math.min(smallestOffHeap, offHeap);
+            largestOffHeap = Math.max(largestOffHeap, offHeap);
+        }
+        if (largestOffHeap - smallestOffHeap > FLAT_HEAP_TOLERANCE) {
+            throw new IllegalStateException(String.format("service heap on the off-heap store grows with the "
+                    + "fleet: %.1f MB to %.1f MB", smallestOffHeap / 1e6, largestOffHeap / 1e6));
+        }
+    }
+
+    /**
+     * @return The heap retained by the repository with the service on top
+     */
+    private static long report(int count, String store, IntFunction<SecurityRepository> factory) {
+        long baseline = usedHeap();
+        double baselineGc = fullGcMillis();
+        Measurement repository = measure(count, factory, false);
+        Measurement service = measure(count, factory, true);
+        System.out.printf("%8d %10s %16.1f %16.1f %16.1f %16.1f %16d%n", count, store,
+                (repository.heapBytes - baseline) / 1e6, repository.gcMillis - baselineGc,
+                (service.heapBytes - baseline) / 1e6, service.gcMillis - baselineGc, service.bytesPerEvent);
+        return service.heapBytes - baseline;
+    }
+
+    private static Measurement measure(int count, IntFunction<SecurityRepository> factory, boolean withService) {
+        SecurityRepository repository = factory.apply(count);
+        for (int i = 0; i < count; i++) {
+            Sensor sensor = new Sensor("Sensor " + i, SensorType.values()[i % SensorType.values().length],
+                    i % 2 == 0 ? Zone.PERIMETER : Zone.INTERIOR);
+            sensor.setActive(i % 3 == 0);
+            repository.addSensor(sensor);
+        }
+        SecurityService securityService = null;
+        long bytesPerEvent = 0;
+        if (withService) {
+            securityService = new SecurityService(repository, (image, confidenceThreshold) -> false, new HashSet<>());
+            securityService.setArmingStatus(ArmingStatus.ARMED_HOME);
+            //builds the zone index, as the first sensor event would
+            securityService.getZoneIndex();
+            bytesPerEvent = bytesPerEvent(securityService, repository.getSensors().iterator().next());
+        }
+        Measurement measurement = new Measurement(usedHeap(), fullGcMillis(), bytesPerEvent);
+        //keeps the repository and the service reachable until they were measured
+        if (repository.getSensors().size() != count
+                || (securityService != null && securityService.getState().getSensorCount() != count)) {
+            throw new IllegalStateException("lost sensors");
+        }
+        return measurement;
+    }
+
+    private static long bytesPerEvent(SecurityService securityService, Sensor sensor) {
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long thread = Thread.currentThread().getId();
+        long before = threads.getThreadAllocatedBytes(thread);
+        for (int event = 0; event < EVENTS; event++) {
+            securityService.changeSensorActivationStatus(sensor, !sensor.getActive());
+        }
+        return (threads.getThreadAllocatedBytes(thread) - before) / EVENTS;
+    }
+
+    /**
+     * @return The smallest heap use seen after several full collections, as a single one may
+     * leave garbage behind
+     */
+    private static long usedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        long least = Long.MAX_VALUE;
+        for (int round = 0; round < ROUNDS; round++) {
+            System.gc();
+            least = Math.min(least, runtime.totalMemory() - runtime.freeMemory());
+        }
+        return least;
+    }
+
+    /**
+     * @return The shortest of several full collections, which trace every live object
+     */
+    private static double fullGcMillis() {
+        long best = Long.MAX_VALUE;
+        for (int round = 0; round < ROUNDS; round++) {
+            long start = System.nanoTime();
+            System.gc();
+            best = Math.min(best, System.nanoTime() - start);
+        }
+        return best / 1e6;
+    }
+
+    private static final class Measurement {
+        private final long heapBytes;
+        private final double gcMillis;
+        private final long bytesPerEvent;
+
+        private Measurement(long heapBytes, double gcMillis, long bytesPerEvent) {
+            this.heapBytes = heapBytes;
+            this.gcMillis = gcMillis;
+            this.bytesPerEvent = bytesPerEvent;
+        }
+    }
+}
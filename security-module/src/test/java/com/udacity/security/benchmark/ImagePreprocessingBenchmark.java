@@ -0,0 +1,106 @@
+package com.udacity.security.benchmark;
+
+import com.udacity.image.pool.ImagePools;
+import com.udacity.image.pool.PooledImageOutputStream;
+import com.udacity.image.preprocess.ImagePreprocessor;
+import com.udacity.image.preprocess.Resampler;
+
+import javax.imageio.ImageIO;
+import javax.swing.ImageIcon;
+import java.awt.Image;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Compares JPEG encoding a full camera frame, as AwsImageService did for every scan, with
+ * encoding the frame after preprocessing; and the ImagePanel's SCALE_SMOOTH display scaling
+ * with the bilinear resampler. Frames are noisy so the encoder cannot compress them trivially.
+ * Also compares encoding into a growing byte array with encoding into pooled direct buffers,
+ * and prints the hit rates of the shared pools.
+ *
+ * Run with: java -cp [test classpath] com.udacity.security.benchmark.ImagePreprocessingBenchmark
+ */
+public class ImagePreprocessingBenchmark {
+
+    private static final int ROUNDS = 15;
+
+    public static void main(String[] args) {
+        BufferedImage frame = noisyFrame(1920, 1080);
+        ImagePreprocessor preprocessor = new ImagePreprocessor(640, 640);
+
+        System.out.printf("%-28s %12s %12s%n", "", "time (ms)", "jpeg bytes");
+        System.out.printf("%-28s %12.2f %12d%n", "encode full frame",
+                medianMillis(() -> jpegSize(frame)), jpegSize(frame));
+        System.out.printf("%-28s %12.2f %12d%n", "preprocess + encode",
+                medianMillis(() -> {
+                    BufferedImage processed = preprocessor.process(frame);
+                    int size = jpegSize(processed);
+                    preprocessor.release(processed);
+                    return size;
+                }), jpegSize(preprocessor.process(frame)));
+        System.out.printf("%-28s %12.2f %12d%n", "preprocess + pooled encode",
+                medianMillis(() -> {
+                    BufferedImage processed = preprocessor.process(frame);
+                    int size = pooledJpegSize(processed);
+                    preprocessor.release(processed);
+                    return size;
+                }), pooledJpegSize(preprocessor.process(frame)));
+        System.out.printf("%-28s %12.2f%n", "display, SCALE_SMOOTH",
+                medianMillis(() -> new ImageIcon(frame.getScaledInstance(300, 225, Image.SCALE_SMOOTH)).getIconWidth()));
+        System.out.printf("%-28s %12.2f%n", "display, bilinear",
+                medianMillis(() -> Resampler.scale(frame, 300, 225, BufferedImage.TYPE_INT_RGB).getWidth()));
+        System.out.println("image pool: " + ImagePools.IMAGES.getMetrics());
+        System.out.println("byte pool:  " + ImagePools.BYTES.getMetrics());
+    }
+
+    private static BufferedImage noisyFrame(int width, int height) {
+        BufferedImage frame = new BufferedImage(width, height, BufferedImage.TYPE_3BYTE_BGR);
+        Random random = new Random(42);
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                int base = (x * 255 / width) << 16 | (y * 255 / height) << 8;
+                frame.setRGB(x, y, base | random.nextInt(64));
+            }
+        }
+        return frame;
+    }
+
+    private static int jpegSize(BufferedImage image) {
+        try (ByteArrayOutputStream os = new ByteArrayOutputStream()) {
+            ImageIO.write(image, "jpg", os);
+            return os.size();
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static int pooledJpegSize(BufferedImage image) {
+        try (PooledImageOutputStream os = new PooledImageOutputStream(ImagePools.BYTES)) {
+            ImageIO.write(image, "jpg", os);
+            return (int) os.length();
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static double medianMillis(Measured measured) {
+        long[] times = new long[ROUNDS];
+        for (int i = 0; i < ROUNDS; i++) {
+            long start = System.nanoTime();
+            sink += measured.run();
+            times[i] = System.nanoTime() - start;
+        }
+        Arrays.sort(times);
+        return times[ROUNDS / 2] / 1_000_000.0;
+    }
+
+    private interface Measured {
+        int run();
+    }
+
+    //keeps the JIT from discarding the work
+    private static int sink;
+}
@@ -0,0 +1,148 @@
+package com.udacity.security.benchmark;
+
+import com.udacity.security.data.AlarmStatus;
+import com.udacity.security.data.ArmingStatus;
+import com.udacity.security.data.Sensor;
+import com.udacity.security.data.SensorType;
+import com.udacity.security.data.Zone;
+import com.udacity.security.rules.DecisionTable;
+import com.udacity.security.rules.DefaultRules;
+import com.udacity.security.rules.EventType;
+import com.udacity.security.rules.RuleEvent;
+import com.udacity.security.rules.SensorCounts;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.function.IntSupplier;
+
+/**
+ * Compares the decision table compiled from the default rules with the switch statements it
+ * replaced, over a random mix of events and system statuses. Both sides answer the "all sensors
+ * off" questions from the same constant counts, so only the decision logic is measured.
+ *
+ * Run with: java -cp [test classpath] com.udacity.security.benchmark.RuleEvaluationBenchmark
+ */
+public class RuleEvaluationBenchmark {
+
+    private static final int EVENTS = 1 << 16;
+    private static final int WARMUP_ROUNDS = 200;
+    private static final int ROUNDS = 51;
+
+    private static final EventType[] TYPES = new EventType[EVENTS];
+    private static final ArmingStatus[] ARMING = new ArmingStatus[EVENTS];
+    private static final AlarmStatus[] ALARM = new AlarmStatus[EVENTS];
+    private static final Sensor[] SENSORS = new Sensor[EVENTS];
+    private static final boolean[] CATS = new boolean[EVENTS];
+
+    private static final SensorCounts COUNTS = new SensorCounts() {
+        @Override
+        public int totalActive() {
+            return 0;
+        }
+
+        @Override
+        public int armedActive(ArmingStatus armingStatus, Sensor excluded) {
+            return 0;
+        }
+    };
+
+    public static void main(String[] args) {
+        Random random = new Random(42);
+        Sensor[] sensors = {
+                new Sensor("Door", SensorType.DOOR),
+                new Sensor("Window", SensorType.WINDOW, Zone.PERIMETER),
+                new Sensor("Hall", SensorType.MOTION, Zone.INTERIOR)};
+        for (int i = 0; i < EVENTS; i++) {
+            TYPES[i] = EventType.values()[random.nextInt(EventType.values().length)];
+            ARMING[i] = ArmingStatus.values()[random.nextInt(ArmingStatus.values().length)];
+            ALARM[i] = AlarmStatus.values()[random.nextInt(AlarmStatus.values().length)];
+            SENSORS[i] = sensors[random.nextInt(sensors.length)];
+            CATS[i] = random.nextBoolean();
+        }
+
+        DecisionTable table = DecisionTable.compile(DefaultRules.create());
+        RuleEvent event = new RuleEvent(COUNTS);
+        for (int i = 0; i < EVENTS; i++) {
+            if (table.evaluate(event.set(TYPES[i], ARMING[i], ALARM[i], SENSORS[i], CATS[i], 0L)) != legacy(i)) {
+                throw new IllegalStateException("decision table disagrees with the legacy logic for event " + i);
+            }
+        }
+
+        System.out.printf("decision table: %6.2f ns/event%n", medianNanosPerEvent(() -> runTable(table, event)));
+        System.out.printf("switch logic:   %6.2f ns/event%n", medianNanosPerEvent(RuleEvaluationBenchmark::runLegacy));
+    }
+
+    private static int runTable(DecisionTable table, RuleEvent event) {
+        int changes = 0;
+        for (int i = 0; i < EVENTS; i++) {
+            if (table.evaluate(event.set(TYPES[i], ARMING[i], ALARM[i], SENSORS[i], CATS[i], 0L)) != null) {
+                changes++;
+            }
+        }
+        return changes;
+    }
+
+    private static int runLegacy() {
+        int changes = 0;
+        for (int i = 0; i < EVENTS; i++) {
+            if (legacy(i) != null) {
+                changes++;
+            }
+        }
+        return changes;
+    }
+
+    /**
+     * The alarm decisions as SecurityService made them before the rules, with the zone check.
+     */
+    private static AlarmStatus legacy(int i) {
+        ArmingStatus arming = ARMING[i];
+        AlarmStatus alarm = ALARM[i];
+        Sensor sensor = SENSORS[i];
+        switch (TYPES[i]) {
+            case ARMING_CHANGED:
+                if (arming == ArmingStatus.DISARMED) {
+                    return AlarmStatus.NO_ALARM;
+                }
+                return arming == ArmingStatus.ARMED_HOME && CATS[i] ? AlarmStatus.ALARM : null;
+            case SENSOR_ACTIVATED:
+                if (arming == ArmingStatus.DISARMED || !Zone.orDefault(sensor.getZone()).isArmed(arming)) {
+                    return null;
+                }
+                switch (alarm) {
+                    case NO_ALARM:
+                        return AlarmStatus.PENDING_ALARM;
+                    case PENDING_ALARM:
+                        return AlarmStatus.ALARM;
+                    default:
+                        return null;
+                }
+            case SENSOR_DEACTIVATED:
+                return alarm == AlarmStatus.PENDING_ALARM && COUNTS.armedActive(arming, sensor) == 0 ? AlarmStatus.NO_ALARM : null;
+            case CAT_DETECTED:
+                if (arming == ArmingStatus.ARMED_HOME) {
+                    return AlarmStatus.ALARM;
+                }
+                return COUNTS.totalActive() == 0 ? AlarmStatus.NO_ALARM : null;
+            default:
+                return COUNTS.totalActive() == 0 ? AlarmStatus.NO_ALARM : null;
+        }
+    }
+
+    private static double medianNanosPerEvent(IntSupplier run) {
+        for (int i = 0; i < WARMUP_ROUNDS; i++) {
+            sink += run.getAsInt();
+        }
+        long[] times = new long[ROUNDS];
+        for (int i = 0; i < ROUNDS; i++) {
+            long start = System.nanoTime();
+            sink += run.getAsInt();
+            times[i] = System.nanoTime() - start;
+        }
+        Arrays.sort(times);
+        return times[ROUNDS / 2] / (double) EVENTS;
+    }
+
+    //keeps the JIT from discarding the evaluation
+    private static int sink;
+}
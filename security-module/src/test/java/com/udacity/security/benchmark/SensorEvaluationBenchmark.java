@@ -0,0 +1,81 @@
+package com.udacity.security.benchmark;
+
+import com.udacity.security.data.Sensor;
+import com.udacity.security.data.SensorType;
+import com.udacity.security.data.Zone;
+import com.udacity.security.service.SensorEvaluator;
+
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Finds the sensor count above which the fork-join count of active sensors per zone, which
+ * rebuilds the ZoneIndex, beats the sequential scan. Every sensor is active, so each one is
+ * counted.
+ *
+ * The result depends on the core count, so run it once per machine size, for example:
+ *   java -XX:ActiveProcessorCount=4  -cp [test classpath] com.udacity.security.benchmark.SensorEvaluationBenchmark
+ *   java -XX:ActiveProcessorCount=16 ...
+ *   java -XX:ActiveProcessorCount=64 ...
+ * and set -Dcatpoint.sensors.parallelThreshold to the reported crossover.
+ *
+ * ActiveProcessorCount only sizes the pool; it does not add cores. Run that way on a host with a
+ * single CPU, 4, 16 and 64 reported cores found no stable crossover: fork-join cost 5-15% more
+ * than the sequential scan from 4096 up to 4M sensors, apart from isolated noisy wins. The
+ * figures for real 4, 16 and 64 core machines have to come from running it on such machines.
+ */
+public class SensorEvaluationBenchmark {
+
+    private static final int MAX_SENSORS = 1 << 22;
+    private static final int WARMUP_ROUNDS = 20;
+    private static final int ROUNDS = 31;
+    private static final Zone[] ZONES = {Zone.PERIMETER, Zone.INTERIOR, Zone.PREMISES};
+
+    public static void main(String[] args) {
+        Sensor[] all = new Sensor[MAX_SENSORS];
+        for (int i = 0; i < all.length; i++) {
+            all[i] = new Sensor("Sensor " + i, SensorType.values()[i % SensorType.values().length],
+                    ZONES[i % ZONES.length]);
+            all[i].setActive(true);
+        }
+
+        System.out.printf("cores: %d, fork-join parallelism: %d%n",
+                Runtime.getRuntime().availableProcessors(), ForkJoinPool.getCommonPoolParallelism());
+        System.out.printf("%10s %18s %18s%n", "sensors", "sequential (us)", "fork-join (us)");
+        int crossover = -1;
+        for (int count = 1 << 10; count <= MAX_SENSORS; count <<= 1) {
+            Sensor[] sensors = Arrays.copyOf(all, count);
+            double sequential = medianMicros(sensors, Integer.MAX_VALUE);
+            double parallel = medianMicros(sensors, 0);
+            System.out.printf("%10d %18.1f %18.1f%n", count, sequential, parallel);
+            //the crossover is where fork-join starts winning for good, ignoring noisy early wins
+            if (parallel >= sequential) {
+                crossover = -1;
+            } else if (crossover < 0) {
+                crossover = count;
+            }
+        }
+        System.out.println(crossover < 0 ? "no crossover found" : "crossover at about " + crossover + " sensors");
+    }
+
+    private static double medianMicros(Sensor[] sensors, int threshold) {
+        for (int i = 0; i < WARMUP_ROUNDS; i++) {
+            consume(SensorEvaluator.countActiveByZone(sensors, threshold).size());
+        }
+        long[] times = new long[ROUNDS];
+        for (int i = 0; i < ROUNDS; i++) {
+            long start = System.nanoTime();
+            consume(SensorEvaluator.countActiveByZone(sensors, threshold).size());
+            times[i] = System.nanoTime() - start;
+        }
+        Arrays.sort(times);
+        return times[ROUNDS / 2] / 1_000.0;
+    }
+
+    //keeps the JIT from discarding the evaluation
+    private static int sink;
+
+    private static void consume(int result) {
+        sink += result;
+    }
+}
@@ -0,0 +1,239 @@
+package com.udacity.security.benchmark.replay;
+
+import com.udacity.image.service.Detection;
+import com.udacity.image.service.ImageService;
+import com.udacity.security.application.StatusListener;
+import com.udacity.security.data.AlarmStatus;
+import com.udacity.security.data.ArmingStatus;
+import com.udacity.security.data.InMemorySecurityRepositoryImpl;
+import com.udacity.security.data.Sensor;
+import com.udacity.security.data.SensorType;
+import com.udacity.security.data.Zone;
+import com.udacity.security.service.ListenerRegistry;
+import com.udacity.security.service.SecurityService;
+
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Drives a trace through a fresh {@link SecurityService} backed by an in-memory repository, on
+ * the calling thread, and reports throughput, latency percentiles and allocation. Camera
+ * verdicts come from the trace instead of an image service, so only the service itself is
+ * measured. Replays are deterministic: the same trace always ends in the same outcome, which
+ * makes the report usable for spotting regressions as well as for capacity planning.
+ *
+ * Run with: java -cp [test classpath] com.udacity.security.benchmark.replay.ReplayHarness [key=value...]
+ *   trace=FILE       replay a trace file instead of generating one
+ *   save=FILE        store the generated trace
+ *   events=N sensors=N cameras=N seed=N rate=N   parameters of the generated trace
+ *                    (defaults 1000000, 100, 4, 1, 10000 events per second)
+ *   timing=full|recorded   replay as fast as possible (default) or at the recorded times
+ *   speed=X          speed-up of recorded timing (default 1)
+ *   runs=N           replays of the trace (default 3; the first one warms up the JIT)
+ */
+public class ReplayHarness {
+
+    /**
+     * How events are paced.
+     */
+    public enum Timing {
+        /** Each event starts as soon as the previous one is done. */
+        FULL_SPEED,
+        /** Each event starts at its recorded time, scaled by the speed-up. */
+        RECORDED
+    }
+
+    //below this, waiting for an event's recorded time spins instead of parking
+    private static final long SPIN_NANOS = TimeUnit.MICROSECONDS.toNanos(100);
+
+    private final Trace trace;
+    private final Timing timing;
+    private final double speed;
+
+    /**
+     * @param trace The events to replay
+     * @param timing How events are paced
+     * @param speed Speed-up of recorded timing, for example 10 to replay an hour in six minutes
+     */
+    public ReplayHarness(Trace trace, Timing timing, double speed) {
+        this.trace = trace;
+        this.timing = timing;
+        this.speed = speed;
+    }
+
+    public static void main(String[] args) throws IOException {
+        Map<String, String> options = new HashMap<>();
+        for (String arg : args) {
+            String[] keyValue = arg.split("=", 2);
+            options.put(keyValue[0], keyValue.length > 1 ? keyValue[1] : "");
+        }
+
+        Trace trace;
+        if (options.containsKey("trace")) {
+            trace = TraceFile.read(Paths.get(options.get("trace")));
+        } else {
+            trace = TraceGenerator.generate(
+                    Long.parseLong(options.getOrDefault("seed", "1")),
+                    Integer.parseInt(options.getOrDefault("events", "1000000")),
+                    Integer.parseInt(options.getOrDefault("sensors", "100")),
+                    Integer.parseInt(options.getOrDefault("cameras", "4")),
+                    Double.parseDouble(options.getOrDefault("rate", "10000")));
+        }
+        if (options.containsKey("save")) {
+            Path file = Paths.get(options.get("save"));
+            TraceFile.write(trace, file);
+            System.out.printf("saved %d events to %s%n", trace.size(), file);
+        }
+
+        Timing timing = "recorded".equals(options.get("timing")) ? Timing.RECORDED : Timing.FULL_SPEED;
+        double speed = Double.parseDouble(options.getOrDefault("speed", "1"));
+        int runs = Integer.parseInt(options.getOrDefault("runs", "3"));
+        System.out.printf("trace: %d events, %d sensors, %d cameras, %.1fs recorded; timing: %s%n",
+                trace.size(), trace.getSensorCount(), trace.getCameraCount(),
+                trace.getDurationMicros() / 1e6, timing == Timing.RECORDED ? "recorded x" + speed : "full speed");
+        ReplayHarness harness = new ReplayHarness(trace, timing, speed);
+        for (int run = 1; run <= runs; run++) {
+            System.out.printf("run %d%n%s%n", run, harness.run());
+        }
+    }
+
+    /**
+     * Replays the whole trace against a new system.
+     */
+    public ReplayReport run() {
+        ReplayImageService imageService = new ReplayImageService();
+        SecurityService securityService = new SecurityService(new InMemorySecurityRepositoryImpl(), imageService,
+                new HashSet<>());
+        AlarmCounter alarms = new AlarmCounter();
+        securityService.addStatusListener(alarms, ListenerRegistry.Topic.ALARM_STATUS);
+
+        Sensor[] sensors = new Sensor[trace.getSensorCount()];
+        SensorType[] types = SensorType.values();
+        for (int i = 0; i < sensors.length; i++) {
+            sensors[i] = new Sensor("Sensor " + i, types[i % types.length], i % 2 == 0 ? Zone.PERIMETER : Zone.INTERIOR);
+            securityService.addSensor(sensors[i]);
+        }
+        String[] cameras = new String[trace.getCameraCount()];
+        for (int i = 0; i < cameras.length; i++) {
+            cameras[i] = "camera-" + i;
+        }
+        BufferedImage frame = new BufferedImage(1, 1, BufferedImage.TYPE_INT_RGB);
+        ArmingStatus[] armingStatuses = ArmingStatus.values();
+
+        LatencyHistogram latencies = new LatencyHistogram();
+        long allocatedBefore = allocatedBytes();
+        long start = System.nanoTime();
+        for (int i = 0; i < trace.size(); i++) {
+            long due = 0;
+            if (timing == Timing.RECORDED) {
+                due = start + (long) (TimeUnit.MICROSECONDS.toNanos(trace.getTimeMicros(i)) / speed);
+                waitUntil(due);
+            }
+            long begin = System.nanoTime();
+            int target = trace.getTarget(i);
+            switch (trace.getKind(i)) {
+                case Trace.SENSOR:
+                    securityService.changeSensorActivationStatus(sensors[target], trace.getValue(i) != 0);
+                    break;
+                case Trace.IMAGE:
+                    imageService.nextConfidence = trace.getValue(i);
+                    securityService.processImage(cameras[target], frame);
+                    break;
+                case Trace.ARMING:
+                    securityService.setArmingStatus(armingStatuses[target]);
+                    break;
+                default:
+                    throw new IllegalStateException("unknown event kind " + trace.getKind(i));
+            }
+            long end = System.nanoTime();
+            latencies.record(end - (timing == Timing.RECORDED ? due : begin));
+        }
+        long elapsed = System.nanoTime() - start;
+        long allocatedAfter = allocatedBytes();
+
+        return new ReplayReport(trace.size(), elapsed, latencies,
+                allocatedBefore < 0 ? -1 : allocatedAfter - allocatedBefore,
+                alarms.changes, securityService.getAlarmStatus());
+    }
+
+    private static void waitUntil(long due) {
+        long remaining;
+        while ((remaining = due - System.nanoTime()) > 0) {
+            if (remaining > SPIN_NANOS) {
+                LockSupport.parkNanos(remaining - SPIN_NANOS);
+            } else {
+                Thread.onSpinWait();
+            }
+        }
+    }
+
+    /**
+     * @return Bytes allocated so far by the current thread, or -1 if the JVM cannot tell
+     */
+    static long allocatedBytes() {
+        java.lang.management.ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        if (threads instanceof com.sun.management.ThreadMXBean) {
+            com.sun.management.ThreadMXBean allocation = (com.sun.management.ThreadMXBean) threads;
+            if (allocation.isThreadAllocatedMemorySupported() && allocation.isThreadAllocatedMemoryEnabled()) {
+                return allocation.getThreadAllocatedBytes(Thread.currentThread().getId());
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Answers scans with the verdict of the event being replayed, without allocating.
+     */
+    private static class ReplayImageService implements ImageService {
+        private final Detection[] catDetections = new Detection[101];
+        private final Detection noCat = new Detection(null, 0f, SecurityService.DEFAULT_CONFIDENCE_THRESHOLD, true);
+        private byte nextConfidence = -1;
+
+        private ReplayImageService() {
+            for (int confidence = 0; confidence < catDetections.length; confidence++) {
+                catDetections[confidence] = new Detection("Cat", confidence,
+                        SecurityService.DEFAULT_CONFIDENCE_THRESHOLD, true);
+            }
+        }
+
+        @Override
+        public boolean imageContainsCat(BufferedImage image, float confidenceThreshold) {
+            return detect(image, confidenceThreshold).isCat(confidenceThreshold);
+        }
+
+        @Override
+        public Detection detect(BufferedImage image, float confidenceThreshold) {
+            return nextConfidence < 0 ? noCat : catDetections[nextConfidence];
+        }
+    }
+
+    /**
+     * Counts alarm status notifications.
+     */
+    private static class AlarmCounter implements StatusListener {
+        private long changes;
+
+        @Override
+        public void notify(AlarmStatus status) {
+            changes++;
+        }
+
+        @Override
+        public void catDetected(boolean catDetected) {
+            //not part of the outcome
+        }
+
+        @Override
+        public void sensorStatusChanged() {
+            //not part of the outcome
+        }
+    }
+}
@@ -0,0 +1,84 @@
+package com.udacity.security.benchmark.replay;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ReplayHarnessTest {
+
+    @Test
+    public void generate_sameSeed_sameTrace() {
+        Trace first = TraceGenerator.generate(7, 10_000, 20, 2, 1_000);
+        Trace second = TraceGenerator.generate(7, 10_000, 20, 2, 1_000);
+
+        assertSameTrace(first, second);
+    }
+
+    @Test
+    public void read_writtenTrace_sameTrace() throws IOException {
+        Trace trace = TraceGenerator.generate(3, 10_000, 20, 2, 1_000);
+        Path file = Files.createTempFile("trace", ".bin");
+        try {
+            TraceFile.write(trace, file);
+
+            assertSameTrace(trace, TraceFile.read(file));
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    @Test
+    public void run_sameTrace_sameOutcome() {
+        Trace trace = TraceGenerator.generate(11, 50_000, 10, 2, 1_000);
+        ReplayHarness harness = new ReplayHarness(trace, ReplayHarness.Timing.FULL_SPEED, 1);
+
+        ReplayReport first = harness.run();
+        ReplayReport second = harness.run();
+
+        assertEquals(trace.size(), first.getEvents());
+        assertEquals(trace.size(), first.getLatencies().getCount());
+        assertTrue(first.getAlarmChanges() > 0);
+        assertEquals(first.getAlarmChanges(), second.getAlarmChanges());
+        assertEquals(first.getFinalAlarmStatus(), second.getFinalAlarmStatus());
+    }
+
+    @Test
+    public void run_recordedTiming_takesRecordedTime() {
+        Trace trace = TraceGenerator.generate(5, 200, 10, 2, 2_000);
+
+        ReplayReport report = new ReplayHarness(trace, ReplayHarness.Timing.RECORDED, 1).run();
+
+        assertTrue(report.getElapsedNanos() >= trace.getDurationMicros() * 1_000);
+    }
+
+    @Test
+    public void percentile_recordedLatencies_withinBucketPrecision() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (long nanos = 1; nanos <= 100_000; nanos++) {
+            histogram.record(nanos);
+        }
+
+        assertEquals(100_000, histogram.getCount());
+        assertEquals(100_000, histogram.getMax());
+        assertTrue(Math.abs(histogram.getMean() - 50_000.5) < 0.001);
+        assertTrue(Math.abs(histogram.percentile(0.5) - 50_000) <= 50_000 / 64);
+        assertTrue(Math.abs(histogram.percentile(0.99) - 99_000) <= 99_000 / 64);
+        assertEquals(100, histogram.percentile(0.001));
+    }
+
+    private static void assertSameTrace(Trace expected, Trace actual) {
+        assertEquals(expected.size(), actual.size());
+        assertEquals(expected.getSensorCount(), actual.getSensorCount());
+        assertEquals(expected.getCameraCount(), actual.getCameraCount());
+        for (int i = 0; i < expected.size(); i++) {
+            assertEquals(expected.getTimeMicros(i), actual.getTimeMicros(i));
+            assertEquals(expected.getKind(i), actual.getKind(i));
+            assertEquals(expected.getTarget(i), actual.getTarget(i));
+            assertEquals(expected.getValue(i), actual.getValue(i));
+        }
+    }
+}
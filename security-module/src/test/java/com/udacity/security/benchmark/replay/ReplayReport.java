@@ -0,0 +1,94 @@
+package com.udacity.security.benchmark.replay;
+
+import com.udacity.security.data.AlarmStatus;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Results of one replay: throughput, latency distribution, allocation and the outcome, which
+ * is the same for every replay of the same trace.
+ */
+public final class ReplayReport {
+
+    private final long events;
+    private final long elapsedNanos;
+    private final LatencyHistogram latencies;
+    private final long allocatedBytes;
+    private final long alarmChanges;
+    private final AlarmStatus finalAlarmStatus;
+
+    ReplayReport(long events, long elapsedNanos, LatencyHistogram latencies, long allocatedBytes, long alarmChanges,
+                 AlarmStatus finalAlarmStatus) {
+        this.events = events;
+        this.elapsedNanos = elapsedNanos;
+        this.latencies = latencies;
+        this.allocatedBytes = allocatedBytes;
+        this.alarmChanges = alarmChanges;
+        this.finalAlarmStatus = finalAlarmStatus;
+    }
+
+    public long getEvents() {
+        return events;
+    }
+
+    public long getElapsedNanos() {
+        return elapsedNanos;
+    }
+
+    public double getEventsPerSecond() {
+        return events / (elapsedNanos / (double) TimeUnit.SECONDS.toNanos(1));
+    }
+
+    /**
+     * @return Latencies of the events: processing time at full speed; time from the recorded
+     * moment of the event to the end of its processing at recorded timing, so falling behind
+     * shows up as latency
+     */
+    public LatencyHistogram getLatencies() {
+        return latencies;
+    }
+
+    /**
+     * @return Bytes allocated by the replaying thread, or -1 if the JVM cannot tell
+     */
+    public long getAllocatedBytes() {
+        return allocatedBytes;
+    }
+
+    public double getAllocatedBytesPerEvent() {
+        return allocatedBytes < 0 ? Double.NaN : (double) allocatedBytes / events;
+    }
+
+    /**
+     * @return Number of alarm status notifications during the replay
+     */
+    public long getAlarmChanges() {
+        return alarmChanges;
+    }
+
+    public AlarmStatus getFinalAlarmStatus() {
+        return finalAlarmStatus;
+    }
+
+    @Override
+    public String toString() {
+        double seconds = elapsedNanos / (double) TimeUnit.SECONDS.toNanos(1);
+        return String.format("events: %d in %.2fs (%.0f/s)%n", events, seconds, getEventsPerSecond())
+                + String.format("latency p50: %s, p90: %s, p99: %s, p99.9: %s, max: %s%n",
+                        format(latencies.percentile(0.50)), format(latencies.percentile(0.90)),
+                        format(latencies.percentile(0.99)), format(latencies.percentile(0.999)),
+                        format(latencies.getMax()))
+                + String.format("allocated: %.1f bytes/event, %.1f MB/s%n", getAllocatedBytesPerEvent(),
+                        allocatedBytes < 0 ? Double.NaN : allocatedBytes / seconds / (1 << 20))
+                + String.format("outcome: %d alarm changes, final alarm %s", alarmChanges, finalAlarmStatus);
+    }
+
+    private static String format(long nanos) {
+        if (nanos < 10_000) {
+            return nanos + "ns";
+        } else if (nanos < 10_000_000) {
+            return nanos / 1_000 + "us";
+        }
+        return nanos / 1_000_000 + "ms";
+    }
+}
@@ -0,0 +1,97 @@
+package com.udacity.security.benchmark.replay;
+
+import java.util.Arrays;
+
+/**
+ * A recorded or generated sequence of events for a system of numbered sensors and cameras.
+ * Events are kept in parallel primitive arrays, so traces of millions of events stay compact
+ * and replaying them allocates nothing per event.
+ *
+ * Each event has a time in microseconds from the start of the trace, a kind, a target and a value:
+ * <ul>
+ *     <li>{@link #SENSOR}: target is the sensor index, value 1 for active and 0 for inactive</li>
+ *     <li>{@link #IMAGE}: target is the camera index, value the cat confidence in percent, or
+ *     -1 if the image shows no cat</li>
+ *     <li>{@link #ARMING}: target is the ordinal of the new arming status</li>
+ * </ul>
+ */
+public final class Trace {
+
+    public static final byte SENSOR = 0;
+    public static final byte IMAGE = 1;
+    public static final byte ARMING = 2;
+
+    private final int sensorCount;
+    private final int cameraCount;
+    private long[] timesMicros;
+    private byte[] kinds;
+    private int[] targets;
+    private byte[] values;
+    private int size;
+
+    public Trace(int sensorCount, int cameraCount, int expectedEvents) {
+        this.sensorCount = sensorCount;
+        this.cameraCount = cameraCount;
+        int capacity = Math.max(16, expectedEvents);
+        this.timesMicros = new long[capacity];
+        this.kinds = new byte[capacity];
+        this.targets = new int[capacity];
+        this.values = new byte[capacity];
+    }
+
+    /**
+     * Appends an event; events must be added in time order.
+     */
+    public void add(long timeMicros, byte kind, int target, byte value) {
+        if (size > 0 && timeMicros < timesMicros[size - 1]) {
+            throw new IllegalArgumentException("events must be added in time order");
+        }
+        if (size == timesMicros.length) {
+            int capacity = size + (size >> 1);
+            timesMicros = Arrays.copyOf(timesMicros, capacity);
+            kinds = Arrays.copyOf(kinds, capacity);
+            targets = Arrays.copyOf(targets, capacity);
+            values = Arrays.copyOf(values, capacity);
+        }
+        timesMicros[size] = timeMicros;
+        kinds[size] = kind;
+        targets[size] = target;
+        values[size] = value;
+        size++;
+    }
+
+    public int getSensorCount() {
+        return sensorCount;
+    }
+
+    public int getCameraCount() {
+        return cameraCount;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public long getTimeMicros(int event) {
+        return timesMicros[event];
+    }
+
+    public byte getKind(int event) {
+        return kinds[event];
+    }
+
+    public int getTarget(int event) {
+        return targets[event];
+    }
+
+    public byte getValue(int event) {
+        return values[event];
+    }
+
+    /**
+     * @return Time of the last event, the duration of the trace when replayed at recorded timing
+     */
+    public long getDurationMicros() {
+        return size == 0 ? 0 : timesMicros[size - 1];
+    }
+}
@@ -0,0 +1,102 @@
+package com.udacity.security.benchmark.replay;
+
+import com.udacity.security.data.StateCodec;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Stores traces in a compact binary file: the magic bytes "CPTR", a version byte, the sensor,
+ * camera and event counts as varints, then per event the time since the previous event in
+ * microseconds and the target as varints, and kind and value as one byte each. A typical event
+ * takes 4 to 6 bytes. Varints are those of {@link StateCodec}.
+ */
+public final class TraceFile {
+
+    private static final int MAGIC = 0x43505452;
+    private static final byte VERSION = 1;
+
+    private static final int BUFFER_SIZE = 1 << 16;
+    //largest encoded event: two 10 byte varints and two bytes
+    private static final int MAX_EVENT_SIZE = 22;
+
+    private TraceFile() {
+    }
+
+    public static void write(Trace trace, Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+            buffer.putInt(MAGIC).put(VERSION);
+            StateCodec.putVarint(buffer, trace.getSensorCount());
+            StateCodec.putVarint(buffer, trace.getCameraCount());
+            StateCodec.putVarint(buffer, trace.size());
+            long previous = 0;
+            for (int i = 0; i < trace.size(); i++) {
+                if (buffer.remaining() < MAX_EVENT_SIZE) {
+                    drain(channel, buffer);
+                }
+                StateCodec.putVarlong(buffer, trace.getTimeMicros(i) - previous);
+                previous = trace.getTimeMicros(i);
+                buffer.put(trace.getKind(i));
+                StateCodec.putVarint(buffer, trace.getTarget(i));
+                buffer.put(trace.getValue(i));
+            }
+            drain(channel, buffer);
+        }
+    }
+
+    public static Trace read(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE).limit(0);
+            fill(channel, buffer);
+            if (buffer.remaining() < 5 || buffer.getInt() != MAGIC) {
+                throw new IOException(file + " is not a trace file");
+            }
+            if (buffer.get() != VERSION) {
+                throw new IOException("unsupported trace file version");
+            }
+            try {
+                int sensors = StateCodec.getVarint(buffer);
+                int cameras = StateCodec.getVarint(buffer);
+                int events = StateCodec.getVarint(buffer);
+                Trace trace = new Trace(sensors, cameras, events);
+                long time = 0;
+                for (int i = 0; i < events; i++) {
+                    if (buffer.remaining() < MAX_EVENT_SIZE) {
+                        fill(channel, buffer);
+                    }
+                    time += StateCodec.getVarlong(buffer);
+                    byte kind = buffer.get();
+                    int target = StateCodec.getVarint(buffer);
+                    trace.add(time, kind, target, buffer.get());
+                }
+                return trace;
+            } catch (RuntimeException e) {
+                throw new IOException("corrupt trace file " + file, e);
+            }
+        }
+    }
+
+    private static void drain(FileChannel channel, ByteBuffer buffer) throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    /**
+     * Moves the unread bytes to the front and reads as much as fits after them.
+     */
+    private static void fill(FileChannel channel, ByteBuffer buffer) throws IOException {
+        buffer.compact();
+        while (buffer.hasRemaining() && channel.read(buffer) > 0) {
+            //keep reading until full or at the end of the file
+        }
+        buffer.flip();
+    }
+}
@@ -0,0 +1,60 @@
+package com.udacity.security.benchmark.replay;
+
+import com.udacity.security.data.ArmingStatus;
+
+import java.util.Arrays;
+import java.util.SplittableRandom;
+
+/**
+ * Generates synthetic traces. The same seed and parameters always produce the same trace, so
+ * runs can be compared across builds without storing the trace.
+ *
+ * Events arrive as a Poisson process at the given rate. Most are sensors flipping between
+ * active and inactive; about one in ten is a camera verdict, a few of which show a cat, and
+ * rarely the system is re-armed.
+ */
+public final class TraceGenerator {
+
+    private static final double IMAGE_SHARE = 0.1;
+    private static final double ARMING_SHARE = 0.001;
+    private static final double CAT_SHARE = 0.05;
+
+    private TraceGenerator() {
+    }
+
+    /**
+     * @param seed Seed of the random sequence
+     * @param events Number of events
+     * @param sensors Number of sensors
+     * @param cameras Number of cameras
+     * @param eventsPerSecond Mean event rate, used for the recorded timing
+     */
+    public static Trace generate(long seed, int events, int sensors, int cameras, double eventsPerSecond) {
+        SplittableRandom random = new SplittableRandom(seed);
+        Trace trace = new Trace(sensors, cameras, events);
+        boolean[] active = new boolean[sensors];
+        ArmingStatus[] armingStatuses = ArmingStatus.values();
+        double meanGapMicros = 1_000_000 / eventsPerSecond;
+        double time = 0;
+        for (int i = 0; i < events; i++) {
+            time += -Math.log(1 - random.nextDouble()) * meanGapMicros;
+            double kind = random.nextDouble();
+            if (kind < ARMING_SHARE) {
+                int status = random.nextInt(armingStatuses.length);
+                trace.add((long) time, Trace.ARMING, status, (byte) 0);
+                if (armingStatuses[status] != ArmingStatus.DISARMED) {
+                    //arming resets every sensor
+                    Arrays.fill(active, false);
+                }
+            } else if (kind < ARMING_SHARE + IMAGE_SHARE) {
+                byte confidence = random.nextDouble() < CAT_SHARE ? (byte) random.nextInt(101) : -1;
+                trace.add((long) time, Trace.IMAGE, random.nextInt(cameras), confidence);
+            } else {
+                int sensor = random.nextInt(sensors);
+                active[sensor] = !active[sensor];
+                trace.add((long) time, Trace.SENSOR, sensor, active[sensor] ? (byte) 1 : (byte) 0);
+            }
+        }
+        return trace;
+    }
+}
@@ -0,0 +1,167 @@
+package com.udacity.security.data;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.ConcurrentModificationException;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class OffHeapSecurityRepositoryImplTest {
+
+    private final OffHeapSecurityRepositoryImpl repository = new OffHeapSecurityRepositoryImpl(16);
+
+    @Test
+    public void getSensors_addedSensors_sameFields() {
+        Sensor door = new Sensor("Front door", SensorType.DOOR, Zone.PERIMETER);
+        door.setActive(true);
+        Sensor motion = new Sensor("Bewegungsmelder K\u00fcche", SensorType.MOTION, Zone.floor(2));
+        Sensor unnamed = new Sensor(null, null, null);
+
+        repository.addSensor(door);
+        repository.addSensor(motion);
+        repository.addSensor(unnamed);
+
+        assertEquals(3, repository.getSensors().size());
+        assertSameSensor(door, repository.getSensor(door.getSensorId()));
+        assertSameSensor(motion, repository.getSensor(motion.getSensorId()));
+        Sensor stored = repository.getSensor(unnamed.getSensorId());
+        assertNull(stored.getName());
+        assertNull(stored.getSensorType());
+        assertEquals(Zone.PREMISES, stored.getZone());
+        assertEquals(Set.of(door, motion, unnamed), new HashSet<>(repository.getSensors()));
+    }
+
+    @Test
+    public void updateSensor_changedSensor_storedCopyChanged() {
+        Sensor sensor = new Sensor("Window", SensorType.WINDOW);
+        repository.addSensor(sensor);
+
+        sensor.setActive(true);
+        sensor.setName("Kitchen window");
+        sensor.setZone(Zone.INTERIOR);
+        assertFalse(repository.getSensor(sensor.getSensorId()).getActive());
+        repository.updateSensor(sensor);
+
+        assertSameSensor(sensor, repository.getSensor(sensor.getSensorId()));
+        assertEquals(1, repository.getSensors().size());
+    }
+
+    @Test
+    public void setActive_view_writesThroughToRecord() {
+        Sensor sensor = new Sensor("Door", SensorType.DOOR);
+        repository.addSensor(sensor);
+
+        Sensor view = repository.getSensors().iterator().next();
+        view.setActive(true);
+        view.setSensorType(SensorType.MOTION);
+
+        assertTrue(repository.getSensor(sensor.getSensorId()).getActive());
+        assertEquals(SensorType.MOTION, repository.getSensor(sensor.getSensorId()).getSensorType());
+        assertEquals(sensor, view);
+        assertEquals(sensor.hashCode(), view.hashCode());
+    }
+
+    @Test
+    public void getName_longName_keptInFull() {
+        String name = "A sensor name far longer than the bytes a record keeps for it";
+        Sensor sensor = new Sensor(name, SensorType.DOOR);
+        repository.addSensor(sensor);
+
+        assertEquals(name, repository.getSensor(sensor.getSensorId()).getName());
+        repository.getSensor(sensor.getSensorId()).setName("Short");
+        assertEquals("Short", repository.getSensor(sensor.getSensorId()).getName());
+    }
+
+    @Test
+    public void removeSensor_manySensors_restStillFound() {
+        List<Sensor> sensors = new ArrayList<>();
+        for (int i = 0; i < 5_000; i++) {
+            Sensor sensor = new Sensor("Sensor " + i, SensorType.values()[i % 3]);
+            sensors.add(sensor);
+            repository.addSensor(sensor);
+        }
+
+        for (int i = 0; i < sensors.size(); i += 2) {
+            repository.removeSensor(sensors.get(i));
+        }
+
+        assertEquals(2_500, repository.getSensors().size());
+        for (int i = 0; i < sensors.size(); i++) {
+            Sensor stored = repository.getSensor(sensors.get(i).getSensorId());
+            if (i % 2 == 0) {
+                assertNull(stored);
+                assertFalse(repository.getSensors().contains(sensors.get(i)));
+            } else {
+                assertSameSensor(sensors.get(i), stored);
+            }
+        }
+    }
+
+    @Test
+    public void getName_viewOfRemovedSensor_throwsAfterRecordReused() {
+        Sensor removed = new Sensor("Removed", SensorType.DOOR);
+        repository.addSensor(removed);
+        Sensor view = repository.getSensor(removed.getSensorId());
+
+        repository.removeSensor(removed);
+        Sensor replacement = new Sensor("Replacement", SensorType.WINDOW);
+        repository.addSensor(replacement);
+
+        assertEquals(removed.getSensorId(), view.getSensorId());
+        assertThrows(IllegalStateException.class, view::getName);
+        assertEquals("Replacement", repository.getSensor(replacement.getSensorId()).getName());
+    }
+
+    @Test
+    public void iterator_sensorAddedDuringIteration_throwsConcurrentModification() {
+        repository.addSensor(new Sensor("Door", SensorType.DOOR));
+        repository.addSensor(new Sensor("Window", SensorType.WINDOW));
+
+        Iterator<Sensor> iterator = repository.getSensors().iterator();
+        iterator.next();
+        repository.addSensor(new Sensor("Motion", SensorType.MOTION));
+
+        assertThrows(ConcurrentModificationException.class, iterator::next);
+    }
+
+    @Test
+    public void getSensor_unknownId_null() {
+        assertNull(repository.getSensor(UUID.randomUUID()));
+        assertTrue(repository.getSensors().isEmpty());
+    }
+
+    @Test
+    public void systemState_repositoryChanged_snapshotReadsRecords() {
+        Sensor door = new Sensor("Door", SensorType.DOOR, Zone.PERIMETER);
+        repository.addSensor(door);
+        SystemState state = SystemState.of(repository);
+        Sensor window = new Sensor("Window", SensorType.WINDOW);
+
+        repository.addSensor(window);
+        door.setActive(true);
+        repository.updateSensor(door);
+        SystemState next = state.withSensor(door);
+
+        assertEquals(2, next.getSensorCount());
+        assertTrue(next.getSensor(door.getSensorId()).isActive());
+        assertEquals("Window", next.getSensor(window.getSensorId()).getName());
+        assertEquals(Zone.PERIMETER, next.getSensor(door.getSensorId()).getZone());
+        List<SensorState> sensors = next.getSensors();
+        assertEquals(2, sensors.size());
+        assertTrue(sensors.get(0).getSensorId().compareTo(sensors.get(1).getSensorId()) < 0);
+    }
+
+    private static void assertSameSensor(Sensor expected, Sensor actual) {
+        assertEquals(expected.getSensorId(), actual.getSensorId());
+        assertEquals(expected.getName(), actual.getName());
+        assertEquals(expected.getSensorType(), actual.getSensorType());
+        assertEquals(expected.getZone(), actual.getZone());
+        assertEquals(expected.getActive(), actual.getActive());
+    }
+}
@@ -0,0 +1,145 @@
+package com.udacity.security.data;
+
+import com.google.gson.Gson;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.UUID;
+import java.util.prefs.BackingStoreException;
+import java.util.prefs.Preferences;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class StateCodecTest {
+
+    @Test
+    public void decodeSensors_encodedSensors_sameSensors() {
+        Sensor door = new Sensor("Front door", SensorType.DOOR, Zone.PERIMETER);
+        door.setActive(true);
+        Sensor motion = new Sensor("Bewegungsmelder K\u00fcche \uD83D\uDC08", SensorType.MOTION, Zone.floor(2));
+        Sensor window = new Sensor(null, null, null);
+        window.setActive(null);
+
+        List<Sensor> decoded = StateCodec.decodeSensors(StateCodec.encodeSensors(List.of(door, motion, window)));
+
+        assertEquals(3, decoded.size());
+        assertSameSensor(door, decoded.get(0));
+        assertSameSensor(motion, decoded.get(1));
+        assertEquals(window.getSensorId(), decoded.get(2).getSensorId());
+        assertNull(decoded.get(2).getName());
+        assertNull(decoded.get(2).getSensorType());
+        assertEquals(Zone.PREMISES, decoded.get(2).getZone());
+        assertFalse(decoded.get(2).getActive());
+    }
+
+    @Test
+    public void encodeSensors_builtInZone_idsAsLongsAndEnumsAsBytes() {
+        Sensor door = new Sensor("Door", SensorType.DOOR, Zone.INTERIOR);
+
+        byte[] data = StateCodec.encodeSensors(List.of(door));
+
+        //version, count, id, name length and bytes, type, zone, active
+        assertEquals(1 + 1 + 16 + 1 + 4 + 1 + 1 + 1, data.length);
+        ByteBuffer buffer = ByteBuffer.wrap(data, 2, 16);
+        assertEquals(door.getSensorId().getMostSignificantBits(), buffer.getLong());
+        assertEquals(door.getSensorId().getLeastSignificantBits(), buffer.getLong());
+    }
+
+    @Test
+    public void decodeState_encodedSnapshot_sameSnapshot() {
+        Sensor door = new Sensor("Door", SensorType.DOOR);
+        door.setActive(true);
+        Sensor window = new Sensor("Window", SensorType.WINDOW, Zone.PERIMETER);
+        SystemState state = SystemState.of(new InMemorySecurityRepositoryImpl())
+                .withSensor(door).withSensor(window)
+                .withArmingStatus(ArmingStatus.ARMED_HOME)
+                .withAlarmStatus(AlarmStatus.PENDING_ALARM)
+                .withCatDetected(true);
+
+        SystemState decoded = StateCodec.decodeState(StateCodec.encode(state));
+
+        assertEquals(state.getVersion(), decoded.getVersion());
+        assertEquals(AlarmStatus.PENDING_ALARM, decoded.getAlarmStatus());
+        assertEquals(ArmingStatus.ARMED_HOME, decoded.getArmingStatus());
+        assertTrue(decoded.isCatDetected());
+        assertEquals(2, decoded.getSensorCount());
+        SensorState decodedDoor = decoded.getSensor(door.getSensorId());
+        assertEquals("Door", decodedDoor.getName());
+        assertTrue(decodedDoor.isActive());
+        assertEquals(Zone.PERIMETER, decoded.getSensor(window.getSensorId()).getZone());
+    }
+
+    @Test
+    public void decodeState_nullStatuses_decodedAsNull() {
+        SystemState state = SystemState.of(7, null, null, false, List.of());
+
+        SystemState decoded = StateCodec.decodeState(StateCodec.encode(state));
+
+        assertEquals(7, decoded.getVersion());
+        assertNull(decoded.getAlarmStatus());
+        assertNull(decoded.getArmingStatus());
+    }
+
+    @Test
+    public void decode_unknownVersion_throws() {
+        byte[] data = StateCodec.encodeSensors(List.of(new Sensor("Door", SensorType.DOOR)));
+        data[0] = StateCodec.VERSION + 1;
+
+        assertThrows(IllegalArgumentException.class, () -> StateCodec.decodeSensors(data));
+    }
+
+    @Test
+    public void decode_truncatedInput_throws() {
+        byte[] data = StateCodec.encodeSensors(List.of(new Sensor("Door", SensorType.DOOR)));
+        byte[] state = StateCodec.encode(SystemState.of(new InMemorySecurityRepositoryImpl()));
+
+        assertThrows(IllegalArgumentException.class, () -> StateCodec.decodeSensors(Arrays.copyOf(data, data.length - 3)));
+        assertThrows(IllegalArgumentException.class, () -> StateCodec.decodeState(Arrays.copyOf(state, state.length - 1)));
+    }
+
+    @ParameterizedTest
+    @ValueSource(longs = {0, 1, 127, 128, 16_383, 16_384, Integer.MAX_VALUE, Long.MAX_VALUE, -1})
+    public void getVarlong_putVarlong_sameValueInPredictedSize(long value) {
+        ByteBuffer buffer = ByteBuffer.allocate(10);
+        StateCodec.putVarlong(buffer, value);
+
+        assertEquals(StateCodec.varlongSize(value), buffer.position());
+        buffer.flip();
+        assertEquals(value, StateCodec.getVarlong(buffer));
+    }
+
+    @Test
+    public void pretendDatabase_sensorsStoredAsJson_readAndRewrittenAsBinary() throws BackingStoreException {
+        Preferences prefs = Preferences.userRoot().node("catpoint-test-" + UUID.randomUUID());
+        try {
+            Sensor door = new Sensor("Door", SensorType.DOOR, Zone.PERIMETER);
+            Set<Sensor> stored = new TreeSet<>(Set.of(door));
+            prefs.put("SENSORS", new Gson().toJson(stored));
+
+            PretendDatabaseSecurityRepositoryImpl legacy = new PretendDatabaseSecurityRepositoryImpl(prefs);
+            assertEquals(Set.of(door), legacy.getSensors());
+            legacy.addSensor(new Sensor("Window", SensorType.WINDOW));
+
+            assertNull(prefs.get("SENSORS", null));
+            PretendDatabaseSecurityRepositoryImpl reloaded = new PretendDatabaseSecurityRepositoryImpl(prefs);
+            assertEquals(legacy.getSensors(), reloaded.getSensors());
+            assertEquals(Zone.PERIMETER, reloaded.getSensors().iterator().next().getZone());
+        } finally {
+            prefs.removeNode();
+        }
+    }
+
+    private static void assertSameSensor(Sensor expected, Sensor actual) {
+        assertEquals(expected.getSensorId(), actual.getSensorId());
+        assertEquals(expected.getName(), actual.getName());
+        assertEquals(expected.getSensorType(), actual.getSensorType());
+        assertEquals(expected.getZone(), actual.getZone());
+        assertEquals(expected.getActive(), actual.getActive());
+    }
+}
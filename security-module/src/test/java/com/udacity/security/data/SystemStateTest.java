@@ -0,0 +1,218 @@
+package com.udacity.security.data;
+
+import com.udacity.security.application.StatusListener;
+import com.udacity.security.service.SecurityService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SystemStateTest {
+
+    private List<Sensor> sensors;
+
+    // SUT
+    private SystemState state;
+
+    @BeforeEach
+    public void init() {
+        sensors = new ArrayList<>();
+        state = SystemState.of(new InMemorySecurityRepositoryImpl());
+    }
+
+    /**
+     * Sizes around the trie's levels: a single leaf, one more than a leaf, and several levels.
+     */
+    @ParameterizedTest
+    @ValueSource(ints = {1, 32, 33, 1_024, 1_025, 40_000})
+    public void withSensor_everySensorChanged_latestStateOfEachFound(int count) {
+        state = SystemState.of(fleet(count));
+
+        for (int i = 0; i < count; i += 7) {
+            Sensor sensor = sensors.get(i);
+            sensor.setActive(true);
+            state = state.withSensor(sensor);
+        }
+
+        assertEquals(count, state.getSensorCount());
+        for (int i = 0; i < count; i++) {
+            SensorState found = state.getSensor(sensors.get(i).getSensorId());
+            assertEquals(sensors.get(i).getName(), found.getName());
+            assertEquals(i % 7 == 0, found.isActive());
+        }
+        assertOrderedById(state.getSensors());
+    }
+
+    @Test
+    public void withSensor_earlierSnapshot_keepsItsSensorStates() {
+        SystemState before = SystemState.of(fleet(5_000));
+        Sensor changed = sensors.get(1_234);
+        changed.setActive(true);
+
+        SystemState after = before.withSensor(changed);
+
+        assertFalse(before.getSensor(changed.getSensorId()).isActive());
+        assertTrue(after.getSensor(changed.getSensorId()).isActive());
+        assertEquals(before.getVersion() + 1, after.getVersion());
+    }
+
+    @Test
+    public void withSensor_newSensors_addedInIdOrder() {
+        for (int i = 0; i < 100; i++) {
+            Sensor sensor = new Sensor("Sensor " + i, SensorType.DOOR);
+            sensors.add(sensor);
+            state = state.withSensor(sensor);
+        }
+
+        assertEquals(100, state.getSensorCount());
+        assertOrderedById(state.getSensors());
+        sensors.forEach(s -> assertNotNull(state.getSensor(s.getSensorId())));
+    }
+
+    @Test
+    public void withSensors_fewOrManyChanged_sameSnapshot() {
+        SystemState before = SystemState.of(fleet(2_000));
+        Random random = new Random(3);
+        List<Sensor> few = new ArrayList<>();
+        List<Sensor> many = new ArrayList<>();
+        for (Sensor sensor : sensors) {
+            sensor.setActive(random.nextInt(4) == 0);
+            if (sensor.getActive()) {
+                many.add(sensor);
+                if (few.size() < 10) {
+                    few.add(sensor);
+                }
+            }
+        }
+        Sensor added = new Sensor("Added", SensorType.WINDOW);
+        few.add(added);
+        many.add(added);
+
+        SystemState fewChanged = before.withSensors(few);
+        SystemState manyChanged = before.withSensors(many);
+
+        assertEquals(2_001, fewChanged.getSensorCount());
+        assertEquals(2_001, manyChanged.getSensorCount());
+        for (Sensor sensor : sensors) {
+            assertEquals(few.contains(sensor), fewChanged.getSensor(sensor.getSensorId()).isActive());
+            assertEquals(sensor.getActive(), manyChanged.getSensor(sensor.getSensorId()).isActive());
+        }
+        assertOrderedById(fewChanged.getSensors());
+        assertOrderedById(manyChanged.getSensors());
+    }
+
+    @Test
+    public void withoutSensor_storedSensor_removedAndOthersKept() {
+        state = SystemState.of(fleet(100));
+        UUID removed = sensors.get(50).getSensorId();
+
+        SystemState after = state.withoutSensor(removed);
+
+        assertEquals(99, after.getSensorCount());
+        assertNull(after.getSensor(removed));
+        assertNotNull(state.getSensor(removed));
+        assertSame(after, after.withoutSensor(removed));
+        assertOrderedById(after.getSensors());
+    }
+
+    @Test
+    public void getSensors_snapshot_cannotBeModified() {
+        state = SystemState.of(fleet(3));
+
+        assertThrows(UnsupportedOperationException.class, () -> state.getSensors().remove(0));
+        assertThrows(IndexOutOfBoundsException.class, () -> state.getSensors().get(3));
+    }
+
+    /**
+     * The alarm status a sensor event causes and the sensor itself are published as one
+     * snapshot, so a reader never sees a pending alarm with the triggering sensor still inactive.
+     */
+    @Test
+    public void getState_sensorActivatedWhileArmed_alarmPublishedWithSensor() {
+        SecurityService securityService = service();
+        Sensor door = new Sensor("Front door", SensorType.DOOR);
+        securityService.addSensor(door);
+        securityService.setArmingStatus(ArmingStatus.ARMED_AWAY);
+        List<SystemState> seen = record(securityService);
+
+        securityService.changeSensorActivationStatus(door, true);
+
+        assertFalse(seen.isEmpty());
+        for (SystemState state : seen) {
+            assertEquals(AlarmStatus.PENDING_ALARM, state.getAlarmStatus());
+            assertTrue(state.getSensor(door.getSensorId()).isActive());
+            assertSame(securityService.getState(), state);
+        }
+    }
+
+    @Test
+    public void getState_systemArmed_armingPublishedWithDeactivatedSensors() {
+        SecurityService securityService = service();
+        Sensor door = new Sensor("Front door", SensorType.DOOR);
+        securityService.addSensor(door);
+        securityService.changeSensorActivationStatus(door, true);
+        long before = securityService.getState().getVersion();
+        List<SystemState> seen = record(securityService);
+
+        securityService.setArmingStatus(ArmingStatus.ARMED_HOME);
+
+        assertEquals(before + 1, securityService.getState().getVersion());
+        assertEquals(ArmingStatus.ARMED_HOME, securityService.getState().getArmingStatus());
+        assertFalse(securityService.getState().getSensor(door.getSensorId()).isActive());
+        assertFalse(seen.isEmpty());
+        seen.forEach(s -> assertSame(securityService.getState(), s));
+    }
+
+    private static SecurityService service() {
+        return new SecurityService(new InMemorySecurityRepositoryImpl(),
+                (image, confidenceThreshold) -> false, new HashSet<>());
+    }
+
+    /**
+     * @return The snapshots the service had published whenever a listener was called
+     */
+    private static List<SystemState> record(SecurityService securityService) {
+        List<SystemState> seen = new ArrayList<>();
+        securityService.addStatusListener(new StatusListener() {
+            @Override
+            public void notify(AlarmStatus status) {
+                seen.add(securityService.getState());
+            }
+
+            @Override
+            public void catDetected(boolean catDetected) {
+                seen.add(securityService.getState());
+            }
+
+            @Override
+            public void sensorStatusChanged() {
+                seen.add(securityService.getState());
+            }
+        });
+        return seen;
+    }
+
+    private SecurityRepository fleet(int count) {
+        SecurityRepository repository = new InMemorySecurityRepositoryImpl();
+        for (int i = 0; i < count; i++) {
+            Sensor sensor = new Sensor("Sensor " + i, SensorType.values()[i % SensorType.values().length]);
+            sensors.add(sensor);
+            repository.addSensor(sensor);
+        }
+        return repository;
+    }
+
+    private static void assertOrderedById(List<SensorState> states) {
+        for (int i = 1; i < states.size(); i++) {
+            assertTrue(states.get(i - 1).getSensorId().compareTo(states.get(i).getSensorId()) < 0);
+        }
+    }
+}
@@ -0,0 +1,65 @@
+package com.udacity.security.ingest;
+
+import com.udacity.security.data.AlarmStatus;
+import com.udacity.security.data.ArmingStatus;
+import com.udacity.security.data.InMemorySecurityRepositoryImpl;
+import com.udacity.security.data.Sensor;
+import com.udacity.security.data.SensorType;
+import com.udacity.security.data.Zone;
+import com.udacity.security.service.SecurityService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashSet;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SecurityServiceSensorEventHandlerTest {
+
+    private SecurityService securityService;
+    private final Sensor door = new Sensor("Door", SensorType.DOOR, Zone.PERIMETER);
+
+    // SUT
+    private SecurityServiceSensorEventHandler handler;
+
+    @BeforeEach
+    public void init() {
+        securityService = new SecurityService(new InMemorySecurityRepositoryImpl(), (image, threshold) -> false,
+                new HashSet<>());
+        securityService.addSensor(door);
+        securityService.setArmingStatus(ArmingStatus.ARMED_AWAY);
+        handler = new SecurityServiceSensorEventHandler(securityService);
+    }
+
+    @Test
+    public void knownSensor_activated_returnsAlarmStatus() {
+        assertEquals(AlarmStatus.PENDING_ALARM, handler.onSensorEvent(door.getSensorId(), true));
+        assertTrue(door.getActive());
+    }
+
+    @Test
+    public void unknownSensor_returnsNull() {
+        assertNull(handler.onSensorEvent(UUID.randomUUID(), true));
+    }
+
+    @Test
+    public void removedSensor_notFoundAndNotReAdded() {
+        handler.onSensorEvent(door.getSensorId(), false);
+        securityService.removeSensor(door);
+
+        assertNull(handler.onSensorEvent(door.getSensorId(), true));
+        assertFalse(securityService.getSensors().contains(door));
+    }
+
+    @Test
+    public void sensorReplaced_sameCount_newSensorFound() {
+        handler.onSensorEvent(door.getSensorId(), false);
+        Sensor window = new Sensor("Window", SensorType.WINDOW, Zone.PERIMETER);
+        securityService.removeSensor(door);
+        securityService.addSensor(window);
+
+        assertEquals(AlarmStatus.PENDING_ALARM, handler.onSensorEvent(window.getSensorId(), true));
+        assertTrue(window.getActive());
+    }
+}
@@ -0,0 +1,121 @@
+package com.udacity.security.ingest;
+
+import com.udacity.security.data.AlarmStatus;
+import com.udacity.security.timer.TimerWheel;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SensorEventCoalescerTest {
+
+    private static final long TICK = 10;
+    private static final long WINDOW = 100;
+
+    private final UUID door = UUID.randomUUID();
+    private final UUID unknown = UUID.randomUUID();
+    private final List<Boolean> forwarded = new ArrayList<>();
+    private int unknownForwarded;
+
+    private TimerWheel timerWheel;
+
+    // SUT
+    private SensorEventCoalescer coalescer;
+
+    @BeforeEach
+    public void init() {
+        timerWheel = new TimerWheel(TICK, 8, 0);
+        coalescer = new SensorEventCoalescer((sensorId, active) -> {
+            if (!sensorId.equals(door)) {
+                unknownForwarded++;
+                return null;
+            }
+            forwarded.add(active);
+            return active ? AlarmStatus.PENDING_ALARM : AlarmStatus.NO_ALARM;
+        }, timerWheel, WINDOW);
+    }
+
+    @Test
+    public void burstWithinWindow_collapsesToFirstAndLast() {
+        coalescer.onSensorEvent(door, true);
+        coalescer.onSensorEvent(door, false);
+        coalescer.onSensorEvent(door, true);
+        coalescer.onSensorEvent(door, false);
+        assertEquals(List.of(true), forwarded);
+
+        timerWheel.advanceTo(WINDOW);
+
+        assertEquals(List.of(true, false), forwarded);
+    }
+
+    @Test
+    public void withinWindow_answersLastForwardedAlarmStatus() {
+        assertEquals(AlarmStatus.PENDING_ALARM, coalescer.onSensorEvent(door, true));
+
+        assertEquals(AlarmStatus.PENDING_ALARM, coalescer.onSensorEvent(door, false));
+    }
+
+    @Test
+    public void activationOfInactiveSensorWithinWindow_forwardedImmediately() {
+        coalescer.onSensorEvent(door, false);
+
+        assertEquals(AlarmStatus.PENDING_ALARM, coalescer.onSensorEvent(door, true));
+        coalescer.onSensorEvent(door, false);
+        coalescer.onSensorEvent(door, true);
+
+        assertEquals(List.of(false, true), forwarded);
+        //the latest state equals the last forwarded one, so nothing more is sent
+        timerWheel.advanceTo(WINDOW);
+        assertEquals(List.of(false, true), forwarded);
+    }
+
+    @Test
+    public void windowClosedWithChange_opensNextWindow() {
+        coalescer.onSensorEvent(door, true);
+        coalescer.onSensorEvent(door, false);
+        timerWheel.advanceTo(WINDOW);
+        assertEquals(List.of(true, false), forwarded);
+
+        //still coalescing after the forwarded change
+        coalescer.onSensorEvent(door, true);
+        coalescer.onSensorEvent(door, false);
+        assertEquals(List.of(true, false, true), forwarded);
+
+        timerWheel.advanceTo(2 * WINDOW);
+        assertEquals(List.of(true, false, true, false), forwarded);
+    }
+
+    @Test
+    public void windowExpiredWithoutChange_nextEventForwardedImmediately() {
+        coalescer.onSensorEvent(door, true);
+        timerWheel.advanceTo(WINDOW);
+        assertEquals(List.of(true), forwarded);
+
+        assertEquals(AlarmStatus.NO_ALARM, coalescer.onSensorEvent(door, false));
+
+        assertEquals(List.of(true, false), forwarded);
+    }
+
+    @Test
+    public void windowNotYetExpired_keepsCoalescing() {
+        coalescer.onSensorEvent(door, true);
+        coalescer.onSensorEvent(door, false);
+
+        timerWheel.advanceTo(WINDOW - TICK);
+
+        assertEquals(List.of(true), forwarded);
+    }
+
+    @Test
+    public void unknownSensor_opensNoWindow() {
+        assertNull(coalescer.onSensorEvent(unknown, true));
+        assertNull(coalescer.onSensorEvent(unknown, false));
+
+        //without a window every event is asked about again
+        assertEquals(2, unknownForwarded);
+    }
+}
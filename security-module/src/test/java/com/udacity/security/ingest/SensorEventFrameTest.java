@@ -0,0 +1,48 @@
+package com.udacity.security.ingest;
+
+import com.udacity.security.data.AlarmStatus;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+
+import java.nio.ByteBuffer;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SensorEventFrameTest {
+
+    @Test
+    public void write_thenRead_sameSensorAndStatus() {
+        UUID sensorId = UUID.randomUUID();
+        ByteBuffer buffer = ByteBuffer.allocate(SensorEventFrame.LENGTH * 2);
+
+        SensorEventFrame.write(buffer, sensorId, true);
+        SensorEventFrame.write(buffer, sensorId, false);
+        buffer.flip();
+
+        assertEquals(SensorEventFrame.LENGTH * 2, buffer.remaining());
+        assertEquals(SensorEventFrame.VERSION, buffer.get());
+        assertEquals(sensorId, SensorEventFrame.readSensorId(buffer));
+        assertEquals(1, buffer.get());
+        assertEquals(SensorEventFrame.VERSION, buffer.get());
+        assertEquals(sensorId, SensorEventFrame.readSensorId(buffer));
+        assertEquals(0, buffer.get());
+        assertFalse(buffer.hasRemaining());
+    }
+
+    @ParameterizedTest
+    @EnumSource(AlarmStatus.class)
+    public void ack_anyAlarmStatus_decodesToSameStatus(AlarmStatus alarmStatus) {
+        byte ack = SensorEventFrame.ack(alarmStatus);
+
+        assertTrue(ack != SensorEventFrame.ACK_UNKNOWN_SENSOR);
+        assertEquals(alarmStatus, SensorEventFrame.fromAck(ack));
+    }
+
+    @Test
+    public void ack_unknownSensor_decodesToNull() {
+        assertEquals(SensorEventFrame.ACK_UNKNOWN_SENSOR, SensorEventFrame.ack(null));
+        assertNull(SensorEventFrame.fromAck(SensorEventFrame.ACK_UNKNOWN_SENSOR));
+    }
+}
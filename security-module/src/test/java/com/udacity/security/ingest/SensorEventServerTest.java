@@ -0,0 +1,113 @@
+package com.udacity.security.ingest;
+
+import com.udacity.security.data.AlarmStatus;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.ByteBuffer;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SensorEventServerTest {
+
+    private static final int TIMEOUT_MILLIS = 5_000;
+
+    private final UUID door = UUID.randomUUID();
+    private final UUID window = UUID.randomUUID();
+    private final Map<UUID, Boolean> active = new ConcurrentHashMap<>();
+    private final List<String> handlerThreads = new CopyOnWriteArrayList<>();
+
+    // SUT
+    private SensorEventServer server;
+
+    @BeforeEach
+    public void init() throws IOException {
+        active.put(door, false);
+        active.put(window, false);
+        server = new SensorEventServer(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0),
+                (sensorId, isActive) -> {
+                    handlerThreads.add(Thread.currentThread().getName());
+                    if (active.replace(sensorId, isActive) == null) {
+                        return null;
+                    }
+                    return active.containsValue(true) ? AlarmStatus.PENDING_ALARM : AlarmStatus.NO_ALARM;
+                });
+        server.start();
+    }
+
+    @AfterEach
+    public void close() throws IOException {
+        server.close();
+    }
+
+    private Socket connect() throws IOException {
+        Socket socket = new Socket(InetAddress.getLoopbackAddress(), server.getPort());
+        socket.setSoTimeout(TIMEOUT_MILLIS);
+        return socket;
+    }
+
+    private static void send(Socket socket, UUID... sensorIds) throws IOException {
+        ByteBuffer frames = ByteBuffer.allocate(SensorEventFrame.LENGTH * sensorIds.length);
+        for (UUID sensorId : sensorIds) {
+            SensorEventFrame.write(frames, sensorId, true);
+        }
+        socket.getOutputStream().write(frames.array());
+    }
+
+    @Test
+    public void frames_answeredInOrderWithAlarmStatus() throws IOException {
+        try (Socket socket = connect()) {
+            send(socket, door, UUID.randomUUID(), window);
+
+            DataInputStream acks = new DataInputStream(socket.getInputStream());
+            assertEquals(AlarmStatus.PENDING_ALARM, SensorEventFrame.fromAck(acks.readByte()));
+            assertNull(SensorEventFrame.fromAck(acks.readByte()));
+            assertEquals(AlarmStatus.PENDING_ALARM, SensorEventFrame.fromAck(acks.readByte()));
+        }
+        assertTrue(active.get(door));
+        assertTrue(active.get(window));
+        assertTrue(handlerThreads.stream().allMatch("sensor-ingest"::equals), "handler called off the selector thread");
+    }
+
+    @Test
+    public void frameSplitAcrossWrites_decodedOnceComplete() throws IOException, InterruptedException {
+        ByteBuffer frame = ByteBuffer.allocate(SensorEventFrame.LENGTH);
+        SensorEventFrame.write(frame, door, true);
+        try (Socket socket = connect()) {
+            OutputStream out = socket.getOutputStream();
+            out.write(frame.array(), 0, 5);
+            out.flush();
+            Thread.sleep(50);
+            out.write(frame.array(), 5, SensorEventFrame.LENGTH - 5);
+
+            assertEquals(AlarmStatus.PENDING_ALARM, SensorEventFrame.fromAck((byte) socket.getInputStream().read()));
+        }
+        assertEquals(1, handlerThreads.size());
+    }
+
+    @Test
+    public void unsupportedVersion_closesOnlyThatConnection() throws IOException {
+        try (Socket bad = connect(); Socket good = connect()) {
+            byte[] frame = new byte[SensorEventFrame.LENGTH];
+            frame[0] = SensorEventFrame.VERSION + 1;
+            bad.getOutputStream().write(frame);
+            assertEquals(-1, bad.getInputStream().read());
+
+            send(good, door);
+            assertEquals(AlarmStatus.PENDING_ALARM, SensorEventFrame.fromAck((byte) good.getInputStream().read()));
+        }
+        assertEquals(1, handlerThreads.size());
+    }
+}
@@ -0,0 +1,210 @@
+package com.udacity.security.replication;
+
+import com.udacity.security.data.AlarmStatus;
+import com.udacity.security.data.ArmingStatus;
+import com.udacity.security.data.InMemorySecurityRepositoryImpl;
+import com.udacity.security.data.SecurityRepository;
+import com.udacity.security.data.Sensor;
+import com.udacity.security.data.SensorType;
+import com.udacity.security.data.Zone;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ReplicationTest {
+
+    private static final long HEARTBEAT_MILLIS = 20;
+    private static final long FAILOVER_MILLIS = 300;
+    private static final long QUIET_FAILOVER_MILLIS = 1_000;
+    private static final long WAIT_MILLIS = 5_000;
+
+    private final InMemorySecurityRepositoryImpl primaryStore = new InMemorySecurityRepositoryImpl();
+    private final InMemorySecurityRepositoryImpl standbyStore = new InMemorySecurityRepositoryImpl();
+    private final AtomicReference<SecurityRepository> takenOver = new AtomicReference<>();
+
+    private ReplicatedSecurityRepository repository;
+    private ReplicationPrimary primary;
+    private ReplicationStandby standby;
+
+    private void startPrimary(int logCapacity) throws IOException {
+        repository = new ReplicatedSecurityRepository(primaryStore, logCapacity);
+        primary = new ReplicationPrimary(repository,
+                new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), HEARTBEAT_MILLIS);
+        primary.start();
+    }
+
+    private void startStandby() {
+        startStandby(FAILOVER_MILLIS);
+    }
+
+    private void startStandby(long failoverMillis) {
+        standby = new ReplicationStandby(standbyStore,
+                new InetSocketAddress(InetAddress.getLoopbackAddress(), primary.getPort()), failoverMillis,
+                takenOver::set);
+        standby.start();
+    }
+
+    @AfterEach
+    public void close() throws IOException {
+        if (standby != null) {
+            standby.close();
+        }
+        if (primary != null) {
+            primary.close();
+        }
+    }
+
+    @Test
+    public void changesOnPrimary_replicatedAndAcked() throws Exception {
+        startPrimary(1_000);
+        startStandby();
+        Sensor door = new Sensor("Door", SensorType.DOOR, Zone.PERIMETER);
+        Sensor window = new Sensor("Window", SensorType.WINDOW);
+
+        repository.addSensor(door);
+        repository.addSensor(window);
+        door.setActive(true);
+        repository.updateSensor(door);
+        repository.removeSensor(window);
+        repository.setArmingStatus(ArmingStatus.ARMED_AWAY);
+        repository.setAlarmStatus(AlarmStatus.PENDING_ALARM);
+        repository.setCatDetected(true);
+
+        assertTrue(primary.awaitAcked(repository.getLastSequence(), WAIT_MILLIS));
+        assertEquals(7, standby.getAppliedSequence());
+        assertEquals(1, standbyStore.getSensors().size());
+        Sensor replicated = standbyStore.getSensors().iterator().next();
+        assertEquals(door.getSensorId(), replicated.getSensorId());
+        assertTrue(replicated.getActive());
+        assertEquals(Zone.PERIMETER, replicated.getZone());
+        assertEquals(ArmingStatus.ARMED_AWAY, standbyStore.getArmingStatus());
+        assertEquals(AlarmStatus.PENDING_ALARM, standbyStore.getAlarmStatus());
+        assertTrue(standbyStore.getCatDetected());
+    }
+
+    @Test
+    public void manyChanges_pipelinedWithFewerAcksThanChanges() throws Exception {
+        startPrimary(10_000);
+        startStandby();
+        List<Sensor> sensors = new ArrayList<>();
+        for (int i = 0; i < 2_000; i++) {
+            Sensor sensor = new Sensor("Sensor " + i, SensorType.MOTION);
+            sensors.add(sensor);
+            repository.addSensor(sensor);
+        }
+        sensors.forEach(sensor -> sensor.setActive(true));
+        repository.updateSensors(sensors);
+
+        assertTrue(primary.awaitAcked(repository.getLastSequence(), WAIT_MILLIS));
+        assertEquals(2_000, standbyStore.getSensors().size());
+        assertTrue(standbyStore.getSensors().stream().allMatch(Sensor::getActive));
+        assertTrue(standby.getAcksSent() < 2_001, "acks: " + standby.getAcksSent());
+    }
+
+    @Test
+    public void standbyBehindLog_catchesUpFromSnapshotThenLog() throws Exception {
+        startPrimary(4);
+        for (int i = 0; i < 20; i++) {
+            repository.addSensor(new Sensor("Sensor " + i, SensorType.DOOR));
+        }
+        repository.setAlarmStatus(AlarmStatus.ALARM);
+
+        startStandby();
+        assertTrue(primary.awaitAcked(repository.getLastSequence(), WAIT_MILLIS));
+        repository.setArmingStatus(ArmingStatus.ARMED_HOME);
+        assertTrue(primary.awaitAcked(repository.getLastSequence(), WAIT_MILLIS));
+
+        assertEquals(1, standby.getSnapshotsApplied());
+        assertEquals(20, standbyStore.getSensors().size());
+        assertEquals(AlarmStatus.ALARM, standbyStore.getAlarmStatus());
+        assertEquals(ArmingStatus.ARMED_HOME, standbyStore.getArmingStatus());
+    }
+
+    @Test
+    public void connectionLost_standbyResumesFromLog() throws Exception {
+        startPrimary(1_000);
+        startStandby();
+        repository.addSensor(new Sensor("Door", SensorType.DOOR));
+        assertTrue(primary.awaitAcked(repository.getLastSequence(), WAIT_MILLIS));
+
+        primary.disconnectStandby();
+        repository.addSensor(new Sensor("Window", SensorType.WINDOW));
+        repository.setAlarmStatus(AlarmStatus.PENDING_ALARM);
+
+        assertTrue(primary.awaitAcked(repository.getLastSequence(), WAIT_MILLIS));
+        assertEquals(2, standbyStore.getSensors().size());
+        assertEquals(AlarmStatus.PENDING_ALARM, standbyStore.getAlarmStatus());
+        //a snapshot when first joining, the log after reconnecting
+        assertEquals(1, standby.getSnapshotsApplied());
+        assertEquals(1, primary.getSnapshotsSent());
+        assertFalse(standby.isPromoted());
+    }
+
+    @Test
+    public void quietPrimary_heartbeatsKeepStandbyFromTakingOver() throws Exception {
+        startPrimary(1_000);
+        //a timeout of many heartbeats, so a briefly starved heartbeat thread does not count
+        startStandby(QUIET_FAILOVER_MILLIS);
+
+        Thread.sleep(QUIET_FAILOVER_MILLIS * 2);
+
+        assertFalse(standby.isPromoted());
+    }
+
+    @Test
+    public void standbyReplaced_previousAcksNoLongerCount() throws Exception {
+        startPrimary(1_000);
+        startStandby();
+        repository.addSensor(new Sensor("Door", SensorType.DOOR));
+        assertTrue(primary.awaitAcked(repository.getLastSequence(), WAIT_MILLIS));
+        standby.close();
+
+        //a standby of another primary that never acknowledges anything
+        try (Socket replacement = new Socket(InetAddress.getLoopbackAddress(), primary.getPort())) {
+            DataOutputStream out = new DataOutputStream(replacement.getOutputStream());
+            out.writeByte(ReplicationProtocol.VERSION);
+            out.writeLong(0);
+            out.writeLong(repository.getLastSequence());
+            out.flush();
+            long deadline = System.currentTimeMillis() + WAIT_MILLIS;
+            while (primary.getSnapshotsSent() < 2 && System.currentTimeMillis() < deadline) {
+                Thread.sleep(10);
+            }
+            assertEquals(2, primary.getSnapshotsSent());
+
+            assertEquals(0, primary.getAckedSequence());
+            assertFalse(primary.awaitAcked(repository.getLastSequence(), 100));
+        }
+    }
+
+    @Test
+    public void primaryFails_standbyTakesOverWithCurrentAlarmWithinTimeout() throws Exception {
+        startPrimary(1_000);
+        startStandby();
+        repository.addSensor(new Sensor("Door", SensorType.DOOR));
+        repository.setArmingStatus(ArmingStatus.ARMED_AWAY);
+        repository.setAlarmStatus(AlarmStatus.ALARM);
+        assertTrue(primary.awaitAcked(repository.getLastSequence(), WAIT_MILLIS));
+
+        long failedAt = System.nanoTime();
+        primary.close();
+
+        assertTrue(standby.awaitPromotion(WAIT_MILLIS));
+        long takeoverMillis = (System.nanoTime() - failedAt) / 1_000_000;
+        //generous for a loaded machine; it must not take a multiple of the timeout
+        assertTrue(takeoverMillis < FAILOVER_MILLIS * 5, "took over after " + takeoverMillis + "ms");
+        assertSame(standbyStore, takenOver.get());
+        assertEquals(AlarmStatus.ALARM, standbyStore.getAlarmStatus());
+        assertEquals(ArmingStatus.ARMED_AWAY, standbyStore.getArmingStatus());
+    }
+}
@@ -0,0 +1,213 @@
+package com.udacity.security.rules;
+
+import com.udacity.security.data.AlarmStatus;
+import com.udacity.security.data.ArmingStatus;
+import com.udacity.security.data.InMemorySecurityRepositoryImpl;
+import com.udacity.security.data.Sensor;
+import com.udacity.security.data.SensorType;
+import com.udacity.security.data.Zone;
+import com.udacity.security.service.SecurityService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+
+import java.time.LocalTime;
+import java.time.ZoneOffset;
+import java.util.HashSet;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DecisionTableTest {
+
+    private static final long NOON = 12 * 3_600_000L;
+    private static final long MIDNIGHT = 24 * 3_600_000L;
+
+    private int totalActive;
+    private int armedActive;
+    private RuleEvent event;
+
+    private Sensor door;
+    private Sensor window;
+    private Sensor interiorMotion;
+
+    @BeforeEach
+    public void init() {
+        totalActive = 0;
+        armedActive = 0;
+        event = new RuleEvent(new SensorCounts() {
+            @Override
+            public int totalActive() {
+                return totalActive;
+            }
+
+            @Override
+            public int armedActive(ArmingStatus armingStatus, Sensor excluded) {
+                return armedActive;
+            }
+        });
+        door = new Sensor("Door", SensorType.DOOR);
+        window = new Sensor("Window", SensorType.WINDOW, Zone.PERIMETER);
+        interiorMotion = new Sensor("Hall", SensorType.MOTION, Zone.INTERIOR);
+    }
+
+    @ParameterizedTest
+    @EnumSource(value = ArmingStatus.class, names = {"ARMED_HOME", "ARMED_AWAY"})
+    public void defaults_sensorActivated_escalatesOneStep(ArmingStatus armingStatus) {
+        DecisionTable table = DecisionTable.compile(DefaultRules.create());
+
+        assertEquals(AlarmStatus.PENDING_ALARM, evaluate(table, EventType.SENSOR_ACTIVATED, armingStatus, AlarmStatus.NO_ALARM, door, NOON));
+        assertEquals(AlarmStatus.ALARM, evaluate(table, EventType.SENSOR_ACTIVATED, armingStatus, AlarmStatus.PENDING_ALARM, door, NOON));
+        assertNull(evaluate(table, EventType.SENSOR_ACTIVATED, armingStatus, AlarmStatus.ALARM, door, NOON));
+    }
+
+    @Test
+    public void defaults_sensorActivatedWhileDisarmed_noChange() {
+        DecisionTable table = DecisionTable.compile(DefaultRules.create());
+
+        assertNull(evaluate(table, EventType.SENSOR_ACTIVATED, ArmingStatus.DISARMED, AlarmStatus.NO_ALARM, door, NOON));
+    }
+
+    @Test
+    public void defaults_interiorSensorWhileArmedHome_noChange() {
+        DecisionTable table = DecisionTable.compile(DefaultRules.create());
+
+        assertNull(evaluate(table, EventType.SENSOR_ACTIVATED, ArmingStatus.ARMED_HOME, AlarmStatus.NO_ALARM, interiorMotion, NOON));
+        assertEquals(AlarmStatus.PENDING_ALARM,
+                evaluate(table, EventType.SENSOR_ACTIVATED, ArmingStatus.ARMED_AWAY, AlarmStatus.NO_ALARM, interiorMotion, NOON));
+    }
+
+    @Test
+    public void defaults_unknownStatus_matchesUnrestrictedRules() {
+        DecisionTable table = DecisionTable.compile(DefaultRules.create());
+
+        assertEquals(AlarmStatus.ALARM, evaluate(table, EventType.SENSOR_ACTIVATED, null, AlarmStatus.PENDING_ALARM, door, NOON));
+        assertEquals(AlarmStatus.NO_ALARM, evaluate(table, EventType.ARMING_CHANGED, ArmingStatus.DISARMED, null, null, NOON));
+    }
+
+    @Test
+    public void defaults_lastArmedSensorDeactivated_clearsPendingAlarm() {
+        DecisionTable table = DecisionTable.compile(DefaultRules.create());
+
+        armedActive = 1;
+        assertNull(evaluate(table, EventType.SENSOR_DEACTIVATED, ArmingStatus.ARMED_AWAY, AlarmStatus.PENDING_ALARM, door, NOON));
+        armedActive = 0;
+        assertEquals(AlarmStatus.NO_ALARM, evaluate(table, EventType.SENSOR_DEACTIVATED, ArmingStatus.ARMED_AWAY, AlarmStatus.PENDING_ALARM, door, NOON));
+        assertNull(evaluate(table, EventType.SENSOR_DEACTIVATED, ArmingStatus.ARMED_AWAY, AlarmStatus.ALARM, door, NOON));
+    }
+
+    @Test
+    public void defaults_cat_alarmsOnlyWhenArmedHome() {
+        DecisionTable table = DecisionTable.compile(DefaultRules.create());
+        totalActive = 1;
+
+        assertEquals(AlarmStatus.ALARM, evaluate(table, EventType.CAT_DETECTED, ArmingStatus.ARMED_HOME, AlarmStatus.NO_ALARM, null, NOON));
+        assertNull(evaluate(table, EventType.CAT_DETECTED, ArmingStatus.ARMED_AWAY, AlarmStatus.NO_ALARM, null, NOON));
+        totalActive = 0;
+        assertEquals(AlarmStatus.NO_ALARM, evaluate(table, EventType.NO_CAT_DETECTED, ArmingStatus.ARMED_AWAY, AlarmStatus.ALARM, null, NOON));
+    }
+
+    @Test
+    public void defaults_armedHomeWithCat_alarms() {
+        DecisionTable table = DecisionTable.compile(DefaultRules.create());
+
+        assertEquals(AlarmStatus.ALARM, evaluateCat(table, EventType.ARMING_CHANGED, ArmingStatus.ARMED_HOME, true));
+        assertNull(evaluateCat(table, EventType.ARMING_CHANGED, ArmingStatus.ARMED_HOME, false));
+        assertNull(evaluateCat(table, EventType.ARMING_CHANGED, ArmingStatus.ARMED_AWAY, true));
+    }
+
+    @Test
+    public void siteRule_ignoreWindowsWhenArmedHome_overridesDefaults() {
+        DecisionTable table = DecisionTable.compile(DefaultRules.withSiteRules(List.of(
+                Rule.on(EventType.SENSOR_ACTIVATED).whenArming(ArmingStatus.ARMED_HOME)
+                        .where(Guards.sensorType(SensorType.WINDOW))
+                        .ignore())));
+
+        assertNull(evaluate(table, EventType.SENSOR_ACTIVATED, ArmingStatus.ARMED_HOME, AlarmStatus.NO_ALARM, window, NOON));
+        assertEquals(AlarmStatus.PENDING_ALARM,
+                evaluate(table, EventType.SENSOR_ACTIVATED, ArmingStatus.ARMED_AWAY, AlarmStatus.NO_ALARM, window, NOON));
+        assertEquals(AlarmStatus.PENDING_ALARM,
+                evaluate(table, EventType.SENSOR_ACTIVATED, ArmingStatus.ARMED_HOME, AlarmStatus.NO_ALARM, door, NOON));
+    }
+
+    @Test
+    public void siteRule_twoMotionSensorsWithinWindow_alarms() {
+        DecisionTable table = DecisionTable.compile(DefaultRules.withSiteRules(List.of(
+                Rule.on(EventType.SENSOR_ACTIVATED).unlessArming(ArmingStatus.DISARMED)
+                        .unlessAlarm(AlarmStatus.ALARM)
+                        .where(Guards.sensorType(SensorType.MOTION), Guards.occurrences(2, 30_000))
+                        .then(AlarmStatus.ALARM))));
+
+        assertEquals(AlarmStatus.PENDING_ALARM,
+                evaluate(table, EventType.SENSOR_ACTIVATED, ArmingStatus.ARMED_AWAY, AlarmStatus.NO_ALARM, interiorMotion, NOON));
+        //a door in between neither counts nor resets the window
+        assertEquals(AlarmStatus.PENDING_ALARM,
+                evaluate(table, EventType.SENSOR_ACTIVATED, ArmingStatus.ARMED_AWAY, AlarmStatus.NO_ALARM, door, NOON + 1_000));
+        assertEquals(AlarmStatus.ALARM,
+                evaluate(table, EventType.SENSOR_ACTIVATED, ArmingStatus.ARMED_AWAY, AlarmStatus.NO_ALARM, interiorMotion, NOON + 30_000));
+        //too far apart from the previous one
+        assertEquals(AlarmStatus.PENDING_ALARM,
+                evaluate(table, EventType.SENSOR_ACTIVATED, ArmingStatus.ARMED_AWAY, AlarmStatus.NO_ALARM, interiorMotion, NOON + 60_001));
+    }
+
+    @Test
+    public void siteRule_catOnlyAtNight_spansMidnight() {
+        DecisionTable table = DecisionTable.compile(DefaultRules.withSiteRules(List.of(
+                Rule.on(EventType.CAT_DETECTED)
+                        .where(Guards.not(Guards.between(LocalTime.of(22, 0), LocalTime.of(6, 0), ZoneOffset.UTC)))
+                        .ignore())));
+        totalActive = 1;
+
+        assertNull(evaluate(table, EventType.CAT_DETECTED, ArmingStatus.ARMED_HOME, AlarmStatus.NO_ALARM, null, NOON));
+        assertEquals(AlarmStatus.ALARM,
+                evaluate(table, EventType.CAT_DETECTED, ArmingStatus.ARMED_HOME, AlarmStatus.NO_ALARM, null, MIDNIGHT + 3_600_000L));
+        assertEquals(AlarmStatus.ALARM,
+                evaluate(table, EventType.CAT_DETECTED, ArmingStatus.ARMED_HOME, AlarmStatus.NO_ALARM, null, MIDNIGHT - 3_600_000L));
+        assertNull(evaluate(table, EventType.CAT_DETECTED, ArmingStatus.ARMED_HOME, AlarmStatus.NO_ALARM, null, MIDNIGHT + 6 * 3_600_000L));
+    }
+
+    @Test
+    public void siteRule_sensorActivatedWhileCatDetected_seesTheCat() {
+        List<Rule> siteRules = List.of(
+                Rule.on(EventType.SENSOR_ACTIVATED).unlessArming(ArmingStatus.DISARMED)
+                        .where(Guards.catDetected())
+                        .then(AlarmStatus.ALARM));
+        DecisionTable table = DecisionTable.compile(DefaultRules.withSiteRules(siteRules));
+
+        assertEquals(AlarmStatus.ALARM, table.evaluate(
+                event.set(EventType.SENSOR_ACTIVATED, ArmingStatus.ARMED_AWAY, AlarmStatus.NO_ALARM, door, true, NOON)));
+        assertEquals(AlarmStatus.PENDING_ALARM,
+                evaluate(table, EventType.SENSOR_ACTIVATED, ArmingStatus.ARMED_AWAY, AlarmStatus.NO_ALARM, door, NOON));
+
+        //the service hands its cat status to sensor events, not just to arming changes
+        SecurityService securityService = new SecurityService(new InMemorySecurityRepositoryImpl(),
+                (image, threshold) -> true, new HashSet<>());
+        securityService.setDecisionTable(table);
+        securityService.addSensor(door);
+        securityService.setArmingStatus(ArmingStatus.ARMED_AWAY);
+        securityService.processImage(null);
+        securityService.changeSensorActivationStatus(door, true);
+
+        assertEquals(AlarmStatus.ALARM, securityService.getAlarmStatus());
+    }
+
+    @Test
+    public void compile_rulesAfterUnguardedRule_leftOutOfCell() {
+        DecisionTable shadowed = DecisionTable.compile(List.of(
+                Rule.on(EventType.CAT_DETECTED).then(AlarmStatus.ALARM),
+                Rule.on(EventType.CAT_DETECTED).then(AlarmStatus.NO_ALARM)));
+
+        assertEquals(AlarmStatus.ALARM, evaluate(shadowed, EventType.CAT_DETECTED, ArmingStatus.ARMED_AWAY, AlarmStatus.NO_ALARM, null, NOON));
+        assertEquals((ArmingStatus.values().length + 1) * (AlarmStatus.values().length + 1), shadowed.size());
+    }
+
+    private AlarmStatus evaluate(DecisionTable table, EventType type, ArmingStatus armingStatus, AlarmStatus alarmStatus,
+                                 Sensor sensor, long timeMillis) {
+        return table.evaluate(event.set(type, armingStatus, alarmStatus, sensor, false, timeMillis));
+    }
+
+    private AlarmStatus evaluateCat(DecisionTable table, EventType type, ArmingStatus armingStatus, boolean cat) {
+        return table.evaluate(event.set(type, armingStatus, AlarmStatus.NO_ALARM, null, cat, NOON));
+    }
+}
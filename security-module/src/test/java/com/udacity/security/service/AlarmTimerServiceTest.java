@@ -0,0 +1,228 @@
+package com.udacity.security.service;
+
+import com.udacity.security.data.AlarmStatus;
+import com.udacity.security.data.ArmingStatus;
+import com.udacity.security.data.InMemorySecurityRepositoryImpl;
+import com.udacity.security.data.Sensor;
+import com.udacity.security.data.SensorType;
+import com.udacity.security.data.Zone;
+import com.udacity.security.timer.TimerWheel;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayDeque;
+import java.util.HashSet;
+import java.util.Queue;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AlarmTimerServiceTest {
+
+    private static final long TICK = 10;
+    private static final long ENTRY_DELAY = 300;
+    private static final long EXIT_DELAY = 500;
+    private static final long ALARM_TIMEOUT = 1_000;
+
+    //expired timers wait here until the test runs them, as they would on the owning thread
+    private Queue<Runnable> pending;
+    private TimerWheel timerWheel;
+    private SecurityService securityService;
+
+    // SUT
+    private AlarmTimerService alarmTimerService;
+
+    @BeforeEach
+    public void init() {
+        pending = new ArrayDeque<>();
+        timerWheel = new TimerWheel(TICK, 64, 0);
+        securityService = new SecurityService(new InMemorySecurityRepositoryImpl(),
+                (image, confidenceThreshold) -> false, new HashSet<>());
+        alarmTimerService = new AlarmTimerService(securityService, timerWheel,
+                ENTRY_DELAY, EXIT_DELAY, ALARM_TIMEOUT, pending::add);
+    }
+
+    @Test
+    public void notify_pendingAlarmForEntryDelay_escalatesToAlarm() {
+        securityService.setAlarmStatus(AlarmStatus.PENDING_ALARM);
+
+        advanceTo(ENTRY_DELAY - TICK);
+        assertEquals(AlarmStatus.PENDING_ALARM, securityService.getAlarmStatus());
+
+        advanceTo(ENTRY_DELAY);
+        assertEquals(AlarmStatus.ALARM, securityService.getAlarmStatus());
+    }
+
+    @Test
+    public void notify_pendingAlarmClearedWithinEntryDelay_neverEscalates() {
+        securityService.setAlarmStatus(AlarmStatus.PENDING_ALARM);
+        advanceTo(ENTRY_DELAY / 2);
+
+        securityService.setAlarmStatus(AlarmStatus.NO_ALARM);
+        advanceTo(ENTRY_DELAY + ALARM_TIMEOUT);
+
+        assertEquals(AlarmStatus.NO_ALARM, securityService.getAlarmStatus());
+        assertTrue(pending.isEmpty());
+    }
+
+    @Test
+    public void notify_alarmForAlarmTimeout_resetsToNoAlarm() {
+        securityService.setAlarmStatus(AlarmStatus.PENDING_ALARM);
+        advanceTo(ENTRY_DELAY);
+        assertEquals(AlarmStatus.ALARM, securityService.getAlarmStatus());
+
+        advanceTo(ENTRY_DELAY + ALARM_TIMEOUT - TICK);
+        assertEquals(AlarmStatus.ALARM, securityService.getAlarmStatus());
+
+        advanceTo(ENTRY_DELAY + ALARM_TIMEOUT);
+        assertEquals(AlarmStatus.NO_ALARM, securityService.getAlarmStatus());
+    }
+
+    @Test
+    public void notify_zeroEntryDelay_pendingAlarmNeverEscalates() {
+        TimerWheel otherWheel = new TimerWheel(TICK, 64, 0);
+        SecurityService otherService = new SecurityService(new InMemorySecurityRepositoryImpl(),
+                (image, confidenceThreshold) -> false, new HashSet<>());
+        new AlarmTimerService(otherService, otherWheel, 0, EXIT_DELAY, ALARM_TIMEOUT, Runnable::run);
+
+        otherService.setAlarmStatus(AlarmStatus.PENDING_ALARM);
+        otherWheel.advanceTo(10 * ALARM_TIMEOUT);
+
+        assertEquals(AlarmStatus.PENDING_ALARM, otherService.getAlarmStatus());
+    }
+
+    /**
+     * A timer that already expired but has not run yet on the owning thread must not apply once
+     * a newer alarm status was seen, even if the system is back in the state the timer expects.
+     */
+    @Test
+    public void notify_expiredTimerRunAfterNewerStatus_staleTransitionIgnored() {
+        securityService.setAlarmStatus(AlarmStatus.PENDING_ALARM);
+        timerWheel.advanceTo(ENTRY_DELAY);
+        assertEquals(1, pending.size());
+
+        securityService.setAlarmStatus(AlarmStatus.NO_ALARM);
+        securityService.setAlarmStatus(AlarmStatus.PENDING_ALARM);
+        runPending();
+
+        assertEquals(AlarmStatus.PENDING_ALARM, securityService.getAlarmStatus());
+
+        advanceTo(2 * ENTRY_DELAY);
+        assertEquals(AlarmStatus.ALARM, securityService.getAlarmStatus());
+    }
+
+    @Test
+    public void arm_armedForExitDelay_armingAppliedAfterDelay() {
+        alarmTimerService.arm(ArmingStatus.ARMED_AWAY);
+
+        advanceTo(EXIT_DELAY - TICK);
+        assertEquals(ArmingStatus.DISARMED, securityService.getArmingStatus());
+
+        advanceTo(EXIT_DELAY);
+        assertEquals(ArmingStatus.ARMED_AWAY, securityService.getArmingStatus());
+    }
+
+    @Test
+    public void arm_disarmedWithinExitDelay_armingCancelled() {
+        alarmTimerService.arm(ArmingStatus.ARMED_HOME);
+        advanceTo(EXIT_DELAY / 2);
+
+        alarmTimerService.arm(ArmingStatus.DISARMED);
+        advanceTo(2 * EXIT_DELAY);
+
+        assertEquals(ArmingStatus.DISARMED, securityService.getArmingStatus());
+        assertTrue(pending.isEmpty());
+    }
+
+    @Test
+    public void arm_rearmedWithinExitDelay_onlyLatestArmingApplied() {
+        alarmTimerService.arm(ArmingStatus.ARMED_AWAY);
+        advanceTo(EXIT_DELAY / 2);
+
+        alarmTimerService.arm(ArmingStatus.ARMED_HOME);
+        advanceTo(EXIT_DELAY);
+        assertEquals(ArmingStatus.DISARMED, securityService.getArmingStatus());
+
+        advanceTo(EXIT_DELAY / 2 + EXIT_DELAY);
+        assertEquals(ArmingStatus.ARMED_HOME, securityService.getArmingStatus());
+    }
+
+    @Test
+    public void notify_sensorInZoneWithOwnDelay_escalatesAfterZoneDelay() {
+        alarmTimerService.setZoneDelays(Zone.PERIMETER, 2 * ENTRY_DELAY, 0);
+        Sensor door = new Sensor("Front door", SensorType.DOOR, Zone.PERIMETER);
+        securityService.addSensor(door);
+        securityService.setArmingStatus(ArmingStatus.ARMED_AWAY);
+
+        securityService.changeSensorActivationStatus(door, true);
+        assertEquals(AlarmStatus.PENDING_ALARM, securityService.getAlarmStatus());
+
+        advanceTo(2 * ENTRY_DELAY - TICK);
+        assertEquals(AlarmStatus.PENDING_ALARM, securityService.getAlarmStatus());
+
+        advanceTo(2 * ENTRY_DELAY);
+        assertEquals(AlarmStatus.ALARM, securityService.getAlarmStatus());
+    }
+
+    @Test
+    public void notify_sensorInZoneWithoutOwnDelay_escalatesAfterDefaultDelay() {
+        alarmTimerService.setZoneDelays(Zone.PERIMETER, 2 * ENTRY_DELAY, 0);
+        Sensor hallway = new Sensor("Hallway", SensorType.MOTION, Zone.INTERIOR);
+        securityService.addSensor(hallway);
+        securityService.setArmingStatus(ArmingStatus.ARMED_AWAY);
+
+        securityService.changeSensorActivationStatus(hallway, true);
+
+        advanceTo(ENTRY_DELAY);
+        assertEquals(AlarmStatus.ALARM, securityService.getAlarmStatus());
+    }
+
+    @Test
+    public void notify_zonesWithDifferentDelaysActive_shortestDelayApplies() {
+        alarmTimerService.setZoneDelays(Zone.PERIMETER, 2 * ENTRY_DELAY, 0);
+        alarmTimerService.setZoneDelays(Zone.INTERIOR, ENTRY_DELAY / 3, 0);
+        Sensor door = new Sensor("Front door", SensorType.DOOR, Zone.PERIMETER);
+        Sensor hallway = new Sensor("Hallway", SensorType.MOTION, Zone.INTERIOR);
+        securityService.addSensor(door);
+        securityService.addSensor(hallway);
+        securityService.changeSensorActivationStatus(door, true);
+        securityService.changeSensorActivationStatus(hallway, true);
+
+        securityService.setAlarmStatus(AlarmStatus.PENDING_ALARM);
+
+        advanceTo(ENTRY_DELAY / 3 - TICK);
+        assertEquals(AlarmStatus.PENDING_ALARM, securityService.getAlarmStatus());
+        advanceTo(ENTRY_DELAY / 3);
+        assertEquals(AlarmStatus.ALARM, securityService.getAlarmStatus());
+    }
+
+    @Test
+    public void arm_armingModeWithZoneExitDelays_waitsForLongestArmedZone() {
+        alarmTimerService.setZoneDelays(Zone.PERIMETER, 0, 2 * EXIT_DELAY);
+        alarmTimerService.setZoneDelays(Zone.INTERIOR, 0, 4 * EXIT_DELAY);
+
+        alarmTimerService.arm(ArmingStatus.ARMED_HOME);
+        advanceTo(2 * EXIT_DELAY - TICK);
+        assertEquals(ArmingStatus.DISARMED, securityService.getArmingStatus());
+        advanceTo(2 * EXIT_DELAY);
+        assertEquals(ArmingStatus.ARMED_HOME, securityService.getArmingStatus());
+
+        alarmTimerService.arm(ArmingStatus.DISARMED);
+        alarmTimerService.arm(ArmingStatus.ARMED_AWAY);
+        advanceTo(6 * EXIT_DELAY - TICK);
+        assertEquals(ArmingStatus.DISARMED, securityService.getArmingStatus());
+        advanceTo(6 * EXIT_DELAY);
+        assertEquals(ArmingStatus.ARMED_AWAY, securityService.getArmingStatus());
+    }
+
+    private void advanceTo(long nowMillis) {
+        timerWheel.advanceTo(nowMillis);
+        runPending();
+    }
+
+    private void runPending() {
+        Runnable task;
+        while ((task = pending.poll()) != null) {
+            task.run();
+        }
+    }
+}
@@ -0,0 +1,166 @@
+package com.udacity.security.service;
+
+import com.udacity.image.service.Detection;
+import com.udacity.image.service.ImageService;
+import com.udacity.security.application.StatusListener;
+import com.udacity.security.data.AlarmStatus;
+import com.udacity.security.data.InMemorySecurityRepositoryImpl;
+import com.udacity.security.data.Sensor;
+import com.udacity.security.data.SensorStatusBatch;
+import com.udacity.security.data.SensorType;
+import com.udacity.security.data.Zone;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.awt.image.BufferedImage;
+import java.lang.management.ManagementFactory;
+import java.util.HashSet;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Allocation budgets for the steady-state event paths, in bytes per call with one listener. The
+ * budgets are what the paths allocate today with 16 sensors, so a change that makes them
+ * allocate more fails here; lower a budget when a change makes its path leaner.
+ *
+ * Each path is also measured with 4096 sensors, where it may allocate no more than it does with
+ * 16 plus the growth allowance. The allowance covers the two extra levels of the snapshot's
+ * sensor trie that a sensor change copies in the larger fleet; anything that copies a per-sensor
+ * table on every event costs kilobytes there and fails, however small the budgets look.
+ *
+ * The build runs this test in its own fork with escape analysis off. Otherwise whether the JIT happens to eliminate
+ * a lambda or an iterator depends on compilation order, and the numbers vary from run to run;
+ * with it off every allocation site on the path counts, every time. Run elsewhere, a path can
+ * only come in under its budget.
+ *
+ * Most of what remains is the immutable state snapshot every change publishes, which copies the
+ * sensor table's path to the changed sensor on sensor changes.
+ */
+class AllocationBudgetTest {
+
+    private static final long SENSOR_CHANGE_BUDGET = 288;
+    private static final long PROCESS_IMAGE_BUDGET = 96;
+    private static final long ALARM_STATUS_BUDGET = 40;
+    private static final long FLEET_GROWTH_ALLOWANCE = 256;
+
+    private static final int SMALL_FLEET = 16;
+    private static final int LARGE_FLEET = 4_096;
+    private static final int WARMUP_CALLS = 50_000;
+    private static final int MEASURED_CALLS = 10_000;
+    private static final int ROUNDS = 5;
+
+    private final Detection cat = new Detection("Cat", 90f, SecurityService.DEFAULT_CONFIDENCE_THRESHOLD, true);
+    private final Detection noCat = new Detection(null, 0f, SecurityService.DEFAULT_CONFIDENCE_THRESHOLD, true);
+    private final BufferedImage image = new BufferedImage(1, 1, BufferedImage.TYPE_INT_RGB);
+    private Detection nextDetection;
+    private ImageService imageService;
+
+    private SecurityService securityService;
+    private Sensor[] sensors;
+
+    @BeforeEach
+    void init() {
+        imageService = new ImageService() {
+            @Override
+            public boolean imageContainsCat(BufferedImage image, float confidenceThreshold) {
+                return nextDetection.isCat(confidenceThreshold);
+            }
+
+            @Override
+            public Detection detect(BufferedImage image, float confidenceThreshold) {
+                return nextDetection;
+            }
+        };
+    }
+
+    @Test
+    public void changeSensorActivationStatus_steadyState_withinBudget() {
+        assertWithinBudget("changeSensorActivationStatus", SENSOR_CHANGE_BUDGET, i -> {
+            Sensor sensor = sensors[i % sensors.length];
+            securityService.changeSensorActivationStatus(sensor, !sensor.getActive());
+        });
+    }
+
+    @Test
+    public void processImage_steadyState_withinBudget() {
+        assertWithinBudget("processImage", PROCESS_IMAGE_BUDGET, i -> {
+            nextDetection = i % 2 == 0 ? cat : noCat;
+            securityService.processImage(image);
+        });
+    }
+
+    @Test
+    public void setAlarmStatus_steadyState_withinBudget() {
+        AlarmStatus[] statuses = AlarmStatus.values();
+        assertWithinBudget("setAlarmStatus", ALARM_STATUS_BUDGET,
+                i -> securityService.setAlarmStatus(statuses[i % statuses.length]));
+    }
+
+    private void assertWithinBudget(String path, long budget, Call call) {
+        long small = measure(SMALL_FLEET, call);
+        long large = measure(LARGE_FLEET, call);
+        assertTrue(small <= budget, path + " allocates " + small + " bytes per call, budget is " + budget);
+        assertTrue(large <= small + FLEET_GROWTH_ALLOWANCE, path + " allocates " + large + " bytes per call with "
+                + LARGE_FLEET + " sensors but " + small + " with " + SMALL_FLEET);
+    }
+
+    /**
+     * Warms the path up on a fleet of the given size so the JIT settles, then takes the cheapest
+     * of several measured rounds, which discounts one-off allocations such as a map resize or a
+     * lazily built index.
+     * @return Bytes allocated per call
+     */
+    private long measure(int fleetSize, Call call) {
+        fleet(fleetSize);
+        for (int i = 0; i < WARMUP_CALLS; i++) {
+            call.run(i);
+        }
+        long best = Long.MAX_VALUE;
+        for (int round = 0; round < ROUNDS; round++) {
+            long before = allocatedBytes();
+            for (int i = 0; i < MEASURED_CALLS; i++) {
+                call.run(i);
+            }
+            best = Math.min(best, allocatedBytes() - before);
+        }
+        return best / MEASURED_CALLS;
+    }
+
+    private void fleet(int size) {
+        securityService = new SecurityService(new InMemorySecurityRepositoryImpl(), imageService, new HashSet<>());
+        securityService.addStatusListener(new StatusListener() {
+            @Override
+            public void notify(AlarmStatus status) {
+            }
+
+            @Override
+            public void catDetected(boolean catDetected) {
+            }
+
+            @Override
+            public void sensorStatusChanged() {
+            }
+
+            @Override
+            public void sensorStatusChanged(SensorStatusBatch batch) {
+            }
+        });
+        sensors = new Sensor[size];
+        for (int i = 0; i < size; i++) {
+            sensors[i] = new Sensor("Sensor " + i, SensorType.values()[i % 3], i % 2 == 0 ? Zone.PERIMETER : Zone.INTERIOR);
+            securityService.addSensor(sensors[i]);
+        }
+    }
+
+    private static long allocatedBytes() {        java.lang.management.ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        assertTrue(threads instanceof com.sun.management.ThreadMXBean, "JVM cannot measure allocation");
+        com.sun.management.ThreadMXBean allocation = (com.sun.management.ThreadMXBean) threads;
+        assertTrue(allocation.isThreadAllocatedMemorySupported() && allocation.isThreadAllocatedMemoryEnabled(),
+                "JVM cannot measure allocation");
+        return allocation.getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+
+    private interface Call {
+        void run(int i);
+    }
+}
@@ -0,0 +1,225 @@
+package com.udacity.security.service;
+
+import com.udacity.image.service.ImageService;
+import com.udacity.security.application.StatusListener;
+import com.udacity.security.data.AlarmStatus;
+import com.udacity.security.data.ArmingStatus;
+import com.udacity.security.data.InMemorySecurityRepositoryImpl;
+import com.udacity.security.data.Sensor;
+import com.udacity.security.data.SensorType;
+import com.udacity.security.data.Zone;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.awt.image.BufferedImage;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.BrokenBarrierException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DetectionSchedulerTest {
+
+    private static final long RECENT_ACTIVITY = 10_000;
+    private static final long MIN_INTERVAL = 1_000;
+
+    private final BufferedImage frame1 = new BufferedImage(1, 1, BufferedImage.TYPE_INT_RGB);
+    private final BufferedImage frame2 = new BufferedImage(1, 1, BufferedImage.TYPE_INT_RGB);
+
+    private long now;
+    private ImageService imageService;
+    private SecurityService securityService;
+
+    // SUT
+    private DetectionScheduler scheduler;
+
+    @BeforeEach
+    public void init() {
+        now = 0;
+        imageService = (image, confidenceThreshold) -> false;
+        // Detector delegating to the field, so a test can swap it
+        ImageService detector = (image, threshold) -> imageService.imageContainsCat(image, threshold);
+        securityService = new SecurityService(new InMemorySecurityRepositoryImpl(), detector, new HashSet<>());
+        scheduler = new DetectionScheduler(securityService, 1, RECENT_ACTIVITY, 0, () -> now);
+        scheduler.addCamera("door", Zone.PERIMETER, MIN_INTERVAL);
+        scheduler.addCamera("hall", Zone.INTERIOR, MIN_INTERVAL);
+    }
+
+    @AfterEach
+    public void close() {
+        scheduler.close();
+    }
+
+    @Test
+    public void submit_beforePendingFrameTaken_keepsOnlyNewestFrame() {
+        scheduler.submit("door", frame1);
+        scheduler.submit("door", frame2);
+
+        Map.Entry<String, BufferedImage> next = scheduler.poll(now);
+
+        assertEquals("door", next.getKey());
+        assertSame(frame2, next.getValue());
+        assertEquals(1, scheduler.getDroppedCount());
+        assertNull(scheduler.poll(now));
+    }
+
+    @Test
+    public void poll_armedHome_armedZoneCameraFirst() {
+        securityService.setArmingStatus(ArmingStatus.ARMED_HOME);
+        scheduler.submit("hall", frame1);
+        now = 5;
+        scheduler.submit("door", frame2);
+
+        assertEquals(DetectionScheduler.Priority.IDLE, scheduler.priorityOf("hall"));
+        assertEquals(DetectionScheduler.Priority.ALARM_RELEVANT, scheduler.priorityOf("door"));
+        assertEquals("door", scheduler.poll(now).getKey());
+        assertEquals("hall", scheduler.poll(now).getKey());
+    }
+
+    @Test
+    public void poll_samePriority_oldestFrameFirst() {
+        securityService.setArmingStatus(ArmingStatus.ARMED_AWAY);
+        scheduler.submit("hall", frame1);
+        now = 5;
+        scheduler.submit("door", frame2);
+
+        assertEquals("hall", scheduler.poll(now).getKey());
+        assertEquals("door", scheduler.poll(now).getKey());
+    }
+
+    @Test
+    public void poll_sensorJustActivatedInZone_cameraIsUrgentUntilActivityExpires() {
+        Sensor motion = new Sensor("Hall motion", SensorType.MOTION, Zone.INTERIOR);
+        securityService.addSensor(motion);
+        securityService.setArmingStatus(ArmingStatus.ARMED_AWAY);
+        scheduler.submit("door", frame1);
+        now = 5;
+        securityService.changeSensorActivationStatus(motion, true);
+
+        assertEquals(DetectionScheduler.Priority.URGENT, scheduler.priorityOf("hall"));
+        scheduler.submit("hall", frame2);
+        assertEquals("hall", scheduler.poll(now).getKey());
+
+        now += RECENT_ACTIVITY + 1;
+        assertEquals(DetectionScheduler.Priority.ROUTINE, scheduler.priorityOf("hall"));
+    }
+
+    @Test
+    public void poll_withinMinInterval_cameraWaits() {
+        scheduler.submit("door", frame1);
+        assertEquals("door", scheduler.poll(now).getKey());
+        scheduler.finish("door");
+
+        scheduler.submit("door", frame2);
+        now = MIN_INTERVAL - 1;
+        assertNull(scheduler.poll(now));
+
+        now = MIN_INTERVAL;
+        assertSame(frame2, scheduler.poll(now).getValue());
+    }
+
+    @Test
+    public void poll_cameraBeingClassified_notTakenTwice() {
+        scheduler.addCamera("door", Zone.PERIMETER, 0);
+        scheduler.submit("door", frame1);
+        scheduler.poll(now);
+        scheduler.submit("door", frame2);
+
+        assertNull(scheduler.poll(now));
+        scheduler.finish("door");
+        assertSame(frame2, scheduler.poll(now).getValue());
+    }
+
+    @Test
+    public void start_detectorThread_classifiesNewestFrame() throws InterruptedException {
+        CountDownLatch firstStarted = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        BlockingQueue<BufferedImage> classified = new LinkedBlockingQueue<>();
+        imageService = (image, confidenceThreshold) -> {
+            classified.add(image);
+            firstStarted.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return false;
+        };
+        DetectionScheduler running = new DetectionScheduler(securityService, 1, RECENT_ACTIVITY, 0);
+        BufferedImage frame3 = new BufferedImage(1, 1, BufferedImage.TYPE_INT_RGB);
+        try {
+            running.start();
+            running.submit("door", frame1);
+            assertTrue(firstStarted.await(5, TimeUnit.SECONDS));
+            running.submit("door", frame2);
+            running.submit("door", frame3);
+            release.countDown();
+
+            assertSame(frame1, classified.poll(5, TimeUnit.SECONDS));
+            assertSame(frame3, classified.poll(5, TimeUnit.SECONDS));
+            assertEquals(1, running.getDroppedCount());
+        } finally {
+            running.close();
+        }
+    }
+
+    @Test
+    public void start_twoDetectors_catMovingBetweenCamerasIsNeverLost() throws InterruptedException {
+        BufferedImage cat = new BufferedImage(1, 1, BufferedImage.TYPE_INT_RGB);
+        BufferedImage empty = new BufferedImage(1, 1, BufferedImage.TYPE_INT_RGB);
+        CyclicBarrier together = new CyclicBarrier(2);
+        imageService = (image, confidenceThreshold) -> {
+            //both detectors finish their frames at the same moment
+            if (Thread.currentThread().getName().startsWith("detector-")) {
+                try {
+                    together.await(5, TimeUnit.SECONDS);
+                } catch (InterruptedException | BrokenBarrierException | TimeoutException e) {
+                    throw new IllegalStateException(e);
+                }
+            }
+            return image == cat;
+        };
+        Semaphore verdicts = new Semaphore(0);
+        securityService.addStatusListener(new StatusListener() {
+            @Override
+            public void notify(AlarmStatus status) {
+            }
+
+            @Override
+            public void catDetected(boolean catDetected) {
+                verdicts.release();
+            }
+
+            @Override
+            public void sensorStatusChanged() {
+            }
+        }, ListenerRegistry.Topic.CAT_DETECTED);
+        securityService.processImage("door", cat);
+        securityService.processImage("hall", empty);
+        verdicts.drainPermits();
+
+        DetectionScheduler running = new DetectionScheduler(securityService, 2, RECENT_ACTIVITY, 0);
+        try {
+            running.start();
+            for (int round = 0; round < 200; round++) {
+                //the cat walks from one camera to the other
+                boolean catAtDoor = round % 2 == 1;
+                running.submit("door", catAtDoor ? cat : empty);
+                running.submit("hall", catAtDoor ? empty : cat);
+
+                assertTrue(verdicts.tryAcquire(2, 5, TimeUnit.SECONDS));
+                assertTrue(securityService.getState().isCatDetected(), "cat lost in round " + round);
+            }
+        } finally {
+            running.close();
+        }
+    }
+}
@@ -0,0 +1,150 @@
+package com.udacity.security.service;
+
+import com.udacity.security.application.StatusListener;
+import com.udacity.security.data.AlarmStatus;
+import com.udacity.security.data.SensorStatusBatch;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ListenerRegistryTest {
+
+    private final ListenerRegistry registry = new ListenerRegistry();
+    private final List<String> calls = new ArrayList<>();
+
+    @Test
+    public void alarmStatusChanged_listenersOfEveryTopic_calledInSubscriptionOrder() {
+        registry.add(new RecordingListener("first"));
+        registry.add(new RecordingListener("second"));
+
+        registry.alarmStatusChanged(AlarmStatus.ALARM);
+
+        assertEquals(List.of("first notify ALARM", "second notify ALARM"), calls);
+    }
+
+    @Test
+    public void dispatch_typedSubscription_onlySubscribedTopicsCalled() {
+        registry.add(new RecordingListener("alarm"), ListenerRegistry.Topic.ALARM_STATUS);
+        registry.add(new RecordingListener("cat"), ListenerRegistry.Topic.CAT_DETECTED);
+
+        registry.alarmStatusChanged(AlarmStatus.PENDING_ALARM);
+        registry.catDetected(true);
+        registry.sensorStatusChanged(SensorStatusBatch.empty());
+
+        assertEquals(List.of("alarm notify PENDING_ALARM", "cat catDetected true"), calls);
+        assertTrue(registry.hasListeners(ListenerRegistry.Topic.ALARM_STATUS));
+        assertFalse(registry.hasListeners(ListenerRegistry.Topic.SENSOR_STATUS));
+    }
+
+    @Test
+    public void add_sameListenerTwice_calledOnce() {
+        RecordingListener listener = new RecordingListener("once");
+        registry.add(listener);
+        registry.add(listener, ListenerRegistry.Topic.CAT_DETECTED);
+
+        registry.catDetected(false);
+
+        assertEquals(List.of("once catDetected false"), calls);
+    }
+
+    @Test
+    public void remove_subscribedListener_notCalledAnyMore() {
+        RecordingListener removed = new RecordingListener("removed");
+        registry.add(removed);
+        registry.add(new RecordingListener("kept"));
+
+        registry.remove(removed);
+        registry.alarmStatusChanged(AlarmStatus.NO_ALARM);
+
+        assertEquals(List.of("kept notify NO_ALARM"), calls);
+    }
+
+    @Test
+    public void alarmStatusChanged_listenerRemovesItself_restOfDispatchUnaffected() {
+        AtomicReference<StatusListener> self = new AtomicReference<>();
+        self.set(new RecordingListener("once") {
+            @Override
+            public void notify(AlarmStatus status) {
+                super.notify(status);
+                registry.remove(self.get());
+                registry.add(new RecordingListener("late"));
+            }
+        });
+        registry.add(self.get());
+        registry.add(new RecordingListener("next"));
+
+        registry.alarmStatusChanged(AlarmStatus.ALARM);
+        registry.alarmStatusChanged(AlarmStatus.NO_ALARM);
+
+        assertEquals(List.of("once notify ALARM", "next notify ALARM", "next notify NO_ALARM", "late notify NO_ALARM"),
+                calls);
+    }
+
+    @Test
+    public void alarmStatusChanged_concurrentSubscriptions_noFailures() throws InterruptedException {
+        StatusListener quiet = new StatusListener() {
+            @Override
+            public void notify(AlarmStatus status) {
+            }
+
+            @Override
+            public void catDetected(boolean catDetected) {
+            }
+
+            @Override
+            public void sensorStatusChanged() {
+            }
+        };
+        AtomicBoolean done = new AtomicBoolean();
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+        Thread subscriber = new Thread(() -> {
+            try {
+                while (!done.get()) {
+                    registry.add(quiet);
+                    registry.remove(quiet);
+                }
+            } catch (Throwable e) {
+                failure.set(e);
+            }
+        });
+        subscriber.start();
+        registry.add(new RecordingListener("steady"), ListenerRegistry.Topic.ALARM_STATUS);
+
+        for (int i = 0; i < 100_000; i++) {
+            registry.alarmStatusChanged(AlarmStatus.ALARM);
+        }
+        done.set(true);
+        subscriber.join();
+
+        assertNull(failure.get());
+        assertEquals(100_000, calls.size());
+    }
+
+    private class RecordingListener implements StatusListener {
+        private final String name;
+
+        private RecordingListener(String name) {
+            this.name = name;
+        }
+
+        @Override
+        public void notify(AlarmStatus status) {
+            calls.add(name + " notify " + status);
+        }
+
+        @Override
+        public void catDetected(boolean catDetected) {
+            calls.add(name + " catDetected " + catDetected);
+        }
+
+        @Override
+        public void sensorStatusChanged() {
+            calls.add(name + " sensorStatusChanged");
+        }
+    }
+}
@@ -0,0 +1,200 @@
+package com.udacity.security.service;
+
+import com.udacity.image.service.Detection;
+import com.udacity.image.service.ImageService;
+import com.udacity.security.application.StatusListener;
+import com.udacity.security.data.AlarmStatus;
+import com.udacity.security.data.ArmingStatus;
+import com.udacity.security.data.InMemorySecurityRepositoryImpl;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.awt.image.BufferedImage;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ProcessImagesTest {
+
+    private static final long SLOW_MILLIS = 2_000;
+
+    //each frame's behaviour is keyed by the frame itself, since scans run in any order
+    private final Map<BufferedImage, Long> delays = new ConcurrentHashMap<>();
+    private final Map<BufferedImage, Boolean> cats = new ConcurrentHashMap<>();
+    private final AtomicInteger started = new AtomicInteger();
+    private final AtomicInteger interrupted = new AtomicInteger();
+
+    private final AtomicInteger alarmNotifications = new AtomicInteger();
+    private final AtomicInteger catNotifications = new AtomicInteger();
+
+    private ExecutorService executor;
+
+    // SUT
+    private SecurityService securityService;
+
+    @BeforeEach
+    public void init() {
+        executor = Executors.newFixedThreadPool(4);
+        ImageService detector = new ImageService() {
+            @Override
+            public boolean imageContainsCat(BufferedImage image, float confidenceThreshold) {
+                return detect(image, confidenceThreshold).isCat(confidenceThreshold);
+            }
+
+            @Override
+            public Detection detect(BufferedImage image, float confidenceThreshold) {
+                started.incrementAndGet();
+                try {
+                    Thread.sleep(Math.max(0, delays.getOrDefault(image, 0L)));
+                } catch (InterruptedException e) {
+                    interrupted.incrementAndGet();
+                    throw new IllegalStateException("cancelled", e);
+                }
+                if (delays.getOrDefault(image, 0L) < 0) {
+                    throw new IllegalStateException("detector failed");
+                }
+                return cats.getOrDefault(image, false)
+                        ? new Detection("Cat", 90f, confidenceThreshold, false)
+                        : new Detection(null, 0f, confidenceThreshold, true);
+            }
+        };
+        securityService = new SecurityService(new InMemorySecurityRepositoryImpl(), detector, new HashSet<>());
+        securityService.addStatusListener(new StatusListener() {
+            @Override
+            public void notify(AlarmStatus status) {
+                alarmNotifications.incrementAndGet();
+            }
+
+            @Override
+            public void catDetected(boolean catDetected) {
+                catNotifications.incrementAndGet();
+            }
+
+            @Override
+            public void sensorStatusChanged() {
+            }
+        });
+    }
+
+    @AfterEach
+    public void close() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void processImages_manyCameras_scannedInParallelAndNotifiedOnce() {
+        Map<String, BufferedImage> frames = new LinkedHashMap<>();
+        for (int i = 0; i < 4; i++) {
+            BufferedImage frame = frame(300, i == 2);
+            frames.put("camera-" + i, frame);
+        }
+
+        long start = System.nanoTime();
+        Map<String, Detection> results = securityService.processImages(frames, executor);
+        long elapsed = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+        assertEquals(4, results.size());
+        assertTrue(elapsed < 1_000, "scans ran one after another: " + elapsed + "ms");
+        assertTrue(securityService.getDetection("camera-2").isCat(SecurityService.DEFAULT_CONFIDENCE_THRESHOLD));
+        assertTrue(securityService.getState().isCatDetected());
+        assertEquals(1, catNotifications.get());
+        assertTrue(alarmNotifications.get() <= 1);
+    }
+
+    @Test
+    public void processImages_armedHomeAndCatFound_remainingScansCancelled() throws InterruptedException {
+        securityService.setArmingStatus(ArmingStatus.ARMED_HOME);
+        Map<String, BufferedImage> frames = new LinkedHashMap<>();
+        frames.put("porch", frame(0, true));
+        frames.put("garden", frame(SLOW_MILLIS, false));
+        frames.put("garage", frame(SLOW_MILLIS, false));
+
+        long start = System.nanoTime();
+        Map<String, Detection> results = securityService.processImages(frames, executor);
+        long elapsed = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+        assertEquals(Map.of("porch", results.get("porch")), results);
+        assertTrue(elapsed < SLOW_MILLIS, "waited for the slow scans: " + elapsed + "ms");
+        assertEquals(AlarmStatus.ALARM, securityService.getAlarmStatus());
+        assertNull(securityService.getDetection("garden"));
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(1, TimeUnit.SECONDS));
+        //slow scans were either interrupted or never started
+        assertEquals(started.get() - 1, interrupted.get());
+    }
+
+    @Test
+    public void processImages_disarmedAndCatFound_allScansFinish() {
+        Map<String, BufferedImage> frames = new LinkedHashMap<>();
+        frames.put("porch", frame(0, true));
+        frames.put("garden", frame(100, false));
+
+        Map<String, Detection> results = securityService.processImages(frames, executor);
+
+        assertEquals(2, results.size());
+        assertEquals(0, interrupted.get());
+    }
+
+    @Test
+    public void processImages_oneScanFails_othersAppliedAndFailureThrown() {
+        Map<String, BufferedImage> frames = new LinkedHashMap<>();
+        frames.put("porch", frame(0, true));
+        frames.put("garden", frame(-1, false));
+
+        IllegalStateException failure = assertThrows(IllegalStateException.class,
+                () -> securityService.processImages(frames, executor));
+
+        assertEquals("detector failed", failure.getMessage());
+        assertTrue(securityService.getState().isCatDetected());
+        assertNull(securityService.getDetection("garden"));
+        assertEquals(1, catNotifications.get());
+    }
+
+    @Test
+    public void processImages_executorRejectsScan_othersAppliedAndRejectionThrown() {
+        //one scan running and one queued, so the third is rejected
+        ThreadPoolExecutor bounded = new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(1));
+        Map<String, BufferedImage> frames = new LinkedHashMap<>();
+        frames.put("porch", frame(300, true));
+        frames.put("garden", frame(0, false));
+        frames.put("garage", frame(0, true));
+
+        try {
+            assertThrows(RejectedExecutionException.class, () -> securityService.processImages(frames, bounded));
+        } finally {
+            bounded.shutdownNow();
+        }
+
+        assertEquals(2, started.get());
+        assertTrue(securityService.getDetection("porch").isCat(SecurityService.DEFAULT_CONFIDENCE_THRESHOLD));
+        assertNotNull(securityService.getDetection("garden"));
+        assertNull(securityService.getDetection("garage"));
+        assertEquals(1, catNotifications.get());
+    }
+
+    @Test
+    public void processImages_noFrames_noNotification() {
+        assertTrue(securityService.processImages(Map.of(), executor).isEmpty());
+
+        assertEquals(0, catNotifications.get());
+    }
+
+    private BufferedImage frame(long delayMillis, boolean cat) {
+        BufferedImage frame = new BufferedImage(1, 1, BufferedImage.TYPE_INT_RGB);
+        delays.put(frame, delayMillis);
+        cats.put(frame, cat);
+        return frame;
+    }
+}
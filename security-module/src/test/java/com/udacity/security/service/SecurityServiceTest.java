@@ -1,5 +1,6 @@
 package com.udacity.security.service;
 
+import com.udacity.image.service.Detection;
 import com.udacity.image.service.ImageService;
 import com.udacity.security.application.StatusListener;
 import com.udacity.security.data.*;
@@ -16,9 +17,12 @@ import org.mockito.Mockito;
 import java.awt.image.BufferedImage;
 import java.util.HashSet;
 import java.util.Set;
+import java.util.UUID;
 import java.util.stream.Stream;
 
+import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.argThat;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.*;
 
@@ -293,6 +297,50 @@ class SecurityServiceTest {
         Mockito.verify(securityRepository, times(1)).updateSensor(sensor1);
     }
 
+    /**
+     * A sensor whose status changed is reported to listeners as a batch holding only that sensor.
+     */
+    @Test
+    public void changeSensorActivationStatus_statusChanged_notifiesSingleSensorBatch() {
+        // Stub sensor
+        UUID sensorId = UUID.randomUUID();
+        Mockito.when(sensor1.getActive()).thenReturn(false);
+        Mockito.when(sensor1.getSensorId()).thenReturn(sensorId);
+
+        // Stub system status
+        Mockito.when(securityRepository.getArmingStatus()).thenReturn(ArmingStatus.DISARMED);
+
+        // Run it
+        securityService.changeSensorActivationStatus(sensor1, true);
+
+        // Verify listener notified with the single change
+        Mockito.verify(aListener, times(1)).sensorStatusChanged(
+                argThat((SensorStatusBatch batch) -> batch.size() == 1 && sensorId.equals(batch.getSensorId(0))));
+    }
+
+    /**
+     * Sensors in zones that are not armed at home are ignored while the system is armed-home.
+     */
+    @Test
+    public void changeSensorActivationStatus_armedHome_interiorSensor_sameAlarm() {
+        // Stub an interior sensor
+        Mockito.when(sensor1.getActive()).thenReturn(false);
+        Mockito.when(sensor1.getZone()).thenReturn(Zone.INTERIOR);
+
+        // Stub system status
+        Mockito.when(securityRepository.getArmingStatus()).thenReturn(ArmingStatus.ARMED_HOME);
+
+        // Run it
+        securityService.changeSensorActivationStatus(sensor1, true);
+
+        // Verify alarm status unchanged
+        Mockito.verify(securityRepository, never()).setAlarmStatus(any());
+
+        // Verify sensor still activated
+        Mockito.verify(sensor1, times(1)).setActive(eq(true));
+        Mockito.verify(securityRepository, times(1)).updateSensor(eq(sensor1));
+    }
+
     /**
      * Application requirement:
      *
@@ -305,7 +353,7 @@ class SecurityServiceTest {
         BufferedImage currentCameraImage = Mockito.mock(BufferedImage.class);
 
         // Stub recognising a cat
-        Mockito.when(imageService.imageContainsCat(eq(currentCameraImage), eq(50.0f))).thenReturn(true);
+        Mockito.when(imageService.detect(eq(currentCameraImage), eq(50.0f))).thenReturn(new Detection("Cat", 80.0f, 50.0f, false));
 
          // Stub arming status
         Mockito.when(securityRepository.getArmingStatus()).thenReturn(ArmingStatus.ARMED_HOME);
@@ -333,7 +381,7 @@ class SecurityServiceTest {
         BufferedImage currentCameraImage = Mockito.mock(BufferedImage.class);
 
         // Stub recognising a cat
-        Mockito.when(imageService.imageContainsCat(eq(currentCameraImage), eq(50.0f))).thenReturn(false);
+        Mockito.when(imageService.detect(eq(currentCameraImage), eq(50.0f))).thenReturn(new Detection(null, 0f, 50.0f, true));
 
         // Stub 2 inactive sensors
         when(sensor1.getActive()).thenReturn(false);
@@ -355,6 +403,71 @@ class SecurityServiceTest {
         Mockito.verify(aListener, times(1)).notify(alarmActive);
     }
 
+    @Test
+    public void detect_thenApplyDetection_catStatusChangesOnlyWhenApplied() {
+        // Dummy image
+        BufferedImage currentCameraImage = Mockito.mock(BufferedImage.class);
+
+        // Stub recognising a cat
+        Mockito.when(imageService.detect(eq(currentCameraImage), eq(50.0f))).thenReturn(new Detection("Cat", 80.0f, 50.0f, true));
+
+        // Scan without applying
+        Detection detection = securityService.detect(SecurityService.DEFAULT_CAMERA, currentCameraImage);
+        Mockito.verify(aListener, never()).catDetected(anyBoolean());
+
+        // Run it
+        securityService.applyDetection(SecurityService.DEFAULT_CAMERA, detection);
+
+        // Verify cat detected
+        Mockito.verify(securityRepository, times(1)).setCatDetected(true);
+        Mockito.verify(aListener, times(1)).catDetected(true);
+    }
+
+    /**
+     * Raising a camera's threshold above the score of its latest cat clears the cat without
+     * scanning the image again.
+     */
+    @Test
+    public void setConfidenceThreshold_aboveLatestScore_clearsCatWithoutRescanning() {
+        // Dummy image
+        BufferedImage currentCameraImage = Mockito.mock(BufferedImage.class);
+
+        // Stub a complete scan recognising a cat at 70%
+        Mockito.when(imageService.detect(eq(currentCameraImage), eq(50.0f))).thenReturn(new Detection("Cat", 70.0f, 50.0f, true));
+        securityService.processImage("garden", currentCameraImage);
+        Mockito.verify(aListener, times(1)).catDetected(true);
+
+        // Stub the repository remembering the cat
+        Mockito.when(securityRepository.getCatDetected()).thenReturn(true);
+
+        // Run it
+        securityService.setConfidenceThreshold("garden", 90.0f);
+
+        // Verify cat cleared without another scan
+        Mockito.verify(securityRepository, times(1)).setCatDetected(false);
+        Mockito.verify(aListener, times(1)).catDetected(false);
+        Mockito.verify(imageService, times(1)).detect(any(), anyFloat());
+    }
+
+    @Test
+    public void setConfidenceThreshold_latestScanStoppedEarly_keepsCatUntilNextImage() {
+        // Dummy image
+        BufferedImage currentCameraImage = Mockito.mock(BufferedImage.class);
+
+        // Stub a scan stopping at the first cat label, at 70%
+        Mockito.when(imageService.detect(eq(currentCameraImage), eq(50.0f))).thenReturn(new Detection("Cat", 70.0f, 50.0f, false));
+        securityService.processImage("garden", currentCameraImage);
+        Mockito.verify(aListener, times(1)).catDetected(true);
+
+        // Run it
+        securityService.setConfidenceThreshold("garden", 90.0f);
+
+        // Verify the cat is neither cleared nor re-decided from the skipped labels
+        Mockito.verify(securityRepository, never()).setCatDetected(false);
+        Mockito.verify(aListener, never()).catDetected(false);
+        assertTrue(securityService.getDetection("garden").isCat(90.0f));
+    }
+
     /**
      * Application requirement:
      *
@@ -394,11 +507,14 @@ class SecurityServiceTest {
         Mockito.verify(sensor1, never()).setActive(any());
         Mockito.verify(sensor2, times(1)).setActive(false);
 
-        // Verify updating sensor 2
-        Mockito.verify(securityRepository, times(1)).updateSensor(sensor2);
+        // Verify updating sensor 2 in a single bulk update
+        Mockito.verify(securityRepository, times(1)).updateSensors(
+                argThat(updated -> updated.size() == 1 && updated.contains(sensor2)));
+        Mockito.verify(securityRepository, never()).updateSensor(any());
 
-        // Verify notifying listener
-        Mockito.verify(aListener, times(1)).sensorStatusChanged();
+        // Verify notifying listener with exactly the deactivated sensor
+        Mockito.verify(aListener, times(1)).sensorStatusChanged(
+                argThat((SensorStatusBatch batch) -> batch.size() == 1 && !batch.isActive(0)));
 
         // Verify changing arming status
         Mockito.verify(securityRepository, times(1)).setArmingStatus(eq(armingStatus));
@@ -0,0 +1,61 @@
+package com.udacity.security.service;
+
+import com.udacity.security.data.Sensor;
+import com.udacity.security.data.SensorType;
+import com.udacity.security.data.Zone;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SensorEvaluatorTest {
+
+    //large enough to be split into several slices whatever the pool's parallelism
+    private static final int SENSOR_COUNT = 100_000;
+    private static final int PARALLEL = 0;
+    private static final int SEQUENTIAL = Integer.MAX_VALUE;
+    //sensors without a zone count in the premises
+    private static final Zone[] ZONES = {Zone.PERIMETER, Zone.INTERIOR, Zone.floor(2), null};
+
+    private Sensor[] sensors;
+
+    @BeforeEach
+    public void init() {
+        sensors = new Sensor[SENSOR_COUNT];
+        for (int i = 0; i < SENSOR_COUNT; i++) {
+            sensors[i] = new Sensor("Sensor " + i, SensorType.values()[i % SensorType.values().length],
+                    ZONES[i % ZONES.length]);
+            sensors[i].setActive(false);
+        }
+    }
+
+    @Test
+    public void countActiveByZone_parallelNoSensorActive_returnsNoZones() {
+        assertTrue(SensorEvaluator.countActiveByZone(sensors, PARALLEL).isEmpty());
+    }
+
+    @Test
+    public void countActiveByZone_parallelOnlyLastSensorActive_countedInItsZone() {
+        sensors[SENSOR_COUNT - 1].setActive(true);
+
+        assertEquals(Map.of(Zone.orDefault(ZONES[(SENSOR_COUNT - 1) % ZONES.length]), 1),
+                SensorEvaluator.countActiveByZone(sensors, PARALLEL));
+    }
+
+    @Test
+    public void countActiveByZone_parallel_matchesSequential() {
+        Random random = new Random(11);
+        for (Sensor sensor : sensors) {
+            sensor.setActive(random.nextInt(3) == 0);
+        }
+
+        Map<Zone, Integer> expected = SensorEvaluator.countActiveByZone(sensors, SEQUENTIAL);
+
+        assertEquals(expected, SensorEvaluator.countActiveByZone(sensors, PARALLEL));
+        assertEquals(ZONES.length, expected.size());
+        assertTrue(expected.containsKey(Zone.PREMISES));
+    }
+}
@@ -0,0 +1,161 @@
+package com.udacity.security.service;
+
+import com.udacity.image.service.Detection;
+import com.udacity.image.service.ImageService;
+import com.udacity.security.application.StatusListener;
+import com.udacity.security.data.AlarmStatus;
+import com.udacity.security.data.InMemorySecurityRepositoryImpl;
+import com.udacity.security.data.SecurityRepository;
+import com.udacity.security.data.Sensor;
+import com.udacity.security.data.SensorStatusBatch;
+import com.udacity.security.data.SensorType;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class WarmStartStoreTest {
+
+    private final BufferedImage frame = new BufferedImage(32, 24, BufferedImage.TYPE_INT_RGB);
+
+    private Path directory;
+    private Path file;
+    private int scans;
+
+    // SUT
+    private WarmStartStore store;
+
+    @BeforeEach
+    public void init() throws IOException {
+        directory = Files.createTempDirectory("warm-start");
+        file = directory.resolve("state").resolve("warm-start.bin");
+        store = new WarmStartStore(file);
+        for (int x = 0; x < frame.getWidth(); x++) {
+            frame.setRGB(x, 0, x * 0x080808);
+        }
+    }
+
+    @AfterEach
+    public void cleanUp() throws IOException {
+        Files.deleteIfExists(file);
+        Files.deleteIfExists(file.getParent());
+        Files.deleteIfExists(directory);
+    }
+
+    @Test
+    public void restore_savedState_latestResultPerCameraRestored() throws IOException {
+        SecurityService before = new SecurityService(new InMemorySecurityRepositoryImpl(), detector(),
+                new HashSet<>());
+        before.processImage("porch", frame);
+        store.save(before);
+
+        SecurityService after = new SecurityService(new InMemorySecurityRepositoryImpl(), detector(),
+                new HashSet<>());
+        assertTrue(store.restore(after));
+
+        assertEquals(1, scans);
+        assertTrue(after.getDetection("porch").isCat(SecurityService.DEFAULT_CONFIDENCE_THRESHOLD));
+        assertEquals("Cat", after.getDetection("porch").getLabel());
+    }
+
+    @Test
+    public void restore_savedState_firstFrameStillScanned() throws IOException {
+        SecurityService before = new SecurityService(new InMemorySecurityRepositoryImpl(), detector(),
+                new HashSet<>());
+        before.processImage("porch", frame);
+        store.save(before);
+        SecurityService after = new SecurityService(new InMemorySecurityRepositoryImpl(), detector(),
+                new HashSet<>());
+        store.restore(after);
+
+        after.processImage("porch", frame);
+
+        assertEquals(2, scans);
+    }
+
+    @Test
+    public void restore_nothingSaved_false() throws IOException {
+        SecurityService securityService = new SecurityService(new InMemorySecurityRepositoryImpl(), detector(),
+                new HashSet<>());
+
+        assertFalse(store.restore(securityService));
+        assertTrue(securityService.getDetections().isEmpty());
+    }
+
+    @Test
+    public void restore_corruptFile_throwsAndRestoresNothing() throws IOException {
+        SecurityService securityService = new SecurityService(new InMemorySecurityRepositoryImpl(), detector(),
+                new HashSet<>());
+        securityService.processImage("porch", frame);
+        store.save(securityService);
+        byte[] saved = Files.readAllBytes(file);
+        Files.write(file, Arrays.copyOf(saved, saved.length - 3));
+
+        SecurityService restarted = new SecurityService(new InMemorySecurityRepositoryImpl(), detector(),
+                new HashSet<>());
+
+        assertThrows(IOException.class, () -> store.restore(restarted));
+        assertTrue(restarted.getDetections().isEmpty());
+    }
+
+    @Test
+    public void notifyCurrentState_restoredRepository_listenersSeeStateBeforeFirstEvent() {
+        SecurityRepository repository = new InMemorySecurityRepositoryImpl();
+        Sensor door = new Sensor("Door", SensorType.DOOR);
+        door.setActive(true);
+        repository.addSensor(door);
+        repository.setAlarmStatus(AlarmStatus.PENDING_ALARM);
+        repository.setCatDetected(true);
+        SecurityService securityService = new SecurityService(repository, detector(), new HashSet<>());
+        List<String> seen = new ArrayList<>();
+        securityService.addStatusListener(new StatusListener() {
+            @Override
+            public void notify(AlarmStatus status) {
+                seen.add("alarm " + status);
+            }
+
+            @Override
+            public void catDetected(boolean catDetected) {
+                seen.add("cat " + catDetected);
+            }
+
+            @Override
+            public void sensorStatusChanged() {
+            }
+
+            @Override
+            public void sensorStatusChanged(SensorStatusBatch changes) {
+                seen.add("sensors " + changes.size() + " " + changes.isActive(0));
+            }
+        });
+
+        securityService.notifyCurrentState();
+
+        assertEquals(List.of("alarm PENDING_ALARM", "cat true", "sensors 1 true"), seen);
+    }
+
+    private ImageService detector() {
+        return new ImageService() {
+            @Override
+            public boolean imageContainsCat(BufferedImage image, float confidenceThreshold) {
+                return detect(image, confidenceThreshold).isCat(confidenceThreshold);
+            }
+
+            @Override
+            public Detection detect(BufferedImage image, float confidenceThreshold) {
+                scans++;
+                return new Detection("Cat", 87.5f, confidenceThreshold, true);
+            }
+        };
+    }
+}
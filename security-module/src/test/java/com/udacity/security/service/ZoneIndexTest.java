@@ -0,0 +1,172 @@
+package com.udacity.security.service;
+
+import com.udacity.security.data.ArmingStatus;
+import com.udacity.security.data.InMemorySecurityRepositoryImpl;
+import com.udacity.security.data.Sensor;
+import com.udacity.security.data.SensorType;
+import com.udacity.security.data.Zone;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashSet;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ZoneIndexTest {
+
+    // SUT
+    private SecurityService securityService;
+
+    private Sensor perimeter;
+    private Sensor interior;
+    private Sensor premises;
+
+    @BeforeEach
+    public void init() {
+        securityService = new SecurityService(new InMemorySecurityRepositoryImpl(),
+                (image, confidenceThreshold) -> false, new HashSet<>());
+        perimeter = new Sensor("Front door", SensorType.DOOR, Zone.PERIMETER);
+        interior = new Sensor("Hallway", SensorType.MOTION, Zone.INTERIOR);
+        premises = new Sensor("Shed", SensorType.WINDOW, null);
+        securityService.addSensor(perimeter);
+        securityService.addSensor(interior);
+        securityService.addSensor(premises);
+    }
+
+    @Test
+    public void of_activeSensors_countedPerZoneAndArmingMode() {
+        perimeter.setActive(true);
+        interior.setActive(true);
+        premises.setActive(true);
+        Sensor inactive = new Sensor("Back door", SensorType.DOOR, Zone.PERIMETER);
+
+        ZoneIndex index = ZoneIndex.of(new Sensor[]{perimeter, interior, premises, inactive});
+
+        assertEquals(1, index.getActiveCount(Zone.PERIMETER));
+        assertEquals(1, index.getActiveCount(Zone.INTERIOR));
+        assertEquals(1, index.getActiveCount(Zone.PREMISES));
+        assertEquals(0, index.getActiveCount(Zone.floor(1)));
+        assertEquals(3, index.getTotalActive());
+        assertEquals(3, index.getActiveCount(ArmingStatus.ARMED_AWAY));
+        assertEquals(2, index.getActiveCount(ArmingStatus.ARMED_HOME));
+    }
+
+    @Test
+    public void sensorChanged_activatedThenDeactivated_countsFollow() {
+        ZoneIndex index = ZoneIndex.of(new Sensor[0]);
+
+        index.sensorChanged(Zone.INTERIOR, true);
+        index.sensorChanged(Zone.PERIMETER, true);
+        index.sensorChanged(Zone.PERIMETER, true);
+
+        assertEquals(2, index.getActiveCount(Zone.PERIMETER));
+        assertEquals(3, index.getTotalActive());
+        assertEquals(2, index.getActiveCount(ArmingStatus.ARMED_HOME));
+
+        index.sensorChanged(Zone.PERIMETER, false);
+        index.sensorChanged(Zone.INTERIOR, false);
+
+        assertEquals(1, index.getActiveCount(Zone.PERIMETER));
+        assertEquals(0, index.getActiveCount(Zone.INTERIOR));
+        assertEquals(1, index.getTotalActive());
+        assertEquals(1, index.getActiveCount(ArmingStatus.ARMED_HOME));
+    }
+
+    @Test
+    public void clearActive_activeSensors_allCountsZero() {
+        ZoneIndex index = ZoneIndex.of(new Sensor[0]);
+        index.sensorChanged(Zone.INTERIOR, true);
+        index.sensorChanged(Zone.PERIMETER, true);
+
+        index.clearActive();
+
+        assertEquals(0, index.getActiveCount(Zone.PERIMETER));
+        assertEquals(0, index.getActiveCount(Zone.INTERIOR));
+        assertEquals(0, index.getTotalActive());
+        assertEquals(0, index.getActiveCount(ArmingStatus.ARMED_HOME));
+    }
+
+    @Test
+    public void getZoneIndex_sensorsActivatedAndDeactivated_keptInStepWithSensors() {
+        ZoneIndex index = securityService.getZoneIndex();
+
+        securityService.changeSensorActivationStatus(perimeter, true);
+        securityService.changeSensorActivationStatus(premises, true);
+        securityService.changeSensorActivationStatus(premises, true);
+
+        assertSame(index, securityService.getZoneIndex());
+        assertEquals(1, index.getActiveCount(Zone.PERIMETER));
+        assertEquals(1, index.getActiveCount(Zone.PREMISES));
+        assertEquals(2, index.getTotalActive());
+
+        securityService.changeSensorActivationStatus(perimeter, false);
+
+        assertEquals(0, index.getActiveCount(Zone.PERIMETER));
+        assertEquals(1, index.getTotalActive());
+    }
+
+    @Test
+    public void getZoneIndex_systemArmed_activeSensorsCleared() {
+        securityService.changeSensorActivationStatus(perimeter, true);
+        securityService.changeSensorActivationStatus(interior, true);
+        ZoneIndex index = securityService.getZoneIndex();
+
+        securityService.setArmingStatus(ArmingStatus.ARMED_AWAY);
+
+        assertEquals(0, securityService.getZoneIndex().getTotalActive());
+        assertEquals(0, index.getActiveCount(Zone.PERIMETER));
+    }
+
+    @Test
+    public void changeSensorZone_activeSensorMoved_countsFollowSensor() {
+        securityService.changeSensorActivationStatus(perimeter, true);
+        ZoneIndex index = securityService.getZoneIndex();
+
+        securityService.changeSensorZone(perimeter, Zone.INTERIOR);
+
+        assertEquals(0, index.getActiveCount(Zone.PERIMETER));
+        assertEquals(1, index.getActiveCount(Zone.INTERIOR));
+        assertEquals(0, index.getActiveCount(ArmingStatus.ARMED_HOME));
+        assertEquals(1, index.getTotalActive());
+        assertEquals(Zone.INTERIOR, securityService.getState().getSensor(perimeter.getSensorId()).getZone());
+
+        securityService.changeSensorActivationStatus(perimeter, false);
+
+        assertEquals(0, index.getActiveCount(Zone.INTERIOR));
+        assertEquals(0, index.getTotalActive());
+    }
+
+    @Test
+    public void changeSensorZone_inactiveSensorMoved_countedInNewZoneOnceActive() {
+        ZoneIndex index = securityService.getZoneIndex();
+
+        securityService.changeSensorZone(interior, null);
+        securityService.changeSensorActivationStatus(interior, true);
+
+        assertEquals(0, index.getActiveCount(Zone.INTERIOR));
+        assertEquals(1, index.getActiveCount(Zone.PREMISES));
+        assertEquals(1, index.getActiveCount(ArmingStatus.ARMED_HOME));
+    }
+
+    @Test
+    public void getZoneIndex_sensorAddedOrRemoved_rebuiltFromSensors() {
+        securityService.changeSensorActivationStatus(perimeter, true);
+        ZoneIndex before = securityService.getZoneIndex();
+        Sensor added = new Sensor("Garage", SensorType.DOOR, Zone.PERIMETER);
+        added.setActive(true);
+
+        securityService.addSensor(added);
+        ZoneIndex afterAdd = securityService.getZoneIndex();
+
+        assertNotSame(before, afterAdd);
+        assertEquals(2, afterAdd.getActiveCount(Zone.PERIMETER));
+        assertEquals(2, afterAdd.getTotalActive());
+
+        securityService.removeSensor(perimeter);
+        ZoneIndex afterRemove = securityService.getZoneIndex();
+
+        assertNotSame(afterAdd, afterRemove);
+        assertEquals(1, afterRemove.getActiveCount(Zone.PERIMETER));
+        assertEquals(1, afterRemove.getTotalActive());
+    }
+}
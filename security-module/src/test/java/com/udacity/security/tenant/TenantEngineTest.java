@@ -0,0 +1,107 @@
+package com.udacity.security.tenant;
+
+import com.udacity.security.data.ArmingStatus;
+import com.udacity.security.data.InMemorySecurityRepositoryImpl;
+import com.udacity.security.service.SecurityService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TenantEngineTest {
+
+    private static final int SHARDS = 4;
+    private static final long WAIT_SECONDS = 5;
+
+    private final List<String> created = Collections.synchronizedList(new ArrayList<>());
+
+    // SUT
+    private TenantEngine engine;
+
+    @BeforeEach
+    public void init() {
+        engine = new TenantEngine(SHARDS, tenantId -> {
+            created.add(tenantId);
+            return new InMemorySecurityRepositoryImpl();
+        }, (image, confidenceThreshold) -> false);
+    }
+
+    @AfterEach
+    public void close() throws InterruptedException {
+        engine.close();
+    }
+
+    private <T> T await(CompletableFuture<T> future) throws InterruptedException, ExecutionException, TimeoutException {
+        return future.get(WAIT_SECONDS, TimeUnit.SECONDS);
+    }
+
+    @Test
+    public void submit_sameTenant_alwaysSameShardThread() throws Exception {
+        Set<String> threads = new HashSet<>();
+        for (int i = 0; i < 20; i++) {
+            threads.add(await(engine.submit("premises-1", securityService -> Thread.currentThread().getName())));
+        }
+
+        assertEquals(1, threads.size());
+        assertTrue(threads.iterator().next().startsWith("tenant-shard-"));
+        assertSame(engine.executorFor("premises-1"), engine.executorFor("premises-1"));
+    }
+
+    @Test
+    public void submit_sameTenant_runsInSubmissionOrderOnOneService() throws Exception {
+        List<Integer> order = Collections.synchronizedList(new ArrayList<>());
+        Set<SecurityService> services = Collections.synchronizedSet(new HashSet<>());
+        List<CompletableFuture<Void>> operations = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            int step = i;
+            operations.add(engine.submit("premises-1", securityService -> {
+                order.add(step);
+                services.add(securityService);
+                return null;
+            }));
+        }
+        await(CompletableFuture.allOf(operations.toArray(new CompletableFuture[0])));
+
+        for (int i = 0; i < 100; i++) {
+            assertEquals(i, (int) order.get(i));
+        }
+        assertEquals(1, services.size());
+        assertEquals(List.of("premises-1"), created);
+    }
+
+    @Test
+    public void submit_differentTenants_separateServices() throws Exception {
+        engine.execute("premises-1", securityService -> securityService.setArmingStatus(ArmingStatus.ARMED_AWAY));
+
+        assertEquals(ArmingStatus.ARMED_AWAY, await(engine.submit("premises-1", SecurityService::getArmingStatus)));
+        assertEquals(ArmingStatus.DISARMED, await(engine.submit("premises-2", SecurityService::getArmingStatus)));
+    }
+
+    @Test
+    public void removeTenant_nextOperationStartsFresh() throws Exception {
+        engine.execute("premises-1", securityService -> securityService.setArmingStatus(ArmingStatus.ARMED_AWAY));
+
+        assertTrue(await(engine.removeTenant("premises-1")));
+        assertFalse(await(engine.removeTenant("premises-1")));
+
+        assertEquals(ArmingStatus.DISARMED, await(engine.submit("premises-1", SecurityService::getArmingStatus)));
+        assertEquals(List.of("premises-1", "premises-1"), created);
+    }
+
+    @Test
+    public void constructor_noShards_rejected() {
+        assertThrows(IllegalArgumentException.class,
+                () -> new TenantEngine(0, tenantId -> new InMemorySecurityRepositoryImpl(), (image, threshold) -> false));
+    }
+}
@@ -0,0 +1,100 @@
+package com.udacity.security.timer;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TimerWheelTest {
+
+    // 4 levels of 8 buckets at 10ms per tick: level spans of 80ms, 640ms, 5.12s and 40.96s
+    private static final long TICK = 10;
+
+    private List<Long> firedAt;
+    private long now;
+
+    // SUT
+    private TimerWheel timerWheel;
+
+    @BeforeEach
+    public void init() {
+        firedAt = new ArrayList<>();
+        now = 0;
+        timerWheel = new TimerWheel(TICK, 8, 4, 0);
+    }
+
+    /**
+     * Timers on every level, and beyond the top level, fire on the first tick at or after their deadline.
+     */
+    @ParameterizedTest
+    @ValueSource(longs = {10, 70, 80, 95, 640, 1234, 5120, 40_960, 100_000})
+    public void advanceTo_timerOnAnyLevel_firesAtDeadline(long delay) {
+        timerWheel.schedule(() -> firedAt.add(now), delay);
+
+        advanceStepwise(delay + 10 * TICK);
+
+        assertEquals(List.of(roundUpToTick(delay)), firedAt);
+    }
+
+    @Test
+    public void advanceTo_timerAfterWheelAdvanced_firesRelativeToCurrentTime() {
+        advanceStepwise(550);
+        timerWheel.schedule(() -> firedAt.add(now), 700);
+
+        advanceStepwise(2000);
+
+        assertEquals(List.of(550L + 700L), firedAt);
+    }
+
+    @Test
+    public void advanceTo_largeJump_firesAllExpiredTimersInDeadlineOrder() {
+        List<Integer> order = new ArrayList<>();
+        for (int i = 9; i >= 0; i--) {
+            int id = i;
+            timerWheel.schedule(() -> order.add(id), (i + 1) * 500L);
+        }
+
+        timerWheel.advanceTo(10_000);
+
+        assertEquals(List.of(0, 1, 2, 3, 4, 5, 6, 7, 8, 9), order);
+    }
+
+    @Test
+    public void cancel_pendingTimer_neverFires() {
+        Timeout timeout = timerWheel.schedule(() -> firedAt.add(now), 1000);
+        Timeout other = timerWheel.schedule(() -> firedAt.add(now), 1000);
+
+        assertTrue(timeout.cancel());
+        assertFalse(timeout.cancel());
+        advanceStepwise(2000);
+
+        assertTrue(timeout.isCancelled());
+        assertEquals(List.of(1000L), firedAt);
+        assertFalse(other.cancel());
+    }
+
+    @Test
+    public void schedule_fromExpiringTask_isAllowed() {
+        timerWheel.schedule(() -> timerWheel.schedule(() -> firedAt.add(now), 100), 100);
+
+        advanceStepwise(500);
+
+        assertEquals(List.of(200L), firedAt);
+    }
+
+    private void advanceStepwise(long until) {
+        while (now < until) {
+            now += TICK;
+            timerWheel.advanceTo(now);
+        }
+    }
+
+    private static long roundUpToTick(long delay) {
+        return (delay + TICK - 1) / TICK * TICK;
+    }
+}